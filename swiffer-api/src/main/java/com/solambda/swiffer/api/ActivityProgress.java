@@ -0,0 +1,35 @@
+package com.solambda.swiffer.api;
+
+/**
+ * The progress of the activity task being executed, injected in the
+ * {@link Executor} methods declaring a parameter of this type.
+ * <p>
+ * The worker heartbeats the running tasks automatically, sending the latest
+ * details set by the executor: setting the details does not call SWF, so that
+ * it can be done as often as needed.
+ *
+ * @see WorkerBuilder#heartbeatFraction(double)
+ */
+public interface ActivityProgress {
+
+	/**
+	 * Set the details sent with the next heartbeat, replacing the details not
+	 * sent yet.
+	 *
+	 * @param details
+	 *            the details of the progress, at most 2048 characters
+	 */
+	void details(String details);
+
+	/**
+	 * The cancellation is known at the first heartbeat following the request.
+	 * The executing thread is also interrupted, if enabled by
+	 * {@link WorkerBuilder#interruptOnCancel(boolean)}.
+	 * <p>
+	 * An executor observing the cancellation should stop and throw an
+	 * exception: the task is then reported as canceled.
+	 *
+	 * @return true if the task has been requested to cancel
+	 */
+	boolean isCancelRequested();
+}
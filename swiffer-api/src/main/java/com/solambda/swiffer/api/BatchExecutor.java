@@ -0,0 +1,48 @@
+package com.solambda.swiffer.api;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+/**
+ * Define the implementation of an activity executed by batches: the activity
+ * tasks of the same type are accumulated by the worker, and the method is
+ * invoked once for the whole batch.
+ * <p>
+ * The method takes a single {@link java.util.List} parameter, receiving the
+ * deserialized inputs of the tasks. It returns either nothing, or a
+ * {@link java.util.List} of outputs in the same order as the inputs. An output
+ * which is a {@link Throwable} fails only the task of the same index; an
+ * exception thrown by the method fails all the tasks of the batch.
+ * <p>
+ * A batch is executed when it reaches {@link #maxSize()} tasks, or
+ * {@link #lingerMillis()} after its first task was polled. Each accumulated
+ * task counts against the pool size of the worker, which must be at least
+ * the max size of the batches.
+ */
+@Documented
+@Retention(RUNTIME)
+@Target(METHOD)
+public @interface BatchExecutor {
+	/**
+	 * Interface or annotation annotated with {@link ActivityType}.
+	 *
+	 * @return the activity type this executor implements
+	 */
+	Class<?> activity();
+
+	/**
+	 * @return the maximum number of tasks of a batch, at most the pool size of
+	 *         the worker
+	 */
+	int maxSize() default 10;
+
+	/**
+	 * @return the maximum time a task waits for the other tasks of its batch,
+	 *         in milliseconds
+	 */
+	long lingerMillis() default 100;
+}
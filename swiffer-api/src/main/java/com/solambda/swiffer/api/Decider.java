@@ -5,7 +5,8 @@ package com.solambda.swiffer.api;
  * workflow templates to make decisions to SWF.
  * <p>
  * The service can be started and stopped using the methods {@link #start()} and
- * {@link #stop()}.
+ * {@link #stop()}. A stopped decider cannot be started again: build a new
+ * one instead.
  * <p>
  * You create instances of {@link Decider}s using
  * {@link Swiffer#newDeciderBuilder()}
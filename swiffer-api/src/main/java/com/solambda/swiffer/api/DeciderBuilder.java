@@ -1,24 +1,41 @@
 package com.solambda.swiffer.api;
 
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ThreadFactory;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.amazonaws.services.simpleworkflow.AmazonSimpleWorkflow;
+import com.amazonaws.services.simpleworkflow.AmazonSimpleWorkflowAsync;
+import com.amazonaws.services.simpleworkflow.model.CountPendingDecisionTasksRequest;
+import com.amazonaws.services.simpleworkflow.model.TaskList;
+import com.google.common.base.Preconditions;
 import com.solambda.swiffer.api.duration.DurationTransformer;
+import com.solambda.swiffer.api.internal.PollerAutoscaler;
+import com.solambda.swiffer.api.internal.ResponsePipeline;
+import com.solambda.swiffer.api.internal.TaskContextPoller;
 import com.solambda.swiffer.api.internal.VersionedName;
+import com.solambda.swiffer.api.internal.VirtualThreads;
+import com.solambda.swiffer.api.internal.decisions.AsyncDecisionTaskPoller;
 import com.solambda.swiffer.api.internal.decisions.DeciderImpl;
+import com.solambda.swiffer.api.internal.decisions.DeciderOptions;
+import com.solambda.swiffer.api.internal.decisions.DecisionTaskContext;
 import com.solambda.swiffer.api.internal.decisions.DecisionTaskPoller;
+import com.solambda.swiffer.api.internal.decisions.EventHandlerProfiler;
+import com.solambda.swiffer.api.internal.decisions.HistoryMode;
+import com.solambda.swiffer.api.internal.decisions.WorkflowHistoryCache;
 import com.solambda.swiffer.api.internal.decisions.WorkflowTemplate;
 import com.solambda.swiffer.api.internal.decisions.WorkflowTemplateFactory;
 import com.solambda.swiffer.api.internal.decisions.WorkflowTemplateRegistry;
 import com.solambda.swiffer.api.internal.registration.WorkflowTypeRegistry;
 import com.solambda.swiffer.api.mapper.DataMapper;
+import com.solambda.swiffer.api.metrics.SwifferMetrics;
 import com.solambda.swiffer.api.retry.ExponentialRetryPolicy;
 import com.solambda.swiffer.api.retry.RetryPolicy;
 
@@ -43,6 +60,23 @@ public class DeciderBuilder {
 	private String taskList;
 	private List<Object> workflowTemplates;
     private RetryPolicy globalRetryPolicy;
+	private int pollers = 1;
+	private Integer minPollers;
+	private int growAfterTasks = PollerAutoscaler.DEFAULT_GROW_AFTER_TASKS;
+	private int shrinkAfterEmptyPolls = PollerAutoscaler.DEFAULT_SHRINK_AFTER_EMPTY_POLLS;
+	private Integer decisionThreads;
+	private HistoryMode historyMode = HistoryMode.EAGER;
+	private WorkflowHistoryCache historyCache;
+	private int historyCacheExecutions;
+	private long historyCacheEvents;
+	private boolean asyncPolling;
+	private boolean virtualThreads;
+	private boolean asyncResponses;
+	private int responseSenders = ResponsePipeline.DEFAULT_SENDERS;
+	private int responseCapacity = ResponsePipeline.DEFAULT_CAPACITY;
+	private Duration maxRetryDuration = ResponsePipeline.DEFAULT_MAX_RETRY_DURATION;
+	private SwifferMetrics metrics = SwifferMetrics.NONE;
+	private Duration slowHandlerThreshold;
 
 	public DeciderBuilder(final AmazonSimpleWorkflow swf, final String domain, DataMapper dataMapper, DurationTransformer durationTransformer) {
 		super();
@@ -60,9 +94,121 @@ public class DeciderBuilder {
 	 */
 	public Decider build() {
 		final String taskList = this.taskList == null ? "default" : this.taskList;
-		final DecisionTaskPoller poller = new DecisionTaskPoller(this.swf, this.domain, taskList, this.identity, dataMapper);
+		final List<TaskContextPoller<DecisionTaskContext>> pollers = new ArrayList<>(this.pollers);
+		final WorkflowHistoryCache historyCache = createHistoryCache();
+		for (int i = 0; i < this.pollers; i++) {
+			if (this.asyncPolling) {
+				pollers.add(new AsyncDecisionTaskPoller((AmazonSimpleWorkflowAsync) this.swf, this.domain, taskList,
+						pollerIdentity(i), dataMapper, historyMode, historyCache));
+			} else {
+				pollers.add(new DecisionTaskPoller(this.swf, this.domain, taskList, pollerIdentity(i), dataMapper,
+						historyMode, historyCache, virtualThreadFactory("decision-poll-")));
+			}
+		}
 		final WorkflowTemplateRegistry registry = createWorkflowTemplateRegistry();
-		return new DeciderImpl(poller, registry);
+		final int decisionThreads = this.decisionThreads == null ? this.pollers : this.decisionThreads;
+		return new DeciderImpl(pollers, registry, new DeciderOptions()
+				.decisionThreads(decisionThreads)
+				.autoscaler(createAutoscaler(taskList))
+				.threadFactory(virtualThreadFactory("decision-executor-"))
+				.responses(createResponsePipeline())
+				.metrics(this.metrics));
+	}
+
+	/**
+	 * Optional asynchronous sending of the decisions, with the default settings
+	 * of the {@link ResponsePipeline}. Disabled by default.
+	 *
+	 * @param asyncResponses
+	 *            true to send the decisions asynchronously
+	 * @return this builder
+	 * @see #asyncResponses(int, int, Duration)
+	 */
+	public DeciderBuilder asyncResponses(final boolean asyncResponses) {
+		this.asyncResponses = asyncResponses;
+		return this;
+	}
+
+	/**
+	 * Optional asynchronous sending of the decisions. Disabled by default.
+	 * <p>
+	 * The decisions are queued, freeing the decision threads immediately, and sent
+	 * by a few sender threads. Throttling, server and network errors are
+	 * retried with an exponential backoff, instead of losing the result of the
+	 * tasks.
+	 *
+	 * @param senders
+	 *            the number of threads sending the decisions
+	 * @param capacity
+	 *            the max number of decisions queued or being retried, the
+	 *            decision threads wait when it is reached
+	 * @param maxRetryDuration
+	 *            the max duration during which a response is retried when the
+	 *            start to close timeout of its decision task is unknown.
+	 *            Otherwise the response is retried until the task times out,
+	 *            after which SWF rejects it.
+	 * @return this builder
+	 */
+	public DeciderBuilder asyncResponses(final int senders, final int capacity, final Duration maxRetryDuration) {
+		Preconditions.checkArgument(senders > 0, "the number of senders should be greater than 0");
+		Preconditions.checkArgument(capacity > 0, "the capacity should be greater than 0");
+		Preconditions.checkArgument(maxRetryDuration != null && !maxRetryDuration.isNegative(),
+				"the max retry duration should not be negative");
+		this.asyncResponses = true;
+		this.responseSenders = senders;
+		this.responseCapacity = capacity;
+		this.maxRetryDuration = maxRetryDuration;
+		return this;
+	}
+
+	/**
+	 * @return the pipeline sending the responses, or null to send them
+	 *         synchronously
+	 */
+	private WorkflowHistoryCache createHistoryCache() {
+		if (this.historyCache != null || this.historyCacheExecutions == 0) {
+			return this.historyCache;
+		}
+		return new WorkflowHistoryCache(this.historyCacheExecutions, this.historyCacheEvents, this.metrics);
+	}
+
+	private ResponsePipeline createResponsePipeline() {
+		if (!this.asyncResponses) {
+			return null;
+		}
+		return new ResponsePipeline(this.responseSenders, this.responseCapacity, this.maxRetryDuration);
+	}
+
+	/**
+	 * @return a factory of virtual threads, or null to use platform threads
+	 */
+	private ThreadFactory virtualThreadFactory(final String prefix) {
+		if (!this.virtualThreads) {
+			return null;
+		}
+		if (!VirtualThreads.isSupported()) {
+			LOGGER.warn("Virtual threads are not supported by this JVM, using platform threads");
+			return null;
+		}
+		return VirtualThreads.factory(prefix);
+	}
+
+	private PollerAutoscaler createAutoscaler(final String taskList) {
+		if (this.minPollers == null) {
+			return null;
+		}
+		final CountPendingDecisionTasksRequest request = new CountPendingDecisionTasksRequest()
+				.withDomain(this.domain)
+				.withTaskList(new TaskList().withName(taskList));
+		return new PollerAutoscaler(this.minPollers, this.pollers, this.growAfterTasks, this.shrinkAfterEmptyPolls,
+				() -> this.swf.countPendingDecisionTasks(request).getCount());
+	}
+
+	private String pollerIdentity(final int index) {
+		if (this.pollers == 1 || this.identity == null) {
+			return this.identity;
+		}
+		return this.identity + "-" + index;
 	}
 
 	/**
@@ -87,6 +233,226 @@ public class DeciderBuilder {
 		return this;
 	}
 
+	/**
+	 * Optional number of decision tasks polled concurrently. Defaults to 1.
+	 * <p>
+	 * When more than one poller is used, the identity of each poller is
+	 * suffixed by its index.
+	 *
+	 * @param pollers
+	 *            number of concurrent pollers, greater than 0
+	 * @return this builder
+	 */
+	public DeciderBuilder pollers(final int pollers) {
+		Preconditions.checkArgument(pollers > 0, "the number of pollers should be greater than 0");
+		this.pollers = pollers;
+		return this;
+	}
+
+	/**
+	 * Optional autoscaling of the number of active pollers, between
+	 * {@code minPollers} and the number of {@link #pollers(int) pollers}.
+	 * Disabled by default: all the pollers are active.
+	 * <p>
+	 * A poller is activated after {@value PollerAutoscaler#DEFAULT_GROW_AFTER_TASKS}
+	 * polls returning a task in a row, or when the count of pending decision
+	 * tasks exceeds the active pollers. A poller is deactivated after
+	 * {@value PollerAutoscaler#DEFAULT_SHRINK_AFTER_EMPTY_POLLS} empty polls in
+	 * a row.
+	 *
+	 * @param minPollers
+	 *            minimum number of active pollers, greater than 0
+	 * @return this builder
+	 */
+	public DeciderBuilder autoscalePollers(final int minPollers) {
+		return autoscalePollers(minPollers, PollerAutoscaler.DEFAULT_GROW_AFTER_TASKS,
+				PollerAutoscaler.DEFAULT_SHRINK_AFTER_EMPTY_POLLS);
+	}
+
+	/**
+	 * Optional autoscaling of the number of active pollers, between
+	 * {@code minPollers} and the number of {@link #pollers(int) pollers}.
+	 *
+	 * @param minPollers
+	 *            minimum number of active pollers, greater than 0
+	 * @param growAfterTasks
+	 *            number of polls returning a task in a row after which a
+	 *            poller is activated
+	 * @param shrinkAfterEmptyPolls
+	 *            number of empty polls in a row after which a poller is
+	 *            deactivated
+	 * @return this builder
+	 */
+	public DeciderBuilder autoscalePollers(final int minPollers, final int growAfterTasks,
+			final int shrinkAfterEmptyPolls) {
+		Preconditions.checkArgument(minPollers > 0, "the minimum number of pollers should be greater than 0");
+		Preconditions.checkArgument(growAfterTasks > 0, "growAfterTasks should be greater than 0");
+		Preconditions.checkArgument(shrinkAfterEmptyPolls > 0, "shrinkAfterEmptyPolls should be greater than 0");
+		this.minPollers = minPollers;
+		this.growAfterTasks = growAfterTasks;
+		this.shrinkAfterEmptyPolls = shrinkAfterEmptyPolls;
+		return this;
+	}
+
+	/**
+	 * Optional number of threads making decisions for the polled tasks.
+	 * Defaults to the number of {@link #pollers(int) pollers}.
+	 * <p>
+	 * Decision tasks of the same workflow execution are always handled one at
+	 * a time, in the order they were polled. A task is polled only when a
+	 * decision thread is free, so that the polled tasks do not queue up.
+	 *
+	 * @param decisionThreads
+	 *            number of decision threads, greater than 0
+	 * @return this builder
+	 */
+	public DeciderBuilder decisionThreads(final int decisionThreads) {
+		Preconditions.checkArgument(decisionThreads > 0, "the number of decision threads should be greater than 0");
+		this.decisionThreads = decisionThreads;
+		return this;
+	}
+
+	/**
+	 * Optional mode of retrieval of the workflow history. Defaults to
+	 * {@link HistoryMode#EAGER}.
+	 * <p>
+	 * With {@link HistoryMode#LAZY}, only the most recent page of events is
+	 * polled with the decision task, and older pages are fetched when the
+	 * workflow template reads older events.
+	 * <p>
+	 * With {@link HistoryMode#COMPACT}, the whole history is polled with the
+	 * decision task and stored in a compact form, to reduce the memory used by
+	 * workflow executions with very large histories.
+	 *
+	 * @param historyMode
+	 *            {@link HistoryMode#EAGER}, {@link HistoryMode#LAZY} or
+	 *            {@link HistoryMode#COMPACT}
+	 * @return this builder
+	 */
+	public DeciderBuilder historyMode(final HistoryMode historyMode) {
+		Preconditions.checkArgument(historyMode != null && historyMode != HistoryMode.NONE,
+				"History mode %s is not supported.", historyMode);
+		this.historyMode = historyMode;
+		return this;
+	}
+
+	/**
+	 * Optional cache of the workflow histories, shared by all the pollers of
+	 * the decider. Not used by default.
+	 * <p>
+	 * In {@link HistoryMode#EAGER} mode, the decider then only polls the pages
+	 * of history containing the events that occured since the history was
+	 * cached. The hits, misses and evictions of the cache are reported to the
+	 * {@link #metrics(SwifferMetrics) metrics} of the decider.
+	 *
+	 * @param maxExecutions
+	 *            maximum number of workflow executions which history is cached
+	 * @param maxEvents
+	 *            maximum number of events cached for all the executions: a
+	 *            count of events, not a size in bytes
+	 * @return this builder
+	 * @see WorkflowHistoryCache
+	 */
+	public DeciderBuilder historyCache(final int maxExecutions, final long maxEvents) {
+		Preconditions.checkArgument(maxExecutions > 0, "the maximum number of executions should be greater than 0");
+		Preconditions.checkArgument(maxEvents > 0, "the maximum number of events should be greater than 0");
+		this.historyCache = null;
+		this.historyCacheExecutions = maxExecutions;
+		this.historyCacheEvents = maxEvents;
+		return this;
+	}
+
+	/**
+	 * Optional cache of the workflow histories, shared by all the pollers of
+	 * the decider, or by several deciders. Not used by default.
+	 * <p>
+	 * The cache reports its hits, misses and evictions to the metrics it was
+	 * created with, and its statistics can be read from the given instance.
+	 *
+	 * @param historyCache
+	 *            the cache of histories
+	 * @return this builder
+	 * @see #historyCache(int, long)
+	 */
+	public DeciderBuilder historyCache(final WorkflowHistoryCache historyCache) {
+		this.historyCache = historyCache;
+		this.historyCacheExecutions = 0;
+		return this;
+	}
+
+	/**
+	 * Optional polling with the asynchronous SWF client. Disabled by default.
+	 * <p>
+	 * The long polls then do not block any thread of the decider: the polled
+	 * tasks are handed to the decision threads by the completion callbacks of
+	 * the client, so that many pollers can be run by a few threads. The
+	 * concurrent requests are still bounded by the executor of the client.
+	 *
+	 * @param asyncPolling
+	 *            true to poll asynchronously, requires the SWF client to be an
+	 *            {@link AmazonSimpleWorkflowAsync}
+	 * @return this builder
+	 */
+	public DeciderBuilder asyncPolling(final boolean asyncPolling) {
+		Preconditions.checkState(!asyncPolling || this.swf instanceof AmazonSimpleWorkflowAsync,
+				"asynchronous polling requires an AmazonSimpleWorkflowAsync client");
+		this.asyncPolling = asyncPolling;
+		return this;
+	}
+
+	/**
+	 * Optional execution on virtual threads, when the JVM supports them (Java
+	 * 21+). Disabled by default. Platform threads are used when virtual threads
+	 * are not supported.
+	 * <p>
+	 * The polling and the decisions are then run by virtual threads. The
+	 * {@link #decisionThreads(int) decision threads} still limit the number of
+	 * decisions made concurrently.
+	 *
+	 * @param virtualThreads
+	 *            true to run on virtual threads
+	 * @return this builder
+	 */
+	public DeciderBuilder virtualThreads(final boolean virtualThreads) {
+		this.virtualThreads = virtualThreads;
+		return this;
+	}
+
+	/**
+	 * Optional measure of the polls, of the decisions and of their sending.
+	 * Set by the {@link Swiffer} creating the builder.
+	 *
+	 * @param metrics
+	 *            the metrics receiving the measures, {@link SwifferMetrics#NONE}
+	 *            by default
+	 * @return this builder
+	 */
+	public DeciderBuilder metrics(final SwifferMetrics metrics) {
+		this.metrics = Preconditions.checkNotNull(metrics, "metrics must be specified");
+		return this;
+	}
+
+	/**
+	 * Optional profiling of the event handlers of the workflow templates,
+	 * including the default retry and close handlers. Disabled by default.
+	 * <p>
+	 * The time spent resolving the arguments of each handler method and the
+	 * time spent in the method are reported to the {@link #metrics(SwifferMetrics)
+	 * metrics}, by workflow type and handler method. The events handled slower
+	 * than the threshold are logged, to find the handlers bringing the
+	 * decisions close to their start-to-close timeout.
+	 *
+	 * @param slowHandlerThreshold
+	 *            the duration above which a handled event is logged
+	 * @return this builder
+	 */
+	public DeciderBuilder profileHandlers(final Duration slowHandlerThreshold) {
+		Preconditions.checkArgument(slowHandlerThreshold != null && !slowHandlerThreshold.isNegative(),
+				"the slow handler threshold should be positive");
+		this.slowHandlerThreshold = slowHandlerThreshold;
+		return this;
+	}
+
 	/**
 	 * Required
 	 *
@@ -118,7 +484,10 @@ public class DeciderBuilder {
     }
 
     private WorkflowTemplateRegistry createWorkflowTemplateRegistry() {
-        WorkflowTemplateFactory templateFactory = new WorkflowTemplateFactory(this.dataMapper, this.durationTransformer, globalRetryPolicy);
+        final EventHandlerProfiler profiler = this.slowHandlerThreshold == null ? null
+                : new EventHandlerProfiler(this.metrics, this.slowHandlerThreshold);
+        WorkflowTemplateFactory templateFactory = new WorkflowTemplateFactory(this.dataMapper, this.durationTransformer, globalRetryPolicy,
+                profiler);
 
         final Map<VersionedName, WorkflowTemplate> registry = new HashMap<>();
         for (final Object workflowTemplate : this.workflowTemplates) {
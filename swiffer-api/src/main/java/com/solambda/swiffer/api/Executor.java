@@ -15,6 +15,15 @@ import java.lang.annotation.Target;
 @Target(METHOD)
 /**
  * Define the implementation of an activity
+ * <p>
+ * The method may return a {@link java.util.concurrent.CompletionStage}, such
+ * as a {@link java.util.concurrent.CompletableFuture}: the activity is then
+ * reported as completed or failed when the stage settles, without holding a
+ * thread of the worker in the meantime. The activity still counts against
+ * the pool size of the worker until it is reported.
+ * <p>
+ * A parameter of type {@link ActivityProgress} receives the progress of the
+ * task, to set the details of its heartbeats and observe its cancellation.
  *
  */
 public @interface Executor {
@@ -24,4 +33,17 @@ public @interface Executor {
 	 * @return the activity type this executor implements
 	 */
 	Class<?> activity();
+
+	/**
+	 * Optional maximum number of tasks of the activity type executed
+	 * concurrently by a worker. The task list dedicated to the type is not
+	 * polled while the limit is reached, and the tasks of the type polled from
+	 * another task list are abandoned: they are not reported, so that they
+	 * time out and are rescheduled, without preventing the worker from
+	 * executing the tasks of other types.
+	 *
+	 * @return the max concurrency, or 0 (default) for no limit other than the
+	 *         pool size of the worker
+	 */
+	int maxConcurrency() default 0;
 }
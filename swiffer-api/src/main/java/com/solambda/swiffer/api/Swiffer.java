@@ -23,6 +23,10 @@ import com.solambda.swiffer.api.internal.registration.DomainRegistry;
 import com.solambda.swiffer.api.internal.utils.SWFUtils;
 import com.solambda.swiffer.api.mapper.DataMapper;
 import com.solambda.swiffer.api.mapper.JacksonDataMapper;
+import com.solambda.swiffer.api.metrics.DefaultSwifferMetrics;
+import com.solambda.swiffer.api.metrics.InstrumentedSwf;
+import com.solambda.swiffer.api.metrics.SwifferMetrics;
+import com.solambda.swiffer.api.ratelimit.SwfRateGovernor;
 
 public class Swiffer {
 	private static final DataMapper DEFAULT_DATA_MAPPER = new JacksonDataMapper();
@@ -33,6 +37,8 @@ public class Swiffer {
 	private String domain;
 	private final DataMapper dataMapper;
 	private final DurationTransformer durationTransformer;
+	private final SwfRateGovernor rateGovernor;
+	private final SwifferMetrics metrics;
 
 	/**
 	 * Creates new Swiffer with default data mapper {@link JacksonDataMapper}.
@@ -60,7 +66,40 @@ public class Swiffer {
 	 * @param durationTransformer custom {@link DurationTransformer}
 	 */
 	public Swiffer(AmazonSimpleWorkflow swf, String domain, DataMapper dataMapper, DurationTransformer durationTransformer) {
-		this.swf = Preconditions.checkNotNull(swf, "SWF client must be specified!");
+		this(swf, domain, dataMapper, durationTransformer, null);
+	}
+
+	/**
+	 * Creates new Swiffer, governing all its calls to SWF: the workers and deciders it builds use the governed client.
+	 * @param swf interface for accessing Amazon SWF
+	 * @param domain swf domain
+	 * @param dataMapper custom {@link DataMapper} for serialization/deserialization of input and output
+	 * @param durationTransformer custom {@link DurationTransformer}
+	 * @param rateGovernor optional {@link SwfRateGovernor} shared by all the calls to SWF
+	 */
+	public Swiffer(AmazonSimpleWorkflow swf, String domain, DataMapper dataMapper, DurationTransformer durationTransformer,
+			SwfRateGovernor rateGovernor) {
+		this(swf, domain, dataMapper, durationTransformer, rateGovernor, SwifferMetrics.NONE);
+	}
+
+	/**
+	 * Creates new Swiffer, measuring the workers and deciders it builds and the failures of its calls to SWF.
+	 * @param swf interface for accessing Amazon SWF
+	 * @param domain swf domain
+	 * @param dataMapper custom {@link DataMapper} for serialization/deserialization of input and output
+	 * @param durationTransformer custom {@link DurationTransformer}
+	 * @param rateGovernor optional {@link SwfRateGovernor} shared by all the calls to SWF
+	 * @param metrics the {@link SwifferMetrics} receiving the measures, e.g. a {@link DefaultSwifferMetrics}
+	 */
+	public Swiffer(AmazonSimpleWorkflow swf, String domain, DataMapper dataMapper, DurationTransformer durationTransformer,
+			SwfRateGovernor rateGovernor, SwifferMetrics metrics) {
+		Preconditions.checkNotNull(swf, "SWF client must be specified!");
+		this.metrics = Preconditions.checkNotNull(metrics, "metrics must be specified");
+		// the governor sees the failures, so that each throttled attempt is counted
+		final AmazonSimpleWorkflow instrumented = metrics == SwifferMetrics.NONE ? swf
+				: InstrumentedSwf.instrument(swf, metrics);
+		this.swf = rateGovernor == null ? instrumented : rateGovernor.govern(instrumented);
+		this.rateGovernor = rateGovernor;
 		this.domain = Preconditions.checkNotNull(domain, "domain must be specified!");
 		this.dataMapper = Preconditions.checkNotNull(dataMapper, "DataMapper must be specified");
 		this.durationTransformer = Preconditions.checkNotNull(durationTransformer, "DurationTransformer must be specified");
@@ -70,12 +109,27 @@ public class Swiffer {
 		return new Swiffer(swf, domain);
 	}
 
+	/**
+	 * @return the {@link SwfRateGovernor} of the calls to SWF, or null if they are not governed
+	 */
+	public SwfRateGovernor rateGovernor() {
+		return this.rateGovernor;
+	}
+
+	/**
+	 * @return the {@link SwifferMetrics} of the workers and deciders, {@link SwifferMetrics#NONE} if they are not measured
+	 */
+	public SwifferMetrics metrics() {
+		return this.metrics;
+	}
+
 	public WorkerBuilder newWorkerBuilder() {
-		return new WorkerBuilder(this.swf, this.domain, this.dataMapper);
+		return new WorkerBuilder(this.swf, this.domain, this.dataMapper).metrics(this.metrics);
 	}
 
 	public DeciderBuilder newDeciderBuilder() {
-		return new DeciderBuilder(this.swf, this.domain, this.dataMapper, this.durationTransformer);
+		return new DeciderBuilder(this.swf, this.domain, this.dataMapper, this.durationTransformer)
+				.metrics(this.metrics);
 	}
 
 	/**
@@ -2,32 +2,49 @@ package com.solambda.swiffer.api;
 
 import java.lang.reflect.AnnotatedType;
 import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.BiFunction;
 import java.util.function.Function;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.amazonaws.services.simpleworkflow.AmazonSimpleWorkflow;
+import com.amazonaws.services.simpleworkflow.AmazonSimpleWorkflowAsync;
+import com.amazonaws.services.simpleworkflow.model.CountPendingActivityTasksRequest;
+import com.amazonaws.services.simpleworkflow.model.TaskList;
 import com.google.common.base.Preconditions;
 import com.solambda.swiffer.api.internal.MethodInvoker;
+import com.solambda.swiffer.api.internal.PollerAutoscaler;
+import com.solambda.swiffer.api.internal.ResponsePipeline;
+import com.solambda.swiffer.api.internal.TaskContextPoller;
 import com.solambda.swiffer.api.internal.VersionedName;
+import com.solambda.swiffer.api.internal.VirtualThreads;
 import com.solambda.swiffer.api.internal.activities.ActivityExecutionReporter;
 import com.solambda.swiffer.api.internal.activities.ActivityExecutionReporterImpl;
 import com.solambda.swiffer.api.internal.activities.ActivityExecutor;
-import com.solambda.swiffer.api.internal.activities.ActivityExecutorArgumentsProvider;
 import com.solambda.swiffer.api.internal.activities.ActivityExecutorImpl;
 import com.solambda.swiffer.api.internal.activities.ActivityExecutorRegistry;
+import com.solambda.swiffer.api.internal.activities.ActivityHeartbeater;
 import com.solambda.swiffer.api.internal.activities.ActivityTaskContext;
 import com.solambda.swiffer.api.internal.activities.ActivityTaskPoller;
+import com.solambda.swiffer.api.internal.activities.BatchActivityExecutor;
+import com.solambda.swiffer.api.internal.activities.AsyncActivityTaskPoller;
 import com.solambda.swiffer.api.internal.activities.WorkerImpl;
+import com.solambda.swiffer.api.internal.activities.WorkerOptions;
 import com.solambda.swiffer.api.internal.registration.ActivityTypeRegistry;
 import com.solambda.swiffer.api.mapper.DataMapper;
+import com.solambda.swiffer.api.metrics.SwifferMetrics;
+import com.solambda.swiffer.api.ratelimit.RateLimiter;
+import com.solambda.swiffer.api.ratelimit.TokenBucketRateLimiter;
 
 public class WorkerBuilder {
 	private static final Logger LOGGER = LoggerFactory.getLogger(WorkerBuilder.class);
@@ -37,7 +54,26 @@ public class WorkerBuilder {
 	private String identity;
 	private String taskList;
 	private List<Object> executors;
+	private int poolSize = WorkerImpl.DEFAULT_POOL_SIZE;
+	private int pollers = 1;
+	private Integer minPollers;
+	private int growAfterTasks = PollerAutoscaler.DEFAULT_GROW_AFTER_TASKS;
+	private int shrinkAfterEmptyPolls = PollerAutoscaler.DEFAULT_SHRINK_AFTER_EMPTY_POLLS;
+	private boolean asyncPolling;
+	private boolean virtualThreads;
 	private ActivityTypeRegistry activityTypeRegistry;
+	private final Map<Class<?>, Integer> maxConcurrencies = new HashMap<>();
+	private RateLimiter rateLimiter;
+	private final Map<Class<?>, RateLimiter> rateLimiters = new HashMap<>();
+	private final Map<Class<?>, String> dedicatedTaskLists = new HashMap<>();
+	private double heartbeatFraction = ActivityHeartbeater.DEFAULT_FRACTION;
+	private Duration heartbeatInterval;
+	private boolean interruptOnCancel;
+	private boolean asyncResponses;
+	private int responseSenders = ResponsePipeline.DEFAULT_SENDERS;
+	private int responseCapacity = ResponsePipeline.DEFAULT_CAPACITY;
+	private Duration maxRetryDuration = ResponsePipeline.DEFAULT_MAX_RETRY_DURATION;
+	private SwifferMetrics metrics = SwifferMetrics.NONE;
 	private final DataMapper dataMapper;
 
 	public WorkerBuilder(final AmazonSimpleWorkflow swf, final String domain, DataMapper dataMapper) {
@@ -50,32 +86,114 @@ public class WorkerBuilder {
 
 	public Worker build() {
 		final ActivityExecutorRegistry registry = createExecutorRegistry();
-		final ActivityTaskPoller poller = new ActivityTaskPoller(
+		final List<TaskContextPoller<ActivityTaskContext>> pollers = new ArrayList<>(
+				this.pollers + this.dedicatedTaskLists.size());
+		for (int i = 0; i < this.pollers; i++) {
+			pollers.add(createPoller(this.taskList, pollerIdentity(i)));
+		}
+		// after the pollers of the task list, so that they are not autoscaled
+		final Map<VersionedName, String> dedicatedTaskLists = new HashMap<>();
+		this.dedicatedTaskLists.forEach((activity, taskList) -> {
+			final ActivityType activityType = activity.getAnnotation(ActivityType.class);
+			dedicatedTaskLists.put(new VersionedName(activityType.name(), activityType.version()), taskList);
+			pollers.add(createPoller(taskList, this.identity == null ? null : this.identity + "-" + taskList));
+		});
+		final ActivityExecutionReporter reporter = new ActivityExecutionReporterImpl(this.swf,
+				createResponsePipeline(), this.metrics);
+		final ActivityHeartbeater heartbeater = new ActivityHeartbeater(reporter, registry.heartbeatTimeouts(),
+				this.heartbeatFraction, this.heartbeatInterval, this.interruptOnCancel);
+		return new WorkerImpl(pollers, registry, reporter, new WorkerOptions()
+				.poolSize(this.poolSize)
+				.autoscaler(createAutoscaler())
+				.threadFactory(virtualThreadFactory("activity-executor-"))
+				.rateLimiter(this.rateLimiter)
+				.heartbeater(heartbeater)
+				.metrics(this.metrics)
+				.dedicatedTaskLists(dedicatedTaskLists));
+	}
+
+	private TaskContextPoller<ActivityTaskContext> createPoller(final String taskList, final String identity) {
+		if (this.asyncPolling) {
+			return new AsyncActivityTaskPoller(
+					(AmazonSimpleWorkflowAsync) this.swf,
+					this.domain,
+					taskList,
+					identity);
+		}
+		return new ActivityTaskPoller(
 				this.swf,
 				this.domain,
-				this.taskList,
-				this.identity);
-		final ActivityExecutionReporter reporter = new ActivityExecutionReporterImpl(this.swf);
-		return new WorkerImpl(poller, registry, reporter);
+				taskList,
+				identity,
+				virtualThreadFactory("activity-poll-"));
+	}
+
+	/**
+	 * @return a factory of virtual threads, or null to use platform threads
+	 */
+	private ThreadFactory virtualThreadFactory(final String prefix) {
+		if (!this.virtualThreads) {
+			return null;
+		}
+		if (!VirtualThreads.isSupported()) {
+			LOGGER.warn("Virtual threads are not supported by this JVM, using platform threads");
+			return null;
+		}
+		return VirtualThreads.factory(prefix);
+	}
+
+	private PollerAutoscaler createAutoscaler() {
+		if (this.minPollers == null) {
+			return null;
+		}
+		final CountPendingActivityTasksRequest request = new CountPendingActivityTasksRequest()
+				.withDomain(this.domain)
+				.withTaskList(new TaskList().withName(this.taskList));
+		return new PollerAutoscaler(this.minPollers, this.pollers, this.growAfterTasks, this.shrinkAfterEmptyPolls,
+				() -> this.swf.countPendingActivityTasks(request).getCount());
+	}
+
+	private String pollerIdentity(final int index) {
+		if (this.pollers == 1 || this.identity == null) {
+			return this.identity;
+		}
+		return this.identity + "-" + index;
 	}
 
 	private ActivityExecutorRegistry createExecutorRegistry() {
 		final Map<VersionedName, ActivityExecutor> registry = new HashMap<>();
-		fillRegistryByIntrospectingExecutors(registry);
+		final Map<VersionedName, Integer> maxConcurrencies = new HashMap<>();
+		final Map<VersionedName, Duration> heartbeatTimeouts = new HashMap<>();
+		final Map<VersionedName, Duration> startToCloseTimeouts = new HashMap<>();
+		fillRegistryByIntrospectingExecutors(registry, maxConcurrencies, heartbeatTimeouts, startToCloseTimeouts);
 		if (registry.isEmpty()) {
 			throw new IllegalStateException("no executors found in executors: " + this.executors);
 		}
-		return new ActivityExecutorRegistry(registry);
+		this.maxConcurrencies.forEach((activity, max) -> {
+			final ActivityType activityType = validateActivityParameter(activity);
+			maxConcurrencies.put(new VersionedName(activityType.name(), activityType.version()), max);
+		});
+		final Map<VersionedName, RateLimiter> rateLimiters = new HashMap<>();
+		this.rateLimiters.forEach((activity, limiter) -> {
+			final ActivityType activityType = validateActivityParameter(activity);
+			rateLimiters.put(new VersionedName(activityType.name(), activityType.version()), limiter);
+		});
+		return new ActivityExecutorRegistry(registry, maxConcurrencies, rateLimiters, heartbeatTimeouts,
+				startToCloseTimeouts);
 	}
 
-	private void fillRegistryByIntrospectingExecutors(final Map<VersionedName, ActivityExecutor> registry) {
+	private void fillRegistryByIntrospectingExecutors(final Map<VersionedName, ActivityExecutor> registry,
+			final Map<VersionedName, Integer> maxConcurrencies, final Map<VersionedName, Duration> heartbeatTimeouts,
+			final Map<VersionedName, Duration> startToCloseTimeouts) {
 		for (final Object executor : this.executors) {
-			fillRegistryByIntrospectingExecutor(registry, executor);
+			fillRegistryByIntrospectingExecutor(registry, maxConcurrencies, heartbeatTimeouts, startToCloseTimeouts,
+					executor);
 		}
 	}
 
 	private void fillRegistryByIntrospectingExecutor(final Map<VersionedName, ActivityExecutor> registry,
-			final Object executorClassInstance) {
+			final Map<VersionedName, Integer> maxConcurrencies, final Map<VersionedName, Duration> heartbeatTimeouts,
+			final Map<VersionedName, Duration> startToCloseTimeouts, final Object executorClassInstance) {
 		final Class<? extends Object> executorClass = executorClassInstance.getClass();
 		final Method[] publicMethods = executorClass.getMethods();
 		for (final Method publicMethod : publicMethods) {
@@ -85,10 +203,36 @@ public class WorkerBuilder {
 				final ActivityType activityTypeAnnotation = validateActivityParameter(activity);
 				this.activityTypeRegistry.registerActivityOrCheckConfiguration(activityTypeAnnotation);
 				fillRegistryForMethod(registry, executorClassInstance, publicMethod, activityTypeAnnotation);
+				putTimeouts(heartbeatTimeouts, startToCloseTimeouts, activityTypeAnnotation);
+				if (executorAnnotation.maxConcurrency() > 0) {
+					maxConcurrencies.put(
+							new VersionedName(activityTypeAnnotation.name(), activityTypeAnnotation.version()),
+							executorAnnotation.maxConcurrency());
+				}
+			}
+			final BatchExecutor batchExecutorAnnotation = publicMethod.getAnnotation(BatchExecutor.class);
+			if (batchExecutorAnnotation != null) {
+				final ActivityType activityTypeAnnotation = validateActivityParameter(
+						batchExecutorAnnotation.activity());
+				this.activityTypeRegistry.registerActivityOrCheckConfiguration(activityTypeAnnotation);
+				fillRegistryForBatchMethod(registry, executorClassInstance, publicMethod, activityTypeAnnotation,
+						batchExecutorAnnotation);
+				putTimeouts(heartbeatTimeouts, startToCloseTimeouts, activityTypeAnnotation);
 			}
 		}
 	}
 
+	private void putTimeouts(final Map<VersionedName, Duration> heartbeatTimeouts,
+			final Map<VersionedName, Duration> startToCloseTimeouts, final ActivityType activityType) {
+		final VersionedName type = new VersionedName(activityType.name(), activityType.version());
+		if (activityType.defaultTaskHeartbeatTimeout() > 0) {
+			heartbeatTimeouts.put(type, Duration.ofSeconds(activityType.defaultTaskHeartbeatTimeout()));
+		}
+		if (activityType.defaultTaskStartToCloseTimeout() > 0) {
+			startToCloseTimeouts.put(type, Duration.ofSeconds(activityType.defaultTaskStartToCloseTimeout()));
+		}
+	}
+
 	private ActivityType validateActivityParameter(final Class<?> activityTypeClass) {
 		Preconditions.checkArgument(activityTypeClass.isInterface());
 		final ActivityType activityType = activityTypeClass.getAnnotation(ActivityType.class);
@@ -104,12 +248,37 @@ public class WorkerBuilder {
 			final ActivityType annotation) {
 		final VersionedName key = new VersionedName(annotation.name(), annotation.version());
 		final MethodInvoker invoker = new MethodInvoker(executorClassInstance, publicMethod);
-		final ActivityExecutorArgumentsProvider argumentsProvider = createArgumentsProvider(
+		final List<BiFunction<ActivityTaskContext, Void, Object>> argumentProviders = createArgumentProviders(
 				publicMethod);
-		final ActivityExecutor value = new ActivityExecutorImpl(invoker, argumentsProvider, dataMapper);
+		final ActivityExecutor value = new ActivityExecutorImpl(invoker.withArguments(argumentProviders), dataMapper);
 		registry.put(key, value);
 	}
 
+	private void fillRegistryForBatchMethod(
+			final Map<VersionedName, ActivityExecutor> registry,
+			final Object executorClassInstance,
+			final Method publicMethod,
+			final ActivityType annotation,
+			final BatchExecutor batchExecutor) {
+		final VersionedName key = new VersionedName(annotation.name(), annotation.version());
+		final Type[] parameterTypes = publicMethod.getGenericParameterTypes();
+		Preconditions.checkState(parameterTypes.length == 1
+				&& parameterTypes[0] instanceof ParameterizedType
+				&& ((ParameterizedType) parameterTypes[0]).getRawType() == List.class
+				&& ((ParameterizedType) parameterTypes[0]).getActualTypeArguments()[0] instanceof Class,
+				"The batch executor %s should have a single List<T> parameter!", publicMethod);
+		Preconditions.checkState(publicMethod.getReturnType() == void.class
+				|| List.class.isAssignableFrom(publicMethod.getReturnType()),
+				"The batch executor %s should return nothing or a List!", publicMethod);
+		Preconditions.checkState(batchExecutor.maxSize() <= this.poolSize,
+				"The batch executor %s has a max size of %s, greater than the pool size %s of the worker!",
+				publicMethod, batchExecutor.maxSize(), this.poolSize);
+		final Class<?> inputType = (Class<?>) ((ParameterizedType) parameterTypes[0]).getActualTypeArguments()[0];
+		final MethodInvoker invoker = new MethodInvoker(executorClassInstance, publicMethod);
+		registry.put(key, new BatchActivityExecutor(invoker, inputType, dataMapper, batchExecutor.maxSize(),
+				batchExecutor.lingerMillis()));
+	}
+
 	public static void main(final String[] args) {
 		System.out.println(1 << 0);
 		System.out.println(1 << 1);
@@ -117,29 +286,20 @@ public class WorkerBuilder {
 		System.out.println(1 << 3);
 	}
 
-	private ActivityExecutorArgumentsProvider createArgumentsProvider(final Method publicMethod) {
-		final AnnotatedType[] parameterTypes = publicMethod.getAnnotatedParameterTypes();
-		if (parameterTypes.length == 0) {
-			return (c) -> new Object[0];
-		} else {
-			final List<Function<ActivityTaskContext, Object>> argumentProviders = new ArrayList<Function<ActivityTaskContext, Object>>();
-			for (final AnnotatedType annotatedType : parameterTypes) {
-				final Function<ActivityTaskContext, Object> argumentProvider = createArgumentProvider(annotatedType);
-				argumentProviders.add(argumentProvider);
-			}
-			return (c) -> {
-				final Object[] arguments = new Object[parameterTypes.length];
-				int i = 0;
-				for (final Function<ActivityTaskContext, Object> function : argumentProviders) {
-					arguments[i++] = function.apply(c);
-				}
-				return arguments;
-			};
+	private List<BiFunction<ActivityTaskContext, Void, Object>> createArgumentProviders(final Method publicMethod) {
+		final List<BiFunction<ActivityTaskContext, Void, Object>> argumentProviders = new ArrayList<>();
+		for (final AnnotatedType annotatedType : publicMethod.getAnnotatedParameterTypes()) {
+			final Function<ActivityTaskContext, Object> argumentProvider = createArgumentProvider(annotatedType);
+			argumentProviders.add((context, none) -> argumentProvider.apply(context));
 		}
+		return argumentProviders;
 	}
 
 	private Function<ActivityTaskContext, Object> createArgumentProvider(final AnnotatedType annotatedType) {
 		final Type type = annotatedType.getType();
+		if (type == ActivityProgress.class) {
+			return ActivityTaskContext::progress;
+		}
 		if (type instanceof Class) {
 			 final Class<?> parameterType = (Class) type;
 			// FIXME: handle ActivityTaskContext parameter here!
@@ -176,4 +336,365 @@ public class WorkerBuilder {
 		this.executors = Arrays.asList(executors);
 		return this;
 	}
+
+	/**
+	 * Optional number of activities executed concurrently by the worker.
+	 * Defaults to {@value WorkerImpl#DEFAULT_POOL_SIZE}.
+	 * <p>
+	 * The worker polls a new activity task only when one of its threads is
+	 * free, so that the activity tasks it cannot execute immediately are left
+	 * to the other workers.
+	 *
+	 * @param poolSize
+	 *            the number of threads executing the activities
+	 * @return this builder
+	 */
+	public WorkerBuilder poolSize(final int poolSize) {
+		Preconditions.checkArgument(poolSize > 0, "the pool size should be greater than 0");
+		this.poolSize = poolSize;
+		return this;
+	}
+
+	/**
+	 * Optional maximum number of tasks of an activity type executed
+	 * concurrently, overriding {@link Executor#maxConcurrency()}.
+	 * <p>
+	 * The {@link #dedicatedTaskList(Class, String) dedicated task list} of the
+	 * type is not polled while the limit is reached. The tasks of the type
+	 * polled from another task list meanwhile are abandoned: they are not
+	 * reported, so that they time out and are rescheduled by their workflow,
+	 * and the threads of the {@link #poolSize(int) pool} remain available to
+	 * the other types.
+	 *
+	 * @param activityType
+	 *            the interface annotated with {@link ActivityType}
+	 * @param maxConcurrency
+	 *            the max concurrency, greater than 0
+	 * @return this builder
+	 */
+	public WorkerBuilder maxConcurrency(final Class<?> activityType, final int maxConcurrency) {
+		Preconditions.checkArgument(maxConcurrency > 0, "the max concurrency should be greater than 0");
+		validateActivityParameter(activityType);
+		this.maxConcurrencies.put(activityType, maxConcurrency);
+		return this;
+	}
+
+	/**
+	 * Optional task list dedicated to an activity type, polled by one more
+	 * poller of the worker only while the {@link #maxConcurrency(Class, int)
+	 * max concurrency} of the type is not reached, and with a token of its
+	 * {@link #rateLimit(Class, RateLimiter) rate limiter}.
+	 * <p>
+	 * The workflows should schedule the tasks of the type on this task list,
+	 * for instance with {@link ActivityType#defaultTaskList()}, so that they
+	 * wait in the task list instead of being abandoned.
+	 *
+	 * @param activityType
+	 *            the interface annotated with {@link ActivityType}
+	 * @param taskList
+	 *            the task list of the activity type
+	 * @return this builder
+	 */
+	public WorkerBuilder dedicatedTaskList(final Class<?> activityType, final String taskList) {
+		Preconditions.checkNotNull(taskList, "the task list should not be null");
+		validateActivityParameter(activityType);
+		this.dedicatedTaskLists.put(activityType, taskList);
+		return this;
+	}
+
+	/**
+	 * Optional limit of the rate of all the activities executed by the worker.
+	 * <p>
+	 * A token is taken before each poll, and the worker stops polling while
+	 * no token is available: the tasks are left in the task list instead of
+	 * being failed. Share the same limiter between several workers to limit
+	 * their overall rate.
+	 *
+	 * @param rateLimiter
+	 *            the rate limiter
+	 * @return this builder
+	 */
+	public WorkerBuilder rateLimit(final RateLimiter rateLimiter) {
+		this.rateLimiter = Preconditions.checkNotNull(rateLimiter, "the rate limiter should not be null");
+		return this;
+	}
+
+	/**
+	 * Optional limit of the rate of all the activities executed by the worker,
+	 * with a {@link TokenBucketRateLimiter}.
+	 *
+	 * @param permitsPerSecond
+	 *            the max number of activities executed per second
+	 * @return this builder
+	 * @see #rateLimit(RateLimiter)
+	 */
+	public WorkerBuilder rateLimit(final double permitsPerSecond) {
+		return rateLimit(new TokenBucketRateLimiter(permitsPerSecond));
+	}
+
+	/**
+	 * Optional limit of the rate of the executions of an activity type.
+	 * <p>
+	 * A token is taken before each poll of the
+	 * {@link #dedicatedTaskList(Class, String) dedicated task list} of the
+	 * type, so that its tasks wait in the task list while no token is
+	 * available. The tasks of the type polled from another task list without
+	 * an available token are abandoned: they are not reported, so that they
+	 * time out and are rescheduled by their workflow. Share the same limiter
+	 * between several workers to limit their overall rate.
+	 *
+	 * @param activityType
+	 *            the interface annotated with {@link ActivityType}
+	 * @param rateLimiter
+	 *            the rate limiter
+	 * @return this builder
+	 */
+	public WorkerBuilder rateLimit(final Class<?> activityType, final RateLimiter rateLimiter) {
+		Preconditions.checkNotNull(rateLimiter, "the rate limiter should not be null");
+		validateActivityParameter(activityType);
+		this.rateLimiters.put(activityType, rateLimiter);
+		return this;
+	}
+
+	/**
+	 * Optional limit of the rate of the executions of an activity type, with
+	 * a {@link TokenBucketRateLimiter}.
+	 *
+	 * @param activityType
+	 *            the interface annotated with {@link ActivityType}
+	 * @param permitsPerSecond
+	 *            the max number of tasks of the type executed per second
+	 * @return this builder
+	 * @see #rateLimit(Class, RateLimiter)
+	 */
+	public WorkerBuilder rateLimit(final Class<?> activityType, final double permitsPerSecond) {
+		return rateLimit(activityType, new TokenBucketRateLimiter(permitsPerSecond));
+	}
+
+	/**
+	 * Optional fraction of the heartbeat timeout between two automatic
+	 * heartbeats of a task. Defaults to {@value ActivityHeartbeater#DEFAULT_FRACTION}.
+	 * <p>
+	 * The worker heartbeats the tasks of the activity types having a
+	 * {@link ActivityType#defaultTaskHeartbeatTimeout() default heartbeat
+	 * timeout}, from their poll to the report of their execution. Use a lower
+	 * fraction if the decisions schedule them with a shorter timeout. The
+	 * executors can set the details of the heartbeats, and observe the
+	 * cancellation, with an {@link ActivityProgress} parameter.
+	 *
+	 * @param heartbeatFraction
+	 *            the fraction, between 0 and 1
+	 * @return this builder
+	 */
+	public WorkerBuilder heartbeatFraction(final double heartbeatFraction) {
+		Preconditions.checkArgument(heartbeatFraction > 0 && heartbeatFraction < 1,
+				"the heartbeat fraction should be between 0 and 1");
+		this.heartbeatFraction = heartbeatFraction;
+		return this;
+	}
+
+	/**
+	 * Optional interval between the automatic heartbeats of the tasks of the
+	 * activity types without default heartbeat timeout. They are not
+	 * heartbeated by default.
+	 *
+	 * @param heartbeatInterval
+	 *            the interval between two heartbeats
+	 * @return this builder
+	 * @see #heartbeatFraction(double)
+	 */
+	public WorkerBuilder heartbeatInterval(final Duration heartbeatInterval) {
+		Preconditions.checkArgument(heartbeatInterval != null && !heartbeatInterval.isNegative()
+				&& !heartbeatInterval.isZero(), "the heartbeat interval should be positive");
+		this.heartbeatInterval = heartbeatInterval;
+		return this;
+	}
+
+	/**
+	 * Optional interruption of the thread executing a task when its
+	 * cancellation is requested. Disabled by default: the executors observe
+	 * the cancellation with {@link ActivityProgress#isCancelRequested()}.
+	 *
+	 * @param interruptOnCancel
+	 *            true to interrupt the executing thread
+	 * @return this builder
+	 */
+	public WorkerBuilder interruptOnCancel(final boolean interruptOnCancel) {
+		this.interruptOnCancel = interruptOnCancel;
+		return this;
+	}
+
+	/**
+	 * Optional asynchronous sending of the activity task responses, with the default settings
+	 * of the {@link ResponsePipeline}. Disabled by default.
+	 *
+	 * @param asyncResponses
+	 *            true to send the activity task responses asynchronously
+	 * @return this builder
+	 * @see #asyncResponses(int, int, Duration)
+	 */
+	public WorkerBuilder asyncResponses(final boolean asyncResponses) {
+		this.asyncResponses = asyncResponses;
+		return this;
+	}
+
+	/**
+	 * Optional asynchronous sending of the activity task responses. Disabled by default.
+	 * <p>
+	 * The activity task responses are queued, freeing the executing threads immediately, and sent
+	 * by a few sender threads. Throttling, server and network errors are
+	 * retried with an exponential backoff, instead of losing the result of the
+	 * tasks.
+	 *
+	 * @param senders
+	 *            the number of threads sending the activity task responses
+	 * @param capacity
+	 *            the max number of activity task responses queued or being retried, the
+	 *            executing threads wait when it is reached
+	 * @param maxRetryDuration
+	 *            the max duration during which a response is retried when the
+	 *            activity type has no
+	 *            {@link ActivityType#defaultTaskStartToCloseTimeout() default
+	 *            start to close timeout}. Otherwise the response is retried
+	 *            until the task times out, after which SWF rejects it.
+	 * @return this builder
+	 */
+	public WorkerBuilder asyncResponses(final int senders, final int capacity, final Duration maxRetryDuration) {
+		Preconditions.checkArgument(senders > 0, "the number of senders should be greater than 0");
+		Preconditions.checkArgument(capacity > 0, "the capacity should be greater than 0");
+		Preconditions.checkArgument(maxRetryDuration != null && !maxRetryDuration.isNegative(),
+				"the max retry duration should not be negative");
+		this.asyncResponses = true;
+		this.responseSenders = senders;
+		this.responseCapacity = capacity;
+		this.maxRetryDuration = maxRetryDuration;
+		return this;
+	}
+
+	/**
+	 * @return the pipeline sending the responses, or null to send them
+	 *         synchronously
+	 */
+	private ResponsePipeline createResponsePipeline() {
+		if (!this.asyncResponses) {
+			return null;
+		}
+		return new ResponsePipeline(this.responseSenders, this.responseCapacity, this.maxRetryDuration);
+	}
+
+	/**
+	 * Optional number of activity tasks polled concurrently. Defaults to 1.
+	 * <p>
+	 * The pollers share the threads of the {@link #poolSize(int) pool}: a
+	 * poller waits for a free thread before polling. When more than one poller
+	 * is used, the identity of each poller is suffixed by its index.
+	 *
+	 * @param pollers
+	 *            number of concurrent pollers, greater than 0
+	 * @return this builder
+	 */
+	public WorkerBuilder pollers(final int pollers) {
+		Preconditions.checkArgument(pollers > 0, "the number of pollers should be greater than 0");
+		this.pollers = pollers;
+		return this;
+	}
+
+	/**
+	 * Optional autoscaling of the number of active pollers, between
+	 * {@code minPollers} and the number of {@link #pollers(int) pollers}.
+	 * Disabled by default: all the pollers are active.
+	 * <p>
+	 * A poller is activated after {@value PollerAutoscaler#DEFAULT_GROW_AFTER_TASKS}
+	 * polls returning a task in a row, or when the count of pending activity
+	 * tasks exceeds the active pollers. A poller is deactivated after
+	 * {@value PollerAutoscaler#DEFAULT_SHRINK_AFTER_EMPTY_POLLS} empty polls in
+	 * a row.
+	 *
+	 * @param minPollers
+	 *            minimum number of active pollers, greater than 0
+	 * @return this builder
+	 */
+	public WorkerBuilder autoscalePollers(final int minPollers) {
+		return autoscalePollers(minPollers, PollerAutoscaler.DEFAULT_GROW_AFTER_TASKS,
+				PollerAutoscaler.DEFAULT_SHRINK_AFTER_EMPTY_POLLS);
+	}
+
+	/**
+	 * Optional autoscaling of the number of active pollers, between
+	 * {@code minPollers} and the number of {@link #pollers(int) pollers}.
+	 *
+	 * @param minPollers
+	 *            minimum number of active pollers, greater than 0
+	 * @param growAfterTasks
+	 *            number of polls returning a task in a row after which a
+	 *            poller is activated
+	 * @param shrinkAfterEmptyPolls
+	 *            number of empty polls in a row after which a poller is
+	 *            deactivated
+	 * @return this builder
+	 */
+	public WorkerBuilder autoscalePollers(final int minPollers, final int growAfterTasks,
+			final int shrinkAfterEmptyPolls) {
+		Preconditions.checkArgument(minPollers > 0, "the minimum number of pollers should be greater than 0");
+		Preconditions.checkArgument(growAfterTasks > 0, "growAfterTasks should be greater than 0");
+		Preconditions.checkArgument(shrinkAfterEmptyPolls > 0, "shrinkAfterEmptyPolls should be greater than 0");
+		this.minPollers = minPollers;
+		this.growAfterTasks = growAfterTasks;
+		this.shrinkAfterEmptyPolls = shrinkAfterEmptyPolls;
+		return this;
+	}
+
+	/**
+	 * Optional polling with the asynchronous SWF client. Disabled by default.
+	 * <p>
+	 * The long polls then do not block any thread of the worker: the polled
+	 * tasks are handed to the pool by the completion callbacks of the client,
+	 * so that many pollers can be run by a few threads. The concurrent
+	 * requests are still bounded by the executor of the client.
+	 *
+	 * @param asyncPolling
+	 *            true to poll asynchronously, requires the SWF client to be an
+	 *            {@link AmazonSimpleWorkflowAsync}
+	 * @return this builder
+	 */
+	public WorkerBuilder asyncPolling(final boolean asyncPolling) {
+		Preconditions.checkState(!asyncPolling || this.swf instanceof AmazonSimpleWorkflowAsync,
+				"asynchronous polling requires an AmazonSimpleWorkflowAsync client");
+		this.asyncPolling = asyncPolling;
+		return this;
+	}
+
+	/**
+	 * Optional execution on virtual threads, when the JVM supports them (Java
+	 * 21+). Disabled by default. Platform threads are used when virtual threads
+	 * are not supported.
+	 * <p>
+	 * The activities, their polling and the reporting of their results are then
+	 * run by virtual threads: each activity gets its own thread, and the
+	 * {@link #poolSize(int) pool size} only limits the number of activities
+	 * executed concurrently. Blocking I/O-bound activities can then run by
+	 * thousands with a large pool size.
+	 *
+	 * @param virtualThreads
+	 *            true to run on virtual threads
+	 * @return this builder
+	 */
+	public WorkerBuilder virtualThreads(final boolean virtualThreads) {
+		this.virtualThreads = virtualThreads;
+		return this;
+	}
+
+	/**
+	 * Optional measure of the polls, of the executions and of the responses.
+	 * Set by the {@link Swiffer} creating the builder.
+	 *
+	 * @param metrics
+	 *            the metrics receiving the measures, {@link SwifferMetrics#NONE}
+	 *            by default
+	 * @return this builder
+	 */
+	public WorkerBuilder metrics(final SwifferMetrics metrics) {
+		this.metrics = Preconditions.checkNotNull(metrics, "metrics must be specified");
+		return this;
+	}
 }
@@ -0,0 +1,163 @@
+package com.solambda.swiffer.api.internal;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiFunction;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.handlers.AsyncHandler;
+import com.amazonaws.services.simpleworkflow.AmazonSimpleWorkflow;
+import com.amazonaws.services.simpleworkflow.AmazonSimpleWorkflowAsync;
+import com.google.common.base.Preconditions;
+import com.solambda.swiffer.api.exceptions.TaskContextPollingException;
+
+/**
+ * A poller using the completion callbacks of the asynchronous SWF client: no
+ * thread of the poller is blocked during the long polls.
+ * <p>
+ * The blocking {@link #poll()} is still available, mainly for testing
+ * purpose.
+ */
+public abstract class AbstractAsyncTaskContextPoller<T extends TaskContext> implements AsyncTaskContextPoller<T> {
+
+	private final Logger LOGGER = LoggerFactory.getLogger(this.getClass());
+
+	protected AmazonSimpleWorkflowAsync swf;
+	protected String domain;
+	protected String taskList;
+	protected String identity;
+	private volatile boolean stopped;
+
+	public AbstractAsyncTaskContextPoller(final AmazonSimpleWorkflowAsync swf, final String domain,
+			final String taskList, final String identity) {
+		super();
+		this.swf = Preconditions.checkNotNull(swf, "please specify a SWF client!");
+		this.domain = Preconditions.checkNotNull(domain, "please specify the domain!");
+		this.taskList = Preconditions.checkNotNull(taskList, "please specify the task list to poll!");
+		this.identity = identity;
+	}
+
+	@Override
+	public CompletableFuture<T> pollAsync() {
+		if (this.stopped) {
+			return CompletableFuture.completedFuture(null);
+		}
+		final CompletableFuture<T> result = new CompletableFuture<>();
+		final CompletableFuture<T> polling;
+		try {
+			polling = pollForTaskAsync();
+		} catch (final RuntimeException e) {
+			result.completeExceptionally(pollingFailure(e));
+			return result;
+		}
+		polling.whenComplete((task, error) -> {
+			if (error == null) {
+				result.complete(task);
+			} else {
+				result.completeExceptionally(pollingFailure(unwrap(error)));
+			}
+		});
+		return result;
+	}
+
+	/**
+	 * Start polling the tasklist.
+	 *
+	 * @return a future completed with the task context, or null if no task is
+	 *         available
+	 */
+	protected abstract CompletableFuture<T> pollForTaskAsync();
+
+	/**
+	 * Call a method of the asynchronous SWF client.
+	 *
+	 * @param request
+	 *            the request
+	 * @param method
+	 *            the asynchronous method accepting a completion callback
+	 * @return a future completed by the callback
+	 */
+	protected static <Q extends AmazonWebServiceRequest, R> CompletableFuture<R> call(final Q request,
+			final BiFunction<Q, AsyncHandler<Q, R>, Future<R>> method) {
+		final CompletableFuture<R> result = new CompletableFuture<>();
+		method.apply(request, new AsyncHandler<Q, R>() {
+			@Override
+			public void onError(final Exception exception) {
+				result.completeExceptionally(exception);
+			}
+
+			@Override
+			public void onSuccess(final Q request, final R response) {
+				result.complete(response);
+			}
+		});
+		return result;
+	}
+
+	private TaskContextPollingException pollingFailure(final Throwable cause) {
+		final String message = String.format("[%s:%s] Cannot poll tasklist %s",
+				this.domain, this.identity, this.taskList);
+		return new TaskContextPollingException(message, cause);
+	}
+
+	private static Throwable unwrap(final Throwable error) {
+		if (error instanceof ExecutionException || error instanceof CompletionException) {
+			return error.getCause() == null ? error : error.getCause();
+		}
+		return error;
+	}
+
+	@Override
+	public T poll() throws TaskContextPollingException {
+		try {
+			return pollAsync().get(80, TimeUnit.SECONDS);
+		} catch (final CancellationException e1) {
+			this.LOGGER.info("Cancelling the polling operation, the poller was requested to stop.");
+			return null;
+		} catch (final InterruptedException e1) {
+			throw new RuntimeException(e1);
+		} catch (final ExecutionException e1) {
+			if (e1.getCause() instanceof TaskContextPollingException) {
+				throw (TaskContextPollingException) e1.getCause();
+			}
+			throw pollingFailure(e1.getCause());
+		} catch (final TimeoutException e) {
+			this.LOGGER.error("[{}:{}] Polling tasklist {} timeout !",
+					this.domain, this.identity, this.taskList, e);
+			return null;
+		}
+	}
+
+	/**
+	 * Stop polling: the pending long poll cannot be cancelled, but no new
+	 * poll is issued.
+	 */
+	@Override
+	public void stop() {
+		this.stopped = true;
+	}
+
+	@Override
+	public String taskList() {
+		return this.taskList;
+	}
+
+	@Override
+	public AmazonSimpleWorkflow swf() {
+		return this.swf;
+	}
+
+	@Override
+	public String domain() {
+		return this.domain;
+	}
+
+}
@@ -5,6 +5,8 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
@@ -28,12 +30,22 @@ public abstract class AbstractTaskContextPoller<T extends TaskContext> implement
 
 	public AbstractTaskContextPoller(final AmazonSimpleWorkflow swf, final String domain, final String taskList,
 			final String identity) {
+		this(swf, domain, taskList, identity, null);
+	}
+
+	/**
+	 * @param threadFactory
+	 *            optional factory of the thread issuing the long polls
+	 */
+	public AbstractTaskContextPoller(final AmazonSimpleWorkflow swf, final String domain, final String taskList,
+			final String identity, final ThreadFactory threadFactory) {
 		super();
 		this.swf = Preconditions.checkNotNull(swf, "please specify a SWF client!");
 		this.domain = Preconditions.checkNotNull(domain, "please specify the domain!");
 		this.taskList = Preconditions.checkNotNull(taskList, "please specify the task list to poll!");
 		this.identity = identity;
-		this.executor = Executors.newSingleThreadExecutor();
+		this.executor = threadFactory == null ? Executors.newSingleThreadExecutor()
+				: Executors.newSingleThreadExecutor(threadFactory);
 	}
 
 	@Override
@@ -48,6 +60,10 @@ public abstract class AbstractTaskContextPoller<T extends TaskContext> implement
 			// was requested to stop
 			this.LOGGER.info("Cancelling the polling operation, the poller was requested to stop.");
 			return null;
+		} catch (final RejectedExecutionException e1) {
+			// stopped since the service has checked it is running
+			this.LOGGER.info("Not polling, the poller was requested to stop.");
+			return null;
 		} catch (final InterruptedException e1) {
 			throw new RuntimeException(e1);
 		} catch (final ExecutionException e1) {
@@ -77,6 +93,11 @@ public abstract class AbstractTaskContextPoller<T extends TaskContext> implement
 		this.executor.shutdown();
 	}
 
+	@Override
+	public String taskList() {
+		return this.taskList;
+	}
+
 	@Override
 	public AmazonSimpleWorkflow swf() {
 		return this.swf;
@@ -1,12 +1,24 @@
 package com.solambda.swiffer.api.internal;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.base.Preconditions;
 import com.google.common.util.concurrent.AbstractExecutionThreadService;
+import com.google.common.util.concurrent.AbstractService;
 import com.google.common.util.concurrent.MoreExecutors;
 import com.google.common.util.concurrent.Service;
 import com.google.common.util.concurrent.Service.State;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.solambda.swiffer.api.TaskListService;
 import com.solambda.swiffer.api.exceptions.TaskContextPollingException;
 
@@ -14,57 +26,258 @@ public abstract class AbstractTaskListService<T extends TaskContext> implements
 
 	private final Logger LOGGER = LoggerFactory.getLogger(this.getClass());
 
+	/**
+	 * The first poller, used by {@link #pollAndExecuteTask()}.
+	 */
 	protected TaskContextPoller<T> poller;
-	private AbstractExecutionThreadService daemonService;
+	/**
+	 * All the pollers of this service, each one being run by its own daemon
+	 * thread, except the {@link AsyncTaskContextPoller}s which are run by
+	 * their completion callbacks.
+	 */
+	protected final List<TaskContextPoller<T>> pollers;
+	/**
+	 * Optional autoscaler deciding how many of the first pollers are active,
+	 * the others being always active.
+	 */
+	private final PollerAutoscaler autoscaler;
+	/**
+	 * Optional factory of the polling threads, platform threads by default.
+	 */
+	private final ThreadFactory threadFactory;
+	private List<Service> daemonServices;
+	/**
+	 * Schedule the polls of the {@link AsyncTaskContextPoller}s
+	 */
+	private ScheduledExecutorService dispatcher;
 
 	public AbstractTaskListService(final TaskContextPoller<T> poller) {
+		this(Collections.singletonList(poller));
+	}
+
+	public AbstractTaskListService(final List<? extends TaskContextPoller<T>> pollers) {
+		this(pollers, null);
+	}
+
+	/**
+	 * @param pollers
+	 *            the pollers, the maximum number of pollers run concurrently
+	 * @param autoscaler
+	 *            optional autoscaler of the number of active pollers
+	 */
+	public AbstractTaskListService(final List<? extends TaskContextPoller<T>> pollers,
+			final PollerAutoscaler autoscaler) {
+		this(pollers, autoscaler, null);
+	}
+
+	/**
+	 * @param pollers
+	 *            the pollers, the maximum number of pollers run concurrently
+	 * @param autoscaler
+	 *            optional autoscaler of the number of active pollers
+	 * @param threadFactory
+	 *            optional factory of the threads running the pollers, e.g.
+	 *            {@link VirtualThreads#factory(String) virtual threads}
+	 */
+	public AbstractTaskListService(final List<? extends TaskContextPoller<T>> pollers,
+			final PollerAutoscaler autoscaler, final ThreadFactory threadFactory) {
 		super();
-		this.poller = poller;
+		Preconditions.checkArgument(pollers != null && !pollers.isEmpty(), "at least one poller is required!");
+		this.pollers = Collections.unmodifiableList(new ArrayList<>(pollers));
+		this.poller = this.pollers.get(0);
+		this.autoscaler = autoscaler;
+		this.threadFactory = threadFactory;
 	}
 
 	@Override
 	public void start() {
-		if (this.daemonService == null) {
-			this.daemonService = new AbstractExecutionThreadService() {
-				@Override
-				protected void run() throws Exception {
-					while (isRunning()) {
+		if (this.daemonServices == null) {
+			final List<Service> services = new ArrayList<>();
+			for (int i = 0; i < this.pollers.size(); i++) {
+				final TaskContextPoller<T> poller = this.pollers.get(i);
+				if (poller instanceof AsyncTaskContextPoller) {
+					services.add(createAsyncService((AsyncTaskContextPoller<T>) poller, i));
+				} else {
+					services.add(createDaemonService(poller, i));
+				}
+			}
+			this.daemonServices = services;
+		}
+		for (final Service daemonService : this.daemonServices) {
+			start(daemonService);
+		}
+	}
+
+	/**
+	 * @return the autoscaler of the poller, or null if it is always active
+	 */
+	private PollerAutoscaler autoscalerOf(final int index) {
+		return this.autoscaler != null && index < this.autoscaler.maxPollers() ? this.autoscaler : null;
+	}
+
+	private AbstractExecutionThreadService createDaemonService(final TaskContextPoller<T> poller, final int index) {
+		final PollerAutoscaler autoscaler = autoscalerOf(index);
+		final AbstractExecutionThreadService daemonService = new AbstractExecutionThreadService() {
+			@Override
+			protected void run() throws Exception {
+				while (isRunning()) {
+					try {
+						if (autoscaler != null && !autoscaler.awaitActive(index, 1, TimeUnit.SECONDS)) {
+							// inactive poller: check it is still running
+							continue;
+						}
+						if (!acquireCapacity(poller)) {
+							continue;
+						}
+						if (!isRunning()) {
+							// stopped while waiting for the capacity
+							releaseCapacity();
+							break;
+						}
+						T task = null;
+						final long start = System.nanoTime();
 						try {
-							final T task = pollTaskList();
-							if (task != null) {
-								executeTask(task);
+							task = poller.poll();
+						} finally {
+							if (task == null) {
+								releaseCapacity();
 							}
-						} catch (final Exception e) {
-							AbstractTaskListService.this.LOGGER.error(
-									"Error running poller. Service is going to stop now.",
-									e);
-							throw e;
 						}
+						polled(poller, System.nanoTime() - start, task == null);
+						if (autoscaler != null) {
+							autoscaler.onPoll(task != null);
+						}
+						if (task != null) {
+							executeTask(poller, task);
+						}
+					} catch (final Exception e) {
+						AbstractTaskListService.this.LOGGER.error(
+								"Error running poller. Service is going to stop now.",
+								e);
+						throw e;
 					}
-					AbstractTaskListService.this.LOGGER.info("Service not running anymore");
 				}
+				AbstractTaskListService.this.LOGGER.info("Service not running anymore");
+			}
 
-				@Override
-				protected void triggerShutdown() {
-					super.triggerShutdown();
-					AbstractTaskListService.this.poller.stop();
+			@Override
+			protected Executor executor() {
+				final ThreadFactory threadFactory = AbstractTaskListService.this.threadFactory;
+				if (threadFactory == null) {
+					return super.executor();
 				}
-			};
-			this.daemonService.addListener(new Service.Listener() {
-				@Override
-				public void failed(final State from, final Throwable failure) {
-					super.failed(from, failure);
-				}
-			}, MoreExecutors.directExecutor());
+				return command -> threadFactory.newThread(command).start();
+			}
+
+			@Override
+			protected void triggerShutdown() {
+				super.triggerShutdown();
+				poller.stop();
+			}
+
+			@Override
+			protected String serviceName() {
+				return AbstractTaskListService.this.getClass().getSimpleName() + "-poller-" + index;
+			}
+		};
+		daemonService.addListener(new Service.Listener() {
+			@Override
+			public void failed(final State from, final Throwable failure) {
+				super.failed(from, failure);
+			}
+		}, MoreExecutors.directExecutor());
+		return daemonService;
+	}
+
+	/**
+	 * Create a service chaining the polls of an asynchronous poller: each poll
+	 * is issued by the completion of the previous one, so that no thread is
+	 * blocked during the long polls.
+	 */
+	private Service createAsyncService(final AsyncTaskContextPoller<T> poller, final int index) {
+		if (this.dispatcher == null) {
+			this.dispatcher = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+					.setNameFormat(getClass().getSimpleName() + "-dispatcher-%d")
+					.setDaemon(true)
+					.build());
 		}
-		final State state = this.daemonService.state();
+		final ScheduledExecutorService dispatcher = this.dispatcher;
+		final PollerAutoscaler autoscaler = autoscalerOf(index);
+		return new AbstractService() {
+			@Override
+			protected void doStart() {
+				notifyStarted();
+				dispatcher.execute(this::pollNext);
+			}
+
+			@Override
+			protected void doStop() {
+				// the pending poll completes the stop
+				poller.stop();
+			}
+
+			private void pollNext() {
+				try {
+					if (state() != State.RUNNING) {
+						notifyStopped();
+					} else if (autoscaler != null && !autoscaler.isActive(index)) {
+						dispatcher.schedule(this::pollNext, 1, TimeUnit.SECONDS);
+					} else if (!tryAcquireCapacity(poller)) {
+						dispatcher.schedule(this::pollNext, 100, TimeUnit.MILLISECONDS);
+					} else {
+						final long start = System.nanoTime();
+						poller.pollAsync().whenComplete((task, error) -> polled(task, error, start));
+					}
+				} catch (final RuntimeException e) {
+					fail(e);
+				}
+			}
+
+			private void polled(final T task, final Throwable error, final long start) {
+				if (error != null) {
+					releaseCapacity();
+					fail(error);
+					return;
+				}
+				AbstractTaskListService.this.polled(poller, System.nanoTime() - start, task == null);
+				if (task == null) {
+					releaseCapacity();
+				}
+				if (autoscaler != null) {
+					autoscaler.onPoll(task != null);
+				}
+				try {
+					if (task != null) {
+						executeTask(poller, task);
+					}
+					dispatcher.execute(this::pollNext);
+				} catch (final RuntimeException e) {
+					fail(e);
+				}
+			}
+
+			private void fail(final Throwable e) {
+				AbstractTaskListService.this.LOGGER.error("Error running poller. Service is going to stop now.", e);
+				notifyFailed(e);
+			}
+
+			@Override
+			public String toString() {
+				return AbstractTaskListService.this.getClass().getSimpleName() + "-poller-" + index + " ["
+						+ state() + "]";
+			}
+		};
+	}
+
+	private void start(final Service daemonService) {
+		final State state = daemonService.state();
 		switch (state) {
 		case NEW:
-			this.daemonService.startAsync();
-			this.daemonService.awaitRunning();
+			daemonService.startAsync();
+			daemonService.awaitRunning();
 			break;
 		case STARTING:
-			this.daemonService.awaitRunning();
+			daemonService.awaitRunning();
 			break;
 		case RUNNING:
 			break;
@@ -77,12 +290,109 @@ public abstract class AbstractTaskListService<T extends TaskContext> implements
 	}
 
 	/**
-	 * Execute the task.
+	 * Wait until a polled task can be executed immediately. Called by the
+	 * pollers before each poll.
+	 * <p>
+	 * By default, the capacity is not limited.
+	 *
+	 * @return true if the capacity to execute one task is acquired, false if
+	 *         it was not available in a reasonable time (the poller then
+	 *         checks it is still running and tries again)
+	 * @throws InterruptedException
+	 *             if interrupted while waiting
+	 */
+	protected boolean acquireCapacity() throws InterruptedException {
+		return true;
+	}
+
+	/**
+	 * Wait until a task polled by the given poller can be executed
+	 * immediately. Called by the pollers before each poll.
+	 * <p>
+	 * By default, the capacity does not depend on the poller.
+	 *
+	 * @param poller
+	 *            the poller about to poll
+	 * @return true if the capacity to execute one task is acquired
+	 * @throws InterruptedException
+	 *             if interrupted while waiting
+	 * @see #acquireCapacity()
+	 */
+	protected boolean acquireCapacity(final TaskContextPoller<T> poller) throws InterruptedException {
+		return acquireCapacity();
+	}
+
+	/**
+	 * Acquire the capacity to execute one task polled by the given poller
+	 * without waiting. Called before each poll of the
+	 * {@link AsyncTaskContextPoller}s.
+	 * <p>
+	 * By default, the capacity does not depend on the poller.
+	 *
+	 * @param poller
+	 *            the poller about to poll
+	 * @return true if the capacity to execute one task is acquired
+	 * @see #tryAcquireCapacity()
+	 */
+	protected boolean tryAcquireCapacity(final TaskContextPoller<T> poller) {
+		return tryAcquireCapacity();
+	}
+
+	/**
+	 * Acquire the capacity to execute one task without waiting.
+	 * <p>
+	 * By default, the capacity is not limited.
+	 *
+	 * @return true if the capacity to execute one task is acquired
+	 */
+	protected boolean tryAcquireCapacity() {
+		return true;
+	}
+
+	/**
+	 * Release the capacity acquired by {@link #acquireCapacity()}, when the
+	 * poll returned no task or when the execution of the task is over.
+	 */
+	protected void releaseCapacity() {
+	}
+
+	/**
+	 * Called after each successful poll, e.g. to measure the polls. Does
+	 * nothing by default.
+	 *
+	 * @param poller
+	 *            the poller
+	 * @param nanos
+	 *            the duration of the poll
+	 * @param empty
+	 *            true if no task was polled
+	 */
+	protected void polled(final TaskContextPoller<T> poller, final long nanos, final boolean empty) {
+	}
+
+	/**
+	 * Execute the task. The implementations acquiring some capacity must
+	 * release it with {@link #releaseCapacity()} once the task is executed.
 	 *
 	 * @param task
 	 */
 	protected abstract void executeTask(final T task);
 
+	/**
+	 * Execute a task polled by the given poller, with the capacity acquired by
+	 * {@link #acquireCapacity(TaskContextPoller)}.
+	 * <p>
+	 * By default, the execution does not depend on the poller.
+	 *
+	 * @param poller
+	 *            the poller of the task
+	 * @param task
+	 * @see #executeTask(Object)
+	 */
+	protected void executeTask(final TaskContextPoller<T> poller, final T task) {
+		executeTask(task);
+	}
+
 	/**
 	 * Execute the task. For testing purpose
 	 *
@@ -110,25 +420,46 @@ public abstract class AbstractTaskListService<T extends TaskContext> implements
 
 	@Override
 	public void stop() {
-		if (this.daemonService != null) {
-			if (this.daemonService.state() == State.FAILED) {
-				this.LOGGER.info("Service is stopped with a failure state");
-			} else {
-				this.LOGGER.info("Stopping the service");
-				this.daemonService.stopAsync();
-				this.daemonService.awaitTerminated();
-				this.daemonService = null;
-				this.LOGGER.info("Service stopped");
+		if (this.daemonServices != null) {
+			final List<Service> stopping = new ArrayList<>();
+			for (final Service daemonService : this.daemonServices) {
+				if (daemonService.state() == State.FAILED) {
+					this.LOGGER.info("Service {} is stopped with a failure state", daemonService);
+				} else {
+					this.LOGGER.info("Stopping the service {}", daemonService);
+					daemonService.stopAsync();
+					stopping.add(daemonService);
+				}
+			}
+			// all the pollers are asked to stop first, so that the long polls
+			// are awaited concurrently
+			for (final Service daemonService : stopping) {
+				daemonService.awaitTerminated();
+				this.LOGGER.info("Service {} stopped", daemonService);
+			}
+			if (stopping.size() == this.daemonServices.size()) {
+				this.daemonServices = null;
+				if (this.dispatcher != null) {
+					this.dispatcher.shutdown();
+					this.dispatcher = null;
+				}
 			}
 		}
 	}
 
 	@Override
 	public boolean isStarted() {
-		return this.daemonService != null
-				&& (this.daemonService.isRunning()
-						|| this.daemonService.state() == State.STARTING
-						|| this.daemonService.state() == State.STOPPING);
+		if (this.daemonServices == null) {
+			return false;
+		}
+		for (final Service daemonService : this.daemonServices) {
+			if (daemonService.isRunning()
+					|| daemonService.state() == State.STARTING
+					|| daemonService.state() == State.STOPPING) {
+				return true;
+			}
+		}
+		return false;
 	}
 
 }
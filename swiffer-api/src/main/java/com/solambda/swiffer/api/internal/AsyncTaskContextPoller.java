@@ -0,0 +1,25 @@
+package com.solambda.swiffer.api.internal;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A {@link TaskContextPoller} able to poll the tasklist without blocking the
+ * calling thread.
+ *
+ * @param <T>
+ */
+public interface AsyncTaskContextPoller<T extends TaskContext> extends TaskContextPoller<T> {
+
+	/**
+	 * Poll the tasklist asynchronously. The returned future completes when a
+	 * task is received or when the long poll expires, up to 60s later.
+	 *
+	 * @return a future completed with the new task context, or with null if
+	 *         no task context is available in the task list or if the poller
+	 *         is stopped. It is completed exceptionally with a
+	 *         {@link com.solambda.swiffer.api.exceptions.TaskContextPollingException}
+	 *         if the tasklist cannot be polled.
+	 */
+	public abstract CompletableFuture<T> pollAsync();
+
+}
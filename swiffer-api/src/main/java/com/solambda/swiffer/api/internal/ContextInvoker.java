@@ -0,0 +1,29 @@
+package com.solambda.swiffer.api.internal;
+
+import java.lang.reflect.InvocationTargetException;
+
+/**
+ * A method invoker which resolves the arguments of the method from a context.
+ *
+ * @param <C>
+ *            the type of context
+ * @param <D>
+ *            the type of the additional argument used to resolve the
+ *            arguments
+ */
+@FunctionalInterface
+public interface ContextInvoker<C, D> {
+
+	/**
+	 * Resolve the arguments of the method and invoke it.
+	 *
+	 * @param context
+	 *            the context
+	 * @param additional
+	 *            the additional argument, may be null
+	 * @return the value returned by the method
+	 * @throws InvocationTargetException
+	 *             if the method throws an exception
+	 */
+	Object invoke(C context, D additional) throws InvocationTargetException;
+}
@@ -2,7 +2,12 @@ package com.solambda.swiffer.api.internal;
 
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.List;
+import java.util.function.BiFunction;
 
+/**
+ * Invoke a method by reflection.
+ */
 public class MethodInvoker {
 
 	private Object object;
@@ -26,4 +31,24 @@ public class MethodInvoker {
 			throw e;
 		}
 	}
+
+	/**
+	 * Create an invoker resolving each argument of the method with the
+	 * provider of the same position.
+	 *
+	 * @param argumentProviders
+	 *            the providers of the arguments of the method
+	 * @return the invoker
+	 */
+	public <C, D> ContextInvoker<C, D> withArguments(
+			final List<? extends BiFunction<? super C, ? super D, ?>> argumentProviders) {
+		return (context, additional) -> {
+			final Object[] arguments = new Object[argumentProviders.size()];
+			int i = 0;
+			for (final BiFunction<? super C, ? super D, ?> argumentProvider : argumentProviders) {
+				arguments[i++] = argumentProvider.apply(context, additional);
+			}
+			return invoke(arguments);
+		};
+	}
 }
@@ -0,0 +1,177 @@
+package com.solambda.swiffer.api.internal;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Adapt the number of active pollers of an {@link AbstractTaskListService} to
+ * the load of its task list.
+ * <p>
+ * The number of active pollers grows when polls return tasks back to back, or
+ * when the backlog of the task list is bigger than the number of active
+ * pollers. It shrinks toward the minimum when polls return no task. The
+ * inactive pollers wait without polling.
+ */
+public class PollerAutoscaler {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(PollerAutoscaler.class);
+
+	public static final int DEFAULT_GROW_AFTER_TASKS = 2;
+	public static final int DEFAULT_SHRINK_AFTER_EMPTY_POLLS = 3;
+	static final long BACKLOG_CHECK_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+	private final int minPollers;
+	private final int maxPollers;
+	private final int growAfterTasks;
+	private final int shrinkAfterEmptyPolls;
+	private final LongSupplier backlog;
+
+	private int activePollers;
+	private int taskStreak;
+	private int emptyPollStreak;
+	private long lastBacklogCheck;
+
+	/**
+	 * @param minPollers
+	 *            minimum number of active pollers, greater than 0
+	 * @param maxPollers
+	 *            maximum number of active pollers
+	 * @param growAfterTasks
+	 *            number of polls returning a task in a row after which a
+	 *            poller is activated
+	 * @param shrinkAfterEmptyPolls
+	 *            number of polls returning no task in a row after which a
+	 *            poller is deactivated
+	 * @param backlog
+	 *            optional supplier of the number of pending tasks of the task
+	 *            list, called at most every 10 seconds
+	 */
+	public PollerAutoscaler(final int minPollers, final int maxPollers, final int growAfterTasks,
+			final int shrinkAfterEmptyPolls, final LongSupplier backlog) {
+		super();
+		Preconditions.checkArgument(minPollers > 0, "the minimum number of pollers should be greater than 0");
+		Preconditions.checkArgument(maxPollers >= minPollers,
+				"the maximum number of pollers should be greater than the minimum");
+		Preconditions.checkArgument(growAfterTasks > 0, "growAfterTasks should be greater than 0");
+		Preconditions.checkArgument(shrinkAfterEmptyPolls > 0, "shrinkAfterEmptyPolls should be greater than 0");
+		this.minPollers = minPollers;
+		this.maxPollers = maxPollers;
+		this.growAfterTasks = growAfterTasks;
+		this.shrinkAfterEmptyPolls = shrinkAfterEmptyPolls;
+		this.backlog = backlog;
+		this.activePollers = minPollers;
+		this.lastBacklogCheck = System.nanoTime() - BACKLOG_CHECK_INTERVAL_NANOS;
+	}
+
+	/**
+	 * @return the maximum number of active pollers: the pollers of higher index
+	 *         are not autoscaled
+	 */
+	public int maxPollers() {
+		return this.maxPollers;
+	}
+
+	/**
+	 * @param pollerIndex
+	 *            the index of the poller
+	 * @return true if the poller should poll
+	 */
+	public synchronized boolean isActive(final int pollerIndex) {
+		return pollerIndex < this.activePollers;
+	}
+
+	/**
+	 * Wait until the poller is active.
+	 *
+	 * @return true if the poller is active
+	 */
+	public synchronized boolean awaitActive(final int pollerIndex, final long timeout, final TimeUnit unit)
+			throws InterruptedException {
+		final long deadline = System.nanoTime() + unit.toNanos(timeout);
+		long remaining = unit.toNanos(timeout);
+		while (!isActive(pollerIndex) && remaining > 0) {
+			TimeUnit.NANOSECONDS.timedWait(this, remaining);
+			remaining = deadline - System.nanoTime();
+		}
+		return isActive(pollerIndex);
+	}
+
+	/**
+	 * Record the result of a poll.
+	 *
+	 * @param taskReceived
+	 *            true if the poll returned a task
+	 */
+	public void onPoll(final boolean taskReceived) {
+		final boolean checkBacklog;
+		synchronized (this) {
+			if (taskReceived) {
+				this.emptyPollStreak = 0;
+				this.taskStreak++;
+				if (this.taskStreak >= this.growAfterTasks) {
+					this.taskStreak = 0;
+					grow();
+				}
+			} else {
+				this.taskStreak = 0;
+				this.emptyPollStreak++;
+				if (this.emptyPollStreak >= this.shrinkAfterEmptyPolls) {
+					this.emptyPollStreak = 0;
+					shrink();
+				}
+			}
+			final long now = System.nanoTime();
+			checkBacklog = taskReceived && this.backlog != null && this.activePollers < this.maxPollers
+					&& now - this.lastBacklogCheck >= BACKLOG_CHECK_INTERVAL_NANOS;
+			if (checkBacklog) {
+				this.lastBacklogCheck = now;
+			}
+		}
+		if (checkBacklog) {
+			checkBacklog();
+		}
+	}
+
+	private void checkBacklog() {
+		final long pendingTasks;
+		try {
+			pendingTasks = this.backlog.getAsLong();
+		} catch (final RuntimeException e) {
+			LOGGER.warn("cannot count the pending tasks", e);
+			return;
+		}
+		synchronized (this) {
+			if (pendingTasks > this.activePollers) {
+				LOGGER.debug("{} pending tasks", pendingTasks);
+				grow();
+			}
+		}
+	}
+
+	private void grow() {
+		if (this.activePollers < this.maxPollers) {
+			this.activePollers++;
+			LOGGER.debug("{} active pollers", this.activePollers);
+			notifyAll();
+		}
+	}
+
+	private void shrink() {
+		if (this.activePollers > this.minPollers) {
+			this.activePollers--;
+			LOGGER.debug("{} active pollers", this.activePollers);
+		}
+	}
+
+	/**
+	 * @return the number of pollers currently active
+	 */
+	public synchronized int activePollers() {
+		return this.activePollers;
+	}
+}
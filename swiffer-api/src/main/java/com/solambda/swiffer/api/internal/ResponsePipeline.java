@@ -0,0 +1,247 @@
+package com.solambda.swiffer.api.internal;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.AmazonServiceException;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Send the responses of the executed tasks to SWF asynchronously, retrying
+ * the transient failures.
+ * <p>
+ * The responses are queued up to a capacity, then the submitting threads
+ * wait for a free slot. They are sent by a few sender threads, and retried
+ * with an exponential backoff with jitter on throttling, server and network
+ * errors, until the deadline of their task: SWF rejects the responses of the
+ * timed out tasks anyway. The responses of the tasks without known deadline
+ * are retried during the max retry duration.
+ */
+public class ResponsePipeline {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ResponsePipeline.class);
+
+	/**
+	 * Default number of threads sending the responses.
+	 */
+	public static final int DEFAULT_SENDERS = 2;
+	/**
+	 * Default number of responses queued or being retried.
+	 */
+	public static final int DEFAULT_CAPACITY = 1000;
+	/**
+	 * Default duration during which a response without deadline is retried.
+	 */
+	public static final Duration DEFAULT_MAX_RETRY_DURATION = Duration.ofMinutes(1);
+
+	private static final long BASE_BACKOFF_MILLIS = 100;
+	private static final long MAX_BACKOFF_MILLIS = 10_000;
+
+	private final ScheduledThreadPoolExecutor senders;
+	private final Semaphore capacity;
+	private final int maxCapacity;
+	private final long maxRetryNanos;
+	private final long baseBackoffMillis;
+
+	private final LongAdder sent = new LongAdder();
+	private final LongAdder retried = new LongAdder();
+	private final LongAdder failed = new LongAdder();
+
+	public ResponsePipeline() {
+		this(DEFAULT_SENDERS, DEFAULT_CAPACITY, DEFAULT_MAX_RETRY_DURATION);
+	}
+
+	/**
+	 * @param senders
+	 *            the number of threads sending the responses
+	 * @param capacity
+	 *            the max number of responses queued or being retried
+	 * @param maxRetryDuration
+	 *            the max duration during which a response is retried, when
+	 *            the deadline of its task is unknown
+	 */
+	public ResponsePipeline(final int senders, final int capacity, final Duration maxRetryDuration) {
+		this(senders, capacity, maxRetryDuration, BASE_BACKOFF_MILLIS);
+	}
+
+	@VisibleForTesting
+	ResponsePipeline(final int senders, final int capacity, final Duration maxRetryDuration,
+			final long baseBackoffMillis) {
+		super();
+		Preconditions.checkArgument(senders > 0, "the number of senders should be greater than 0");
+		Preconditions.checkArgument(capacity > 0, "the capacity should be greater than 0");
+		Preconditions.checkNotNull(maxRetryDuration, "the max retry duration should not be null");
+		this.senders = new ScheduledThreadPoolExecutor(senders,
+				new ThreadFactoryBuilder().setNameFormat("swf-response-sender-%d").setDaemon(true).build());
+		this.capacity = new Semaphore(capacity);
+		this.maxCapacity = capacity;
+		this.maxRetryNanos = maxRetryDuration.toNanos();
+		this.baseBackoffMillis = baseBackoffMillis;
+	}
+
+	/**
+	 * Queue a response without known deadline, retried during the max retry
+	 * duration.
+	 *
+	 * @see #submit(String, Runnable, Instant)
+	 */
+	public CompletableFuture<Void> submit(final String description, final Runnable request) {
+		return submit(description, request, null);
+	}
+
+	/**
+	 * Queue a response, waiting for a free slot if the pipeline is full.
+	 *
+	 * @param description
+	 *            the description of the response, for the logs
+	 * @param request
+	 *            the call to SWF
+	 * @param deadline
+	 *            when the task of the response times out, after which it is
+	 *            not retried anymore, or null if unknown
+	 * @return a future completed when the response is sent, or completed
+	 *         exceptionally when it cannot be sent
+	 */
+	public CompletableFuture<Void> submit(final String description, final Runnable request,
+			final Instant deadline) {
+		this.capacity.acquireUninterruptibly();
+		final Response response = new Response(description, request, deadline);
+		try {
+			this.senders.execute(response::send);
+		} catch (final RejectedExecutionException e) {
+			response.fail(e);
+		}
+		return response.result;
+	}
+
+	/**
+	 * @return the number of responses queued or being retried
+	 */
+	public int pending() {
+		return this.maxCapacity - this.capacity.availablePermits();
+	}
+
+	/**
+	 * @return the number of responses sent
+	 */
+	public long sent() {
+		return this.sent.sum();
+	}
+
+	/**
+	 * @return the number of retries
+	 */
+	public long retried() {
+		return this.retried.sum();
+	}
+
+	/**
+	 * @return the number of responses which could not be sent
+	 */
+	public long failed() {
+		return this.failed.sum();
+	}
+
+	/**
+	 * Wait for the pending responses to be sent, then stop the senders.
+	 *
+	 * @return false if some responses are still pending after the timeout
+	 */
+	public boolean shutdown(final long timeout, final TimeUnit unit) throws InterruptedException {
+		final boolean drained = this.capacity.tryAcquire(this.maxCapacity, timeout, unit);
+		if (drained) {
+			this.capacity.release(this.maxCapacity);
+		}
+		this.senders.shutdownNow();
+		return drained;
+	}
+
+	/**
+	 * @return true if the failure is transient: throttling, server or network
+	 *         error
+	 */
+	static boolean isRetryable(final RuntimeException e) {
+		if (e instanceof AmazonServiceException) {
+			final AmazonServiceException serviceException = (AmazonServiceException) e;
+			return "ThrottlingException".equals(serviceException.getErrorCode())
+					|| serviceException.getStatusCode() >= 500;
+		}
+		return e instanceof AmazonClientException && ((AmazonClientException) e).isRetryable();
+	}
+
+	private class Response {
+		private final String description;
+		private final Runnable request;
+		private final long deadline;
+		private final CompletableFuture<Void> result = new CompletableFuture<>();
+		private int attempts;
+
+		private Response(final String description, final Runnable request, final Instant deadline) {
+			this.description = description;
+			this.request = request;
+			this.deadline = System.nanoTime() + (deadline == null ? ResponsePipeline.this.maxRetryNanos
+					: Duration.between(Instant.now(), deadline).toNanos());
+		}
+
+		private void send() {
+			try {
+				this.request.run();
+			} catch (final RuntimeException e) {
+				retryOrFail(e);
+				return;
+			}
+			ResponsePipeline.this.sent.increment();
+			ResponsePipeline.this.capacity.release();
+			this.result.complete(null);
+		}
+
+		private void retryOrFail(final RuntimeException e) {
+			if (!isRetryable(e)) {
+				fail(e);
+				return;
+			}
+			final long delayMillis = backoffMillis(this.attempts++);
+			if (System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMillis) > this.deadline) {
+				LOGGER.error("Giving up sending {} after {} attempts", this.description, this.attempts);
+				fail(e);
+				return;
+			}
+			LOGGER.warn("Cannot send {}, retrying in {} ms: {}", this.description, delayMillis, e.toString());
+			ResponsePipeline.this.retried.increment();
+			try {
+				ResponsePipeline.this.senders.schedule(this::send, delayMillis, TimeUnit.MILLISECONDS);
+			} catch (final RejectedExecutionException rejected) {
+				fail(e);
+			}
+		}
+
+		/**
+		 * Full jitter: a random delay up to the exponential backoff.
+		 */
+		private long backoffMillis(final int attempt) {
+			final long backoff = Math.min(MAX_BACKOFF_MILLIS,
+					ResponsePipeline.this.baseBackoffMillis << Math.min(attempt, 20));
+			return ThreadLocalRandom.current().nextLong(backoff + 1);
+		}
+
+		private void fail(final Throwable e) {
+			LOGGER.error("Cannot send {}", this.description, e);
+			ResponsePipeline.this.failed.increment();
+			ResponsePipeline.this.capacity.release();
+			this.result.completeExceptionally(e);
+		}
+	}
+}
@@ -26,4 +26,11 @@ public interface TaskContextPoller<T extends TaskContext> extends SwfAware {
 	 */
 	public abstract void stop();
 
+	/**
+	 * @return the polled task list, or null if unknown
+	 */
+	public default String taskList() {
+		return null;
+	}
+
 }
\ No newline at end of file
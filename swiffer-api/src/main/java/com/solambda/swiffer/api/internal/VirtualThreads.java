@@ -0,0 +1,73 @@
+package com.solambda.swiffer.api.internal;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Create virtual threads when the JVM supports them (Java 21+), while
+ * compiling against Java 8: the API is looked up by reflection at runtime.
+ */
+public final class VirtualThreads {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(VirtualThreads.class);
+
+	private static final Method OF_VIRTUAL;
+	private static final Method NAME;
+	private static final Method FACTORY;
+	private static final boolean SUPPORTED;
+
+	static {
+		Method ofVirtual = null;
+		Method name = null;
+		Method factory = null;
+		boolean supported = false;
+		try {
+			ofVirtual = Thread.class.getMethod("ofVirtual");
+			final Class<?> builder = Class.forName("java.lang.Thread$Builder");
+			name = builder.getMethod("name", String.class, long.class);
+			factory = builder.getMethod("factory");
+			// fails when virtual threads are a disabled preview feature
+			factory.invoke(ofVirtual.invoke(null));
+			supported = true;
+		} catch (final ReflectiveOperationException | RuntimeException e) {
+			LOGGER.debug("virtual threads are not supported by this JVM", e);
+		}
+		OF_VIRTUAL = ofVirtual;
+		NAME = name;
+		FACTORY = factory;
+		SUPPORTED = supported;
+	}
+
+	private VirtualThreads() {
+	}
+
+	/**
+	 * @return true if the JVM supports virtual threads
+	 */
+	public static boolean isSupported() {
+		return SUPPORTED;
+	}
+
+	/**
+	 * @param prefix
+	 *            the prefix of the names of the threads, followed by a counter
+	 * @return a factory of virtual threads
+	 * @throws IllegalStateException
+	 *             if the JVM does not support virtual threads
+	 */
+	public static ThreadFactory factory(final String prefix) {
+		Preconditions.checkState(SUPPORTED, "virtual threads are not supported by this JVM");
+		try {
+			final Object builder = NAME.invoke(OF_VIRTUAL.invoke(null), prefix, 0L);
+			return (ThreadFactory) FACTORY.invoke(builder);
+		} catch (IllegalAccessException | InvocationTargetException e) {
+			throw new IllegalStateException("cannot create a factory of virtual threads", e);
+		}
+	}
+}
@@ -0,0 +1,47 @@
+package com.solambda.swiffer.api.internal.activities;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Limit the number of concurrent executions of one activity type.
+ * <p>
+ * The task list dedicated to the activity type is not polled while the limit
+ * is reached. The tasks of the type polled from another task list while the
+ * limit is reached are abandoned: they are neither executed nor reported, so
+ * that they time out and are rescheduled.
+ */
+class ActivityBulkhead {
+
+	private final int maxConcurrency;
+	private int running;
+
+	ActivityBulkhead(final int maxConcurrency) {
+		Preconditions.checkArgument(maxConcurrency > 0, "the max concurrency should be greater than 0");
+		this.maxConcurrency = maxConcurrency;
+	}
+
+	/**
+	 * @return true if the task can be executed, false if the limit is reached
+	 */
+	synchronized boolean tryEnter() {
+		if (this.running < this.maxConcurrency) {
+			this.running++;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * @return true if the limit is reached
+	 */
+	synchronized boolean isFull() {
+		return this.running >= this.maxConcurrency;
+	}
+
+	/**
+	 * Called when a task entered with {@link #tryEnter()} ends.
+	 */
+	synchronized void exit() {
+		this.running--;
+	}
+}
@@ -1,5 +1,7 @@
 package com.solambda.swiffer.api.internal.activities;
 
+import java.time.Instant;
+
 import com.solambda.swiffer.api.exceptions.CancelActivityRequested;
 import com.solambda.swiffer.api.internal.Failure;
 
@@ -13,6 +15,17 @@ public interface ActivityExecutionReporter {
 	 */
 	void completed(String taskToken, String output);
 
+	/**
+	 * Report the task has successfully complete, before its deadline
+	 *
+	 * @param deadline
+	 *            when the task times out, or null if unknown
+	 * @see #completed(String, String)
+	 */
+	default void completed(final String taskToken, final String output, final Instant deadline) {
+		completed(taskToken, output);
+	}
+
 	/**
 	 * Report the task has failed
 	 *
@@ -21,6 +34,17 @@ public interface ActivityExecutionReporter {
 	 */
 	void failed(String taskToken, Failure failure);
 
+	/**
+	 * Report the task has failed, before its deadline
+	 *
+	 * @param deadline
+	 *            when the task times out, or null if unknown
+	 * @see #failed(String, Failure)
+	 */
+	default void failed(final String taskToken, final Failure failure, final Instant deadline) {
+		failed(taskToken, failure);
+	}
+
 	/**
 	 * Report progress on the task
 	 *
@@ -37,4 +61,21 @@ public interface ActivityExecutionReporter {
 	 *             if the task has not been requested to cancel externally
 	 */
 	void canceled(String taskToken, String details);
+
+	/**
+	 * Report the task has been canceled, before its deadline
+	 *
+	 * @param deadline
+	 *            when the task times out, or null if unknown
+	 * @see #canceled(String, String)
+	 */
+	default void canceled(final String taskToken, final String details, final Instant deadline) {
+		canceled(taskToken, details);
+	}
+
+	/**
+	 * Wait for the responses still being sent, called when the worker stops.
+	 */
+	default void close() {
+	}
 }
@@ -1,5 +1,8 @@
 package com.solambda.swiffer.api.internal.activities;
 
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -12,34 +15,92 @@ import com.amazonaws.services.simpleworkflow.model.RespondActivityTaskFailedRequ
 import com.google.common.base.Strings;
 import com.solambda.swiffer.api.exceptions.CancelActivityRequested;
 import com.solambda.swiffer.api.internal.Failure;
+import com.solambda.swiffer.api.internal.ResponsePipeline;
+import com.solambda.swiffer.api.metrics.SwifferMetrics;
 
 public class ActivityExecutionReporterImpl implements ActivityExecutionReporter {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(ActivityExecutionReporterImpl.class);
 
 	private AmazonSimpleWorkflow client;
+	/**
+	 * Optional pipeline sending the responses asynchronously
+	 */
+	private final ResponsePipeline responses;
+	private final SwifferMetrics metrics;
 
 	public ActivityExecutionReporterImpl(final AmazonSimpleWorkflow client) {
+		this(client, null);
+	}
+
+	/**
+	 * @param responses
+	 *            optional pipeline sending the completed, failed and canceled
+	 *            responses asynchronously. They are sent by the calling thread
+	 *            if null.
+	 */
+	public ActivityExecutionReporterImpl(final AmazonSimpleWorkflow client, final ResponsePipeline responses) {
+		this(client, responses, SwifferMetrics.NONE);
+	}
+
+	/**
+	 * @param responses
+	 *            optional pipeline sending the responses asynchronously
+	 * @param metrics
+	 *            the metrics of the responses
+	 */
+	public ActivityExecutionReporterImpl(final AmazonSimpleWorkflow client, final ResponsePipeline responses,
+			final SwifferMetrics metrics) {
 		super();
 		this.client = client;
+		this.responses = responses;
+		this.metrics = metrics;
+	}
+
+	private void respond(final String description, final String api, final Runnable request,
+			final Instant deadline) {
+		final Runnable timed = () -> {
+			final long start = System.nanoTime();
+			request.run();
+			this.metrics.responded(api, System.nanoTime() - start);
+		};
+		if (this.responses == null) {
+			timed.run();
+		} else {
+			this.responses.submit(description, timed, deadline);
+		}
 	}
 
 	@Override
 	public void completed(final String taskToken, final String output) {
+		completed(taskToken, output, null);
+	}
+
+	@Override
+	public void completed(final String taskToken, final String output, final Instant deadline) {
 		LOGGER.debug("Responding task completed: {}, output={}", taskToken, output);
-		this.client.respondActivityTaskCompleted(new RespondActivityTaskCompletedRequest()
+		final RespondActivityTaskCompletedRequest request = new RespondActivityTaskCompletedRequest()
 				.withResult(output)
-				.withTaskToken(taskToken));
+				.withTaskToken(taskToken);
+		respond("activity task completed", "RespondActivityTaskCompleted",
+				() -> this.client.respondActivityTaskCompleted(request), deadline);
 	}
 
 	@Override
 	public void failed(final String taskToken, final Failure failure) {
+		failed(taskToken, failure, null);
+	}
+
+	@Override
+	public void failed(final String taskToken, final Failure failure, final Instant deadline) {
 		LOGGER.debug("Responding task failed: {}, reason={}, details={}", taskToken, failure.reason(),
 				failure.details());
-		this.client.respondActivityTaskFailed(new RespondActivityTaskFailedRequest()
+		final RespondActivityTaskFailedRequest request = new RespondActivityTaskFailedRequest()
 				.withTaskToken(taskToken)
 				.withReason(Strings.nullToEmpty(failure.reason()))
-				.withDetails(failure.details()));
+				.withDetails(failure.details());
+		respond("activity task failed", "RespondActivityTaskFailed",
+				() -> this.client.respondActivityTaskFailed(request), deadline);
 	}
 
 	@Override
@@ -57,10 +118,32 @@ public class ActivityExecutionReporterImpl implements ActivityExecutionReporter
 
 	@Override
 	public void canceled(final String taskToken, final String details) {
+		canceled(taskToken, details, null);
+	}
+
+	@Override
+	public void canceled(final String taskToken, final String details, final Instant deadline) {
 		LOGGER.debug("task canceled: {}, details={}", taskToken, details);
-		this.client.respondActivityTaskCanceled(new RespondActivityTaskCanceledRequest()
+		final RespondActivityTaskCanceledRequest request = new RespondActivityTaskCanceledRequest()
 				.withDetails(details)
-				.withTaskToken(taskToken));
+				.withTaskToken(taskToken);
+		respond("activity task canceled", "RespondActivityTaskCanceled",
+				() -> this.client.respondActivityTaskCanceled(request), deadline);
+	}
+
+	@Override
+	public void close() {
+		if (this.responses == null) {
+			return;
+		}
+		try {
+			if (!this.responses.shutdown(1, TimeUnit.MINUTES)) {
+				LOGGER.warn("Awaited more than 1 minute for the activity task responses to be sent!");
+			}
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for the activity task responses!", e);
+		}
 	}
 
 }
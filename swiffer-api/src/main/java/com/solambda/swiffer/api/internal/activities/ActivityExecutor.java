@@ -1,9 +1,45 @@
 package com.solambda.swiffer.api.internal.activities;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+
 import com.solambda.swiffer.api.exceptions.ActivityTaskExecutionFailedException;
 
 public interface ActivityExecutor {
 
 	String execute(ActivityTaskContext context) throws ActivityTaskExecutionFailedException;
 
+	/**
+	 * Execute the activity without waiting for its completion when the
+	 * executor returns a {@link CompletionStage}.
+	 * <p>
+	 * By default, the activity is executed synchronously by
+	 * {@link #execute(ActivityTaskContext)}.
+	 *
+	 * @return a stage completed with the output of the activity, or
+	 *         exceptionally with an {@link ActivityTaskExecutionFailedException}
+	 *         if the activity failed
+	 */
+	default CompletionStage<String> executeAsync(final ActivityTaskContext context) {
+		final CompletableFuture<String> result = new CompletableFuture<>();
+		try {
+			result.complete(execute(context));
+		} catch (final Exception e) {
+			result.completeExceptionally(e);
+		}
+		return result;
+	}
+
+	/**
+	 * Called by the worker with the executor of its pool, which runs the
+	 * executions not started by a polled task, e.g. the batches flushed after
+	 * their linger time. Does nothing by default.
+	 *
+	 * @param executor
+	 *            the executor of the worker
+	 */
+	default void useExecutor(final Executor executor) {
+	}
+
 }
@@ -1,12 +1,17 @@
 package com.solambda.swiffer.api.internal.activities;
 
 import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Preconditions;
 import com.solambda.swiffer.api.exceptions.ActivityTaskExecutionFailedException;
+import com.solambda.swiffer.api.internal.ContextInvoker;
 import com.solambda.swiffer.api.internal.MethodInvoker;
 import com.solambda.swiffer.api.mapper.DataMapper;
 
@@ -14,31 +19,90 @@ public class ActivityExecutorImpl implements ActivityExecutor {
 
 	private static Logger LOGGER = LoggerFactory.getLogger(ActivityExecutorImpl.class);
 
-	private MethodInvoker invoker;
-	private ActivityExecutorArgumentsProvider argumentsProvider;
+	private ContextInvoker<ActivityTaskContext, Void> invoker;
 	private final DataMapper dataMapper;
 
 	public ActivityExecutorImpl(final MethodInvoker invoker,
 								final ActivityExecutorArgumentsProvider argumentsProvider,
 								DataMapper dataMapper) {
+		this(checkedInvoker(invoker, argumentsProvider), dataMapper);
+	}
+
+	/**
+	 * @param invoker
+	 *            invoke the executor method with the arguments resolved from
+	 *            the activity task context
+	 */
+	public ActivityExecutorImpl(final ContextInvoker<ActivityTaskContext, Void> invoker, DataMapper dataMapper) {
 		super();
 		Preconditions.checkNotNull(invoker, "MethodInvoker should not be null");
-		this.argumentsProvider = argumentsProvider;
 		this.invoker = invoker;
 		this.dataMapper = dataMapper;
 	}
 
+	private static ContextInvoker<ActivityTaskContext, Void> checkedInvoker(final MethodInvoker invoker,
+			final ActivityExecutorArgumentsProvider argumentsProvider) {
+		Preconditions.checkNotNull(invoker, "MethodInvoker should not be null");
+		return (context, none) -> invoker.invoke(argumentsProvider.getArguments(context));
+	}
+
 	@Override
 	public String execute(final ActivityTaskContext context) throws ActivityTaskExecutionFailedException {
+		final Object result = invoke(context);
+		if (result instanceof CompletionStage) {
+			try {
+				return dataMapper.serialize(((CompletionStage<?>) result).toCompletableFuture().get());
+			} catch (final ExecutionException e) {
+				throw new ActivityTaskExecutionFailedException(context, e.getCause());
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new ActivityTaskExecutionFailedException(context, e);
+			}
+		}
+		return dataMapper.serialize(result);
+	}
+
+	/**
+	 * Execute the activity. When the executor method returns a
+	 * {@link CompletionStage}, the returned stage completes when it settles,
+	 * without blocking the calling thread.
+	 */
+	@Override
+	public CompletionStage<String> executeAsync(final ActivityTaskContext context) {
+		final Object result;
+		try {
+			result = invoke(context);
+		} catch (final ActivityTaskExecutionFailedException e) {
+			final CompletableFuture<String> failed = new CompletableFuture<>();
+			failed.completeExceptionally(e);
+			return failed;
+		}
+		if (result instanceof CompletionStage) {
+			return ((CompletionStage<?>) result).handle((value, error) -> {
+				if (error != null) {
+					throw new CompletionException(new ActivityTaskExecutionFailedException(context, unwrap(error)));
+				}
+				return dataMapper.serialize(value);
+			});
+		}
+		return CompletableFuture.completedFuture(dataMapper.serialize(result));
+	}
+
+	private Object invoke(final ActivityTaskContext context) throws ActivityTaskExecutionFailedException {
 		try {
 			LOGGER.debug("Executing activity '{}', v='{}'", context.activityType().name(),
 					context.activityType().version());
-			final Object[] arguments = this.argumentsProvider.getArguments(context);
-			final Object result = this.invoker.invoke(arguments);
-			return dataMapper.serialize(result);
+			return this.invoker.invoke(context, null);
 		} catch (final InvocationTargetException e) {
 			throw new ActivityTaskExecutionFailedException(context, e.getTargetException());
 		}
 	}
 
+	private static Throwable unwrap(final Throwable error) {
+		if (error instanceof CompletionException && error.getCause() != null) {
+			return error.getCause();
+		}
+		return error;
+	}
+
 }
@@ -1,20 +1,130 @@
 package com.solambda.swiffer.api.internal.activities;
 
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Map;
 
 import com.solambda.swiffer.api.internal.VersionedName;
+import com.solambda.swiffer.api.ratelimit.RateLimiter;
 
 public class ActivityExecutorRegistry {
 
 	private final Map<VersionedName, ActivityExecutor> registry;
+	private final Map<VersionedName, Integer> maxConcurrencies;
+	private final Map<VersionedName, RateLimiter> rateLimiters;
+	private final Map<VersionedName, Duration> heartbeatTimeouts;
+	private final Map<VersionedName, Duration> startToCloseTimeouts;
 
 	public ActivityExecutorRegistry(final Map<VersionedName, ActivityExecutor> registry) {
+		this(registry, Collections.emptyMap());
+	}
+
+	/**
+	 * @param maxConcurrencies
+	 *            the maximum number of concurrent executions of the activity
+	 *            types having a limit
+	 */
+	public ActivityExecutorRegistry(final Map<VersionedName, ActivityExecutor> registry,
+			final Map<VersionedName, Integer> maxConcurrencies) {
+		this(registry, maxConcurrencies, Collections.emptyMap());
+	}
+
+	/**
+	 * @param maxConcurrencies
+	 *            the maximum number of concurrent executions of the activity
+	 *            types having a limit
+	 * @param rateLimiters
+	 *            the rate limiters of the activity types having one
+	 */
+	public ActivityExecutorRegistry(final Map<VersionedName, ActivityExecutor> registry,
+			final Map<VersionedName, Integer> maxConcurrencies,
+			final Map<VersionedName, RateLimiter> rateLimiters) {
+		this(registry, maxConcurrencies, rateLimiters, Collections.emptyMap());
+	}
+
+	/**
+	 * @param maxConcurrencies
+	 *            the maximum number of concurrent executions of the activity
+	 *            types having a limit
+	 * @param rateLimiters
+	 *            the rate limiters of the activity types having one
+	 * @param heartbeatTimeouts
+	 *            the default heartbeat timeouts of the activity types having
+	 *            one
+	 */
+	public ActivityExecutorRegistry(final Map<VersionedName, ActivityExecutor> registry,
+			final Map<VersionedName, Integer> maxConcurrencies,
+			final Map<VersionedName, RateLimiter> rateLimiters,
+			final Map<VersionedName, Duration> heartbeatTimeouts) {
+		this(registry, maxConcurrencies, rateLimiters, heartbeatTimeouts, Collections.emptyMap());
+	}
+
+	/**
+	 * @param maxConcurrencies
+	 *            the maximum number of concurrent executions of the activity
+	 *            types having a limit
+	 * @param rateLimiters
+	 *            the rate limiters of the activity types having one
+	 * @param heartbeatTimeouts
+	 *            the default heartbeat timeouts of the activity types having
+	 *            one
+	 * @param startToCloseTimeouts
+	 *            the default start to close timeouts of the activity types
+	 *            having one
+	 */
+	public ActivityExecutorRegistry(final Map<VersionedName, ActivityExecutor> registry,
+			final Map<VersionedName, Integer> maxConcurrencies,
+			final Map<VersionedName, RateLimiter> rateLimiters,
+			final Map<VersionedName, Duration> heartbeatTimeouts,
+			final Map<VersionedName, Duration> startToCloseTimeouts) {
 		super();
 		this.registry = registry;
+		this.maxConcurrencies = maxConcurrencies;
+		this.rateLimiters = rateLimiters;
+		this.heartbeatTimeouts = heartbeatTimeouts;
+		this.startToCloseTimeouts = startToCloseTimeouts;
 	}
 
 	public ActivityExecutor get(final VersionedName activityType) {
 		return this.registry.get(activityType);
 	}
 
+	/**
+	 * @return the executors of all the activity types
+	 */
+	public Collection<ActivityExecutor> executors() {
+		return Collections.unmodifiableCollection(this.registry.values());
+	}
+
+	/**
+	 * @return the maximum number of concurrent executions of the activity
+	 *         types having a limit
+	 */
+	public Map<VersionedName, Integer> maxConcurrencies() {
+		return Collections.unmodifiableMap(this.maxConcurrencies);
+	}
+
+	/**
+	 * @return the rate limiters of the activity types having one
+	 */
+	public Map<VersionedName, RateLimiter> rateLimiters() {
+		return Collections.unmodifiableMap(this.rateLimiters);
+	}
+
+	/**
+	 * @return the default heartbeat timeouts of the activity types having one
+	 */
+	public Map<VersionedName, Duration> heartbeatTimeouts() {
+		return Collections.unmodifiableMap(this.heartbeatTimeouts);
+	}
+
+	/**
+	 * @return the default start to close timeouts of the activity types
+	 *         having one
+	 */
+	public Map<VersionedName, Duration> startToCloseTimeouts() {
+		return Collections.unmodifiableMap(this.startToCloseTimeouts);
+	}
+
 }
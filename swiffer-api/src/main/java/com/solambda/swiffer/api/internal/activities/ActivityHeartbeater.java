@@ -0,0 +1,302 @@
+package com.solambda.swiffer.api.internal.activities;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.amazonaws.services.simpleworkflow.model.UnknownResourceException;
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.solambda.swiffer.api.ActivityProgress;
+import com.solambda.swiffer.api.exceptions.CancelActivityRequested;
+import com.solambda.swiffer.api.internal.VersionedName;
+import com.solambda.swiffer.api.internal.decisions.WorkflowHistory;
+
+/**
+ * Heartbeat the running activity tasks automatically, at a fraction of the
+ * heartbeat timeout of their type.
+ * <p>
+ * A single thread schedules the heartbeats of all the tasks, which are sent
+ * by a bounded pool of {@value #SENDERS} threads, so that a slow heartbeat
+ * does not delay the heartbeats of the other tasks. Each task sends at most
+ * one heartbeat at a time, with the latest details set by its executor: a
+ * heartbeat due while the previous one of the task is being sent is skipped.
+ */
+public class ActivityHeartbeater {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ActivityHeartbeater.class);
+
+	/**
+	 * Default fraction of the heartbeat timeout between two heartbeats.
+	 */
+	public static final double DEFAULT_FRACTION = 0.5;
+
+	/**
+	 * Number of threads sending the heartbeats.
+	 */
+	static final int SENDERS = 4;
+
+	private final ActivityExecutionReporter reporter;
+	private final Map<VersionedName, Duration> heartbeatTimeouts;
+	private final double fraction;
+	private final Duration defaultInterval;
+	private final boolean interruptOnCancel;
+	private final ScheduledExecutorService scheduler;
+	private final ExecutorService senders;
+	private final Map<String, Heartbeat> heartbeats = new ConcurrentHashMap<>();
+
+	public ActivityHeartbeater(final ActivityExecutionReporter reporter,
+			final Map<VersionedName, Duration> heartbeatTimeouts) {
+		this(reporter, heartbeatTimeouts, DEFAULT_FRACTION, null, false);
+	}
+
+	/**
+	 * @param heartbeatTimeouts
+	 *            the heartbeat timeouts of the activity types having one
+	 * @param fraction
+	 *            the fraction of the heartbeat timeout between two heartbeats,
+	 *            between 0 and 1
+	 * @param defaultInterval
+	 *            optional interval between the heartbeats of the activity types
+	 *            without heartbeat timeout. They are not heartbeated if null.
+	 * @param interruptOnCancel
+	 *            true to interrupt the thread executing a task requested to
+	 *            cancel
+	 */
+	public ActivityHeartbeater(final ActivityExecutionReporter reporter,
+			final Map<VersionedName, Duration> heartbeatTimeouts, final double fraction,
+			final Duration defaultInterval, final boolean interruptOnCancel) {
+		super();
+		Preconditions.checkArgument(fraction > 0 && fraction < 1, "the fraction should be between 0 and 1");
+		this.reporter = Preconditions.checkNotNull(reporter, "the reporter should not be null");
+		this.heartbeatTimeouts = Collections.unmodifiableMap(heartbeatTimeouts);
+		this.fraction = fraction;
+		this.defaultInterval = defaultInterval;
+		this.interruptOnCancel = interruptOnCancel;
+		final ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1,
+				new ThreadFactoryBuilder().setNameFormat("activity-heartbeat-%d").setDaemon(true).build());
+		// the heartbeats of the ended tasks should not stay in the queue
+		scheduler.setRemoveOnCancelPolicy(true);
+		this.scheduler = scheduler;
+		final ThreadPoolExecutor senders = new ThreadPoolExecutor(SENDERS, SENDERS, 1, TimeUnit.MINUTES,
+				new LinkedBlockingQueue<>(),
+				new ThreadFactoryBuilder().setNameFormat("activity-heartbeat-sender-%d").setDaemon(true).build());
+		senders.allowCoreThreadTimeOut(true);
+		this.senders = senders;
+	}
+
+	/**
+	 * Start heartbeating the task, until {@link #stop(ActivityTaskContext)}.
+	 *
+	 * @return the heartbeat of the task, passed to its executor, or null if
+	 *         the task has no token
+	 */
+	Heartbeat start(final ActivityTaskContext task) {
+		if (task.taskToken() == null) {
+			return null;
+		}
+		final Heartbeat heartbeat = new Heartbeat(task);
+		this.heartbeats.put(task.taskToken(), heartbeat);
+		final Duration interval = intervalOf(task);
+		if (interval != null) {
+			final long nanos = Math.max(1, interval.toNanos());
+			heartbeat.future = this.scheduler.scheduleWithFixedDelay(heartbeat::send, nanos, nanos,
+					TimeUnit.NANOSECONDS);
+		}
+		return heartbeat;
+	}
+
+	/**
+	 * @return the heartbeat of the task, or null if it is not heartbeated
+	 */
+	Heartbeat get(final ActivityTaskContext task) {
+		final String taskToken = task.taskToken();
+		return taskToken == null ? null : this.heartbeats.get(taskToken);
+	}
+
+	/**
+	 * Stop heartbeating the task.
+	 */
+	void stop(final ActivityTaskContext task) {
+		final String taskToken = task.taskToken();
+		final Heartbeat heartbeat = taskToken == null ? null : this.heartbeats.remove(taskToken);
+		if (heartbeat != null && heartbeat.future != null) {
+			heartbeat.future.cancel(false);
+		}
+	}
+
+	/**
+	 * @return the number of tasks being heartbeated
+	 */
+	public int size() {
+		return this.heartbeats.size();
+	}
+
+	public void shutdown() {
+		this.scheduler.shutdownNow();
+		this.senders.shutdownNow();
+	}
+
+	private Duration intervalOf(final ActivityTaskContext task) {
+		final Duration timeout;
+		try {
+			timeout = this.heartbeatTimeouts.get(task.activityType());
+		} catch (final RuntimeException e) {
+			return null;
+		}
+		if (timeout == null) {
+			return this.defaultInterval;
+		}
+		return Duration.ofNanos((long) (timeout.toNanos() * this.fraction));
+	}
+
+	/**
+	 * The context passed to the executor of a heartbeated task.
+	 */
+	class Heartbeat implements ActivityTaskContext, ActivityProgress {
+
+		private final ActivityTaskContext task;
+		private volatile String details;
+		private volatile boolean cancelRequested;
+		private volatile ScheduledFuture<?> future;
+		/**
+		 * true while a heartbeat of the task is queued or being sent
+		 */
+		private final AtomicBoolean sending = new AtomicBoolean();
+		/**
+		 * the thread executing the task, guarded by this
+		 */
+		private Thread thread;
+		private boolean interrupted;
+
+		private Heartbeat(final ActivityTaskContext task) {
+			this.task = task;
+		}
+
+		/**
+		 * Hand the heartbeat over to the senders, unless the previous one is
+		 * still pending.
+		 */
+		private void send() {
+			if (!this.sending.compareAndSet(false, true)) {
+				return;
+			}
+			try {
+				ActivityHeartbeater.this.senders.execute(this::beat);
+			} catch (final RejectedExecutionException e) {
+				// shut down
+				this.sending.set(false);
+			}
+		}
+
+		private void beat() {
+			try {
+				// the task may have ended while the heartbeat was queued
+				if (!this.cancelRequested && (this.future == null || !this.future.isCancelled())) {
+					ActivityHeartbeater.this.reporter.progress(this.task.taskToken(), this.details);
+				}
+			} catch (final CancelActivityRequested e) {
+				LOGGER.info("Activity task {} has been requested to cancel", this.task.activityId());
+				cancel();
+			} catch (final UnknownResourceException e) {
+				LOGGER.warn("Activity task {} is closed, it has probably timed out", this.task.activityId(), e);
+				cancel();
+			} catch (final RuntimeException e) {
+				LOGGER.warn("Cannot heartbeat the activity task {}", this.task.activityId(), e);
+			} finally {
+				this.sending.set(false);
+			}
+		}
+
+		private void cancel() {
+			this.cancelRequested = true;
+			if (this.future != null) {
+				this.future.cancel(false);
+			}
+			if (ActivityHeartbeater.this.interruptOnCancel) {
+				synchronized (this) {
+					if (this.thread != null) {
+						this.thread.interrupt();
+						this.interrupted = true;
+					}
+				}
+			}
+		}
+
+		/**
+		 * The current thread starts executing the task.
+		 */
+		synchronized void attach() {
+			this.thread = Thread.currentThread();
+		}
+
+		/**
+		 * The current thread stops executing the task, and is cleared of the
+		 * interruption of the cancellation.
+		 */
+		synchronized void detach() {
+			this.thread = null;
+			if (this.interrupted) {
+				Thread.interrupted();
+				this.interrupted = false;
+			}
+		}
+
+		@Override
+		public void details(final String details) {
+			this.details = details;
+		}
+
+		String details() {
+			return this.details;
+		}
+
+		@Override
+		public boolean isCancelRequested() {
+			return this.cancelRequested;
+		}
+
+		@Override
+		public ActivityProgress progress() {
+			return this;
+		}
+
+		@Override
+		public WorkflowHistory history() {
+			return this.task.history();
+		}
+
+		@Override
+		public String taskToken() {
+			return this.task.taskToken();
+		}
+
+		@Override
+		public String input() {
+			return this.task.input();
+		}
+
+		@Override
+		public VersionedName activityType() {
+			return this.task.activityType();
+		}
+
+		@Override
+		public String activityId() {
+			return this.task.activityId();
+		}
+	}
+}
@@ -1,5 +1,6 @@
 package com.solambda.swiffer.api.internal.activities;
 
+import com.solambda.swiffer.api.ActivityProgress;
 import com.solambda.swiffer.api.internal.HasInput;
 import com.solambda.swiffer.api.internal.TaskContext;
 import com.solambda.swiffer.api.internal.VersionedName;
@@ -21,4 +22,22 @@ public interface ActivityTaskContext extends TaskContext, HasInput {
 	 */
 	String activityId();
 
+	/**
+	 * @return the progress of the task, heartbeated by the worker. The
+	 *         details are ignored and the cancellation is never requested
+	 *         when the task is not heartbeated.
+	 */
+	default ActivityProgress progress() {
+		return new ActivityProgress() {
+			@Override
+			public void details(final String details) {
+			}
+
+			@Override
+			public boolean isCancelRequested() {
+				return false;
+			}
+		};
+	}
+
 }
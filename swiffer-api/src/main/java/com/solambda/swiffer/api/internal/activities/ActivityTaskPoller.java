@@ -1,5 +1,7 @@
 package com.solambda.swiffer.api.internal.activities;
 
+import java.util.concurrent.ThreadFactory;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -19,23 +21,43 @@ public class ActivityTaskPoller
 		super(swf, domain, taskList, identity);
 	}
 
+	/**
+	 * @param threadFactory
+	 *            optional factory of the thread issuing the long polls
+	 */
+	public ActivityTaskPoller(final AmazonSimpleWorkflow swf, final String domain, final String taskList,
+			final String identity, final ThreadFactory threadFactory) {
+		super(swf, domain, taskList, identity, threadFactory);
+	}
+
 	@Override
 	protected ActivityTaskContext pollForTask() throws Exception {
 		LOGGER.debug("[{}:{}] Polling Activity task list '{}'", this.domain, this.identity, this.taskList);
-		final PollForActivityTaskRequest pollForActivityTaskRequest = new PollForActivityTaskRequest()
-				.withDomain(this.domain)
-				.withIdentity(this.identity)
-				.withTaskList(new TaskList().withName(this.taskList));
-		final ActivityTask activityTask = this.swf.pollForActivityTask(pollForActivityTaskRequest);
+		final ActivityTask activityTask = this.swf.pollForActivityTask(
+				pollRequest(this.domain, this.taskList, this.identity));
+		return toTaskContext(this.swf, this.domain, this.taskList, this.identity, activityTask);
+	}
+
+	static PollForActivityTaskRequest pollRequest(final String domain, final String taskList,
+			final String identity) {
+		return new PollForActivityTaskRequest()
+				.withDomain(domain)
+				.withIdentity(identity)
+				.withTaskList(new TaskList().withName(taskList));
+	}
+
+	/**
+	 * @return the context of the polled activity task, or null if no task
+	 *         was polled
+	 */
+	static ActivityTaskContext toTaskContext(final AmazonSimpleWorkflow swf, final String domain,
+			final String taskList, final String identity, final ActivityTask activityTask) {
 		if (activityTask == null || activityTask.getTaskToken() == null) {
-			LOGGER.debug("[{}:{}] no ActivityTask available in task list '{}'", this.domain, this.identity,
-					this.taskList);
+			LOGGER.debug("[{}:{}] no ActivityTask available in task list '{}'", domain, identity, taskList);
 			return null;
 		}
-		LOGGER.debug("[{}:{}] ActivityTask received from '{}':{}", this.domain, this.identity, this.taskList,
-				activityTask);
-		return new ActivityTaskContextImpl(this.swf, activityTask);
-
+		LOGGER.debug("[{}:{}] ActivityTask received from '{}':{}", domain, identity, taskList, activityTask);
+		return new ActivityTaskContextImpl(swf, activityTask);
 	}
 
 }
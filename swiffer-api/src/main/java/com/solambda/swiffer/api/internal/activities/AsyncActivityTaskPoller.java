@@ -0,0 +1,35 @@
+package com.solambda.swiffer.api.internal.activities;
+
+import java.util.concurrent.CompletableFuture;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.amazonaws.services.simpleworkflow.AmazonSimpleWorkflowAsync;
+import com.amazonaws.services.simpleworkflow.model.ActivityTask;
+import com.amazonaws.services.simpleworkflow.model.PollForActivityTaskRequest;
+import com.solambda.swiffer.api.internal.AbstractAsyncTaskContextPoller;
+
+/**
+ * Poll the activity tasks with the asynchronous SWF client.
+ */
+public class AsyncActivityTaskPoller extends AbstractAsyncTaskContextPoller<ActivityTaskContext> {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(AsyncActivityTaskPoller.class);
+
+	public AsyncActivityTaskPoller(final AmazonSimpleWorkflowAsync swf, final String domain, final String taskList,
+			final String identity) {
+		super(swf, domain, taskList, identity);
+	}
+
+	@Override
+	protected CompletableFuture<ActivityTaskContext> pollForTaskAsync() {
+		LOGGER.debug("[{}:{}] Polling Activity task list '{}'", this.domain, this.identity, this.taskList);
+		return AbstractAsyncTaskContextPoller.<PollForActivityTaskRequest, ActivityTask> call(
+				ActivityTaskPoller.pollRequest(this.domain, this.taskList, this.identity),
+				this.swf::pollForActivityTaskAsync)
+				.thenApply(activityTask -> ActivityTaskPoller.toTaskContext(this.swf, this.domain, this.taskList,
+						this.identity, activityTask));
+	}
+
+}
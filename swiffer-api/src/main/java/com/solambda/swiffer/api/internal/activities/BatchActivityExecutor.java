@@ -0,0 +1,239 @@
+package com.solambda.swiffer.api.internal.activities;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.solambda.swiffer.api.exceptions.ActivityTaskExecutionFailedException;
+import com.solambda.swiffer.api.internal.MethodInvoker;
+import com.solambda.swiffer.api.mapper.DataMapper;
+
+/**
+ * Accumulate the activity tasks of one type and execute them by batches, with
+ * a single invocation of the executor method.
+ *
+ * @see com.solambda.swiffer.api.BatchExecutor
+ */
+public class BatchActivityExecutor implements ActivityExecutor {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(BatchActivityExecutor.class);
+
+	/**
+	 * Only triggers the linger flushes, which are run by the
+	 * {@link #flushExecutor}
+	 */
+	private static final ScheduledExecutorService LINGER_TIMER = Executors.newSingleThreadScheduledExecutor(
+			new ThreadFactoryBuilder().setNameFormat("batch-linger-%d").setDaemon(true).build());
+
+	private final MethodInvoker invoker;
+	private final Class<?> inputType;
+	private final DataMapper dataMapper;
+	private final int maxSize;
+	private final long lingerMillis;
+	/**
+	 * Execute the batches flushed after their linger time, the executor of the
+	 * worker once {@link #useExecutor(Executor) bound}
+	 */
+	private volatile Executor flushExecutor = MoreExecutors.directExecutor();
+
+	private List<PendingTask> pending = new ArrayList<>();
+	private ScheduledFuture<?> lingerFlush;
+
+	/**
+	 * @param invoker
+	 *            invoke the executor method with the list of inputs
+	 * @param inputType
+	 *            the type of the elements of the list of inputs
+	 * @param maxSize
+	 *            the maximum number of tasks of a batch
+	 * @param lingerMillis
+	 *            the maximum time a task waits for the other tasks of its
+	 *            batch
+	 */
+	public BatchActivityExecutor(final MethodInvoker invoker, final Class<?> inputType, final DataMapper dataMapper,
+			final int maxSize, final long lingerMillis) {
+		super();
+		Preconditions.checkNotNull(invoker, "MethodInvoker should not be null");
+		Preconditions.checkArgument(maxSize > 0, "the max size of the batches should be greater than 0");
+		Preconditions.checkArgument(lingerMillis >= 0, "the linger time should not be negative");
+		this.invoker = invoker;
+		this.inputType = inputType;
+		this.dataMapper = dataMapper;
+		this.maxSize = maxSize;
+		this.lingerMillis = lingerMillis;
+	}
+
+	/**
+	 * Run the batches flushed after their linger time with the executor of the
+	 * worker, so that they are executed by its pool instead of the shared
+	 * linger timer.
+	 */
+	@Override
+	public void useExecutor(final Executor executor) {
+		this.flushExecutor = Preconditions.checkNotNull(executor, "the executor should not be null");
+	}
+
+	@Override
+	public String execute(final ActivityTaskContext context) throws ActivityTaskExecutionFailedException {
+		try {
+			return executeAsync(context).toCompletableFuture().get();
+		} catch (final ExecutionException e) {
+			if (e.getCause() instanceof ActivityTaskExecutionFailedException) {
+				throw (ActivityTaskExecutionFailedException) e.getCause();
+			}
+			throw new ActivityTaskExecutionFailedException(context, e.getCause());
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ActivityTaskExecutionFailedException(context, e);
+		}
+	}
+
+	/**
+	 * Add the task to the current batch, executing the batch if it is full.
+	 *
+	 * @return a stage completed when the batch of the task has been executed
+	 */
+	@Override
+	public CompletionStage<String> executeAsync(final ActivityTaskContext context) {
+		final PendingTask task = new PendingTask(context);
+		try {
+			task.input = this.dataMapper.deserialize(context.input(), this.inputType);
+		} catch (final RuntimeException e) {
+			task.fail(e);
+			return task.result;
+		}
+		final List<PendingTask> batch;
+		synchronized (this) {
+			this.pending.add(task);
+			if (this.pending.size() < this.maxSize) {
+				if (this.pending.size() == 1) {
+					this.lingerFlush = LINGER_TIMER.schedule(this::lingered, this.lingerMillis, TimeUnit.MILLISECONDS);
+				}
+				return task.result;
+			}
+			batch = takeBatch();
+		}
+		execute(batch);
+		return task.result;
+	}
+
+	private void lingered() {
+		try {
+			this.flushExecutor.execute(this::flush);
+		} catch (final RejectedExecutionException e) {
+			// the worker is shut down
+			final List<PendingTask> batch;
+			synchronized (this) {
+				batch = takeBatch();
+			}
+			failAll(batch, e);
+		}
+	}
+
+	private void flush() {
+		final List<PendingTask> batch;
+		synchronized (this) {
+			batch = takeBatch();
+		}
+		execute(batch);
+	}
+
+	private List<PendingTask> takeBatch() {
+		final List<PendingTask> batch = this.pending;
+		this.pending = new ArrayList<>();
+		if (this.lingerFlush != null) {
+			this.lingerFlush.cancel(false);
+			this.lingerFlush = null;
+		}
+		return batch;
+	}
+
+	private void execute(final List<PendingTask> batch) {
+		if (batch.isEmpty()) {
+			return;
+		}
+		LOGGER.debug("Executing a batch of {} activities", batch.size());
+		final List<Object> inputs = new ArrayList<>(batch.size());
+		for (final PendingTask task : batch) {
+			inputs.add(task.input);
+		}
+		final Object result;
+		try {
+			result = this.invoker.invoke(inputs);
+		} catch (final InvocationTargetException e) {
+			failAll(batch, e.getTargetException());
+			return;
+		} catch (final RuntimeException | Error e) {
+			failAll(batch, e);
+			return;
+		}
+		if (result == null) {
+			for (final PendingTask task : batch) {
+				task.complete(null);
+			}
+			return;
+		}
+		if (!(result instanceof List)) {
+			failAll(batch, new IllegalStateException("the batch executor returned a " + result.getClass().getName()
+					+ " instead of a List of " + batch.size() + " outputs"));
+			return;
+		}
+		final List<?> outputs = (List<?>) result;
+		if (outputs.size() != batch.size()) {
+			failAll(batch, new IllegalStateException(
+					"the batch executor returned " + outputs.size() + " outputs for " + batch.size() + " inputs"));
+			return;
+		}
+		for (int i = 0; i < batch.size(); i++) {
+			final Object output = outputs.get(i);
+			if (output instanceof Throwable) {
+				batch.get(i).fail((Throwable) output);
+			} else {
+				batch.get(i).complete(output);
+			}
+		}
+	}
+
+	private static void failAll(final List<PendingTask> batch, final Throwable cause) {
+		for (final PendingTask task : batch) {
+			task.fail(cause);
+		}
+	}
+
+	private class PendingTask {
+		private final ActivityTaskContext context;
+		private final CompletableFuture<String> result = new CompletableFuture<>();
+		private Object input;
+
+		private PendingTask(final ActivityTaskContext context) {
+			this.context = context;
+		}
+
+		private void complete(final Object output) {
+			try {
+				this.result.complete(BatchActivityExecutor.this.dataMapper.serialize(output));
+			} catch (final RuntimeException e) {
+				fail(e);
+			}
+		}
+
+		private void fail(final Throwable cause) {
+			this.result.completeExceptionally(new ActivityTaskExecutionFailedException(this.context, cause));
+		}
+	}
+}
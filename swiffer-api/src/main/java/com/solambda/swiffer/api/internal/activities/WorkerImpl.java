@@ -2,26 +2,97 @@ package com.solambda.swiffer.api.internal.activities;
 
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.solambda.swiffer.api.Worker;
 import com.solambda.swiffer.api.exceptions.ActivityTaskExecutionFailedException;
 import com.solambda.swiffer.api.internal.AbstractTaskListService;
 import com.solambda.swiffer.api.internal.Failure;
 import com.solambda.swiffer.api.internal.TaskContextPoller;
 import com.solambda.swiffer.api.internal.VersionedName;
+import com.solambda.swiffer.api.metrics.ActivityOutcome;
+import com.solambda.swiffer.api.metrics.SwifferMetrics;
+import com.solambda.swiffer.api.ratelimit.RateLimiter;
 
 public class WorkerImpl extends AbstractTaskListService<ActivityTaskContext> implements Worker {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(WorkerImpl.class);
+
+	/**
+	 * Default number of activities executed concurrently.
+	 */
+	public static final int DEFAULT_POOL_SIZE = 10;
+
 	private ExecutorService executor;
+	/**
+	 * One permit per free thread of the pool: a task is polled only when a
+	 * permit is acquired, so that a polled task is always executed immediately
+	 * instead of waiting in the queue of the pool.
+	 */
+	private final Semaphore permits;
+	private final int poolSize;
+
+	/**
+	 * The concurrency limits of the activity types having one
+	 */
+	private final Map<VersionedName, ActivityBulkhead> bulkheads = new HashMap<>();
+	/**
+	 * Notified when a task of a bulkhead ends
+	 */
+	private final Object bulkheadsMonitor = new Object();
+	/**
+	 * The activity types of the task lists dedicated to one type, which are
+	 * polled only within the limits of their type
+	 */
+	private final Map<String, VersionedName> dedicatedTypes = new HashMap<>();
+
+	/**
+	 * Optional rate limiter of all the activities of the worker, a token is
+	 * taken before each poll
+	 */
+	private final RateLimiter rateLimiter;
+	/**
+	 * The rate limiters of the activity types having one, a token is taken
+	 * before each poll of the dedicated task list of the type, or before the
+	 * execution of the tasks of the type polled from another task list
+	 */
+	private final Map<VersionedName, RateLimiter> rateLimiters;
+	private final LongAdder throttledNanos = new LongAdder();
+
+	/**
+	 * Optional heartbeater of the running tasks
+	 */
+	private final ActivityHeartbeater heartbeater;
+
+	private final SwifferMetrics metrics;
 
 	private ActivityExecutorRegistry registry;
+	/**
+	 * The start to close timeouts of the activity types having one, giving
+	 * the deadline of the responses of their tasks
+	 */
+	private final Map<VersionedName, Duration> startToCloseTimeouts;
 
 	final ActivityExecutionReporter reporter;
 
@@ -29,24 +100,424 @@ public class WorkerImpl extends AbstractTaskListService<ActivityTaskContext> imp
 			final TaskContextPoller<ActivityTaskContext> poller,
 			final ActivityExecutorRegistry registry,
 			final ActivityExecutionReporter reporter) {
-		super(poller);
-		this.executor = Executors.newFixedThreadPool(10);
+		this(Collections.singletonList(poller), registry, reporter, new WorkerOptions());
+	}
+
+	/**
+	 * @param pollers
+	 *            the pollers run concurrently, sharing the threads of the pool
+	 * @param options
+	 *            the optional settings of the worker
+	 */
+	public WorkerImpl(
+			final List<? extends TaskContextPoller<ActivityTaskContext>> pollers,
+			final ActivityExecutorRegistry registry,
+			final ActivityExecutionReporter reporter,
+			final WorkerOptions options) {
+		super(pollers, options.autoscaler(), options.threadFactory());
+		final int poolSize = options.poolSize();
+		if (options.threadFactory() == null) {
+			this.executor = Executors.newFixedThreadPool(poolSize,
+					new ThreadFactoryBuilder().setNameFormat("activity-executor-%d").build());
+		} else {
+			// one thread per activity, the concurrency is limited by the permits
+			this.executor = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 0, TimeUnit.SECONDS,
+					new SynchronousQueue<>(), options.threadFactory());
+		}
+		this.permits = new Semaphore(poolSize);
+		this.poolSize = poolSize;
 		this.registry = registry;
+		this.startToCloseTimeouts = registry.startToCloseTimeouts();
 		this.reporter = reporter;
+		registry.maxConcurrencies().forEach((type, max) -> this.bulkheads.put(type, new ActivityBulkhead(max)));
+		options.dedicatedTaskLists().forEach((type, taskList) -> this.dedicatedTypes.put(taskList, type));
+		this.rateLimiter = options.rateLimiter();
+		this.heartbeater = options.heartbeater();
+		this.metrics = options.metrics();
+		this.rateLimiters = registry.rateLimiters();
+		registry.executors().forEach(activityExecutor -> activityExecutor.useExecutor(this.executor));
+	}
+
+	/**
+	 * The dedicated task list of an activity type is polled only when the type
+	 * is below its max concurrency, and with a token of its rate limiter
+	 * taken before acquiring a thread: no permit is held while waiting for it.
+	 * The token is lost if no thread is free within a second, or if the poll
+	 * returns no task.
+	 */
+	@Override
+	protected boolean acquireCapacity(final TaskContextPoller<ActivityTaskContext> poller)
+			throws InterruptedException {
+		final VersionedName type = dedicatedTypeOf(poller);
+		if (type == null) {
+			return acquireCapacity();
+		}
+		final ActivityBulkhead bulkhead = this.bulkheads.get(type);
+		if (bulkhead != null && !awaitBulkhead(bulkhead, 1, TimeUnit.SECONDS)) {
+			return false;
+		}
+		final RateLimiter limiter = this.rateLimiters.get(type);
+		if (limiter != null && !awaitToken(limiter, 1, TimeUnit.SECONDS)) {
+			return false;
+		}
+		return acquireCapacity();
+	}
+
+	/**
+	 * Like {@link #acquireCapacity(TaskContextPoller)}, but the token of the
+	 * activity type is taken after the thread, so that it is not lost by the
+	 * frequent attempts of the asynchronous pollers while the pool is busy.
+	 */
+	@Override
+	protected boolean tryAcquireCapacity(final TaskContextPoller<ActivityTaskContext> poller) {
+		final VersionedName type = dedicatedTypeOf(poller);
+		if (type == null) {
+			return tryAcquireCapacity();
+		}
+		final ActivityBulkhead bulkhead = this.bulkheads.get(type);
+		if (bulkhead != null && bulkhead.isFull() || !tryAcquireCapacity()) {
+			return false;
+		}
+		final RateLimiter limiter = this.rateLimiters.get(type);
+		if (limiter != null && limiter.tryAcquire() > 0) {
+			releaseCapacity();
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * @return the activity type the task list of the poller is dedicated to,
+	 *         or null
+	 */
+	private VersionedName dedicatedTypeOf(final TaskContextPoller<ActivityTaskContext> poller) {
+		if (this.dedicatedTypes.isEmpty()) {
+			return null;
+		}
+		return this.dedicatedTypes.get(poller.taskList());
+	}
+
+	/**
+	 * Wait until the bulkhead is not full.
+	 *
+	 * @return false if it is still full after the timeout
+	 */
+	private boolean awaitBulkhead(final ActivityBulkhead bulkhead, final long timeout, final TimeUnit unit)
+			throws InterruptedException {
+		final long deadline = System.nanoTime() + unit.toNanos(timeout);
+		synchronized (this.bulkheadsMonitor) {
+			while (bulkhead.isFull()) {
+				final long remaining = deadline - System.nanoTime();
+				if (remaining <= 0) {
+					return false;
+				}
+				TimeUnit.NANOSECONDS.timedWait(this.bulkheadsMonitor, remaining);
+			}
+		}
+		return true;
+	}
+
+	@Override
+	protected boolean acquireCapacity() throws InterruptedException {
+		if (!this.permits.tryAcquire(1, TimeUnit.SECONDS)) {
+			return false;
+		}
+		if (this.rateLimiter != null && !awaitToken(this.rateLimiter, 1, TimeUnit.SECONDS)) {
+			releaseCapacity();
+			return false;
+		}
+		return true;
+	}
+
+	@Override
+	protected boolean tryAcquireCapacity() {
+		if (!this.permits.tryAcquire()) {
+			return false;
+		}
+		if (this.rateLimiter != null && this.rateLimiter.tryAcquire() > 0) {
+			releaseCapacity();
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Wait for a token of the rate limiter.
+	 *
+	 * @return false if no token is available before the timeout
+	 */
+	private boolean awaitToken(final RateLimiter limiter, final long timeout, final TimeUnit unit)
+			throws InterruptedException {
+		final long start = System.nanoTime();
+		final long deadline = start + unit.toNanos(timeout);
+		try {
+			long wait;
+			while ((wait = limiter.tryAcquire()) > 0) {
+				final long remaining = deadline - System.nanoTime();
+				if (remaining <= 0) {
+					return false;
+				}
+				TimeUnit.NANOSECONDS.sleep(Math.min(wait, remaining));
+			}
+			return true;
+		} finally {
+			this.throttledNanos.add(System.nanoTime() - start);
+		}
+	}
+
+	@Override
+	protected void releaseCapacity() {
+		this.permits.release();
+	}
+
+	@Override
+	protected void polled(final TaskContextPoller<ActivityTaskContext> poller, final long nanos,
+			final boolean empty) {
+		this.metrics.activityTaskPolled(poller.taskList(), nanos, empty);
+	}
+
+	@Override
+	protected void executeTask(final TaskContextPoller<ActivityTaskContext> poller,
+			final ActivityTaskContext task) {
+		final VersionedName type = dedicatedTypeOf(poller);
+		if (type != null && type.equals(activityTypeOf(task))) {
+			// the token of the type has been taken before the poll
+			executeWithinBulkhead(task);
+		} else {
+			executeTask(task);
+		}
 	}
 
 	@Override
 	protected void executeTask(final ActivityTaskContext task) {
-		// emit the task execution in another thread.
-		this.executor.submit(() -> {
-			executeTaskImmediately(task);
-		});
+		final RateLimiter limiter = rateLimiterOf(task);
+		if (limiter != null && limiter.tryAcquire() > 0) {
+			// polled from a task list not dedicated to its type, the task
+			// cannot wait for a token without holding its permit while its
+			// timeout runs: it is abandoned instead
+			abandon(task, "rate limit");
+			return;
+		}
+		executeWithinBulkhead(task);
+	}
+
+	private void executeWithinBulkhead(final ActivityTaskContext task) {
+		final long polled = System.nanoTime();
+		final Instant deadline = deadlineOf(task);
+		if (this.heartbeater != null) {
+			this.heartbeater.start(task);
+		}
+		final ActivityBulkhead bulkhead = bulkheadOf(task);
+		if (bulkhead != null && !bulkhead.tryEnter()) {
+			// polled from a task list not dedicated to its type, the task
+			// cannot be handed back: it is abandoned instead of failed
+			abandon(task, "max concurrency");
+			return;
+		}
+		submit(task, bulkhead, polled, deadline);
+	}
+
+	/**
+	 * @return when the task polled now times out, from the start to close
+	 *         timeout of its type, or null if unknown
+	 */
+	private Instant deadlineOf(final ActivityTaskContext task) {
+		if (this.startToCloseTimeouts.isEmpty()) {
+			return null;
+		}
+		final Duration timeout = this.startToCloseTimeouts.get(activityTypeOf(task));
+		return timeout == null ? null : Instant.now().plus(timeout);
+	}
+
+	/**
+	 * Abandon a task of an activity type at its limit: no outcome is reported,
+	 * so that the task times out and is rescheduled by its workflow, without
+	 * being counted as a failure.
+	 *
+	 * @param limit
+	 *            the limit reached by the activity type
+	 */
+	private void abandon(final ActivityTaskContext task, final String limit) {
+		if (this.heartbeater != null) {
+			this.heartbeater.stop(task);
+		}
+		LOGGER.warn("Activity task {} abandoned: {} is at its {}, the task will time out", task.activityId(),
+				typeName(task), limit);
+		this.metrics.activityTaskExecuted(typeName(task), 0, ActivityOutcome.ABANDONED);
+		releaseCapacity();
+	}
+
+	/**
+	 * @return the bulkhead of the activity type of the task, or null if the
+	 *         type has no concurrency limit
+	 */
+	private ActivityBulkhead bulkheadOf(final ActivityTaskContext task) {
+		return this.bulkheads.isEmpty() ? null : this.bulkheads.get(activityTypeOf(task));
+	}
+
+	/**
+	 * @return the rate limiter of the activity type of the task, or null if
+	 *         the type has no rate limit
+	 */
+	private RateLimiter rateLimiterOf(final ActivityTaskContext task) {
+		return this.rateLimiters.isEmpty() ? null : this.rateLimiters.get(activityTypeOf(task));
+	}
+
+	/**
+	 * @return the activity type of the task, or null if the task is invalid
+	 */
+	private static VersionedName activityTypeOf(final ActivityTaskContext task) {
+		try {
+			return task.activityType();
+		} catch (final RuntimeException e) {
+			// an invalid task is reported as failed by the executing thread
+			return null;
+		}
+	}
+
+	/**
+	 * Execute the task in another thread, with the permit it holds.
+	 *
+	 * @param bulkhead
+	 *            the bulkhead entered by the task, or null
+	 * @param polled
+	 *            when the task was polled
+	 * @param deadline
+	 *            when the task times out, or null if unknown
+	 */
+	private void submit(final ActivityTaskContext task, final ActivityBulkhead bulkhead, final long polled,
+			final Instant deadline) {
+		final Runnable done = () -> {
+			if (this.heartbeater != null) {
+				this.heartbeater.stop(task);
+			}
+			if (bulkhead != null) {
+				bulkhead.exit();
+				synchronized (this.bulkheadsMonitor) {
+					this.bulkheadsMonitor.notifyAll();
+				}
+			}
+			releaseCapacity();
+		};
+		try {
+			this.executor.submit(() -> {
+				this.metrics.activityTaskStarted(typeName(task), System.nanoTime() - polled);
+				final CompletionStage<Void> reported;
+				try {
+					reported = executeTaskAsync(task, deadline);
+				} catch (final RuntimeException | Error e) {
+					// the future of the submitted task is not observed
+					LOGGER.error("Cannot execute the activity task {}", task.activityId(), e);
+					done.run();
+					throw e;
+				}
+				// the activity execution has been reported to SWF, possibly
+				// after the completion of an asynchronous executor
+				reported.whenComplete((none, error) -> {
+					if (error != null) {
+						LOGGER.error("Cannot report the execution of the activity task {}", task.activityId(),
+								error);
+					}
+					done.run();
+				});
+			});
+		} catch (final RejectedExecutionException e) {
+			done.run();
+			throw e;
+		}
 	}
 
 	@Override
 	protected void executeTaskImmediately(final ActivityTaskContext task) {
 
 		// retrieve the executor
+		final ActivityExecutor executor = getActivityExecutor(task);
+		if (executor != null) {
+			execute(task, executor, this.reporter);
+		}
+	}
+
+	/**
+	 * Execute the task without waiting for the completion of the asynchronous
+	 * executors.
+	 *
+	 * @param deadline
+	 *            when the task times out, after which its responses are not
+	 *            retried anymore, or null if unknown
+	 * @return a stage completed when the execution has been reported
+	 */
+	private CompletionStage<Void> executeTaskAsync(final ActivityTaskContext task, final Instant deadline) {
+		final ActivityExecutor executor = getActivityExecutor(task);
+		if (executor == null) {
+			return CompletableFuture.completedFuture(null);
+		}
+		final ActivityHeartbeater.Heartbeat heartbeat = this.heartbeater == null ? null : this.heartbeater.get(task);
+		final long start = System.nanoTime();
+		CompletionStage<String> execution;
+		try {
+			if (heartbeat == null) {
+				execution = executor.executeAsync(task);
+			} else {
+				heartbeat.attach();
+				try {
+					execution = executor.executeAsync(heartbeat);
+				} finally {
+					heartbeat.detach();
+				}
+			}
+		} catch (final RuntimeException e) {
+			final CompletableFuture<String> failed = new CompletableFuture<>();
+			failed.completeExceptionally(e);
+			execution = failed;
+		}
+		return execution.handle((output, error) -> {
+			if (heartbeat != null) {
+				this.heartbeater.stop(task);
+			}
+			try {
+				if (error == null) {
+					reportCompletion(task, start, output, deadline, this.reporter);
+				} else if (heartbeat != null && heartbeat.isCancelRequested()) {
+					LOGGER.info("Activity task {} canceled", task.activityId());
+					executed(task, start, ActivityOutcome.CANCELED);
+					this.reporter.canceled(task.taskToken(), heartbeat.details(), deadline);
+				} else {
+					executed(task, start, ActivityOutcome.FAILED);
+					reportFailure(task, error instanceof CompletionException && error.getCause() != null
+							? error.getCause() : error, deadline, this.reporter);
+				}
+			} catch (final RuntimeException e) {
+				// the task times out
+				LOGGER.error("Cannot report the execution of the activity task {}", task.activityId(), e);
+			}
+			return null;
+		});
+	}
+
+	/**
+	 * Report the completion of the task, or its failure if the completion
+	 * cannot be reported, e.g. because the output is rejected by SWF. The task
+	 * is measured as completed only once its completion is reported.
+	 */
+	private void reportCompletion(final ActivityTaskContext task, final long start, final String output,
+			final Instant deadline, final ActivityExecutionReporter reporter) {
+		try {
+			reporter.completed(task.taskToken(), output, deadline);
+		} catch (final RuntimeException e) {
+			LOGGER.error("Cannot report the completion of the activity task {}, reporting its failure",
+					task.activityId(), e);
+			executed(task, start, ActivityOutcome.FAILED);
+			reportFailure(task, e, deadline, reporter);
+			return;
+		}
+		executed(task, start, ActivityOutcome.COMPLETED);
+	}
+
+	/**
+	 * @return the executor of the activity type of the task, or null if there
+	 *         is none, after having reported the failure of the task
+	 */
+	private ActivityExecutor getActivityExecutor(final ActivityTaskContext task) {
 		final VersionedName activityType = task.activityType();
 		final ActivityExecutor executor = getActivityExecutor(activityType);
 		if (executor == null) {
@@ -54,9 +525,8 @@ public class WorkerImpl extends AbstractTaskListService<ActivityTaskContext> imp
 					+ "for activity {name=\"%s\",version=\"%s\"", activityType.name(), activityType.version());
 			LOGGER.error(reason);
 			this.reporter.failed(task.taskToken(), new Failure(reason));
-		} else {
-			execute(task, executor, this.reporter);
 		}
+		return executor;
 	}
 
 	private ActivityExecutor getActivityExecutor(final VersionedName activityType) {
@@ -65,35 +535,78 @@ public class WorkerImpl extends AbstractTaskListService<ActivityTaskContext> imp
 
 	private void execute(final ActivityTaskContext context, final ActivityExecutor executor,
 			final ActivityExecutionReporter reporter) {
+		final long start = System.nanoTime();
+		final String output;
 		try {
-			final String output = executor.execute(context);
-			reporter.completed(context.taskToken(), output);
-		} catch (final ActivityTaskExecutionFailedException ex) {
-			LOGGER.error("Activity execution failed '{}', v='{}'", context.activityType().name(),
-					context.activityType().version(), ex);
-			final StringWriter errors = new StringWriter();
-			ex.printStackTrace(new PrintWriter(errors));
-			final String details = errors.toString();
-			reporter.failed(context.taskToken(), Failure.reason("Task execution failed").details(details));
+			output = executor.execute(context);
 		} catch (final Exception exception) {
+			executed(context, start, ActivityOutcome.FAILED);
+			reportFailure(context, exception, null, reporter);
+			return;
+		}
+		reportCompletion(context, start, output, null, reporter);
+	}
+
+	private void executed(final ActivityTaskContext task, final long start, final ActivityOutcome outcome) {
+		this.metrics.activityTaskExecuted(typeName(task), System.nanoTime() - start, outcome);
+	}
+
+	/**
+	 * @return the activity type of the task as name:version, or null if the
+	 *         task is invalid
+	 */
+	private static String typeName(final ActivityTaskContext task) {
+		try {
+			final VersionedName type = task.activityType();
+			return type.name() + ":" + type.version();
+		} catch (final RuntimeException e) {
+			return null;
+		}
+	}
+
+	private void reportFailure(final ActivityTaskContext context, final Throwable exception,
+			final Instant deadline, final ActivityExecutionReporter reporter) {
+		if (exception instanceof ActivityTaskExecutionFailedException) {
+			LOGGER.error("Activity execution failed '{}', v='{}'", context.activityType().name(),
+					context.activityType().version(), exception);
+		} else {
 			LOGGER.error("Exception during activity execution '{}', v='{}'", context.activityType().name(),
 					context.activityType().version(), exception);
-			final StringWriter errors = new StringWriter();
-			exception.printStackTrace(new PrintWriter(errors));
-			final String details = errors.toString();
-			reporter.failed(context.taskToken(), Failure.reason("Task execution failed").details(details));
 		}
+		final StringWriter errors = new StringWriter();
+		exception.printStackTrace(new PrintWriter(errors));
+		final String details = errors.toString();
+		reporter.failed(context.taskToken(), Failure.reason("Task execution failed").details(details), deadline);
+	}
+
+	/**
+	 * @return the total time the pollers of this worker waited for a token of
+	 *         the rate limiters
+	 */
+	public Duration throttledTime() {
+		return Duration.ofNanos(this.throttledNanos.sum());
 	}
 
 	@Override
 	public void stop() {
 		// super.stop blocks until the service poll and execute the last task
 		super.stop();
-		// ... so that we can safely shutdown (do not accept new tasks)
-		this.executor.shutdown();
 		try {
-			// ...and wait for the last activity to finish and respond to swf
+			// ...and wait for the last activity to finish and respond to swf,
+			// including the asynchronous ones, which hold their permit until
+			// they are reported, and the lingering batches, which are still
+			// executed by the pool
+			if (this.permits.tryAcquire(this.poolSize, 1, TimeUnit.HOURS)) {
+				this.permits.release(this.poolSize);
+			}
+			this.executor.shutdown();
 			this.executor.awaitTermination(1, TimeUnit.HOURS);
+			// ...which are heartbeated until then
+			if (this.heartbeater != null) {
+				this.heartbeater.shutdown();
+			}
+			// ...and wait for their responses to be sent
+			this.reporter.close();
 		} catch (final InterruptedException e) {
 			throw new IllegalStateException("Awaited more than 1 hours for an activity to terminate!");
 		}
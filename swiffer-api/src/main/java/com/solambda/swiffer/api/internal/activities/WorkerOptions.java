@@ -0,0 +1,136 @@
+package com.solambda.swiffer.api.internal.activities;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadFactory;
+
+import com.google.common.base.Preconditions;
+import com.solambda.swiffer.api.internal.PollerAutoscaler;
+import com.solambda.swiffer.api.internal.VersionedName;
+import com.solambda.swiffer.api.metrics.SwifferMetrics;
+import com.solambda.swiffer.api.ratelimit.RateLimiter;
+
+/**
+ * The optional settings of a {@link WorkerImpl}, filled by the
+ * {@link com.solambda.swiffer.api.WorkerBuilder}.
+ */
+public class WorkerOptions {
+
+	private int poolSize = WorkerImpl.DEFAULT_POOL_SIZE;
+	private PollerAutoscaler autoscaler;
+	private ThreadFactory threadFactory;
+	private RateLimiter rateLimiter;
+	private ActivityHeartbeater heartbeater;
+	private SwifferMetrics metrics = SwifferMetrics.NONE;
+	private Map<VersionedName, String> dedicatedTaskLists = Collections.emptyMap();
+
+	/**
+	 * @param poolSize
+	 *            the number of activities executed concurrently, defaults to
+	 *            {@value WorkerImpl#DEFAULT_POOL_SIZE}
+	 * @return these options
+	 */
+	public WorkerOptions poolSize(final int poolSize) {
+		Preconditions.checkArgument(poolSize > 0, "the pool size should be greater than 0");
+		this.poolSize = poolSize;
+		return this;
+	}
+
+	/**
+	 * @param autoscaler
+	 *            optional autoscaler of the number of active pollers
+	 * @return these options
+	 */
+	public WorkerOptions autoscaler(final PollerAutoscaler autoscaler) {
+		this.autoscaler = autoscaler;
+		return this;
+	}
+
+	/**
+	 * @param threadFactory
+	 *            optional factory of the polling and executing threads, e.g.
+	 *            virtual threads. When specified, each activity is executed by
+	 *            a new thread, and only the number of concurrent activities is
+	 *            limited to the pool size.
+	 * @return these options
+	 */
+	public WorkerOptions threadFactory(final ThreadFactory threadFactory) {
+		this.threadFactory = threadFactory;
+		return this;
+	}
+
+	/**
+	 * @param rateLimiter
+	 *            optional rate limiter of all the activities of the worker.
+	 *            The rate limiters of the activity types are defined by the
+	 *            registry.
+	 * @return these options
+	 */
+	public WorkerOptions rateLimiter(final RateLimiter rateLimiter) {
+		this.rateLimiter = rateLimiter;
+		return this;
+	}
+
+	/**
+	 * @param heartbeater
+	 *            optional heartbeater of the tasks, from their poll to the
+	 *            report of their execution
+	 * @return these options
+	 */
+	public WorkerOptions heartbeater(final ActivityHeartbeater heartbeater) {
+		this.heartbeater = heartbeater;
+		return this;
+	}
+
+	/**
+	 * @param metrics
+	 *            the metrics of the polls and executions
+	 * @return these options
+	 */
+	public WorkerOptions metrics(final SwifferMetrics metrics) {
+		this.metrics = Preconditions.checkNotNull(metrics, "metrics must be specified");
+		return this;
+	}
+
+	/**
+	 * @param dedicatedTaskLists
+	 *            the task lists dedicated to some activity types, polled by
+	 *            the pollers of the same task list only while the limits of
+	 *            their type allow to execute a task
+	 * @return these options
+	 */
+	public WorkerOptions dedicatedTaskLists(final Map<VersionedName, String> dedicatedTaskLists) {
+		this.dedicatedTaskLists = new HashMap<>(
+				Preconditions.checkNotNull(dedicatedTaskLists, "the dedicated task lists should not be null"));
+		return this;
+	}
+
+	int poolSize() {
+		return this.poolSize;
+	}
+
+	PollerAutoscaler autoscaler() {
+		return this.autoscaler;
+	}
+
+	ThreadFactory threadFactory() {
+		return this.threadFactory;
+	}
+
+	RateLimiter rateLimiter() {
+		return this.rateLimiter;
+	}
+
+	ActivityHeartbeater heartbeater() {
+		return this.heartbeater;
+	}
+
+	SwifferMetrics metrics() {
+		return this.metrics;
+	}
+
+	Map<VersionedName, String> dedicatedTaskLists() {
+		return this.dedicatedTaskLists;
+	}
+}
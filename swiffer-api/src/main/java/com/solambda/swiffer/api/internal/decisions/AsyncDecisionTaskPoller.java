@@ -0,0 +1,54 @@
+package com.solambda.swiffer.api.internal.decisions;
+
+import java.util.concurrent.CompletableFuture;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.amazonaws.services.simpleworkflow.AmazonSimpleWorkflowAsync;
+import com.amazonaws.services.simpleworkflow.model.DecisionTask;
+import com.amazonaws.services.simpleworkflow.model.PollForDecisionTaskRequest;
+import com.google.common.base.Preconditions;
+import com.solambda.swiffer.api.internal.AbstractAsyncTaskContextPoller;
+import com.solambda.swiffer.api.mapper.DataMapper;
+
+/**
+ * Poll the decision tasks with the asynchronous SWF client.
+ * <p>
+ * Only the long poll of the first page is asynchronous: the following pages
+ * of the history are returned immediately by SWF, and are fetched by the
+ * thread completing the long poll, according to the {@link HistoryMode}.
+ */
+public class AsyncDecisionTaskPoller extends AbstractAsyncTaskContextPoller<DecisionTaskContext> {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(AsyncDecisionTaskPoller.class);
+
+	/**
+	 * fetches the history of the polled tasks
+	 */
+	private final DecisionTaskPoller pages;
+
+	/**
+	 * @param historyMode
+	 *            how the history of the polled decision tasks is fetched
+	 * @param historyCache
+	 *            optional cache of the histories, used in
+	 *            {@link HistoryMode#EAGER} mode to fetch only the new events
+	 */
+	public AsyncDecisionTaskPoller(final AmazonSimpleWorkflowAsync swf, final String domain, final String taskList,
+			final String identity, final DataMapper dataMapper, final HistoryMode historyMode,
+			final WorkflowHistoryCache historyCache) {
+		super(swf, domain, taskList, identity);
+		Preconditions.checkNotNull(historyMode, "please specify the history mode!");
+		this.pages = new DecisionTaskPoller(swf, domain, taskList, identity, dataMapper, historyMode, historyCache);
+	}
+
+	@Override
+	protected CompletableFuture<DecisionTaskContext> pollForTaskAsync() {
+		LOGGER.debug("[{}:{}] Polling Decision task list '{}'", this.domain, this.identity, this.taskList);
+		return AbstractAsyncTaskContextPoller.<PollForDecisionTaskRequest, DecisionTask> call(
+				this.pages.pageRequest(null), this.swf::pollForDecisionTaskAsync)
+				.thenApply(this.pages::toTaskContext);
+	}
+
+}
@@ -0,0 +1,467 @@
+package com.solambda.swiffer.api.internal.decisions;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.time.Instant;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import com.amazonaws.services.simpleworkflow.model.ActivityTaskScheduledEventAttributes;
+import com.amazonaws.services.simpleworkflow.model.ActivityType;
+import com.amazonaws.services.simpleworkflow.model.EventType;
+import com.amazonaws.services.simpleworkflow.model.HistoryEvent;
+import com.amazonaws.services.simpleworkflow.model.TaskList;
+import com.amazonaws.services.simpleworkflow.model.WorkflowType;
+import com.google.common.base.Preconditions;
+import com.solambda.swiffer.api.internal.VersionedName;
+import com.solambda.swiffer.api.internal.events.EventCategory;
+
+/**
+ * A complete {@link WorkflowHistory} stored in columns, for workflow executions
+ * with very large histories.
+ * <p>
+ * The SWF {@link HistoryEvent}s and their attributes objects are not kept: the
+ * type, the timestamp and the initial event id of each event are stored in
+ * primitive arrays, and the values read by the {@link WorkflowEvent} accessors
+ * (input, output, ids, names...) are extracted once. Each event only stores
+ * its non-null values, next to a bit mask of the accessors they answer. The
+ * short strings are interned in a {@link HistoryStringTable} shared by all the
+ * events, while the payloads are kept as references.
+ * <p>
+ * Only the attributes of the {@link EventType#ActivityTaskScheduled} events
+ * are kept as is, to reschedule the activities. The {@link HistoryEvent} of
+ * the other events is rebuilt with their id, type and timestamp only.
+ */
+public class CompactWorkflowHistory implements WorkflowHistory {
+
+	private static final long NO_TIMESTAMP = Long.MIN_VALUE;
+	private static final long NO_INITIAL_EVENT = 0L;
+
+	private static final EventType[] EVENT_TYPES = EventType.values();
+
+	// the values of the accessors, in the order of their bits
+	private static final int SIGNAL_NAME = 0;
+	private static final int INPUT = 1;
+	private static final int CONTROL = 2;
+	private static final int OUTPUT = 3;
+	private static final int REASON = 4;
+	private static final int DETAILS = 5;
+	private static final int CAUSE = 6;
+	private static final int ACTIVITY_TYPE = 7;
+	private static final int TIMER_ID = 8;
+	private static final int MARKER_NAME = 9;
+	private static final int ACTIVITY_ID = 10;
+	private static final int CHILD_WORKFLOW_TYPE = 11;
+	private static final int CHILD_WORKFLOW_ID = 12;
+	private static final int CHILD_WORKFLOW_RUN_ID = 13;
+	private static final int EXTERNAL_WORKFLOW_ID = 14;
+	private static final int EXTERNAL_WORKFLOW_RUN_ID = 15;
+	private static final int SCHEDULED_ACTIVITY = 16;
+
+	private static final List<Function<WorkflowEvent, ?>> ACCESSORS = Arrays.asList(
+			WorkflowEvent::signalName,
+			WorkflowEvent::input,
+			WorkflowEvent::control,
+			WorkflowEvent::output,
+			WorkflowEvent::reason,
+			WorkflowEvent::details,
+			WorkflowEvent::cause,
+			WorkflowEvent::activityType,
+			WorkflowEvent::timerId,
+			WorkflowEvent::markerName,
+			WorkflowEvent::activityId,
+			WorkflowEvent::childWorkflowType,
+			WorkflowEvent::childWorkflowId,
+			WorkflowEvent::childWorkflowRunId,
+			WorkflowEvent::getExternalWorkflowId,
+			WorkflowEvent::getExternalWorkflowRunId,
+			WorkflowEvent::getActivityTaskScheduledEventAttributes);
+
+	private static final Object[] NO_VALUES = new Object[0];
+
+	/**
+	 * the getter of the attributes object of each type of event
+	 */
+	private static final Map<EventType, Method> ATTRIBUTES = new EnumMap<>(EventType.class);
+
+	static {
+		for (final EventType type : EVENT_TYPES) {
+			try {
+				ATTRIBUTES.put(type, HistoryEvent.class.getMethod("get" + type.name() + "EventAttributes"));
+			} catch (final NoSuchMethodException e) {
+				// no attributes for this type
+			}
+		}
+	}
+
+	private final byte[] types;
+	private final long[] timestamps;
+	private final long[] initialEventIds;
+	private final int[] valueMasks;
+	private final Object[][] values;
+	private final WorkflowEvent[] wrappers;
+	private final List<WorkflowEvent> events = new MostRecentFirst();
+	private volatile WorkflowHistoryIndex index;
+
+	/**
+	 * @param events
+	 *            all the events of the workflow execution, in any order
+	 */
+	public CompactWorkflowHistory(final List<HistoryEvent> events) {
+		super();
+		Preconditions.checkArgument(events != null, "events must not be null");
+		Preconditions.checkArgument(events.size() > 0, "event list is empty");
+		final int size = events.size();
+		this.types = new byte[size];
+		this.timestamps = new long[size];
+		this.initialEventIds = new long[size];
+		this.valueMasks = new int[size];
+		this.values = new Object[size][];
+		this.wrappers = new WorkflowEvent[size];
+
+		final HistoryEvent[] byId = new HistoryEvent[size];
+		for (final HistoryEvent event : events) {
+			final long id = event.getEventId();
+			Preconditions.checkState(id >= 1 && id <= size && byId[(int) id - 1] == null,
+					"history is not complete ! unexpected event " + id + " in a history of " + size + " events");
+			byId[(int) id - 1] = event;
+		}
+		final HistoryStringTable strings = new HistoryStringTable();
+		final Map<Object, Object> shared = new HashMap<>();
+		for (final HistoryEvent event : byId) {
+			internStrings(event.getActivityTaskScheduledEventAttributes(), strings);
+		}
+		// in ascending id, so that the values read from an initial event are
+		// read from its columns, already filled
+		final Object[] buffer = new Object[ACCESSORS.size()];
+		for (int i = 0; i < size; i++) {
+			final HistoryEvent historyEvent = byId[i];
+			final WorkflowEvent event = new WorkflowEvent(historyEvent, this);
+			this.types[i] = (byte) event.type().ordinal();
+			this.timestamps[i] = historyEvent.getEventTimestamp() == null ? NO_TIMESTAMP
+					: historyEvent.getEventTimestamp().getTime();
+			if (!hasAttributes(historyEvent, event.type())) {
+				this.initialEventIds[i] = NO_INITIAL_EVENT;
+				this.values[i] = NO_VALUES;
+				continue;
+			}
+			final Long initialEventId = event.initialEventId();
+			this.initialEventIds[i] = initialEventId == null ? NO_INITIAL_EVENT : initialEventId;
+			int mask = 0;
+			int count = 0;
+			for (int field = 0; field < ACCESSORS.size(); field++) {
+				final Object value = read(ACCESSORS.get(field), event);
+				if (value != null) {
+					mask |= 1 << field;
+					buffer[count++] = value instanceof String ? strings.intern((String) value)
+							: value instanceof ActivityTaskScheduledEventAttributes ? value
+									: shared.computeIfAbsent(value, v -> v);
+				}
+			}
+			this.valueMasks[i] = mask;
+			this.values[i] = count == 0 ? NO_VALUES : Arrays.copyOf(buffer, count);
+		}
+	}
+
+	/**
+	 * @return true if the event has the attributes object of its type, which
+	 *         the {@link WorkflowEvent} accessors read
+	 */
+	private static boolean hasAttributes(final HistoryEvent event, final EventType type) {
+		final Method getter = ATTRIBUTES.get(type);
+		if (getter == null) {
+			return false;
+		}
+		try {
+			return getter.invoke(event) != null;
+		} catch (IllegalAccessException | InvocationTargetException e) {
+			throw new IllegalStateException("cannot read the attributes of " + type, e);
+		}
+	}
+
+	/**
+	 * @return the value read by the accessor, or null if the accessor does not
+	 *         apply to the type of the event
+	 */
+	private static Object read(final Function<WorkflowEvent, ?> accessor, final WorkflowEvent event) {
+		try {
+			return accessor.apply(event);
+		} catch (final IllegalArgumentException e) {
+			// unknown type for this accessor
+			return null;
+		}
+	}
+
+	/**
+	 * Intern the short strings of the kept attributes, so that they are shared
+	 * with the other events.
+	 */
+	private static void internStrings(final ActivityTaskScheduledEventAttributes attributes,
+			final HistoryStringTable strings) {
+		if (attributes == null) {
+			return;
+		}
+		attributes.setActivityId(strings.intern(attributes.getActivityId()));
+		attributes.setControl(strings.intern(attributes.getControl()));
+		attributes.setInput(strings.intern(attributes.getInput()));
+		attributes.setScheduleToStartTimeout(strings.intern(attributes.getScheduleToStartTimeout()));
+		attributes.setScheduleToCloseTimeout(strings.intern(attributes.getScheduleToCloseTimeout()));
+		attributes.setStartToCloseTimeout(strings.intern(attributes.getStartToCloseTimeout()));
+		attributes.setHeartbeatTimeout(strings.intern(attributes.getHeartbeatTimeout()));
+		attributes.setTaskPriority(strings.intern(attributes.getTaskPriority()));
+		final ActivityType activityType = attributes.getActivityType();
+		if (activityType != null) {
+			activityType.setName(strings.intern(activityType.getName()));
+			activityType.setVersion(strings.intern(activityType.getVersion()));
+		}
+		final TaskList taskList = attributes.getTaskList();
+		if (taskList != null) {
+			taskList.setName(strings.intern(taskList.getName()));
+		}
+	}
+
+	@Override
+	public List<WorkflowEvent> events() {
+		return this.events;
+	}
+
+	@Override
+	public WorkflowEvent getEventById(final Long id) {
+		Preconditions.checkArgument(id > 0, "cannot get event id " + id);
+		return id <= size() ? event(id.intValue() - 1) : null;
+	}
+
+	@Override
+	public List<WorkflowEvent> eventsAfter(final Long eventId) {
+		final int count = (int) Math.max(0, Math.min(size(), size() - eventId));
+		return this.events.subList(0, count);
+	}
+
+	@Override
+	public WorkflowEvent getLatestMarker(final String markerName) {
+		return index().getLatestMarker(markerName);
+	}
+
+	@Override
+	public List<WorkflowEvent> getTimerEvents(final String timerId) {
+		return index().getTimerEvents(timerId);
+	}
+
+	@Override
+	public List<WorkflowEvent> getActivityEvents(final String activityId) {
+		return index().getActivityEvents(activityId);
+	}
+
+	@Override
+	public List<WorkflowEvent> getActivityEventsByScheduledEventId(final Long scheduledEventId) {
+		return index().getActivityEventsByScheduledEventId(scheduledEventId);
+	}
+
+	@Override
+	public List<WorkflowEvent> getEvents(final EventType type) {
+		return index().getEvents(type);
+	}
+
+	@Override
+	public List<WorkflowEvent> getEvents(final EventCategory category) {
+		return index().getEvents(category);
+	}
+
+	/**
+	 * @return the indexes of the events, built on first use
+	 */
+	private WorkflowHistoryIndex index() {
+		WorkflowHistoryIndex index = this.index;
+		if (index == null) {
+			index = new WorkflowHistoryIndex(this.events);
+			this.index = index;
+		}
+		return index;
+	}
+
+	/**
+	 * @return the number of events of this history
+	 */
+	int size() {
+		return this.types.length;
+	}
+
+	/**
+	 * @return the event at this index, created on first access
+	 */
+	private WorkflowEvent event(final int index) {
+		WorkflowEvent event = this.wrappers[index];
+		if (event == null) {
+			event = new CompactWorkflowEvent(index);
+			this.wrappers[index] = event;
+		}
+		return event;
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T> T value(final int index, final int field) {
+		final int mask = this.valueMasks[index];
+		if ((mask & 1 << field) == 0) {
+			return null;
+		}
+		return (T) this.values[index][Integer.bitCount(mask & (1 << field) - 1)];
+	}
+
+	/**
+	 * A view of the events, most recent first.
+	 */
+	private final class MostRecentFirst extends AbstractList<WorkflowEvent> {
+
+		@Override
+		public WorkflowEvent get(final int index) {
+			Preconditions.checkElementIndex(index, size());
+			return event(size() - 1 - index);
+		}
+
+		@Override
+		public int size() {
+			return CompactWorkflowHistory.this.size();
+		}
+	}
+
+	/**
+	 * An event reading its columns.
+	 */
+	private final class CompactWorkflowEvent extends WorkflowEvent {
+
+		private final int index;
+
+		private CompactWorkflowEvent(final int index) {
+			super(null, CompactWorkflowHistory.this);
+			this.index = index;
+		}
+
+		@Override
+		public EventType type() {
+			return EVENT_TYPES[types[this.index]];
+		}
+
+		@Override
+		public Long id() {
+			return (long) this.index + 1;
+		}
+
+		@Override
+		public Instant eventTimestamp() {
+			final long timestamp = timestamps[this.index];
+			return timestamp == NO_TIMESTAMP ? null : Instant.ofEpochMilli(timestamp);
+		}
+
+		@Override
+		public Long initialEventId() {
+			final long initialEventId = initialEventIds[this.index];
+			return initialEventId == NO_INITIAL_EVENT ? null : initialEventId;
+		}
+
+		/**
+		 * @return a {@link HistoryEvent} rebuilt with the id, the type and the
+		 *         timestamp of this event, and its attributes if it is an
+		 *         {@link EventType#ActivityTaskScheduled} event
+		 */
+		@Override
+		HistoryEvent historyEvent() {
+			final Instant timestamp = eventTimestamp();
+			return new HistoryEvent()
+					.withEventId(id())
+					.withEventType(type())
+					.withEventTimestamp(timestamp == null ? null : Date.from(timestamp))
+					.withActivityTaskScheduledEventAttributes(getActivityTaskScheduledEventAttributes());
+		}
+
+		@Override
+		public String signalName() {
+			return value(this.index, SIGNAL_NAME);
+		}
+
+		@Override
+		public String input() {
+			return value(this.index, INPUT);
+		}
+
+		@Override
+		public String control() {
+			return value(this.index, CONTROL);
+		}
+
+		@Override
+		public String output() {
+			return value(this.index, OUTPUT);
+		}
+
+		@Override
+		public String reason() {
+			return value(this.index, REASON);
+		}
+
+		@Override
+		public String details() {
+			return value(this.index, DETAILS);
+		}
+
+		@Override
+		public String cause() {
+			return value(this.index, CAUSE);
+		}
+
+		@Override
+		public VersionedName activityType() {
+			return value(this.index, ACTIVITY_TYPE);
+		}
+
+		@Override
+		public String timerId() {
+			return value(this.index, TIMER_ID);
+		}
+
+		@Override
+		public String markerName() {
+			return value(this.index, MARKER_NAME);
+		}
+
+		@Override
+		public String activityId() {
+			return value(this.index, ACTIVITY_ID);
+		}
+
+		@Override
+		public WorkflowType childWorkflowType() {
+			return value(this.index, CHILD_WORKFLOW_TYPE);
+		}
+
+		@Override
+		public String childWorkflowId() {
+			return value(this.index, CHILD_WORKFLOW_ID);
+		}
+
+		@Override
+		public String childWorkflowRunId() {
+			return value(this.index, CHILD_WORKFLOW_RUN_ID);
+		}
+
+		@Override
+		public String getExternalWorkflowId() {
+			return value(this.index, EXTERNAL_WORKFLOW_ID);
+		}
+
+		@Override
+		public String getExternalWorkflowRunId() {
+			return value(this.index, EXTERNAL_WORKFLOW_RUN_ID);
+		}
+
+		@Override
+		public ActivityTaskScheduledEventAttributes getActivityTaskScheduledEventAttributes() {
+			return value(this.index, SCHEDULED_ACTIVITY);
+		}
+	}
+}
@@ -1,30 +1,113 @@
 package com.solambda.swiffer.api.internal.decisions;
 
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.amazonaws.services.simpleworkflow.model.AmazonSimpleWorkflowException;
 import com.amazonaws.services.simpleworkflow.model.UnknownResourceException;
+import com.google.common.base.Preconditions;
 import com.solambda.swiffer.api.Decider;
 import com.solambda.swiffer.api.Decisions;
 import com.solambda.swiffer.api.internal.AbstractTaskListService;
+import com.solambda.swiffer.api.internal.ResponsePipeline;
 import com.solambda.swiffer.api.internal.TaskContextPoller;
+import com.solambda.swiffer.api.internal.VersionedName;
+import com.solambda.swiffer.api.metrics.SwifferMetrics;
 
 public class DeciderImpl extends AbstractTaskListService<DecisionTaskContext> implements Decider {
 	private static final Logger LOGGER = LoggerFactory.getLogger(DeciderImpl.class);
 
 	private WorkflowTemplateRegistry registry;
 	private DecisionExecutor executor;
+	private WorkflowOrderedExecutor decisionThreads;
+	/**
+	 * One permit per decision thread: no more tasks are polled than there are
+	 * threads to decide them. A polled task may still wait behind a running
+	 * task of its stripe, while another stripe is idle.
+	 */
+	private final Semaphore permits;
+	private volatile boolean stopped;
+	private final ResponsePipeline responses;
+	private final SwifferMetrics metrics;
 
 	public DeciderImpl(final TaskContextPoller<DecisionTaskContext> poller, final WorkflowTemplateRegistry registry) {
-		super(poller);
+		this(Collections.singletonList(poller), registry, new DeciderOptions());
+	}
+
+	/**
+	 * @param pollers
+	 *            the pollers to run concurrently
+	 * @param registry
+	 *            the workflow templates
+	 * @param options
+	 *            the optional settings of the decider
+	 */
+	public DeciderImpl(final List<? extends TaskContextPoller<DecisionTaskContext>> pollers,
+			final WorkflowTemplateRegistry registry, final DeciderOptions options) {
+		super(pollers, options.autoscaler(), options.threadFactory());
 		this.registry = registry;
-		this.executor = new DecisionExecutorImpl(poller.swf());
+		this.responses = options.responses();
+		this.metrics = options.metrics();
+		this.executor = new DecisionExecutorImpl(this.poller.swf(), this.responses, this.metrics);
+		this.permits = new Semaphore(options.decisionThreads());
+		this.decisionThreads = options.threadFactory() == null
+				? new WorkflowOrderedExecutor(options.decisionThreads())
+				: new WorkflowOrderedExecutor(options.decisionThreads(), options.threadFactory());
+	}
+
+	@Override
+	public void start() {
+		Preconditions.checkState(!this.stopped, "a stopped decider cannot be restarted");
+		super.start();
+	}
+
+	@Override
+	protected boolean acquireCapacity() throws InterruptedException {
+		return this.permits.tryAcquire(1, TimeUnit.SECONDS);
+	}
+
+	@Override
+	protected boolean tryAcquireCapacity() {
+		return this.permits.tryAcquire();
+	}
+
+	@Override
+	protected void releaseCapacity() {
+		this.permits.release();
+	}
+
+	@Override
+	protected void polled(final TaskContextPoller<DecisionTaskContext> poller, final long nanos,
+			final boolean empty) {
+		this.metrics.decisionTaskPolled(poller.taskList(), nanos, empty);
 	}
 
 	@Override
 	protected void executeTask(final DecisionTaskContext task) {
-		executeTaskImmediately(task);
+		// make the decision in another thread, so that the poller can poll
+		// the next task immediately
+		final long polled = System.nanoTime();
+		try {
+			this.decisionThreads.execute(task.workflowId(), () -> {
+				try {
+					this.metrics.decisionTaskStarted(typeName(task), System.nanoTime() - polled);
+					executeTaskImmediately(task);
+				} catch (final Exception e) {
+					LOGGER.error("Decision task execution failed for {}", task, e);
+				} finally {
+					releaseCapacity();
+				}
+			});
+		} catch (final RejectedExecutionException e) {
+			releaseCapacity();
+			throw e;
+		}
 	}
 
 	@Override
@@ -50,7 +133,9 @@ public class DeciderImpl extends AbstractTaskListService<DecisionTaskContext> im
 	private void execute(final DecisionTaskContext context,
 						 final WorkflowTemplate template) {
 		try {
+			final long start = System.nanoTime();
 			final Decisions decisions = template.decide(context);
+			this.metrics.decisionTaskDecided(typeName(context), System.nanoTime() - start);
 			this.executor.apply(context, decisions);
 		} catch (UnknownResourceException ex) {
 			//TODO: add more sophisticated error handling?
@@ -71,9 +156,29 @@ public class DeciderImpl extends AbstractTaskListService<DecisionTaskContext> im
 		}
 	}
 
+	private static String typeName(final DecisionTaskContext context) {
+		final VersionedName type = context.workflowType();
+		return type.name() + ":" + type.version();
+	}
+
 	@Override
 	public void stop() {
+		// the decision threads and the response pipeline are not recreated
+		this.stopped = true;
+		// super.stop blocks until the pollers poll and submit their last task
 		super.stop();
+		try {
+			// ...and wait for the last decisions to be sent to swf
+			if (!this.decisionThreads.shutdownAndAwaitTermination(1, TimeUnit.MINUTES)) {
+				LOGGER.warn("Awaited more than 1 minute for the decision tasks to terminate!");
+			}
+			if (this.responses != null && !this.responses.shutdown(1, TimeUnit.MINUTES)) {
+				LOGGER.warn("Awaited more than 1 minute for the decisions to be sent!");
+			}
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for the decision tasks to terminate!", e);
+		}
 	}
 
 }
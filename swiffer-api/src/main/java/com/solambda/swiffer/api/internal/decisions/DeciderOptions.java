@@ -0,0 +1,95 @@
+package com.solambda.swiffer.api.internal.decisions;
+
+import java.util.concurrent.ThreadFactory;
+
+import com.google.common.base.Preconditions;
+import com.solambda.swiffer.api.internal.PollerAutoscaler;
+import com.solambda.swiffer.api.internal.ResponsePipeline;
+import com.solambda.swiffer.api.metrics.SwifferMetrics;
+
+/**
+ * The optional settings of a {@link DeciderImpl}, filled by the
+ * {@link com.solambda.swiffer.api.DeciderBuilder}.
+ */
+public class DeciderOptions {
+
+	private int decisionThreads = 1;
+	private PollerAutoscaler autoscaler;
+	private ThreadFactory threadFactory;
+	private ResponsePipeline responses;
+	private SwifferMetrics metrics = SwifferMetrics.NONE;
+
+	/**
+	 * @param decisionThreads
+	 *            number of threads making decisions for the polled tasks, 1
+	 *            by default. Tasks of a same workflow are always executed in
+	 *            order.
+	 * @return these options
+	 */
+	public DeciderOptions decisionThreads(final int decisionThreads) {
+		Preconditions.checkArgument(decisionThreads > 0, "the number of decision threads should be greater than 0");
+		this.decisionThreads = decisionThreads;
+		return this;
+	}
+
+	/**
+	 * @param autoscaler
+	 *            optional autoscaler of the number of active pollers
+	 * @return these options
+	 */
+	public DeciderOptions autoscaler(final PollerAutoscaler autoscaler) {
+		this.autoscaler = autoscaler;
+		return this;
+	}
+
+	/**
+	 * @param threadFactory
+	 *            optional factory of the polling and decision threads, e.g.
+	 *            virtual threads
+	 * @return these options
+	 */
+	public DeciderOptions threadFactory(final ThreadFactory threadFactory) {
+		this.threadFactory = threadFactory;
+		return this;
+	}
+
+	/**
+	 * @param responses
+	 *            optional pipeline sending the decisions asynchronously
+	 * @return these options
+	 */
+	public DeciderOptions responses(final ResponsePipeline responses) {
+		this.responses = responses;
+		return this;
+	}
+
+	/**
+	 * @param metrics
+	 *            the metrics of the polls, decisions and responses
+	 * @return these options
+	 */
+	public DeciderOptions metrics(final SwifferMetrics metrics) {
+		this.metrics = Preconditions.checkNotNull(metrics, "metrics must be specified");
+		return this;
+	}
+
+	int decisionThreads() {
+		return this.decisionThreads;
+	}
+
+	PollerAutoscaler autoscaler() {
+		return this.autoscaler;
+	}
+
+	ThreadFactory threadFactory() {
+		return this.threadFactory;
+	}
+
+	ResponsePipeline responses() {
+		return this.responses;
+	}
+
+	SwifferMetrics metrics() {
+		return this.metrics;
+	}
+}
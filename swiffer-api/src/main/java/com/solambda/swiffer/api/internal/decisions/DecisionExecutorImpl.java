@@ -14,6 +14,8 @@ import com.amazonaws.services.simpleworkflow.model.Decision;
 import com.amazonaws.services.simpleworkflow.model.DecisionType;
 import com.amazonaws.services.simpleworkflow.model.RespondDecisionTaskCompletedRequest;
 import com.solambda.swiffer.api.Decisions;
+import com.solambda.swiffer.api.internal.ResponsePipeline;
+import com.solambda.swiffer.api.metrics.SwifferMetrics;
 
 public class DecisionExecutorImpl implements DecisionExecutor {
 	private static final Logger LOGGER = LoggerFactory.getLogger(DecisionExecutorImpl.class);
@@ -39,10 +41,38 @@ public class DecisionExecutorImpl implements DecisionExecutor {
 																			DecisionType.RequestCancelExternalWorkflowExecution.name());
 
 	private AmazonSimpleWorkflow swf;
+	/**
+	 * Optional pipeline sending the decisions asynchronously
+	 */
+	private final ResponsePipeline responses;
+	private final SwifferMetrics metrics;
 
 	public DecisionExecutorImpl(final AmazonSimpleWorkflow swf) {
+		this(swf, null);
+	}
+
+	/**
+	 * @param responses
+	 *            optional pipeline sending the decisions asynchronously. They
+	 *            are sent by the calling thread if null.
+	 */
+	public DecisionExecutorImpl(final AmazonSimpleWorkflow swf, final ResponsePipeline responses) {
+		this(swf, responses, SwifferMetrics.NONE);
+	}
+
+	/**
+	 * @param responses
+	 *            optional pipeline sending the decisions asynchronously. They
+	 *            are sent by the calling thread if null.
+	 * @param metrics
+	 *            the metrics of the sent decisions
+	 */
+	public DecisionExecutorImpl(final AmazonSimpleWorkflow swf, final ResponsePipeline responses,
+			final SwifferMetrics metrics) {
 		super();
 		this.swf = swf;
+		this.responses = responses;
+		this.metrics = metrics;
 	}
 
 	@Override
@@ -52,11 +82,26 @@ public class DecisionExecutorImpl implements DecisionExecutor {
 		final Collection<Decision> decisionList = normalize(((DecisionsImpl) decisions).get());
 		LOGGER.debug("Responding SWF with {} decisions: {}", decisionList.size(), decisionList);
 
-		this.swf.respondDecisionTaskCompleted(new RespondDecisionTaskCompletedRequest()
-													  .withDecisions(decisionList)
-													  // FIXME: why and how to get it ? (appart from externally ?)
-													  // .withExecutionContext(executionContext)
-													  .withTaskToken(context.taskToken()));
+		final RespondDecisionTaskCompletedRequest request = new RespondDecisionTaskCompletedRequest()
+				.withDecisions(decisionList)
+				// FIXME: why and how to get it ? (appart from externally ?)
+				// .withExecutionContext(executionContext)
+				.withTaskToken(context.taskToken());
+		for (final Decision decision : decisionList) {
+			this.metrics.decisionEmitted(decision.getDecisionType());
+		}
+		if (this.responses == null) {
+			respond(request);
+		} else {
+			this.responses.submit("decisions of workflow " + context.workflowId(), () -> respond(request),
+					context.deadline());
+		}
+	}
+
+	private void respond(final RespondDecisionTaskCompletedRequest request) {
+		final long start = System.nanoTime();
+		this.swf.respondDecisionTaskCompleted(request);
+		this.metrics.responded("RespondDecisionTaskCompleted", System.nanoTime() - start);
 	}
 
 	/**
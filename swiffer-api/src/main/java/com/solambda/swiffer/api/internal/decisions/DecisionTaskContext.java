@@ -1,10 +1,12 @@
 package com.solambda.swiffer.api.internal.decisions;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 
 import com.solambda.swiffer.api.internal.TaskContext;
 import com.solambda.swiffer.api.internal.VersionedName;
+import com.solambda.swiffer.api.internal.events.EventCategory;
 
 /**
  * Provide information useful during decision making of a workflow.
@@ -31,6 +33,14 @@ public interface DecisionTaskContext extends TaskContext {
 	 */
 	List<WorkflowEvent> newEvents();
 
+	/**
+	 * @param category
+	 *            the category of the events
+	 * @return the new {@link WorkflowEvent}s of the given category, sorted as
+	 *         {@link #newEvents()}
+	 */
+	List<WorkflowEvent> newEvents(EventCategory category);
+
     /**
      * Checks whether Marker with specified name was recoded.
      * Use this method to assess presence of the Marker without details.
@@ -51,4 +61,12 @@ public interface DecisionTaskContext extends TaskContext {
      * @see #hasMarker(String) how to assess presence of the Marker withut details
      */
     <T> Optional<T> getMarkerDetails(String markerName, Class<T> type);
+
+	/**
+	 * @return when the decision task times out, after which SWF rejects its
+	 *         decisions, or null if unknown
+	 */
+	default Instant deadline() {
+		return null;
+	}
 }
@@ -1,9 +1,11 @@
 package com.solambda.swiffer.api.internal.decisions;
 
+import java.time.Instant;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.function.Function;
-import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 import com.amazonaws.services.simpleworkflow.AmazonSimpleWorkflow;
@@ -12,6 +14,7 @@ import com.amazonaws.services.simpleworkflow.model.HistoryEvent;
 import com.amazonaws.services.simpleworkflow.model.WorkflowType;
 import com.google.common.collect.Lists;
 import com.solambda.swiffer.api.internal.VersionedName;
+import com.solambda.swiffer.api.internal.events.EventCategory;
 import com.solambda.swiffer.api.mapper.DataMapper;
 
 public class DecisionTaskContextImpl implements DecisionTaskContext {
@@ -19,17 +22,44 @@ public class DecisionTaskContextImpl implements DecisionTaskContext {
 	private AmazonSimpleWorkflow swf;
 	private DecisionTask decisionTask;
 	private WorkflowHistory history;
+	private List<WorkflowEvent> newEvents;
+	private final Map<EventCategory, List<WorkflowEvent>> newEventsByCategory = new EnumMap<>(EventCategory.class);
 	private String domain;
     private final DataMapper dataMapper;
+	private final Instant deadline;
 
     public DecisionTaskContextImpl(final AmazonSimpleWorkflow swf, final String domain,
                                    final DecisionTask decisionTask,
                                    DataMapper dataMapper) {
+        this(swf, domain, decisionTask, dataMapper, null);
+    }
+
+    /**
+     * @param history the history of the workflow, or null to build it from the events of the decision task
+     */
+    public DecisionTaskContextImpl(final AmazonSimpleWorkflow swf, final String domain,
+                                   final DecisionTask decisionTask,
+                                   DataMapper dataMapper,
+                                   WorkflowHistory history) {
+        this(swf, domain, decisionTask, dataMapper, history, null);
+    }
+
+    /**
+     * @param history the history of the workflow, or null to build it from the events of the decision task
+     * @param deadline when the decision task times out, or null if unknown
+     */
+    public DecisionTaskContextImpl(final AmazonSimpleWorkflow swf, final String domain,
+                                   final DecisionTask decisionTask,
+                                   DataMapper dataMapper,
+                                   WorkflowHistory history,
+                                   Instant deadline) {
         super();
 		this.swf = swf;
 		this.decisionTask = decisionTask;
 		this.domain = domain;
 		this.dataMapper = dataMapper;
+		this.history = history;
+		this.deadline = deadline;
 	}
 
 	@Override
@@ -51,13 +81,25 @@ public class DecisionTaskContextImpl implements DecisionTaskContext {
 		return this.decisionTask.getTaskToken();
 	}
 
+	/**
+	 * The new events are computed once, as a view of the most recent events of
+	 * the history.
+	 */
 	@Override
 	public List<WorkflowEvent> newEvents() {
-		final Long previousStartedEventId = this.decisionTask.getPreviousStartedEventId();
-		return Lists.reverse(history().events().stream()
-				.filter(e -> e.id().compareTo(previousStartedEventId) > 0)
-				.collect(Collectors.toList()));
+		if (this.newEvents == null) {
+			final Long previousStartedEventId = this.decisionTask.getPreviousStartedEventId();
+			this.newEvents = Collections.unmodifiableList(Lists.reverse(
+					history().eventsAfter(previousStartedEventId == null ? 0L : previousStartedEventId)));
+		}
+		return this.newEvents;
+	}
 
+	@Override
+	public List<WorkflowEvent> newEvents(final EventCategory category) {
+		return this.newEventsByCategory.computeIfAbsent(category, c -> Collections.unmodifiableList(newEvents().stream()
+				.filter(event -> event.category() == c)
+				.collect(Collectors.toList())));
 	}
 
 	@Override
@@ -73,15 +115,18 @@ public class DecisionTaskContextImpl implements DecisionTaskContext {
 
 	@Override
     public boolean hasMarker(String markerName) {
-        return decisionTask.getEvents().stream().anyMatch(isMarkerRecordedEvent(markerName));
+        return history().getLatestMarker(markerName) != null;
     }
 
 	@Override
     public <T> Optional<T> getMarkerDetails(String markerName, Class<T> type) {
-        return decisionTask.getEvents().stream()
-                           .filter(isMarkerRecordedEvent(markerName))
-                           .findFirst()
-                           .map(deserialize(type));
+        return Optional.ofNullable(history().getLatestMarker(markerName))
+                       .map(event -> dataMapper.deserialize(event.details(), type));
+	}
+
+	@Override
+	public Instant deadline() {
+		return this.deadline;
 	}
 
 	@Override
@@ -89,13 +134,4 @@ public class DecisionTaskContextImpl implements DecisionTaskContext {
 		return "DecisionTaskContextImpl [domain=" + this.domain
 				+ ", workflowType=" + workflowType() + "]";
 	}
-
-    private static Predicate<HistoryEvent> isMarkerRecordedEvent(String markerName) {
-        return event -> event.getMarkerRecordedEventAttributes() != null
-                        && event.getMarkerRecordedEventAttributes().getMarkerName().equals(markerName);
-    }
-
-    private <T> Function<HistoryEvent, T> deserialize(Class<T> type) {
-        return event -> dataMapper.deserialize(event.getMarkerRecordedEventAttributes().getDetails(), type);
-    }
 }
@@ -1,16 +1,23 @@
 package com.solambda.swiffer.api.internal.decisions;
 
+import java.time.Instant;
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ThreadFactory;
+import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.amazonaws.services.simpleworkflow.AmazonSimpleWorkflow;
 import com.amazonaws.services.simpleworkflow.model.DecisionTask;
+import com.amazonaws.services.simpleworkflow.model.DecisionTaskStartedEventAttributes;
+import com.amazonaws.services.simpleworkflow.model.EventType;
 import com.amazonaws.services.simpleworkflow.model.HistoryEvent;
 import com.amazonaws.services.simpleworkflow.model.PollForDecisionTaskRequest;
 import com.amazonaws.services.simpleworkflow.model.TaskList;
+import com.amazonaws.services.simpleworkflow.model.WorkflowExecution;
+import com.google.common.base.Preconditions;
 import com.solambda.swiffer.api.internal.AbstractTaskContextPoller;
 import com.solambda.swiffer.api.mapper.DataMapper;
 
@@ -18,64 +25,238 @@ public class DecisionTaskPoller extends AbstractTaskContextPoller<DecisionTaskCo
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(DecisionTaskPoller.class);
 	private final DataMapper dataMapper;
+	private final HistoryMode historyMode;
+	private final WorkflowHistoryCache historyCache;
 
 	public DecisionTaskPoller(final AmazonSimpleWorkflow swf, final String domain, final String taskList,
 			final String identity, DataMapper dataMapper) {
-		super(swf, domain, taskList, identity);
+		this(swf, domain, taskList, identity, dataMapper, HistoryMode.EAGER);
+	}
+
+	/**
+	 * @param historyMode
+	 *            how the history of the polled decision tasks is fetched:
+	 *            {@link HistoryMode#EAGER}, {@link HistoryMode#LAZY} or
+	 *            {@link HistoryMode#COMPACT}
+	 */
+	public DecisionTaskPoller(final AmazonSimpleWorkflow swf, final String domain, final String taskList,
+			final String identity, DataMapper dataMapper, HistoryMode historyMode) {
+		this(swf, domain, taskList, identity, dataMapper, historyMode, null);
+	}
+
+	/**
+	 * @param historyMode
+	 *            how the history of the polled decision tasks is fetched:
+	 *            {@link HistoryMode#EAGER}, {@link HistoryMode#LAZY} or
+	 *            {@link HistoryMode#COMPACT}
+	 * @param historyCache
+	 *            optional cache of the histories, used in
+	 *            {@link HistoryMode#EAGER} mode to fetch only the new events
+	 */
+	public DecisionTaskPoller(final AmazonSimpleWorkflow swf, final String domain, final String taskList,
+			final String identity, DataMapper dataMapper, HistoryMode historyMode, WorkflowHistoryCache historyCache) {
+		this(swf, domain, taskList, identity, dataMapper, historyMode, historyCache, null);
+	}
+
+	/**
+	 * @param historyMode
+	 *            how the history of the polled decision tasks is fetched:
+	 *            {@link HistoryMode#EAGER}, {@link HistoryMode#LAZY} or
+	 *            {@link HistoryMode#COMPACT}
+	 * @param historyCache
+	 *            optional cache of the histories, used in
+	 *            {@link HistoryMode#EAGER} mode to fetch only the new events
+	 * @param threadFactory
+	 *            optional factory of the thread issuing the long polls
+	 */
+	public DecisionTaskPoller(final AmazonSimpleWorkflow swf, final String domain, final String taskList,
+			final String identity, DataMapper dataMapper, HistoryMode historyMode, WorkflowHistoryCache historyCache,
+			ThreadFactory threadFactory) {
+		super(swf, domain, taskList, identity, threadFactory);
 		this.dataMapper = dataMapper;
+		this.historyMode = Preconditions.checkNotNull(historyMode, "please specify the history mode!");
+		this.historyCache = historyCache;
 	}
 
 	@Override
 	protected DecisionTaskContext pollForTask() throws Exception {
 		LOGGER.debug("[{}:{}] Polling Decision task list '{}'", this.domain, this.identity, this.taskList);
 
-		// FIXME: issue #5
-		DecisionTask decisionTask = pollForDecisionTask(HistoryMode.EAGER);
+		return toTaskContext(pollForPage(null));
+	}
 
+	/**
+	 * Fetch the remaining pages of the history of a polled decision task,
+	 * according to the history mode.
+	 *
+	 * @param decisionTask
+	 *            the first page of the polled decision task
+	 * @return the context of the decision task, or null if no task was polled
+	 */
+	DecisionTaskContext toTaskContext(DecisionTask decisionTask) {
 		if (decisionTask == null || decisionTask.getTaskToken() == null) {
 			LOGGER.debug("[{}:{}] no DecisionTask available in task list '{}'", this.domain, this.identity,
 					this.taskList);
 			return null;
 		}
+		// the events of the first page may be released by the history
+		Instant deadline = deadlineOf(decisionTask);
+		WorkflowHistory history = fetchHistory(decisionTask, this.historyMode);
 		LOGGER.debug("[{}:{}] DecisionTask received from '{}':{}", this.domain, this.identity, this.taskList,
 				decisionTask);
-		return new DecisionTaskContextImpl(this.swf, this.domain, decisionTask, dataMapper);
+		return new DecisionTaskContextImpl(this.swf, this.domain, decisionTask, dataMapper, history, deadline);
+	}
+
+	/**
+	 * The decision task times out after the start to close timeout of its
+	 * scheduled event, from its started event: the most recent events of the
+	 * first page, polled in reverse order.
+	 *
+	 * @return when the decision task times out, or null if unknown
+	 */
+	static Instant deadlineOf(DecisionTask decisionTask) {
+		if (!hasEvents(decisionTask)) {
+			return null;
+		}
+		HistoryEvent started = null;
+		for (HistoryEvent event : decisionTask.getEvents()) {
+			if (started == null) {
+				if (EventType.DecisionTaskStarted.toString().equals(event.getEventType())) {
+					started = event;
+				}
+				continue;
+			}
+			final DecisionTaskStartedEventAttributes attributes = started.getDecisionTaskStartedEventAttributes();
+			if (attributes != null && event.getEventId().equals(attributes.getScheduledEventId())
+					&& event.getDecisionTaskScheduledEventAttributes() != null
+					&& started.getEventTimestamp() != null) {
+				final String timeout = event.getDecisionTaskScheduledEventAttributes().getStartToCloseTimeout();
+				try {
+					return started.getEventTimestamp().toInstant().plusSeconds(Long.parseLong(timeout));
+				} catch (NumberFormatException e) {
+					// NONE or missing
+					return null;
+				}
+			}
+		}
+		return null;
 	}
 
-	private DecisionTask pollForDecisionTask(HistoryMode mode) {
+	/**
+	 * Fetch the history of the polled decision task.
+	 *
+	 * @param firstPage
+	 *            the polled decision task
+	 * @return the history, or null if it should be built from the events of
+	 *         the decision task
+	 */
+	private WorkflowHistory fetchHistory(DecisionTask firstPage, HistoryMode mode) {
 		switch (mode) {
 			case EAGER:
-				return pollForAllHistory();
+				if (historyCache != null && firstPage.getWorkflowExecution() != null && hasEvents(firstPage)) {
+					return fetchNewHistoryEvents(firstPage);
+				}
+				firstPage.setEvents(pollRemainingPages(firstPage, null));
+				return null;
+			case LAZY:
+				return hasEvents(firstPage) ? new LazyWorkflowHistory(firstPage, this::pollForPage) : null;
+			case COMPACT:
+				final List<HistoryEvent> events = pollRemainingPages(firstPage, null);
+				if (events.isEmpty()) {
+					firstPage.setEvents(events);
+					return null;
+				}
+				// release the SWF events as soon as they are compacted
+				firstPage.setEvents(null);
+				return new CompactWorkflowHistory(events);
 			default:
 				throw new UnsupportedOperationException("History mode " + mode + " is not supported.");
 		}
 	}
 
-	private DecisionTask pollForAllHistory() {
-		String nextPageToken = null;
-		Collection<HistoryEvent> allEvents = new ArrayList<>();
-		DecisionTask decisionTask;
-		do {
-			decisionTask = swf.pollForDecisionTask(new PollForDecisionTaskRequest()
-														   .withDomain(domain)
-														   .withTaskList(taskList == null ? null : new TaskList().withName(taskList))
-														   .withReverseOrder(true)
-														   .withIdentity(identity)
-														   .withNextPageToken(nextPageToken));
-			if (decisionTask != null) {
-				nextPageToken = decisionTask.getNextPageToken();
-				if (decisionTask.getEvents() != null)
-				{
-					allEvents.addAll(decisionTask.getEvents());
-				}
-			}
+	/**
+	 * Poll only the pages containing events more recent than the cached
+	 * history, and merge them into the cached history.
+	 */
+	private WorkflowHistory fetchNewHistoryEvents(DecisionTask firstPage) {
+		final WorkflowExecution execution = firstPage.getWorkflowExecution();
+		WorkflowHistoryImpl cachedHistory = historyCache.get(execution);
+		if (cachedHistory != null && newestEventId(firstPage) < cachedHistory.newestEventId()) {
+			LOGGER.warn("[{}:{}] cached history of {} is more recent than the polled one, ignoring it", this.domain,
+					this.identity, execution);
+			historyCache.invalidate(execution);
+			cachedHistory = null;
+		}
+		final Long knownEventId = cachedHistory == null ? null : cachedHistory.newestEventId();
+		final List<HistoryEvent> events = pollRemainingPages(firstPage, knownEventId);
+
+		final WorkflowHistoryImpl history;
+		if (knownEventId != null && reached(events, knownEventId)) {
+			history = new WorkflowHistoryImpl(events.stream()
+					.filter(e -> e.getEventId() > knownEventId)
+					.collect(Collectors.toList()), cachedHistory);
+		} else {
+			history = new WorkflowHistoryImpl(events);
 		}
-		while (nextPageToken != null);
+		historyCache.put(execution, history);
+		firstPage.setEvents(history.historyEvents());
+		return history;
+	}
 
-		if (decisionTask != null) {
-			decisionTask.setEvents(allEvents);
+	/**
+	 * Poll the pages following the first one, until there are no more pages
+	 * or the pages reach an already known event.
+	 *
+	 * @param firstPage
+	 *            the polled decision task
+	 * @param knownEventId
+	 *            the id of the most recent event already known, or null to
+	 *            poll all the pages
+	 * @return the events of the polled pages, most recent first
+	 */
+	private List<HistoryEvent> pollRemainingPages(DecisionTask firstPage, Long knownEventId) {
+		List<HistoryEvent> allEvents = new ArrayList<>();
+		if (firstPage.getEvents() != null) {
+			allEvents.addAll(firstPage.getEvents());
+		}
+		String nextPageToken = firstPage.getNextPageToken();
+		while (nextPageToken != null && !reached(allEvents, knownEventId)) {
+			DecisionTask page = pollForPage(nextPageToken);
+			if (page == null) {
+				break;
+			}
+			nextPageToken = page.getNextPageToken();
+			if (page.getEvents() != null) {
+				allEvents.addAll(page.getEvents());
+			}
 		}
+		return allEvents;
+	}
+
+	private static boolean reached(List<HistoryEvent> events, Long knownEventId) {
+		return knownEventId != null
+				&& !events.isEmpty()
+				&& events.get(events.size() - 1).getEventId() <= knownEventId + 1;
+	}
+
+	private static boolean hasEvents(DecisionTask decisionTask) {
+		return decisionTask.getEvents() != null && !decisionTask.getEvents().isEmpty();
+	}
+
+	private static long newestEventId(DecisionTask decisionTask) {
+		return decisionTask.getEvents().get(0).getEventId();
+	}
+
+	private DecisionTask pollForPage(String nextPageToken) {
+		return swf.pollForDecisionTask(pageRequest(nextPageToken));
+	}
 
-		return decisionTask;
+	PollForDecisionTaskRequest pageRequest(String nextPageToken) {
+		return new PollForDecisionTaskRequest()
+				.withDomain(domain)
+				.withTaskList(taskList == null ? null : new TaskList().withName(taskList))
+				.withReverseOrder(true)
+				.withIdentity(identity)
+				.withNextPageToken(nextPageToken);
 	}
 }
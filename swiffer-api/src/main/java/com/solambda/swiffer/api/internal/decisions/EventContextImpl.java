@@ -85,6 +85,11 @@ public class EventContextImpl implements
 		return this.decisionContext.newEvents();
 	}
 
+	@Override
+	public List<WorkflowEvent> newEvents(final EventCategory category) {
+		return this.decisionContext.newEvents(category);
+	}
+
 	@Override
 	public String signalName() {
 		return this.event.signalName();
@@ -42,26 +42,13 @@ public class EventHandlerArgumentsProviderFactory {
 	}
 
 	public EventHandlerArgumentsProvider createArgumentsProvider(final EventType type, final Method method) {
-		final Parameter[] parameters = method.getParameters();
-		if (parameters.length == 0) {
+		final List<BiFunction<EventContext, Decisions, Object>> argumentProviders = createArgumentProviders(type,
+				method);
+		if (argumentProviders.isEmpty()) {
 			return (c, d) -> new Object[0];
 		} else {
-			final List<BiFunction<EventContext, Decisions, Object>> argumentProviders = new ArrayList<>();
-			boolean defaultProviderFound = false;
-			for (final Parameter parameter : parameters) {
-				final InternalArgumentProvider argumentProvider = createArgumentProvider(type, parameter);
-				if (argumentProvider.isDefaultProvider) {
-					Preconditions.checkState(!defaultProviderFound,
-							"Illegal event handler method %s. Only one non-annotated parameter is allowed. "
-									+ "Please annotate other parameters with a %s annotation, like @Input,"
-									+ "@Output,@Control,@Reason,@Details",
-							method, EventHandlerCommonParameter.class);
-					defaultProviderFound = true;
-				}
-				argumentProviders.add(argumentProvider.function);
-			}
 			return (c, d) -> {
-				final Object[] arguments = new Object[parameters.length];
+				final Object[] arguments = new Object[argumentProviders.size()];
 				int i = 0;
 				for (final BiFunction<EventContext, Decisions, Object> function : argumentProviders) {
 					arguments[i++] = function.apply(c, d);
@@ -71,6 +58,29 @@ public class EventHandlerArgumentsProviderFactory {
 		}
 	}
 
+	/**
+	 * @return the providers of each parameter of the method
+	 */
+	public List<BiFunction<EventContext, Decisions, Object>> createArgumentProviders(final EventType type,
+			final Method method) {
+		final Parameter[] parameters = method.getParameters();
+		final List<BiFunction<EventContext, Decisions, Object>> argumentProviders = new ArrayList<>();
+		boolean defaultProviderFound = false;
+		for (final Parameter parameter : parameters) {
+			final InternalArgumentProvider argumentProvider = createArgumentProvider(type, parameter);
+			if (argumentProvider.isDefaultProvider) {
+				Preconditions.checkState(!defaultProviderFound,
+						"Illegal event handler method %s. Only one non-annotated parameter is allowed. "
+								+ "Please annotate other parameters with a %s annotation, like @Input,"
+								+ "@Output,@Control,@Reason,@Details",
+						method, EventHandlerCommonParameter.class);
+				defaultProviderFound = true;
+			}
+			argumentProviders.add(argumentProvider.function);
+		}
+		return argumentProviders;
+	}
+
 	private InternalArgumentProvider createArgumentProvider(
 			final EventType eventType,
 			final Parameter parameter) {
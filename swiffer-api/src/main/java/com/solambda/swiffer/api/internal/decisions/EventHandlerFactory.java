@@ -1,6 +1,8 @@
 package com.solambda.swiffer.api.internal.decisions;
 
 import java.lang.reflect.Method;
+import java.util.List;
+import java.util.function.BiFunction;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -35,9 +37,25 @@ public class EventHandlerFactory {
 	private EventHandlerArgumentsProviderFactory eventHandlerArgumentsProviderFactory;
 	private final RetryHandlers retryHandlers;
 	private final CloseWorkflowFailedHandlers closeWorkflowFailedHandlers;
+	private final VersionedName workflowType;
+	/**
+	 * Optional profiler of the created handlers
+	 */
+	private final EventHandlerProfiler profiler;
 
 	public EventHandlerFactory(final VersionedName workflowType, DataMapper dataMapper, RetryPolicy globalRetryPolicy) {
+		this(workflowType, dataMapper, globalRetryPolicy, null);
+	}
+
+	/**
+	 * @param profiler
+	 *            optional profiler of the created handlers
+	 */
+	public EventHandlerFactory(final VersionedName workflowType, DataMapper dataMapper, RetryPolicy globalRetryPolicy,
+			final EventHandlerProfiler profiler) {
 		super();
+		this.workflowType = workflowType;
+		this.profiler = profiler;
 		this.eventHandlerTypeFactory = new EventHandlerTypeFactory(workflowType);
 		this.eventHandlerArgumentsProviderFactory = new EventHandlerArgumentsProviderFactory(dataMapper);
 		retryHandlers = new RetryHandlers(globalRetryPolicy);
@@ -60,11 +78,15 @@ public class EventHandlerFactory {
 			final Method method) {
 		final MethodInvoker methodInvoker = new MethodInvoker(template, method);
 		// verify the arguments are ok,
-		final EventHandlerArgumentsProvider argumentsProvider = this.eventHandlerArgumentsProviderFactory
-				.createArgumentsProvider(handlerType.getEventType(), method);
+		final List<BiFunction<EventContext, Decisions, Object>> argumentProviders = this.eventHandlerArgumentsProviderFactory
+				.createArgumentProviders(handlerType.getEventType(), method);
 		// and the return value also
 		checkReturnType(method);
-		return new EventHandlerImpl(handlerType, methodInvoker, argumentsProvider);
+		if (this.profiler != null) {
+			return new EventHandlerImpl(handlerType,
+					this.profiler.profile(this.workflowType, method, methodInvoker, argumentProviders));
+		}
+		return new EventHandlerImpl(handlerType, methodInvoker.withArguments(argumentProviders));
 	}
 
 	EventHandler createFailedActivityHandler() {
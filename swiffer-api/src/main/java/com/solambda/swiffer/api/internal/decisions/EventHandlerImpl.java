@@ -3,30 +3,37 @@ package com.solambda.swiffer.api.internal.decisions;
 import java.lang.reflect.InvocationTargetException;
 
 import com.solambda.swiffer.api.Decisions;
+import com.solambda.swiffer.api.internal.ContextInvoker;
 import com.solambda.swiffer.api.internal.MethodInvoker;
 
 public class EventHandlerImpl implements EventHandler {
 
 	private EventHandlerType type;
-	private MethodInvoker methodInvoker;
-	private EventHandlerArgumentsProvider argumentsProvider;
+	private ContextInvoker<EventContext, Decisions> invoker;
 
 	public EventHandlerImpl(
 			final EventHandlerType type,
 			final MethodInvoker methodInvoker,
 			final EventHandlerArgumentsProvider argumentsProvider) {
+		this(type, (context, decisions) -> methodInvoker.invoke(argumentsProvider.getArguments(context, decisions)));
+	}
+
+	/**
+	 * @param invoker
+	 *            invoke the handler method with the arguments resolved from
+	 *            the event context and the decisions
+	 */
+	public EventHandlerImpl(final EventHandlerType type, final ContextInvoker<EventContext, Decisions> invoker) {
 		super();
 		this.type = type;
-		this.methodInvoker = methodInvoker;
-		this.argumentsProvider = argumentsProvider;
+		this.invoker = invoker;
 	}
 
 	@Override
 	public String handleEvent(final EventContext context, final Decisions decisions)
 			throws DecisionTaskExecutionException {
 		try {
-			final Object[] arguments = this.argumentsProvider.getArguments(context, decisions);
-			final Object result = this.methodInvoker.invoke(arguments);
+			final Object result = this.invoker.invoke(context, decisions);
 			if (result == null) {
 				return null;
 			}
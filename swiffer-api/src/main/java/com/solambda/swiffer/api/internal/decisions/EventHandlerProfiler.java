@@ -0,0 +1,81 @@
+package com.solambda.swiffer.api.internal.decisions;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.List;
+import java.util.function.BiFunction;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+import com.solambda.swiffer.api.Decisions;
+import com.solambda.swiffer.api.internal.ContextInvoker;
+import com.solambda.swiffer.api.internal.MethodInvoker;
+import com.solambda.swiffer.api.internal.VersionedName;
+import com.solambda.swiffer.api.metrics.SwifferMetrics;
+
+/**
+ * Measure the event handlers of the workflow templates, including the default
+ * retry and close handlers: the time spent resolving the arguments of each
+ * handler method and the time spent in the method are reported to a
+ * {@link SwifferMetrics}, and logged when their sum exceeds a threshold.
+ * <p>
+ * A profiled handler times the resolution of its arguments separately from
+ * the invocation of its method.
+ */
+public class EventHandlerProfiler {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(EventHandlerProfiler.class);
+
+	private final SwifferMetrics metrics;
+	private final long slowThresholdNanos;
+
+	/**
+	 * @param metrics
+	 *            the metrics receiving the measures of each handled event
+	 * @param slowThreshold
+	 *            the duration above which a handled event is logged
+	 */
+	public EventHandlerProfiler(final SwifferMetrics metrics, final Duration slowThreshold) {
+		this.metrics = Preconditions.checkNotNull(metrics, "metrics must be specified");
+		Preconditions.checkArgument(slowThreshold != null && !slowThreshold.isNegative(),
+				"the slow handler threshold should be positive");
+		this.slowThresholdNanos = slowThreshold.toNanos();
+	}
+
+	/**
+	 * @return an invoker of the handler method measuring the resolution of its
+	 *         arguments and its invocation
+	 */
+	ContextInvoker<EventContext, Decisions> profile(final VersionedName workflowType, final Method method,
+			final MethodInvoker methodInvoker,
+			final List<BiFunction<EventContext, Decisions, Object>> argumentProviders) {
+		final String handler = workflowType.name() + ":" + workflowType.version() + " "
+				+ method.getDeclaringClass().getSimpleName() + "." + method.getName();
+		return (context, decisions) -> {
+			final long start = System.nanoTime();
+			final Object[] arguments = new Object[argumentProviders.size()];
+			int i = 0;
+			for (final BiFunction<EventContext, Decisions, Object> argumentProvider : argumentProviders) {
+				arguments[i++] = argumentProvider.apply(context, decisions);
+			}
+			final long resolved = System.nanoTime();
+			try {
+				return methodInvoker.invoke(arguments);
+			} finally {
+				handled(handler, context, resolved - start, System.nanoTime() - resolved);
+			}
+		};
+	}
+
+	private void handled(final String handler, final EventContext context, final long argumentsNanos,
+			final long handlingNanos) {
+		this.metrics.eventHandled(handler, argumentsNanos, handlingNanos);
+		if (argumentsNanos + handlingNanos > this.slowThresholdNanos) {
+			LOGGER.warn("Slow event handler {}: {} ms resolving its arguments and {} ms handling {}", handler,
+					argumentsNanos / 1_000_000, handlingNanos / 1_000_000, context.event());
+		}
+	}
+}
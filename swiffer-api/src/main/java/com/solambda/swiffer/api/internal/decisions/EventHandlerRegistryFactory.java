@@ -14,7 +14,16 @@ public class EventHandlerRegistryFactory {
 	private final EventHandlerFactory factory;
 
 	public EventHandlerRegistryFactory(final VersionedName workflowType, DataMapper dataMapper, RetryPolicy retryPolicy) {
-		this.factory = new EventHandlerFactory(workflowType, dataMapper, retryPolicy);
+		this(workflowType, dataMapper, retryPolicy, null);
+	}
+
+	/**
+	 * @param profiler
+	 *            optional profiler of the handlers, including the default ones
+	 */
+	public EventHandlerRegistryFactory(final VersionedName workflowType, DataMapper dataMapper, RetryPolicy retryPolicy,
+			final EventHandlerProfiler profiler) {
+		this.factory = new EventHandlerFactory(workflowType, dataMapper, retryPolicy, profiler);
 	}
 
 	public EventHandlerRegistry build(final Object template) {
@@ -17,7 +17,20 @@ public enum HistoryMode {
     EAGER,
 
     /**
-     * History is fetched on-demand with {@link DecisionTask}.
+     * The first page of history is fetched with {@link DecisionTask}, older pages are fetched on-demand.
+     * <p>
+     * Only the lookups of a marker, of a timer, of an event by id and of the activity events by scheduled event id
+     * stop at the most recent matching events. Listing all the events, the events of an activity id, or the events of
+     * a type or category pages in the whole history, as in {@link #EAGER} mode.
+     *
+     * @see LazyWorkflowHistory
      */
-    LAZY
+    LAZY,
+
+    /**
+     * All history is fetched with {@link DecisionTask}, and stored in a compact form for very large histories.
+     *
+     * @see CompactWorkflowHistory
+     */
+    COMPACT
 }
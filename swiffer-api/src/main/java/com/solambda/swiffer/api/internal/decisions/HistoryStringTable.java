@@ -0,0 +1,40 @@
+package com.solambda.swiffer.api.internal.decisions;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A table of the short strings (names, ids, versions, task lists,
+ * identities...) of the SWF event attributes of a history, so that each
+ * distinct value is stored only once.
+ * <p>
+ * Strings longer than {@link #MAX_LENGTH} are considered as payloads and are
+ * left as is.
+ */
+class HistoryStringTable {
+
+	static final int MAX_LENGTH = 256;
+
+	private final Map<String, String> strings = new HashMap<>();
+
+	/**
+	 * @param string
+	 *            a string, may be null
+	 * @return the instance of the string stored in this table, or the string
+	 *         itself if it is a payload
+	 */
+	String intern(final String string) {
+		if (string == null || string.length() > MAX_LENGTH) {
+			return string;
+		}
+		final String interned = this.strings.putIfAbsent(string, string);
+		return interned == null ? string : interned;
+	}
+
+	/**
+	 * @return the number of distinct strings of this table
+	 */
+	int size() {
+		return this.strings.size();
+	}
+}
@@ -0,0 +1,222 @@
+package com.solambda.swiffer.api.internal.decisions;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.amazonaws.services.simpleworkflow.model.DecisionTask;
+import com.amazonaws.services.simpleworkflow.model.EventType;
+import com.google.common.base.Preconditions;
+import com.solambda.swiffer.api.internal.events.EventCategory;
+
+/**
+ * A {@link WorkflowHistory} that initially holds only the first (most recent)
+ * page of events of a decision task, and fetches the older pages only when an
+ * event that has not been loaded yet is requested.
+ * <p>
+ * The pages must be returned in reverse order (most recent event first), as
+ * done by {@link DecisionTaskPoller}. The lookups of a marker, of a timer or of
+ * an activity execution scan the pages newest-first and stop as soon as the
+ * answer is known, so that the recent events are found without loading the
+ * whole history.
+ * <p>
+ * The other lookups, {@link #events()}, {@link #getActivityEvents(String)} and
+ * the {@code getEvents} by type or category, load all the remaining pages and
+ * index the whole history.
+ */
+public class LazyWorkflowHistory implements WorkflowHistory {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(LazyWorkflowHistory.class);
+
+	private final Function<String, DecisionTask> pageFetcher;
+	private final List<WorkflowEvent> events;
+	private String nextPageToken;
+	private volatile WorkflowHistoryIndex index;
+
+	/**
+	 * @param firstPage
+	 *            the decision task as returned by the first poll
+	 * @param pageFetcher
+	 *            retrieve the page of the given next page token
+	 */
+	public LazyWorkflowHistory(final DecisionTask firstPage, final Function<String, DecisionTask> pageFetcher) {
+		super();
+		Preconditions.checkArgument(firstPage != null, "first page must not be null");
+		this.pageFetcher = Preconditions.checkNotNull(pageFetcher, "page fetcher must not be null");
+		this.events = new ArrayList<>();
+		append(firstPage);
+		Preconditions.checkArgument(this.events.size() > 0, "event list is empty");
+	}
+
+	@Override
+	public List<WorkflowEvent> events() {
+		while (hasMorePages()) {
+			fetchNextPage();
+		}
+		return Collections.unmodifiableList(this.events);
+	}
+
+	@Override
+	public WorkflowEvent getEventById(final Long id) {
+		Preconditions.checkArgument(id > 0, "cannot get event id " + id);
+		if (id > newestEventId()) {
+			return null;
+		}
+		while (oldestLoadedEventId() > id && hasMorePages()) {
+			fetchNextPage();
+		}
+		final int index = (int) (newestEventId() - id);
+		return index < this.events.size() ? this.events.get(index) : null;
+	}
+
+	@Override
+	public List<WorkflowEvent> eventsAfter(final Long eventId) {
+		while (oldestLoadedEventId() > eventId + 1 && hasMorePages()) {
+			fetchNextPage();
+		}
+		final int count = (int) Math.max(0, Math.min(this.events.size(), newestEventId() - eventId));
+		return Collections.unmodifiableList(new ArrayList<>(this.events.subList(0, count)));
+	}
+
+	@Override
+	public WorkflowEvent getLatestMarker(final String markerName) {
+		final WorkflowHistoryIndex index = this.index;
+		if (index != null) {
+			return index.getLatestMarker(markerName);
+		}
+		return markerName == null ? null
+				: findNewest(event -> event.type() == EventType.MarkerRecorded
+						&& markerName.equals(event.markerName()));
+	}
+
+	@Override
+	public List<WorkflowEvent> getTimerEvents(final String timerId) {
+		final WorkflowHistoryIndex index = this.index;
+		if (index != null) {
+			return index.getTimerEvents(timerId);
+		}
+		if (timerId == null) {
+			return Collections.emptyList();
+		}
+		final List<WorkflowEvent> timer = new ArrayList<>();
+		findNewest(event -> {
+			if (event.category() != EventCategory.TIMER || !timerId.equals(event.timerId())) {
+				return false;
+			}
+			timer.add(event);
+			// the timer starts with its oldest event
+			return event.type() == EventType.TimerStarted || event.type() == EventType.StartTimerFailed;
+		});
+		return Collections.unmodifiableList(timer);
+	}
+
+	@Override
+	public List<WorkflowEvent> getActivityEvents(final String activityId) {
+		return index().getActivityEvents(activityId);
+	}
+
+	@Override
+	public List<WorkflowEvent> getActivityEventsByScheduledEventId(final Long scheduledEventId) {
+		final WorkflowHistoryIndex index = this.index;
+		if (index != null) {
+			return index.getActivityEventsByScheduledEventId(scheduledEventId);
+		}
+		if (scheduledEventId == null) {
+			return Collections.emptyList();
+		}
+		final List<WorkflowEvent> activity = new ArrayList<>();
+		findNewest(event -> {
+			if (event.category() == EventCategory.ACTIVITY && scheduledEventId.equals(event.initialEventId())) {
+				activity.add(event);
+			}
+			// no event of the execution is older than its scheduled event
+			return event.id() <= scheduledEventId;
+		});
+		return Collections.unmodifiableList(activity);
+	}
+
+	@Override
+	public List<WorkflowEvent> getEvents(final EventType type) {
+		return index().getEvents(type);
+	}
+
+	@Override
+	public List<WorkflowEvent> getEvents(final EventCategory category) {
+		return index().getEvents(category);
+	}
+
+	/**
+	 * Scan the events most recent first, fetching the older pages only when
+	 * all the loaded events have been scanned.
+	 *
+	 * @param predicate
+	 *            the condition ending the scan
+	 * @return the most recent event matching the predicate, or null if the
+	 *         whole history has been scanned
+	 */
+	private WorkflowEvent findNewest(final Predicate<WorkflowEvent> predicate) {
+		int i = 0;
+		while (true) {
+			for (; i < this.events.size(); i++) {
+				final WorkflowEvent event = this.events.get(i);
+				if (predicate.test(event)) {
+					return event;
+				}
+			}
+			if (!hasMorePages()) {
+				return null;
+			}
+			fetchNextPage();
+		}
+	}
+
+	/**
+	 * @return the indexes of the events, built on first use
+	 */
+	private WorkflowHistoryIndex index() {
+		WorkflowHistoryIndex index = this.index;
+		if (index == null) {
+			index = new WorkflowHistoryIndex(events());
+			this.index = index;
+		}
+		return index;
+	}
+
+	private boolean hasMorePages() {
+		return this.nextPageToken != null;
+	}
+
+	private long newestEventId() {
+		return this.events.get(0).id();
+	}
+
+	private long oldestLoadedEventId() {
+		return this.events.get(this.events.size() - 1).id();
+	}
+
+	private void fetchNextPage() {
+		LOGGER.debug("fetching history events older than {}", oldestLoadedEventId());
+		final DecisionTask page = this.pageFetcher.apply(this.nextPageToken);
+		if (page == null) {
+			this.nextPageToken = null;
+		} else {
+			append(page);
+		}
+	}
+
+	private void append(final DecisionTask page) {
+		this.nextPageToken = page.getNextPageToken();
+		if (page.getEvents() != null) {
+			this.events.addAll(page.getEvents().stream()
+					.map(e -> new WorkflowEvent(e, this))
+					.sorted()
+					.collect(Collectors.toList()));
+		}
+	}
+}
@@ -4,6 +4,9 @@ import static com.solambda.swiffer.api.internal.events.EventCategory.*;
 import static com.solambda.swiffer.api.internal.events.WorkflowEventState.*;
 
 import java.time.Instant;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
 
 import com.amazonaws.services.simpleworkflow.model.ActivityTaskScheduledEventAttributes;
 import com.amazonaws.services.simpleworkflow.model.ActivityType;
@@ -20,8 +23,29 @@ import com.solambda.swiffer.api.internal.events.WorkflowEventState;
  */
 public class WorkflowEvent implements Comparable<WorkflowEvent> {
 
+	private static final Map<String, EventType> EVENT_TYPES = new HashMap<>();
+	private static final Map<EventType, EventCategory> CATEGORIES = new EnumMap<>(EventType.class);
+	private static final Map<EventType, WorkflowEventState> STATES = new EnumMap<>(EventType.class);
+
+	static {
+		for (final EventType type : EventType.values()) {
+			EVENT_TYPES.put(type.toString(), type);
+			try {
+				CATEGORIES.put(type, categoryOf(type));
+			} catch (final IllegalArgumentException e) {
+				// no category for this type
+			}
+			try {
+				STATES.put(type, stateOf(type));
+			} catch (final IllegalArgumentException e) {
+				// no state for this type
+			}
+		}
+	}
+
 	private HistoryEvent event;
 	private WorkflowHistory history;
+	private EventType type;
 
 	/**
 	 * Create a new instance from the SWF event and the workflow history it
@@ -37,16 +61,27 @@ public class WorkflowEvent implements Comparable<WorkflowEvent> {
 	}
 
 	/**
-	 * @return the type of the event.
+	 * @return the type of the event, parsed once.
 	 */
 	public EventType type() {
-		return EventType.fromValue(this.event.getEventType());
+		EventType type = this.type;
+		if (type == null) {
+			final String eventType = historyEvent().getEventType();
+			type = EVENT_TYPES.get(eventType);
+			if (type == null) {
+				type = EventType.fromValue(eventType);
+			}
+			this.type = type;
+		}
+		return type;
 	}
 
 	/**
-	 * @return the wrapped SWF {@link HistoryEvent}
+	 * @return the wrapped SWF {@link HistoryEvent}; for the events of a
+	 *         {@link CompactWorkflowHistory}, an event rebuilt without most of
+	 *         its attributes, which are read through the accessors instead
 	 */
-	private HistoryEvent historyEvent() {
+	HistoryEvent historyEvent() {
 		return this.event;
 	}
 
@@ -69,7 +104,15 @@ public class WorkflowEvent implements Comparable<WorkflowEvent> {
 	 * @return the {@link EventCategory} this event belongs to
 	 */
 	public EventCategory category() {
-		switch (type()) {
+		final EventCategory category = CATEGORIES.get(type());
+		if (category == null) {
+			throw new IllegalArgumentException("cannot handle category for " + type);
+		}
+		return category;
+	}
+
+	private static EventCategory categoryOf(final EventType type) {
+		switch (type) {
 		case ActivityTaskCancelRequested:
 		case ActivityTaskCanceled:
 		case ActivityTaskCompleted:
@@ -135,7 +178,7 @@ public class WorkflowEvent implements Comparable<WorkflowEvent> {
 		case WorkflowExecutionSignaled:
 			return SIGNAL;
 		default:
-			throw new IllegalArgumentException("cannot handle category for " + type());
+			throw new IllegalArgumentException("cannot handle category for " + type);
 		}
 	}
 
@@ -212,7 +255,15 @@ public class WorkflowEvent implements Comparable<WorkflowEvent> {
 	 * @return the WorkflowEventState this event denotes
 	 */
 	public WorkflowEventState state() {
-		switch (type()) {
+		final WorkflowEventState state = STATES.get(type());
+		if (state == null) {
+			throw new IllegalArgumentException("Unknown EventType " + type());
+		}
+		return state;
+	}
+
+	private static WorkflowEventState stateOf(final EventType type) {
+		switch (type) {
 		case WorkflowExecutionStarted:
 		case DecisionTaskScheduled:
 		case ActivityTaskScheduled:
@@ -274,7 +325,7 @@ public class WorkflowEvent implements Comparable<WorkflowEvent> {
 		case LambdaFunctionTimedOut:
 			return CANCELED;
 		default:
-			throw new IllegalArgumentException("Unknown EventType " + type());
+			throw new IllegalArgumentException("Unknown EventType " + type);
 		}
 	}
 
@@ -1326,7 +1377,7 @@ public class WorkflowEvent implements Comparable<WorkflowEvent> {
 	}
 
 	public ActivityTaskScheduledEventAttributes getActivityTaskScheduledEventAttributes(){
-		return this.event.getActivityTaskScheduledEventAttributes();
+		return historyEvent().getActivityTaskScheduledEventAttributes();
 	}
 
 	@Override
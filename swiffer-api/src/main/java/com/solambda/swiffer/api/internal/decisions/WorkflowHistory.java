@@ -2,7 +2,9 @@ package com.solambda.swiffer.api.internal.decisions;
 
 import java.util.List;
 
+import com.amazonaws.services.simpleworkflow.model.EventType;
 import com.solambda.swiffer.api.EventHandlerCommonParameter;
+import com.solambda.swiffer.api.internal.events.EventCategory;
 
 @EventHandlerCommonParameter
 public interface WorkflowHistory {
@@ -24,4 +26,70 @@ public interface WorkflowHistory {
 	 */
 	WorkflowEvent getEventById(Long eventId);
 
+	/**
+	 * Retrieve the events that occured after the given event.
+	 *
+	 * @param eventId
+	 *            the id of the last event to exclude, 0 to get all the events
+	 * @return the {@link WorkflowEvent}s which id is greater than
+	 *         {@code eventId}, sorted by descending {@link WorkflowEvent#id()}s
+	 *         (most-recent first)
+	 */
+	List<WorkflowEvent> eventsAfter(Long eventId);
+
+	/**
+	 * Retrieve the most recent marker recorded with the given name.
+	 *
+	 * @param markerName
+	 *            the name of the marker
+	 * @return the most recent {@link EventType#MarkerRecorded} event of the
+	 *         marker, or null if no such marker was recorded
+	 */
+	WorkflowEvent getLatestMarker(String markerName);
+
+	/**
+	 * Retrieve the events of a timer. When the id has been reused by several
+	 * timers, only the events of the most recent one are returned.
+	 *
+	 * @param timerId
+	 *            the id of the timer
+	 * @return the events of the timer, most-recent first
+	 */
+	List<WorkflowEvent> getTimerEvents(String timerId);
+
+	/**
+	 * Retrieve the events of all the scheduled executions of an activity.
+	 *
+	 * @param activityId
+	 *            the id of the activity
+	 * @return the events of the activity, most-recent first
+	 */
+	List<WorkflowEvent> getActivityEvents(String activityId);
+
+	/**
+	 * Retrieve the events of a scheduled execution of an activity.
+	 *
+	 * @param scheduledEventId
+	 *            the id of the {@link EventType#ActivityTaskScheduled} event
+	 * @return the events of the activity execution, most-recent first
+	 */
+	List<WorkflowEvent> getActivityEventsByScheduledEventId(Long scheduledEventId);
+
+	/**
+	 * Retrieve the events of the given type.
+	 *
+	 * @param type
+	 *            the type of event
+	 * @return the events of the type, most-recent first
+	 */
+	List<WorkflowEvent> getEvents(EventType type);
+
+	/**
+	 * Retrieve the events of the given category.
+	 *
+	 * @param category
+	 *            the category of event
+	 * @return the events of the category, most-recent first
+	 */
+	List<WorkflowEvent> getEvents(EventCategory category);
 }
@@ -0,0 +1,172 @@
+package com.solambda.swiffer.api.internal.decisions;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.amazonaws.services.simpleworkflow.model.WorkflowExecution;
+import com.google.common.base.Preconditions;
+import com.solambda.swiffer.api.metrics.SwifferMetrics;
+
+/**
+ * A bounded cache of the histories of the workflow executions recently decided
+ * by a {@link DecisionTaskPoller}, keyed by workflowId and runId.
+ * <p>
+ * When the history of a polled decision task is cached, the poller stops
+ * paging the history as soon as it reaches the most recent cached event, and
+ * only the new events are added to the cached history.
+ * <p>
+ * The least recently used histories are evicted when the number of cached
+ * executions or the total number of cached events is exceeded. The events are
+ * counted, not measured: the memory they use depends on their inputs and
+ * results, so the maximum number of events should be chosen from the size of
+ * the payloads of the workflows. A history of more events than this maximum is
+ * never cached.
+ * <p>
+ * The hits, misses and evictions are counted, and reported to the
+ * {@link SwifferMetrics} of the cache.
+ */
+public class WorkflowHistoryCache {
+
+	private final int maxExecutions;
+	private final long maxEvents;
+	private final Map<String, WorkflowHistoryImpl> histories;
+	private final SwifferMetrics metrics;
+	private long cachedEvents;
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+
+	/**
+	 * @param maxExecutions
+	 *            maximum number of workflow executions which history is cached
+	 * @param maxEvents
+	 *            maximum number of events cached for all the executions
+	 */
+	public WorkflowHistoryCache(final int maxExecutions, final long maxEvents) {
+		this(maxExecutions, maxEvents, SwifferMetrics.NONE);
+	}
+
+	/**
+	 * @param maxExecutions
+	 *            maximum number of workflow executions which history is cached
+	 * @param maxEvents
+	 *            maximum number of events cached for all the executions
+	 * @param metrics
+	 *            the metrics receiving the hits, misses and evictions
+	 */
+	public WorkflowHistoryCache(final int maxExecutions, final long maxEvents, final SwifferMetrics metrics) {
+		Preconditions.checkArgument(maxExecutions > 0, "the maximum number of executions should be greater than 0");
+		Preconditions.checkArgument(maxEvents > 0, "the maximum number of events should be greater than 0");
+		this.maxExecutions = maxExecutions;
+		this.maxEvents = maxEvents;
+		this.metrics = Preconditions.checkNotNull(metrics, "metrics must be specified");
+		this.histories = new LinkedHashMap<>(16, 0.75f, true);
+	}
+
+	/**
+	 * @param execution
+	 *            the workflow execution
+	 * @return the cached history of the execution, or null
+	 */
+	synchronized WorkflowHistoryImpl get(final WorkflowExecution execution) {
+		final WorkflowHistoryImpl history = this.histories.get(key(execution));
+		if (history == null) {
+			this.misses.incrementAndGet();
+		} else {
+			this.hits.incrementAndGet();
+		}
+		this.metrics.historyCacheAccessed(history != null);
+		return history;
+	}
+
+	/**
+	 * Cache the history of the execution, replacing the previous one.
+	 *
+	 * @param execution
+	 *            the workflow execution
+	 * @param history
+	 *            its complete history
+	 */
+	synchronized void put(final WorkflowExecution execution, final WorkflowHistoryImpl history) {
+		final String key = key(execution);
+		final WorkflowHistoryImpl previous = this.histories.remove(key);
+		if (previous != null) {
+			this.cachedEvents -= previous.size();
+		}
+		if (history.size() > this.maxEvents) {
+			return;
+		}
+		this.histories.put(key, history);
+		this.cachedEvents += history.size();
+		evictLeastRecentlyUsed();
+	}
+
+	/**
+	 * Remove the history of the execution from the cache.
+	 *
+	 * @param execution
+	 *            the workflow execution
+	 */
+	synchronized void invalidate(final WorkflowExecution execution) {
+		final WorkflowHistoryImpl previous = this.histories.remove(key(execution));
+		if (previous != null) {
+			this.cachedEvents -= previous.size();
+		}
+	}
+
+	private void evictLeastRecentlyUsed() {
+		final Iterator<Entry<String, WorkflowHistoryImpl>> iterator = this.histories.entrySet().iterator();
+		while ((this.histories.size() > this.maxExecutions || this.cachedEvents > this.maxEvents)
+				&& iterator.hasNext()) {
+			final WorkflowHistoryImpl evicted = iterator.next().getValue();
+			iterator.remove();
+			this.cachedEvents -= evicted.size();
+			this.evictions.incrementAndGet();
+			this.metrics.historyCacheEvicted();
+		}
+	}
+
+	private static String key(final WorkflowExecution execution) {
+		return execution.getWorkflowId() + "/" + execution.getRunId();
+	}
+
+	/**
+	 * @return the number of polled decision tasks which history was cached
+	 */
+	public long hits() {
+		return this.hits.get();
+	}
+
+	/**
+	 * @return the number of polled decision tasks which history was not cached
+	 */
+	public long misses() {
+		return this.misses.get();
+	}
+
+	/**
+	 * @return the number of histories evicted to respect the bounds of the
+	 *         cache
+	 */
+	public long evictions() {
+		return this.evictions.get();
+	}
+
+	/**
+	 * @return the number of executions which history is cached
+	 */
+	public synchronized int size() {
+		return this.histories.size();
+	}
+
+	/**
+	 * @return the total number of events cached
+	 */
+	public synchronized long cachedEvents() {
+		return this.cachedEvents;
+	}
+}
@@ -1,27 +1,74 @@
 package com.solambda.swiffer.api.internal.decisions;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.stream.Collectors;
 
+import com.amazonaws.services.simpleworkflow.model.EventType;
 import com.amazonaws.services.simpleworkflow.model.HistoryEvent;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.solambda.swiffer.api.internal.events.EventCategory;
 
 public class WorkflowHistoryImpl implements WorkflowHistory {
 
+	private static final Comparator<HistoryEvent> MOST_RECENT_FIRST = Comparator
+			.comparing(HistoryEvent::getEventId).reversed();
+
 	private List<WorkflowEvent> events;
+	private volatile WorkflowHistoryIndex index;
 
 	public WorkflowHistoryImpl(final List<HistoryEvent> events) {
 		super();
 		Preconditions.checkArgument(events != null, "events must not be null");
 		Preconditions.checkArgument(events.size() > 0, "event list is empty");
-		this.events = events.stream()
+		this.events = Collections.unmodifiableList(events.stream()
 				.map(e -> new WorkflowEvent(e, this))
 				.sorted()
-				.collect(Collectors.toList());
+				.collect(Collectors.toList()));
 		Long oldestEventId = this.events.get(events.size() - 1).id();
 		Preconditions.checkState(oldestEventId == 1L, "history is not complete ! the oldest event is " + oldestEventId + " but should be 1");
 	}
 
+	/**
+	 * Create the history made of the events of a previous history followed by
+	 * new events.
+	 * <p>
+	 * The SWF events of the previous history are reused, in new
+	 * {@link WorkflowEvent}s of this history: the previous history is not
+	 * modified, nor retained by the events of this one.
+	 *
+	 * @param newEvents
+	 *            the events that occured after the most recent event of the
+	 *            previous history
+	 * @param previous
+	 *            a complete history
+	 */
+	public WorkflowHistoryImpl(final List<HistoryEvent> newEvents, final WorkflowHistoryImpl previous) {
+		super();
+		Preconditions.checkArgument(newEvents != null, "events must not be null");
+		Preconditions.checkArgument(previous != null, "previous history must not be null");
+		final List<HistoryEvent> sortedNewEvents = newEvents.stream()
+				.sorted(MOST_RECENT_FIRST)
+				.collect(Collectors.toList());
+		if (!sortedNewEvents.isEmpty()) {
+			final Long oldestNewEventId = sortedNewEvents.get(sortedNewEvents.size() - 1).getEventId();
+			Preconditions.checkState(oldestNewEventId == previous.newestEventId() + 1,
+					"history is not complete ! the oldest new event is " + oldestNewEventId + " but should be "
+							+ (previous.newestEventId() + 1));
+		}
+		final List<WorkflowEvent> events = new ArrayList<>(sortedNewEvents.size() + previous.size());
+		for (final HistoryEvent event : sortedNewEvents) {
+			events.add(new WorkflowEvent(event, this));
+		}
+		for (final WorkflowEvent event : previous.events) {
+			events.add(new WorkflowEvent(event.historyEvent(), this));
+		}
+		this.events = Collections.unmodifiableList(events);
+	}
+
 	@Override
 	public List<WorkflowEvent> events() {
 		return events;
@@ -33,4 +80,73 @@ public class WorkflowHistoryImpl implements WorkflowHistory {
 		int eventIdToIndex = events.size() - id.intValue();
 		return eventIdToIndex >= 0 && eventIdToIndex < events.size() ? events.get(eventIdToIndex) : null;
 	}
+
+	@Override
+	public List<WorkflowEvent> eventsAfter(final Long eventId) {
+		final int count = (int) Math.max(0, Math.min(events.size(), events.size() - eventId));
+		return events.subList(0, count);
+	}
+
+	@Override
+	public WorkflowEvent getLatestMarker(final String markerName) {
+		return index().getLatestMarker(markerName);
+	}
+
+	@Override
+	public List<WorkflowEvent> getTimerEvents(final String timerId) {
+		return index().getTimerEvents(timerId);
+	}
+
+	@Override
+	public List<WorkflowEvent> getActivityEvents(final String activityId) {
+		return index().getActivityEvents(activityId);
+	}
+
+	@Override
+	public List<WorkflowEvent> getActivityEventsByScheduledEventId(final Long scheduledEventId) {
+		return index().getActivityEventsByScheduledEventId(scheduledEventId);
+	}
+
+	@Override
+	public List<WorkflowEvent> getEvents(final EventType type) {
+		return index().getEvents(type);
+	}
+
+	@Override
+	public List<WorkflowEvent> getEvents(final EventCategory category) {
+		return index().getEvents(category);
+	}
+
+	/**
+	 * @return the indexes of the events, built on first use
+	 */
+	private WorkflowHistoryIndex index() {
+		WorkflowHistoryIndex index = this.index;
+		if (index == null) {
+			index = new WorkflowHistoryIndex(events);
+			this.index = index;
+		}
+		return index;
+	}
+
+	/**
+	 * @return a view of the SWF events of this history, most recent first
+	 */
+	List<HistoryEvent> historyEvents() {
+		return Lists.transform(events, WorkflowEvent::historyEvent);
+	}
+
+	/**
+	 * @return the id of the most recent event
+	 */
+	long newestEventId() {
+		return events.size();
+	}
+
+	/**
+	 * @return the number of events of this history
+	 */
+	int size() {
+		return events.size();
+	}
 }
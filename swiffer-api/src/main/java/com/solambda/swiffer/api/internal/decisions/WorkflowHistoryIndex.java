@@ -0,0 +1,118 @@
+package com.solambda.swiffer.api.internal.decisions;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.amazonaws.services.simpleworkflow.model.EventType;
+import com.solambda.swiffer.api.internal.events.EventCategory;
+
+/**
+ * Secondary indexes of the events of a complete {@link WorkflowHistory}, built
+ * in a single pass over the events.
+ * <p>
+ * All the lists of events are sorted by descending {@link WorkflowEvent#id()}s
+ * (most-recent first).
+ */
+class WorkflowHistoryIndex {
+
+	private final WorkflowEvent[] eventsById;
+	private final Map<String, WorkflowEvent> latestMarkers = new HashMap<>();
+	private final Map<String, List<WorkflowEvent>> timers = new HashMap<>();
+	private final Set<String> startedTimers = new HashSet<>();
+	private final Map<String, List<WorkflowEvent>> activitiesById = new HashMap<>();
+	private final Map<Long, List<WorkflowEvent>> activitiesByScheduledEventId = new HashMap<>();
+	private final Map<EventType, List<WorkflowEvent>> eventsByType = new EnumMap<>(EventType.class);
+	private final Map<EventCategory, List<WorkflowEvent>> eventsByCategory = new EnumMap<>(EventCategory.class);
+
+	/**
+	 * @param events
+	 *            the events of the history, most recent first
+	 */
+	WorkflowHistoryIndex(final List<WorkflowEvent> events) {
+		this.eventsById = new WorkflowEvent[events.isEmpty() ? 1 : events.get(0).id().intValue() + 1];
+		for (final WorkflowEvent event : events) {
+			this.eventsById[event.id().intValue()] = event;
+		}
+		for (final WorkflowEvent event : events) {
+			index(event);
+		}
+	}
+
+	private void index(final WorkflowEvent event) {
+		final EventType type = event.type();
+		final EventCategory category = event.category();
+		add(this.eventsByType, type, event);
+		add(this.eventsByCategory, category, event);
+		switch (category) {
+		case MARKER:
+			if (type == EventType.MarkerRecorded) {
+				this.latestMarkers.putIfAbsent(event.markerName(), event);
+			}
+			break;
+		case TIMER:
+			// only the most recent timer of a reused timer id
+			if (!this.startedTimers.contains(event.timerId())) {
+				add(this.timers, event.timerId(), event);
+				if (type == EventType.TimerStarted || type == EventType.StartTimerFailed) {
+					this.startedTimers.add(event.timerId());
+				}
+			}
+			break;
+		case ACTIVITY:
+			final Long scheduledEventId = event.initialEventId();
+			add(this.activitiesByScheduledEventId, scheduledEventId, event);
+			final WorkflowEvent scheduledEvent = getEventById(scheduledEventId);
+			final String activityId = scheduledEvent == null ? null : scheduledEvent.activityId();
+			if (activityId != null) {
+				add(this.activitiesById, activityId, event);
+			}
+			break;
+		default:
+			break;
+		}
+	}
+
+	private static <K> void add(final Map<K, List<WorkflowEvent>> index, final K key, final WorkflowEvent event) {
+		index.computeIfAbsent(key, k -> new ArrayList<>()).add(event);
+	}
+
+	private static <K> List<WorkflowEvent> get(final Map<K, List<WorkflowEvent>> index, final K key) {
+		final List<WorkflowEvent> events = index.get(key);
+		return events == null ? Collections.emptyList() : Collections.unmodifiableList(events);
+	}
+
+	WorkflowEvent getEventById(final Long eventId) {
+		return eventId != null && eventId > 0 && eventId < this.eventsById.length ? this.eventsById[eventId.intValue()]
+				: null;
+	}
+
+	WorkflowEvent getLatestMarker(final String markerName) {
+		return this.latestMarkers.get(markerName);
+	}
+
+	List<WorkflowEvent> getTimerEvents(final String timerId) {
+		return get(this.timers, timerId);
+	}
+
+	List<WorkflowEvent> getActivityEvents(final String activityId) {
+		return get(this.activitiesById, activityId);
+	}
+
+	List<WorkflowEvent> getActivityEventsByScheduledEventId(final Long scheduledEventId) {
+		return get(this.activitiesByScheduledEventId, scheduledEventId);
+	}
+
+	List<WorkflowEvent> getEvents(final EventType type) {
+		return get(this.eventsByType, type);
+	}
+
+	List<WorkflowEvent> getEvents(final EventCategory category) {
+		return get(this.eventsByCategory, category);
+	}
+}
@@ -0,0 +1,94 @@
+package com.solambda.swiffer.api.internal.decisions;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Pool of threads executing decision tasks, where all the tasks of a given
+ * workflow execution are executed sequentially, in submission order.
+ * <p>
+ * The pool is made of single-threaded stripes: a task is always executed by
+ * the stripe selected from its workflow id, so that tasks of different
+ * workflows run in parallel while tasks of the same workflow never do.
+ * <p>
+ * The queues of the stripes are not bounded: the callers bound the number of
+ * submitted tasks, as {@link DeciderImpl} does by polling no more tasks than
+ * there are threads. A task may wait behind the tasks of its stripe while
+ * another stripe is idle.
+ */
+public class WorkflowOrderedExecutor {
+
+	private final List<ExecutorService> stripes;
+
+	/**
+	 * @param threads
+	 *            number of threads of the pool, greater than 0
+	 */
+	public WorkflowOrderedExecutor(final int threads) {
+		this(threads, new ThreadFactoryBuilder().setNameFormat("decision-executor-%d").build());
+	}
+
+	/**
+	 * @param threads
+	 *            number of threads of the pool, greater than 0
+	 * @param threadFactory
+	 *            factory of the threads of the pool
+	 */
+	public WorkflowOrderedExecutor(final int threads, final ThreadFactory threadFactory) {
+		Preconditions.checkArgument(threads > 0, "the number of decision threads should be greater than 0");
+		this.stripes = new ArrayList<>(threads);
+		for (int i = 0; i < threads; i++) {
+			this.stripes.add(Executors.newSingleThreadExecutor(threadFactory));
+		}
+	}
+
+	/**
+	 * Submit a task for execution after all the previously submitted tasks of
+	 * the same workflow.
+	 *
+	 * @param workflowId
+	 *            the id of the workflow the task belongs to
+	 * @param task
+	 *            the task to execute
+	 */
+	public void execute(final String workflowId, final Runnable task) {
+		stripeOf(workflowId).execute(task);
+	}
+
+	private ExecutorService stripeOf(final String workflowId) {
+		final int hash = workflowId == null ? 0 : workflowId.hashCode();
+		return this.stripes.get(Math.floorMod(hash, this.stripes.size()));
+	}
+
+	/**
+	 * Do not accept new tasks, and wait for the submitted ones to finish.
+	 *
+	 * @param timeout
+	 *            maximum time to wait
+	 * @param unit
+	 *            unit of the timeout
+	 * @return true if all the tasks have been executed, false if the timeout
+	 *         elapsed before
+	 * @throws InterruptedException
+	 *             if interrupted while waiting
+	 */
+	public boolean shutdownAndAwaitTermination(final long timeout, final TimeUnit unit) throws InterruptedException {
+		for (final ExecutorService stripe : this.stripes) {
+			stripe.shutdown();
+		}
+		final long deadline = System.nanoTime() + unit.toNanos(timeout);
+		for (final ExecutorService stripe : this.stripes) {
+			if (!stripe.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -19,11 +19,22 @@ public class WorkflowTemplateFactory {
 	private final DataMapper dataMapper;
 	private final DurationTransformer durationTransformer;
 	private final RetryPolicy globalRetryPolicy;
+	private final EventHandlerProfiler profiler;
 
 	public WorkflowTemplateFactory(DataMapper dataMapper, DurationTransformer durationTransformer, RetryPolicy globalRetryPolicy) {
+		this(dataMapper, durationTransformer, globalRetryPolicy, null);
+	}
+
+	/**
+	 * @param profiler
+	 *            optional profiler of the event handlers of the templates
+	 */
+	public WorkflowTemplateFactory(DataMapper dataMapper, DurationTransformer durationTransformer, RetryPolicy globalRetryPolicy,
+			final EventHandlerProfiler profiler) {
 		this.dataMapper = dataMapper;
 		this.durationTransformer = durationTransformer;
         this.globalRetryPolicy = globalRetryPolicy;
+		this.profiler = profiler;
 	}
 
 	/**
@@ -37,7 +48,8 @@ public class WorkflowTemplateFactory {
 	public WorkflowTemplate createWorkflowTemplate(final Object template) {
 		final VersionedName workflowType = createWorkflowType(template);
 		LOGGER.debug("WorkflowType found: name={}, version={}", workflowType.name(), workflowType.version());
-		final EventHandlerRegistryFactory builder = new EventHandlerRegistryFactory(workflowType, dataMapper, globalRetryPolicy);
+		final EventHandlerRegistryFactory builder = new EventHandlerRegistryFactory(workflowType, dataMapper, globalRetryPolicy,
+				profiler);
 		final EventHandlerRegistry eventHandlerRegistry = builder.build(template);
 
 		return new WorkflowTemplateImpl(workflowType, eventHandlerRegistry, dataMapper, durationTransformer, globalRetryPolicy);
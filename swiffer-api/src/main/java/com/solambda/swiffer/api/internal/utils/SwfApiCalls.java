@@ -0,0 +1,64 @@
+package com.solambda.swiffer.api.internal.utils;
+
+import java.lang.reflect.Method;
+import java.util.function.Consumer;
+
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.handlers.AsyncHandler;
+
+/**
+ * The calls to SWF made through the methods of a SWF client, for the proxies
+ * wrapping the clients.
+ */
+public final class SwfApiCalls {
+
+	private SwfApiCalls() {
+	}
+
+	/**
+	 * @return the name of the SWF API called by a method of the client, e.g.
+	 *         PollForActivityTask for pollForActivityTaskAsync, or null if the
+	 *         method does not take a SWF request
+	 */
+	public static String apiName(final Method method) {
+		if (method.getParameterCount() == 0 || !isRequest(method.getParameterTypes()[0])) {
+			return null;
+		}
+		String name = method.getName();
+		if (name.endsWith("Async")) {
+			name = name.substring(0, name.length() - "Async".length());
+		}
+		return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+	}
+
+	private static boolean isRequest(final Class<?> parameterType) {
+		return AmazonWebServiceRequest.class.isAssignableFrom(parameterType)
+				&& parameterType != AmazonWebServiceRequest.class;
+	}
+
+	/**
+	 * Wrap the completion callback of an asynchronous call, to observe its
+	 * failure.
+	 *
+	 * @param handler
+	 *            the callback given to the client
+	 * @param onError
+	 *            notified of the failure, before the callback
+	 * @return the callback to give to the client instead
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	public static AsyncHandler<?, ?> observing(final AsyncHandler handler, final Consumer<Exception> onError) {
+		return new AsyncHandler<AmazonWebServiceRequest, Object>() {
+			@Override
+			public void onError(final Exception exception) {
+				onError.accept(exception);
+				handler.onError(exception);
+			}
+
+			@Override
+			public void onSuccess(final AmazonWebServiceRequest request, final Object result) {
+				handler.onSuccess(request, result);
+			}
+		};
+	}
+}
@@ -0,0 +1,15 @@
+package com.solambda.swiffer.api.metrics;
+
+/**
+ * How the execution of an activity task ended.
+ */
+public enum ActivityOutcome {
+	COMPLETED,
+	FAILED,
+	CANCELED,
+	/**
+	 * Neither executed nor reported, because its activity type was at its
+	 * limit: the task times out and is rescheduled by its workflow
+	 */
+	ABANDONED
+}
@@ -0,0 +1,25 @@
+package com.solambda.swiffer.api.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A striped counter, cheap to increment from many threads.
+ */
+public final class Counter implements CounterMBean {
+
+	private final LongAdder count = new LongAdder();
+
+	public void increment() {
+		this.count.increment();
+	}
+
+	@Override
+	public long getCount() {
+		return this.count.sum();
+	}
+
+	@Override
+	public String toString() {
+		return Long.toString(getCount());
+	}
+}
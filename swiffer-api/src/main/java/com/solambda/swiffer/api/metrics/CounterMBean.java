@@ -0,0 +1,9 @@
+package com.solambda.swiffer.api.metrics;
+
+/**
+ * The JMX view of a {@link Counter}.
+ */
+public interface CounterMBean {
+
+	long getCount();
+}
@@ -0,0 +1,276 @@
+package com.solambda.swiffer.api.metrics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Aggregate the measures in {@link Counter}s and {@link Histogram}s, grouped
+ * by task list, workflow type, activity type or SWF API.
+ * <p>
+ * Recording a measure is lock-free and allocates nothing once the metric of
+ * its tag exists. The metrics can be read directly, or exported with a
+ * {@link JmxMetricsExporter}.
+ */
+public class DefaultSwifferMetrics implements SwifferMetrics {
+
+	private final MetricGroup<Histogram> decisionPollLatency = histograms("decision.poll", "taskList");
+	private final MetricGroup<Counter> decisionEmptyPolls = counters("decision.emptyPolls", "taskList");
+	private final MetricGroup<Histogram> decisionQueueWait = histograms("decision.queue", "workflowType");
+	private final MetricGroup<Histogram> decisionComputeTime = histograms("decision.compute", "workflowType");
+	private final MetricGroup<Counter> emittedDecisions = counters("decision.emitted", "decisionType");
+	private final MetricGroup<Counter> historyCache = counters("decision.historyCache", "result");
+	private final MetricGroup<Histogram> handlerArgumentsTime = histograms("decision.handler.arguments", "handler");
+	private final MetricGroup<Histogram> handlerTime = histograms("decision.handler", "handler");
+	private final MetricGroup<Histogram> activityPollLatency = histograms("activity.poll", "taskList");
+	private final MetricGroup<Counter> activityEmptyPolls = counters("activity.emptyPolls", "taskList");
+	private final MetricGroup<Histogram> activityQueueWait = histograms("activity.queue", "activityType");
+	private final MetricGroup<Histogram> activityExecutionTime = histograms("activity.execution", "activityType");
+	private final Map<ActivityOutcome, MetricGroup<Counter>> activityOutcomes = new EnumMap<>(ActivityOutcome.class);
+	private final MetricGroup<Histogram> respondLatency = histograms("respond", "api");
+	private final MetricGroup<Counter> apiErrors = counters("api.errors", "api");
+	private final MetricGroup<Counter> apiThrottles = counters("api.throttles", "api");
+
+	public DefaultSwifferMetrics() {
+		for (final ActivityOutcome outcome : ActivityOutcome.values()) {
+			this.activityOutcomes.put(outcome,
+					counters("activity." + outcome.name().toLowerCase(), "activityType"));
+		}
+	}
+
+	private static MetricGroup<Histogram> histograms(final String name, final String tag) {
+		return new MetricGroup<>(name, tag, Histogram::new);
+	}
+
+	private static MetricGroup<Counter> counters(final String name, final String tag) {
+		return new MetricGroup<>(name, tag, Counter::new);
+	}
+
+	@Override
+	public void decisionTaskPolled(final String taskList, final long nanos, final boolean empty) {
+		this.decisionPollLatency.get(taskList).record(nanos);
+		if (empty) {
+			this.decisionEmptyPolls.get(taskList).increment();
+		}
+	}
+
+	@Override
+	public void decisionTaskStarted(final String workflowType, final long queueNanos) {
+		this.decisionQueueWait.get(workflowType).record(queueNanos);
+	}
+
+	@Override
+	public void decisionTaskDecided(final String workflowType, final long nanos) {
+		this.decisionComputeTime.get(workflowType).record(nanos);
+	}
+
+	@Override
+	public void decisionEmitted(final String decisionType) {
+		this.emittedDecisions.get(decisionType).increment();
+	}
+
+	@Override
+	public void historyCacheAccessed(final boolean hit) {
+		this.historyCache.get(hit ? "hit" : "miss").increment();
+	}
+
+	@Override
+	public void historyCacheEvicted() {
+		this.historyCache.get("eviction").increment();
+	}
+
+	@Override
+	public void eventHandled(final String handler, final long argumentsNanos, final long handlingNanos) {
+		this.handlerArgumentsTime.get(handler).record(argumentsNanos);
+		this.handlerTime.get(handler).record(handlingNanos);
+	}
+
+	@Override
+	public void activityTaskPolled(final String taskList, final long nanos, final boolean empty) {
+		this.activityPollLatency.get(taskList).record(nanos);
+		if (empty) {
+			this.activityEmptyPolls.get(taskList).increment();
+		}
+	}
+
+	@Override
+	public void activityTaskStarted(final String activityType, final long queueNanos) {
+		this.activityQueueWait.get(activityType).record(queueNanos);
+	}
+
+	@Override
+	public void activityTaskExecuted(final String activityType, final long nanos, final ActivityOutcome outcome) {
+		this.activityExecutionTime.get(activityType).record(nanos);
+		this.activityOutcomes.get(outcome).get(activityType).increment();
+	}
+
+	@Override
+	public void responded(final String api, final long nanos) {
+		this.respondLatency.get(api).record(nanos);
+	}
+
+	@Override
+	public void apiFailed(final String api, final boolean throttled) {
+		this.apiErrors.get(api).increment();
+		if (throttled) {
+			this.apiThrottles.get(api).increment();
+		}
+	}
+
+	/**
+	 * @return the latencies of the decision polls, by task list
+	 */
+	public MetricGroup<Histogram> decisionPollLatency() {
+		return this.decisionPollLatency;
+	}
+
+	/**
+	 * @return the number of decision polls returning no task, by task list
+	 */
+	public MetricGroup<Counter> decisionEmptyPolls() {
+		return this.decisionEmptyPolls;
+	}
+
+	/**
+	 * @return the time the decision tasks waited for a decision thread, by
+	 *         workflow type
+	 */
+	public MetricGroup<Histogram> decisionQueueWait() {
+		return this.decisionQueueWait;
+	}
+
+	/**
+	 * @return the time the workflow templates took to decide, by workflow
+	 *         type
+	 */
+	public MetricGroup<Histogram> decisionComputeTime() {
+		return this.decisionComputeTime;
+	}
+
+	/**
+	 * @return the number of decisions sent, by decision type
+	 */
+	public MetricGroup<Counter> emittedDecisions() {
+		return this.emittedDecisions;
+	}
+
+	/**
+	 * @return the number of hits, misses and evictions of the history cache,
+	 *         by result: hit, miss or eviction
+	 */
+	public MetricGroup<Counter> historyCache() {
+		return this.historyCache;
+	}
+
+	/**
+	 * @return the time spent resolving the arguments of the event handlers,
+	 *         by workflow type and handler method
+	 */
+	public MetricGroup<Histogram> handlerArgumentsTime() {
+		return this.handlerArgumentsTime;
+	}
+
+	/**
+	 * @return the time spent in the event handlers, by workflow type and
+	 *         handler method
+	 */
+	public MetricGroup<Histogram> handlerTime() {
+		return this.handlerTime;
+	}
+
+	/**
+	 * @return the latencies of the activity polls, by task list
+	 */
+	public MetricGroup<Histogram> activityPollLatency() {
+		return this.activityPollLatency;
+	}
+
+	/**
+	 * @return the number of activity polls returning no task, by task list
+	 */
+	public MetricGroup<Counter> activityEmptyPolls() {
+		return this.activityEmptyPolls;
+	}
+
+	/**
+	 * @return the time the polled activity tasks waited before their
+	 *         execution, by activity type
+	 */
+	public MetricGroup<Histogram> activityQueueWait() {
+		return this.activityQueueWait;
+	}
+
+	/**
+	 * @return the execution times of the activity tasks, by activity type
+	 */
+	public MetricGroup<Histogram> activityExecutionTime() {
+		return this.activityExecutionTime;
+	}
+
+	/**
+	 * @return the number of activity tasks ended with the outcome, by
+	 *         activity type
+	 */
+	public MetricGroup<Counter> activityOutcomes(final ActivityOutcome outcome) {
+		return this.activityOutcomes.get(outcome);
+	}
+
+	/**
+	 * @return the latencies of the task responses, by SWF API
+	 */
+	public MetricGroup<Histogram> respondLatency() {
+		return this.respondLatency;
+	}
+
+	/**
+	 * @return the number of failed calls to SWF, by SWF API
+	 */
+	public MetricGroup<Counter> apiErrors() {
+		return this.apiErrors;
+	}
+
+	/**
+	 * @return the number of calls to SWF rejected by its throttling, by SWF
+	 *         API
+	 */
+	public MetricGroup<Counter> apiThrottles() {
+		return this.apiThrottles;
+	}
+
+	/**
+	 * @return all the histogram groups
+	 */
+	public List<MetricGroup<Histogram>> histograms() {
+		return Collections.unmodifiableList(Arrays.asList(this.decisionPollLatency, this.decisionQueueWait,
+				this.decisionComputeTime, this.handlerArgumentsTime, this.handlerTime, this.activityPollLatency,
+				this.activityQueueWait, this.activityExecutionTime, this.respondLatency));
+	}
+
+	/**
+	 * @return all the counter groups
+	 */
+	public List<MetricGroup<Counter>> counters() {
+		final List<MetricGroup<Counter>> counters = new ArrayList<>(Arrays.asList(this.decisionEmptyPolls,
+				this.emittedDecisions, this.historyCache, this.activityEmptyPolls, this.apiErrors,
+				this.apiThrottles));
+		counters.addAll(this.activityOutcomes.values());
+		return Collections.unmodifiableList(counters);
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder builder = new StringBuilder();
+		for (final MetricGroup<Histogram> group : histograms()) {
+			group.all().forEach((tag, histogram) -> builder.append(group.name()).append('[').append(tag)
+					.append("] ").append(histogram).append(System.lineSeparator()));
+		}
+		for (final MetricGroup<Counter> group : counters()) {
+			group.all().forEach((tag, counter) -> builder.append(group.name()).append('[').append(tag)
+					.append("] ").append(counter).append(System.lineSeparator()));
+		}
+		return builder.toString();
+	}
+}
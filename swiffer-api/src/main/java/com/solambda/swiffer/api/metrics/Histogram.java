@@ -0,0 +1,151 @@
+package com.solambda.swiffer.api.metrics;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of durations with fixed buckets, cheap to record from many
+ * threads: recording increments the striped counter of a bucket, without
+ * locking nor allocating.
+ * <p>
+ * The buckets are log-linear: each power of 2 of microseconds is split in 4
+ * buckets, so that the percentiles are estimated within 25% from 1
+ * microsecond to about 2 hours. The longer durations are counted in the last
+ * bucket.
+ */
+public final class Histogram implements HistogramMBean {
+
+	private static final int SUB_BUCKETS = 4;
+	private static final int SUB_BUCKET_BITS = 2;
+	private static final int BUCKETS = SUB_BUCKETS + 31 * SUB_BUCKETS;
+
+	private final LongAdder[] buckets = new LongAdder[BUCKETS];
+	private final LongAdder totalNanos = new LongAdder();
+	private final LongAccumulator maxNanos = new LongAccumulator(Long::max, 0);
+
+	public Histogram() {
+		for (int i = 0; i < BUCKETS; i++) {
+			this.buckets[i] = new LongAdder();
+		}
+	}
+
+	/**
+	 * @param nanos
+	 *            the duration to record, in nanoseconds
+	 */
+	public void record(final long nanos) {
+		final long value = Math.max(nanos, 0);
+		this.buckets[bucket(value / 1000)].increment();
+		this.totalNanos.add(value);
+		this.maxNanos.accumulate(value);
+	}
+
+	static int bucket(final long micros) {
+		if (micros < SUB_BUCKETS) {
+			return (int) micros;
+		}
+		final int exponent = 63 - Long.numberOfLeadingZeros(micros);
+		final int subBucket = (int) (micros >>> exponent - SUB_BUCKET_BITS) & SUB_BUCKETS - 1;
+		return Math.min(SUB_BUCKETS + (exponent - SUB_BUCKET_BITS) * SUB_BUCKETS + subBucket, BUCKETS - 1);
+	}
+
+	/**
+	 * @return the exclusive upper bound of a bucket, in microseconds
+	 */
+	static long upperBound(final int bucket) {
+		if (bucket < SUB_BUCKETS) {
+			return bucket + 1;
+		}
+		final int shift = (bucket - SUB_BUCKETS) / SUB_BUCKETS;
+		final int subBucket = (bucket - SUB_BUCKETS) % SUB_BUCKETS;
+		return (long) (SUB_BUCKETS + subBucket + 1) << shift;
+	}
+
+	/**
+	 * @return the number of recorded durations
+	 */
+	public long count() {
+		long count = 0;
+		for (final LongAdder bucket : this.buckets) {
+			count += bucket.sum();
+		}
+		return count;
+	}
+
+	/**
+	 * @return the sum of the recorded durations
+	 */
+	public Duration total() {
+		return Duration.ofNanos(this.totalNanos.sum());
+	}
+
+	public Duration mean() {
+		final long count = count();
+		return count == 0 ? Duration.ZERO : Duration.ofNanos(this.totalNanos.sum() / count);
+	}
+
+	public Duration max() {
+		return Duration.ofNanos(this.maxNanos.get());
+	}
+
+	/**
+	 * @param percentile
+	 *            the percentile, between 0 exclusive and 100 inclusive
+	 * @return the upper bound of the bucket of the percentile, at most the max
+	 *         duration; zero if no duration is recorded
+	 */
+	public Duration percentile(final double percentile) {
+		final long[] counts = new long[BUCKETS];
+		long count = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			counts[i] = this.buckets[i].sum();
+			count += counts[i];
+		}
+		if (count == 0) {
+			return Duration.ZERO;
+		}
+		final long rank = Math.max((long) Math.ceil(percentile / 100 * count), 1);
+		long cumulated = 0;
+		int bucket = 0;
+		while (bucket < BUCKETS - 1 && (cumulated += counts[bucket]) < rank) {
+			bucket++;
+		}
+		return Duration.ofNanos(Math.min(upperBound(bucket) * 1000, this.maxNanos.get()));
+	}
+
+	@Override
+	public long getCount() {
+		return count();
+	}
+
+	@Override
+	public double getMeanMillis() {
+		return millis(mean());
+	}
+
+	@Override
+	public double getP50Millis() {
+		return millis(percentile(50));
+	}
+
+	@Override
+	public double getP99Millis() {
+		return millis(percentile(99));
+	}
+
+	@Override
+	public double getMaxMillis() {
+		return millis(max());
+	}
+
+	private static double millis(final Duration duration) {
+		return duration.toNanos() / 1_000_000d;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("count=%d mean=%.3fms p50=%.3fms p99=%.3fms max=%.3fms", count(), getMeanMillis(),
+				getP50Millis(), getP99Millis(), getMaxMillis());
+	}
+}
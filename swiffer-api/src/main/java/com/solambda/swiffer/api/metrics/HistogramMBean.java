@@ -0,0 +1,17 @@
+package com.solambda.swiffer.api.metrics;
+
+/**
+ * The JMX view of a {@link Histogram}, in milliseconds.
+ */
+public interface HistogramMBean {
+
+	long getCount();
+
+	double getMeanMillis();
+
+	double getP50Millis();
+
+	double getP99Millis();
+
+	double getMaxMillis();
+}
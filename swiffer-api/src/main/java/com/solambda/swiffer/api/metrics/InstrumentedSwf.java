@@ -0,0 +1,84 @@
+package com.solambda.swiffer.api.metrics;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.handlers.AsyncHandler;
+import com.amazonaws.retry.RetryUtils;
+import com.amazonaws.services.simpleworkflow.AmazonSimpleWorkflow;
+import com.amazonaws.services.simpleworkflow.AmazonSimpleWorkflowAsync;
+import com.google.common.base.Preconditions;
+import com.solambda.swiffer.api.internal.utils.SwfApiCalls;
+
+/**
+ * Wrap a SWF client to report its failed calls to a {@link SwifferMetrics},
+ * distinguishing the calls rejected by the throttling of SWF.
+ * <p>
+ * The failures of the asynchronous calls are reported when they are given a
+ * completion callback.
+ */
+public final class InstrumentedSwf implements InvocationHandler {
+
+	private final AmazonSimpleWorkflow swf;
+	private final SwifferMetrics metrics;
+	private final Map<Method, String> apis = new ConcurrentHashMap<>();
+
+	private InstrumentedSwf(final AmazonSimpleWorkflow swf, final SwifferMetrics metrics) {
+		this.swf = swf;
+		this.metrics = metrics;
+	}
+
+	/**
+	 * @param swf
+	 *            the client to wrap
+	 * @param metrics
+	 *            the metrics receiving the failures
+	 * @return a client reporting the failures of the given one, an
+	 *         {@link AmazonSimpleWorkflowAsync} if the given one is
+	 */
+	public static AmazonSimpleWorkflow instrument(final AmazonSimpleWorkflow swf, final SwifferMetrics metrics) {
+		Preconditions.checkNotNull(swf, "SWF client must be specified!");
+		Preconditions.checkNotNull(metrics, "metrics must be specified");
+		final Class<?> type = swf instanceof AmazonSimpleWorkflowAsync ? AmazonSimpleWorkflowAsync.class
+				: AmazonSimpleWorkflow.class;
+		return (AmazonSimpleWorkflow) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type },
+				new InstrumentedSwf(swf, metrics));
+	}
+
+	@Override
+	public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+		final String api = api(method);
+		if (api != null) {
+			final int last = args.length - 1;
+			if (args[last] instanceof AsyncHandler) {
+				args[last] = SwfApiCalls.observing((AsyncHandler<?, ?>) args[last], e -> failed(api, e));
+			}
+		}
+		try {
+			return method.invoke(this.swf, args);
+		} catch (final InvocationTargetException e) {
+			if (api != null) {
+				failed(api, e.getCause());
+			}
+			throw e.getCause();
+		}
+	}
+
+	private void failed(final String api, final Throwable e) {
+		this.metrics.apiFailed(api, e instanceof AmazonServiceException
+				&& RetryUtils.isThrottlingException((AmazonServiceException) e));
+	}
+
+	/**
+	 * @return the SWF API called by a method of the client, or null if the
+	 *         method is not an API call
+	 */
+	private String api(final Method method) {
+		return this.apis.computeIfAbsent(method, SwfApiCalls::apiName);
+	}
+}
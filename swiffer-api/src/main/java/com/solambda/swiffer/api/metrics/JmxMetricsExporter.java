@@ -0,0 +1,117 @@
+package com.solambda.swiffer.api.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Register the metrics of a {@link DefaultSwifferMetrics} as MBeans, including
+ * the metrics created after the start of the export.
+ * <p>
+ * Each metric is named
+ * {@code <domain>:type=<group name>,<group tag>="<tag value>"}, e.g.
+ * {@code com.solambda.swiffer:type=decision.compute,workflowType="Order:1"}.
+ */
+public class JmxMetricsExporter implements AutoCloseable {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(JmxMetricsExporter.class);
+
+	/**
+	 * The default domain of the MBeans.
+	 */
+	public static final String DEFAULT_DOMAIN = "com.solambda.swiffer";
+
+	private final DefaultSwifferMetrics metrics;
+	private final MBeanServer server;
+	private final String domain;
+	private final Set<ObjectName> registered = ConcurrentHashMap.newKeySet();
+	private final List<Runnable> unsubscriptions = new ArrayList<>();
+
+	/**
+	 * Export to the platform MBean server, in the default domain.
+	 */
+	public JmxMetricsExporter(final DefaultSwifferMetrics metrics) {
+		this(metrics, ManagementFactory.getPlatformMBeanServer(), DEFAULT_DOMAIN);
+	}
+
+	/**
+	 * @param domain
+	 *            the domain of the MBeans, distinct for each exported
+	 *            {@link DefaultSwifferMetrics} of a same server
+	 */
+	public JmxMetricsExporter(final DefaultSwifferMetrics metrics, final MBeanServer server, final String domain) {
+		this.metrics = Preconditions.checkNotNull(metrics, "metrics must be specified");
+		this.server = Preconditions.checkNotNull(server, "MBean server must be specified");
+		this.domain = Preconditions.checkNotNull(domain, "domain must be specified");
+	}
+
+	/**
+	 * Register the existing metrics, and the new ones as they are created.
+	 *
+	 * @return this exporter
+	 */
+	public synchronized JmxMetricsExporter start() {
+		Preconditions.checkState(this.unsubscriptions.isEmpty(), "the exporter is already started");
+		this.metrics.histograms().forEach(this::export);
+		this.metrics.counters().forEach(this::export);
+		return this;
+	}
+
+	private <M> void export(final MetricGroup<M> group) {
+		final BiConsumer<String, M> listener = (tag, metric) -> register(group, tag, metric);
+		group.addListener(listener);
+		this.unsubscriptions.add(() -> group.removeListener(listener));
+		group.all().forEach(listener);
+	}
+
+	private void register(final MetricGroup<?> group, final String tag, final Object metric) {
+		try {
+			final ObjectName name = objectName(group, tag);
+			this.server.registerMBean(metric, name);
+			this.registered.add(name);
+		} catch (final InstanceAlreadyExistsException e) {
+			// registered by the listener and by the initial export
+			LOGGER.debug("MBean of {} {} already registered", group.name(), tag);
+		} catch (final JMException e) {
+			LOGGER.warn("Cannot register the MBean of {} {}", group.name(), tag, e);
+		}
+	}
+
+	ObjectName objectName(final MetricGroup<?> group, final String tag) throws MalformedObjectNameException {
+		return new ObjectName(this.domain + ":type=" + group.name() + "," + group.tag() + "=" + ObjectName.quote(tag));
+	}
+
+	/**
+	 * Unregister the metrics, and stop registering the new ones.
+	 */
+	@Override
+	public synchronized void close() {
+		this.unsubscriptions.forEach(Runnable::run);
+		this.unsubscriptions.clear();
+		for (final ObjectName name : this.registered) {
+			try {
+				this.server.unregisterMBean(name);
+			} catch (final InstanceNotFoundException e) {
+				// already unregistered
+			} catch (final JMException e) {
+				LOGGER.warn("Cannot unregister the MBean {}", name, e);
+			}
+		}
+		this.registered.clear();
+	}
+}
@@ -0,0 +1,91 @@
+package com.solambda.swiffer.api.metrics;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * The metrics of a same measure, one per value of a tag, e.g. the poll
+ * latencies by task list. The metric of a tag value is created on its first
+ * use.
+ *
+ * @param <M>
+ *            the type of metric, {@link Counter} or {@link Histogram}
+ */
+public final class MetricGroup<M> {
+
+	private final String name;
+	private final String tag;
+	private final Supplier<M> factory;
+	private final ConcurrentMap<String, M> metrics = new ConcurrentHashMap<>();
+	private final List<BiConsumer<String, M>> listeners = new CopyOnWriteArrayList<>();
+
+	MetricGroup(final String name, final String tag, final Supplier<M> factory) {
+		this.name = name;
+		this.tag = tag;
+		this.factory = factory;
+	}
+
+	/**
+	 * @return the name of the measure, e.g. decision.poll
+	 */
+	public String name() {
+		return this.name;
+	}
+
+	/**
+	 * @return the name of the tag distinguishing the metrics, e.g. taskList
+	 */
+	public String tag() {
+		return this.tag;
+	}
+
+	/**
+	 * @return the metric of the tag value, created if missing. The null value
+	 *         is named "none".
+	 */
+	public M get(final String tagValue) {
+		final String value = tagValue == null ? "none" : tagValue;
+		final M metric = this.metrics.get(value);
+		if (metric != null) {
+			return metric;
+		}
+		final M created = this.factory.get();
+		final M existing = this.metrics.putIfAbsent(value, created);
+		if (existing != null) {
+			return existing;
+		}
+		for (final BiConsumer<String, M> listener : this.listeners) {
+			listener.accept(value, created);
+		}
+		return created;
+	}
+
+	/**
+	 * @return the metrics created so far, by tag value
+	 */
+	public Map<String, M> all() {
+		return Collections.unmodifiableMap(this.metrics);
+	}
+
+	/**
+	 * Notify a listener of the metrics created from now on.
+	 */
+	void addListener(final BiConsumer<String, M> listener) {
+		this.listeners.add(listener);
+	}
+
+	void removeListener(final BiConsumer<String, M> listener) {
+		this.listeners.remove(listener);
+	}
+
+	@Override
+	public String toString() {
+		return this.name + this.metrics;
+	}
+}
@@ -0,0 +1,133 @@
+package com.solambda.swiffer.api.metrics;
+
+import com.solambda.swiffer.api.DeciderBuilder;
+import com.solambda.swiffer.api.Swiffer;
+import com.solambda.swiffer.api.WorkerBuilder;
+
+/**
+ * Receive the runtime measures of the deciders, workers and SWF calls.
+ * <p>
+ * An implementation is installed on {@link Swiffer}, for all the deciders,
+ * workers and calls to SWF, or on a {@link DeciderBuilder} or
+ * {@link WorkerBuilder}. Its methods are called by the polling, decision and
+ * activity threads: they must be thread safe and must not block.
+ * {@link DefaultSwifferMetrics} aggregates them in counters and histograms.
+ * <p>
+ * The durations are in nanoseconds, the workflow and activity types are
+ * formatted as {@code name:version}. All the methods do nothing by default.
+ */
+public interface SwifferMetrics {
+
+	/**
+	 * The metrics discarding all the measures.
+	 */
+	SwifferMetrics NONE = new SwifferMetrics() {
+	};
+
+	/**
+	 * A poll of a decision task list returned.
+	 *
+	 * @param empty
+	 *            true if no task was returned
+	 */
+	default void decisionTaskPolled(final String taskList, final long nanos, final boolean empty) {
+	}
+
+	/**
+	 * A polled decision task started to be decided, after having waited for a
+	 * decision thread.
+	 */
+	default void decisionTaskStarted(final String workflowType, final long queueNanos) {
+	}
+
+	/**
+	 * The workflow template made the decisions of a decision task.
+	 */
+	default void decisionTaskDecided(final String workflowType, final long nanos) {
+	}
+
+	/**
+	 * A decision is sent to SWF.
+	 *
+	 * @param decisionType
+	 *            the type of the decision, e.g. ScheduleActivityTask
+	 */
+	default void decisionEmitted(final String decisionType) {
+	}
+
+	/**
+	 * The history cache of a decider was looked up for the history of a
+	 * polled decision task.
+	 *
+	 * @param hit
+	 *            true if the history was cached
+	 * @see DeciderBuilder#historyCache(int, long)
+	 */
+	default void historyCacheAccessed(final boolean hit) {
+	}
+
+	/**
+	 * A history was evicted from the history cache of a decider, to respect
+	 * its bounds.
+	 */
+	default void historyCacheEvicted() {
+	}
+
+	/**
+	 * An event handler of a workflow template handled an event, when the
+	 * handlers are profiled.
+	 *
+	 * @param handler
+	 *            the workflow type and the handler method, e.g.
+	 *            {@code Order:1 OrderTemplate.onShipped}
+	 * @param argumentsNanos
+	 *            the time spent resolving the arguments of the method
+	 * @param handlingNanos
+	 *            the time spent in the method itself
+	 * @see DeciderBuilder#profileHandlers(java.time.Duration)
+	 */
+	default void eventHandled(final String handler, final long argumentsNanos, final long handlingNanos) {
+	}
+
+	/**
+	 * A poll of an activity task list returned.
+	 *
+	 * @param empty
+	 *            true if no task was returned
+	 */
+	default void activityTaskPolled(final String taskList, final long nanos, final boolean empty) {
+	}
+
+	/**
+	 * A polled activity task started to be executed, after having waited for
+	 * its rate limiter or its bulkhead.
+	 */
+	default void activityTaskStarted(final String activityType, final long queueNanos) {
+	}
+
+	/**
+	 * The execution of an activity task is over, before its result is sent.
+	 */
+	default void activityTaskExecuted(final String activityType, final long nanos, final ActivityOutcome outcome) {
+	}
+
+	/**
+	 * A task response has been sent to SWF.
+	 *
+	 * @param api
+	 *            the SWF API, e.g. RespondActivityTaskCompleted
+	 */
+	default void responded(final String api, final long nanos) {
+	}
+
+	/**
+	 * A call to SWF failed.
+	 *
+	 * @param api
+	 *            the SWF API, e.g. PollForDecisionTask
+	 * @param throttled
+	 *            true if the call has been rejected by the throttling of SWF
+	 */
+	default void apiFailed(final String api, final boolean throttled) {
+	}
+}
@@ -0,0 +1,21 @@
+package com.solambda.swiffer.api.ratelimit;
+
+/**
+ * Limit the rate of the activity executions of a {@link com.solambda.swiffer.api.Worker}.
+ * <p>
+ * A limiter can be shared by several workers to limit their overall rate.
+ * Implementations should be thread safe, and should not block: the workers
+ * wait by themselves for the time returned by {@link #tryAcquire()}.
+ *
+ * @see TokenBucketRateLimiter
+ */
+public interface RateLimiter {
+
+	/**
+	 * Take a token if one is available, without waiting.
+	 *
+	 * @return 0 if a token has been taken, otherwise the estimated number of
+	 *         nanoseconds before a token is available
+	 */
+	long tryAcquire();
+}
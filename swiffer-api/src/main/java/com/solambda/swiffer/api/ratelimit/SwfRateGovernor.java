@@ -0,0 +1,597 @@
+package com.solambda.swiffer.api.ratelimit;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.amazonaws.AbortedException;
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.handlers.AsyncHandler;
+import com.amazonaws.retry.RetryUtils;
+import com.amazonaws.services.simpleworkflow.AmazonSimpleWorkflow;
+import com.amazonaws.services.simpleworkflow.AmazonSimpleWorkflowAsync;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.solambda.swiffer.api.internal.utils.SwfApiCalls;
+
+/**
+ * Govern the rate of all the calls made to SWF through the clients it wraps:
+ * polls, responses, heartbeats, workflow starts, signals, listings and
+ * registrations.
+ * <p>
+ * Each SWF API has its own token bucket, matching the throttling quota of the
+ * account: the callers wait for a token before calling SWF. When SWF throttles
+ * an API anyway, the governor slows it down, along with the APIs of lower
+ * {@link Priority}, then speeds them up gradually. The task responses are thus
+ * favoured over the workflow starts, themselves favoured over the listings.
+ * <p>
+ * A governor is usually installed once on the
+ * {@link com.solambda.swiffer.api.Swiffer} instance, so that the workers, the
+ * deciders and the workflow operations share the same buckets.
+ */
+public class SwfRateGovernor {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(SwfRateGovernor.class);
+
+	/**
+	 * The slowest rate of an API, as a fraction of its quota.
+	 */
+	private static final double MIN_FACTOR = 1.0 / 32;
+	private static final long MAX_SLEEP_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+	private static final long ONE_SECOND = TimeUnit.SECONDS.toNanos(1);
+	private static final Set<String> NORMAL_APIS = ImmutableSet.of("StartWorkflowExecution",
+			"SignalWorkflowExecution", "RequestCancelWorkflowExecution", "TerminateWorkflowExecution",
+			"GetWorkflowExecutionHistory");
+
+	/**
+	 * The priority of an API, deciding which APIs slow down when SWF throttles
+	 * one of them, and how fast they recover.
+	 */
+	public enum Priority {
+		/**
+		 * The task responses and the heartbeats: delaying them times the
+		 * tasks out.
+		 */
+		HIGH(0.2),
+		/**
+		 * The polls and the workflow operations: starts, signals,
+		 * cancellations, terminations and histories.
+		 */
+		NORMAL(0.1),
+		/**
+		 * The listings, counts, descriptions and registrations.
+		 */
+		LOW(0.05);
+
+		/**
+		 * the fraction of the quota recovered per second
+		 */
+		private final double recovery;
+
+		private Priority(final double recovery) {
+			this.recovery = recovery;
+		}
+	}
+
+	private final Map<String, Quota> quotas;
+	private final Map<String, Priority> priorities;
+	private final boolean adaptive;
+	private final Ticker ticker;
+	private final Map<String, ApiMetrics> apis = new ConcurrentHashMap<>();
+	private final Map<Method, ApiMetrics> methods = new ConcurrentHashMap<>();
+	/**
+	 * Send the asynchronous calls once they get their token, instead of
+	 * blocking their callers
+	 */
+	private volatile ScheduledExecutorService scheduler;
+
+	/**
+	 * Creates a governor with the default quotas.
+	 */
+	public SwfRateGovernor() {
+		this(builder());
+	}
+
+	private SwfRateGovernor(final Builder builder) {
+		super();
+		this.quotas = new HashMap<>(builder.quotas);
+		this.priorities = new HashMap<>(builder.priorities);
+		this.adaptive = builder.adaptive;
+		this.ticker = builder.ticker;
+	}
+
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	/**
+	 * Wrap a client, so that its calls are governed. The asynchronous clients
+	 * stay asynchronous: their calls are sent later when no token is
+	 * available, without blocking the caller.
+	 *
+	 * @param swf
+	 *            the client to wrap
+	 * @return a client calling the given one within the quotas of this
+	 *         governor
+	 */
+	public AmazonSimpleWorkflow govern(final AmazonSimpleWorkflow swf) {
+		Preconditions.checkNotNull(swf, "SWF client must be specified!");
+		final Class<?> type = swf instanceof AmazonSimpleWorkflowAsync ? AmazonSimpleWorkflowAsync.class
+				: AmazonSimpleWorkflow.class;
+		return (AmazonSimpleWorkflow) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type },
+				new GovernedClient(swf));
+	}
+
+	/**
+	 * @return the metrics of the APIs called so far, by API name
+	 */
+	public Map<String, ApiMetrics> metrics() {
+		return Collections.unmodifiableMap(this.apis);
+	}
+
+	/**
+	 * @return the total time spent by the callers waiting for a token
+	 */
+	public Duration waitedTime() {
+		long nanos = 0;
+		for (final ApiMetrics api : this.apis.values()) {
+			nanos += api.waitedNanos.sum();
+		}
+		return Duration.ofNanos(nanos);
+	}
+
+	/**
+	 * @return the priority of an API, according to its name
+	 */
+	static Priority defaultPriority(final String api) {
+		if (api.startsWith("Respond") || api.equals("RecordActivityTaskHeartbeat")) {
+			return Priority.HIGH;
+		}
+		if (api.startsWith("PollFor") || NORMAL_APIS.contains(api)) {
+			return Priority.NORMAL;
+		}
+		return Priority.LOW;
+	}
+
+	/**
+	 * The default quotas approximate the ones of the largest regions: the
+	 * quotas of the account and region should be set explicitly by
+	 * {@link Builder#quota(String, double, int)}.
+	 *
+	 * @return the default quota of an API, according to its priority
+	 */
+	static Quota defaultQuota(final Priority priority) {
+		return priority == Priority.LOW ? new Quota(10, 100) : new Quota(200, 1000);
+	}
+
+	private ApiMetrics api(final String name) {
+		return this.apis.computeIfAbsent(name, api -> {
+			final Priority priority = this.priorities.getOrDefault(api, defaultPriority(api));
+			final Quota quota = this.quotas.getOrDefault(api, defaultQuota(priority));
+			return new ApiMetrics(api, priority, quota);
+		});
+	}
+
+	/**
+	 * Wait for a token of the API.
+	 *
+	 * @throws AbortedException
+	 *             if the thread is interrupted while waiting
+	 */
+	private void acquire(final ApiMetrics api) {
+		api.calls.increment();
+		long wait = api.tryAcquire();
+		if (wait == 0) {
+			return;
+		}
+		final long start = System.nanoTime();
+		try {
+			while (wait > 0) {
+				TimeUnit.NANOSECONDS.sleep(Math.min(wait, MAX_SLEEP_NANOS));
+				wait = api.tryAcquire();
+			}
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new AbortedException("interrupted while waiting to call " + api.name, e);
+		} finally {
+			api.waitedNanos.add(System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * Send an asynchronous call once it gets a token of the API.
+	 */
+	private void schedule(final Runnable call, final long delayNanos) {
+		ScheduledExecutorService scheduler = this.scheduler;
+		if (scheduler == null) {
+			synchronized (this) {
+				scheduler = this.scheduler;
+				if (scheduler == null) {
+					scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+							.setNameFormat("swf-governor-%d")
+							.setDaemon(true)
+							.build());
+					this.scheduler = scheduler;
+				}
+			}
+		}
+		scheduler.schedule(call, delayNanos, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Slow down the throttled API and the APIs of lower priority, once per
+	 * second at most: the errors of a burst of calls sent at the same rate
+	 * count as one throttling.
+	 */
+	private void throttled(final ApiMetrics throttled, final Throwable e) {
+		if (!(e instanceof AmazonServiceException) || !RetryUtils.isThrottlingException((AmazonServiceException) e)) {
+			return;
+		}
+		throttled.throttled.increment();
+		if (!this.adaptive || !throttled.slowDown()) {
+			return;
+		}
+		LOGGER.warn("SWF throttled {}, slowing down the APIs of priority {} and lower", throttled.name,
+				throttled.priority);
+		for (final ApiMetrics api : this.apis.values()) {
+			if (api != throttled && api.priority.compareTo(throttled.priority) > 0) {
+				api.slowDown();
+			}
+		}
+	}
+
+	private ApiMetrics governedApi(final Method method) {
+		return this.methods.computeIfAbsent(method, m -> {
+			final String name = SwfApiCalls.apiName(m);
+			return name == null ? null : api(name);
+		});
+	}
+
+	/**
+	 * The throttling quota of an API.
+	 */
+	static class Quota {
+		private final double rate;
+		private final int burst;
+
+		Quota(final double rate, final int burst) {
+			Preconditions.checkArgument(rate > 0, "the rate should be greater than 0");
+			Preconditions.checkArgument(burst > 0, "the burst should be greater than 0");
+			this.rate = rate;
+			this.burst = burst;
+		}
+	}
+
+	/**
+	 * The token bucket and the metrics of an API.
+	 */
+	public final class ApiMetrics {
+		private final String name;
+		private final Priority priority;
+		private final double quotaRate;
+		private final TokenBucketRateLimiter limiter;
+
+		private final LongAdder calls = new LongAdder();
+		private final LongAdder throttled = new LongAdder();
+		private final LongAdder waitedNanos = new LongAdder();
+
+		/**
+		 * the fraction of the quota allowed, guarded by this
+		 */
+		private double factor = 1;
+		private long factorUpdatedAt;
+		private long slowedDownAt;
+		/**
+		 * the additional limiter of the slowed down API, null at full speed
+		 */
+		private volatile TokenBucketRateLimiter slowLimiter;
+
+		private ApiMetrics(final String name, final Priority priority, final Quota quota) {
+			this.name = name;
+			this.priority = priority;
+			this.quotaRate = quota.rate;
+			this.limiter = new TokenBucketRateLimiter(quota.rate, quota.burst, SwfRateGovernor.this.ticker);
+		}
+
+		private long tryAcquire() {
+			final TokenBucketRateLimiter slowLimiter = this.slowLimiter == null ? null : recover();
+			if (slowLimiter != null) {
+				final long wait = slowLimiter.tryAcquire();
+				if (wait > 0) {
+					return wait;
+				}
+			}
+			return this.limiter.tryAcquire();
+		}
+
+		/**
+		 * Halve the rate of the API, unless it was already slowed down less
+		 * than a second ago.
+		 *
+		 * @return true if the API has been slowed down
+		 */
+		private synchronized boolean slowDown() {
+			final long now = SwfRateGovernor.this.ticker.read();
+			if (this.slowLimiter != null && now - this.slowedDownAt < ONE_SECOND) {
+				return false;
+			}
+			this.factor = Math.max(MIN_FACTOR, this.factor / 2);
+			this.factorUpdatedAt = now;
+			this.slowedDownAt = now;
+			this.slowLimiter = new TokenBucketRateLimiter(this.quotaRate * this.factor, 1,
+					SwfRateGovernor.this.ticker);
+			return true;
+		}
+
+		/**
+		 * Speed up the API gradually, once per second since the last
+		 * throttling.
+		 *
+		 * @return the limiter of the API if it is still slowed down
+		 */
+		private synchronized TokenBucketRateLimiter recover() {
+			final long now = SwfRateGovernor.this.ticker.read();
+			final long elapsed = now - this.factorUpdatedAt;
+			if (this.slowLimiter == null || elapsed < ONE_SECOND) {
+				return this.slowLimiter;
+			}
+			this.factor = Math.min(1, this.factor + this.priority.recovery * (elapsed / ONE_SECOND));
+			this.factorUpdatedAt = now;
+			this.slowLimiter = this.factor >= 1 ? null
+					: new TokenBucketRateLimiter(this.quotaRate * this.factor, 1, SwfRateGovernor.this.ticker);
+			return this.slowLimiter;
+		}
+
+		/**
+		 * @return the name of the API, e.g. RespondActivityTaskCompleted
+		 */
+		public String name() {
+			return this.name;
+		}
+
+		public Priority priority() {
+			return this.priority;
+		}
+
+		/**
+		 * @return the number of calls allowed per second, lower than the quota
+		 *         while the API is slowed down
+		 */
+		public double rate() {
+			recover();
+			synchronized (this) {
+				return this.quotaRate * this.factor;
+			}
+		}
+
+		/**
+		 * @return the number of calls
+		 */
+		public long calls() {
+			return this.calls.sum();
+		}
+
+		/**
+		 * @return the number of calls throttled by SWF
+		 */
+		public long throttled() {
+			return this.throttled.sum();
+		}
+
+		/**
+		 * @return the total time spent by the callers waiting for a token
+		 */
+		public Duration waitedTime() {
+			return Duration.ofNanos(this.waitedNanos.sum());
+		}
+
+		@Override
+		public String toString() {
+			return "ApiMetrics[" + this.name + ", " + this.priority + ", " + rate() + "/s]";
+		}
+	}
+
+	/**
+	 * Call the client once a token of the API is taken, observing the
+	 * throttling errors.
+	 */
+	private class GovernedClient implements InvocationHandler {
+		private final AmazonSimpleWorkflow swf;
+
+		private GovernedClient(final AmazonSimpleWorkflow swf) {
+			this.swf = swf;
+		}
+
+		@Override
+		public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+			final ApiMetrics api = governedApi(method);
+			if (api == null) {
+				return call(null, method, args);
+			}
+			final int last = args.length - 1;
+			if (args[last] instanceof AsyncHandler) {
+				args[last] = SwfApiCalls.observing((AsyncHandler<?, ?>) args[last], e -> throttled(api, e));
+			}
+			if (!Future.class.isAssignableFrom(method.getReturnType())) {
+				acquire(api);
+				return call(api, method, args);
+			}
+			// the asynchronous calls are made by the dispatchers of the
+			// pollers, which must not sleep
+			api.calls.increment();
+			final long wait = api.tryAcquire();
+			if (wait == 0) {
+				return call(api, method, args);
+			}
+			final DelayedCall delayed = new DelayedCall(api, method, args);
+			schedule(delayed, wait);
+			return delayed;
+		}
+
+		private Object call(final ApiMetrics api, final Method method, final Object[] args) throws Throwable {
+			try {
+				return method.invoke(this.swf, args);
+			} catch (final InvocationTargetException e) {
+				if (api != null) {
+					throttled(api, e.getCause());
+				}
+				throw e.getCause();
+			}
+		}
+
+		/**
+		 * An asynchronous call waiting for its token, and then the future
+		 * result of the client.
+		 */
+		private class DelayedCall implements Runnable, Future<Object> {
+			private final ApiMetrics api;
+			private final Method method;
+			private final Object[] args;
+			private final long start = System.nanoTime();
+			private final CompletableFuture<Future<?>> sent = new CompletableFuture<>();
+
+			private DelayedCall(final ApiMetrics api, final Method method, final Object[] args) {
+				this.api = api;
+				this.method = method;
+				this.args = args;
+			}
+
+			@Override
+			public void run() {
+				if (this.sent.isDone()) {
+					// canceled
+					return;
+				}
+				final long wait = this.api.tryAcquire();
+				if (wait > 0) {
+					schedule(this, wait);
+					return;
+				}
+				this.api.waitedNanos.add(System.nanoTime() - this.start);
+				try {
+					this.sent.complete((Future<?>) call(this.api, this.method, this.args));
+				} catch (final Throwable e) {
+					final Object handler = this.args[this.args.length - 1];
+					if (handler instanceof AsyncHandler && e instanceof Exception) {
+						((AsyncHandler<?, ?>) handler).onError((Exception) e);
+					}
+					this.sent.completeExceptionally(e);
+				}
+			}
+
+			@Override
+			public boolean cancel(final boolean mayInterruptIfRunning) {
+				if (this.sent.cancel(mayInterruptIfRunning)) {
+					return true;
+				}
+				final Future<?> result = this.sent.getNow(null);
+				return result != null && result.cancel(mayInterruptIfRunning);
+			}
+
+			@Override
+			public boolean isCancelled() {
+				final Future<?> result = this.sent.isDone() && !this.sent.isCompletedExceptionally()
+						? this.sent.getNow(null) : null;
+				return this.sent.isCancelled() || result != null && result.isCancelled();
+			}
+
+			@Override
+			public boolean isDone() {
+				if (!this.sent.isDone()) {
+					return false;
+				}
+				final Future<?> result = this.sent.isCompletedExceptionally() ? null : this.sent.getNow(null);
+				return result == null || result.isDone();
+			}
+
+			@Override
+			public Object get() throws InterruptedException, ExecutionException {
+				final Future<?> result = this.sent.get();
+				return result == null ? null : result.get();
+			}
+
+			@Override
+			public Object get(final long timeout, final TimeUnit unit)
+					throws InterruptedException, ExecutionException, TimeoutException {
+				final long deadline = System.nanoTime() + unit.toNanos(timeout);
+				final Future<?> result = this.sent.get(timeout, unit);
+				return result == null ? null : result.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+			}
+		}
+	}
+
+	public static class Builder {
+		private final Map<String, Quota> quotas = new HashMap<>();
+		private final Map<String, Priority> priorities = new HashMap<>();
+		private boolean adaptive = true;
+		private Ticker ticker = Ticker.systemTicker();
+
+		private Builder() {
+		}
+
+		/**
+		 * Set the throttling quota of an API, as given by the SWF quotas of
+		 * the account and region.
+		 *
+		 * @param api
+		 *            the name of the API, e.g. StartWorkflowExecution
+		 * @param rate
+		 *            the refill rate of the bucket per second
+		 * @param burst
+		 *            the size of the bucket
+		 */
+		public Builder quota(final String api, final double rate, final int burst) {
+			this.quotas.put(Preconditions.checkNotNull(api, "the API should not be null"), new Quota(rate, burst));
+			return this;
+		}
+
+		/**
+		 * Override the default priority of an API.
+		 */
+		public Builder priority(final String api, final Priority priority) {
+			this.priorities.put(Preconditions.checkNotNull(api, "the API should not be null"),
+					Preconditions.checkNotNull(priority, "the priority should not be null"));
+			return this;
+		}
+
+		/**
+		 * Slow down the throttled APIs and the APIs of lower priority, true by
+		 * default.
+		 */
+		public Builder adaptive(final boolean adaptive) {
+			this.adaptive = adaptive;
+			return this;
+		}
+
+		@VisibleForTesting
+		Builder ticker(final Ticker ticker) {
+			this.ticker = ticker;
+			return this;
+		}
+
+		public SwfRateGovernor build() {
+			return new SwfRateGovernor(this);
+		}
+	}
+}
@@ -0,0 +1,124 @@
+package com.solambda.swiffer.api.ratelimit;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Ticker;
+
+/**
+ * Lock-free token bucket: the tokens are refilled at a constant rate, and up
+ * to {@code burst} tokens can be taken at once after a period of inactivity.
+ * <p>
+ * The bucket is stored as the theoretical time at which it will be full
+ * again, updated by a compare-and-set: taking a token never blocks nor locks.
+ */
+public class TokenBucketRateLimiter implements RateLimiter {
+
+	private final double permitsPerSecond;
+	private final long intervalNanos;
+	/**
+	 * the time needed to refill the burst tokens, but the last one
+	 */
+	private final long burstNanos;
+	private final Ticker ticker;
+
+	/**
+	 * the time at which the bucket is full again
+	 */
+	private final AtomicLong fullAt;
+	private final LongAdder acquired = new LongAdder();
+
+	private long sampleAcquired;
+	private long sampleNanos;
+	private double currentRate;
+
+	/**
+	 * Creates a limiter allowing a burst of one token.
+	 *
+	 * @param permitsPerSecond
+	 *            the number of tokens refilled per second, greater than 0
+	 */
+	public TokenBucketRateLimiter(final double permitsPerSecond) {
+		this(permitsPerSecond, 1);
+	}
+
+	/**
+	 * @param permitsPerSecond
+	 *            the number of tokens refilled per second, greater than 0
+	 * @param burst
+	 *            the capacity of the bucket, greater than 0
+	 */
+	public TokenBucketRateLimiter(final double permitsPerSecond, final int burst) {
+		this(permitsPerSecond, burst, Ticker.systemTicker());
+	}
+
+	@VisibleForTesting
+	TokenBucketRateLimiter(final double permitsPerSecond, final int burst, final Ticker ticker) {
+		super();
+		Preconditions.checkArgument(permitsPerSecond > 0, "the rate should be greater than 0");
+		Preconditions.checkArgument(burst > 0, "the burst should be greater than 0");
+		this.permitsPerSecond = permitsPerSecond;
+		this.intervalNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond));
+		this.burstNanos = (burst - 1) * this.intervalNanos;
+		this.ticker = ticker;
+		final long now = ticker.read();
+		this.fullAt = new AtomicLong(now);
+		this.sampleNanos = now;
+	}
+
+	@Override
+	public long tryAcquire() {
+		final long now = this.ticker.read();
+		while (true) {
+			final long fullAt = this.fullAt.get();
+			final long nextTokenAt = fullAt - this.burstNanos;
+			if (now < nextTokenAt) {
+				return nextTokenAt - now;
+			}
+			if (this.fullAt.compareAndSet(fullAt, Math.max(fullAt, now) + this.intervalNanos)) {
+				this.acquired.increment();
+				return 0;
+			}
+		}
+	}
+
+	/**
+	 * @return the number of tokens refilled per second
+	 */
+	public double rate() {
+		return this.permitsPerSecond;
+	}
+
+	/**
+	 * @return the total number of tokens taken
+	 */
+	public long acquired() {
+		return this.acquired.sum();
+	}
+
+	/**
+	 * The measured rate is updated at most once per second.
+	 *
+	 * @return the number of tokens taken per second, measured since the
+	 *         previous update
+	 */
+	public synchronized double currentRate() {
+		final long now = this.ticker.read();
+		final long elapsed = now - this.sampleNanos;
+		if (elapsed >= TimeUnit.SECONDS.toNanos(1)) {
+			final long acquired = this.acquired.sum();
+			this.currentRate = (acquired - this.sampleAcquired) * (double) TimeUnit.SECONDS.toNanos(1) / elapsed;
+			this.sampleAcquired = acquired;
+			this.sampleNanos = now;
+		}
+		return this.currentRate;
+	}
+
+	@Override
+	public String toString() {
+		return "TokenBucketRateLimiter[" + this.permitsPerSecond + "/s]";
+	}
+}
@@ -0,0 +1,112 @@
+package com.solambda.swiffer.api.internal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * Test for {@link PollerAutoscaler}
+ */
+public class PollerAutoscalerTest {
+
+	@Test
+	public void startsWithTheMinimumNumberOfPollers() {
+		final PollerAutoscaler autoscaler = new PollerAutoscaler(2, 5, 2, 3, null);
+
+		assertThat(autoscaler.activePollers()).isEqualTo(2);
+		assertThat(autoscaler.isActive(1)).isTrue();
+		assertThat(autoscaler.isActive(2)).isFalse();
+	}
+
+	@Test
+	public void growsWhenTasksArePolledBackToBack() {
+		final PollerAutoscaler autoscaler = new PollerAutoscaler(1, 3, 2, 3, null);
+
+		autoscaler.onPoll(true);
+		assertThat(autoscaler.activePollers()).isEqualTo(1);
+		autoscaler.onPoll(true);
+		assertThat(autoscaler.activePollers()).isEqualTo(2);
+		for (int i = 0; i < 10; i++) {
+			autoscaler.onPoll(true);
+		}
+		assertThat(autoscaler.activePollers()).isEqualTo(3);
+	}
+
+	@Test
+	public void shrinksWhenPollsAreEmpty() {
+		final PollerAutoscaler autoscaler = new PollerAutoscaler(1, 3, 1, 2, null);
+		autoscaler.onPoll(true);
+		autoscaler.onPoll(true);
+		assertThat(autoscaler.activePollers()).isEqualTo(3);
+
+		autoscaler.onPoll(false);
+		assertThat(autoscaler.activePollers()).isEqualTo(3);
+		autoscaler.onPoll(false);
+		assertThat(autoscaler.activePollers()).isEqualTo(2);
+		for (int i = 0; i < 10; i++) {
+			autoscaler.onPoll(false);
+		}
+		assertThat(autoscaler.activePollers()).isEqualTo(1);
+	}
+
+	@Test
+	public void alternatingPollsDoNotChangeTheNumberOfPollers() {
+		final PollerAutoscaler autoscaler = new PollerAutoscaler(1, 3, 2, 2, null);
+		autoscaler.onPoll(true);
+		autoscaler.onPoll(true);
+
+		for (int i = 0; i < 10; i++) {
+			autoscaler.onPoll(false);
+			autoscaler.onPoll(true);
+		}
+
+		assertThat(autoscaler.activePollers()).isEqualTo(2);
+	}
+
+	@Test
+	public void growsWhenTheBacklogExceedsTheActivePollers() {
+		final AtomicInteger backlogChecks = new AtomicInteger();
+		final PollerAutoscaler autoscaler = new PollerAutoscaler(1, 3, 100, 100, () -> {
+			backlogChecks.incrementAndGet();
+			return 50L;
+		});
+
+		autoscaler.onPoll(true);
+		autoscaler.onPoll(true);
+
+		assertThat(autoscaler.activePollers()).isEqualTo(2);
+		assertThat(backlogChecks.get()).as("the backlog is not checked at each poll").isEqualTo(1);
+	}
+
+	@Test
+	public void ignoresTheFailuresOfTheBacklog() {
+		final PollerAutoscaler autoscaler = new PollerAutoscaler(1, 3, 100, 100, () -> {
+			throw new IllegalStateException("unavailable");
+		});
+
+		autoscaler.onPoll(true);
+
+		assertThat(autoscaler.activePollers()).isEqualTo(1);
+	}
+
+	@Test
+	public void inactivePollersAreWokenUpWhenActivated() throws Exception {
+		final PollerAutoscaler autoscaler = new PollerAutoscaler(1, 2, 1, 1, null);
+		final Thread activator = new Thread(() -> {
+			try {
+				Thread.sleep(100);
+			} catch (final InterruptedException e) {
+				return;
+			}
+			autoscaler.onPoll(true);
+		});
+		activator.start();
+
+		assertThat(autoscaler.awaitActive(1, 5, TimeUnit.SECONDS)).isTrue();
+		assertThat(autoscaler.awaitActive(2, 10, TimeUnit.MILLISECONDS)).isFalse();
+		activator.join();
+	}
+}
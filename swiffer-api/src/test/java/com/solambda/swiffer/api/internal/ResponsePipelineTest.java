@@ -0,0 +1,127 @@
+package com.solambda.swiffer.api.internal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.simpleworkflow.model.UnknownResourceException;
+
+/**
+ * Test for {@link ResponsePipeline}
+ */
+public class ResponsePipelineTest {
+
+	private final ResponsePipeline pipeline = new ResponsePipeline(1, 10, Duration.ofSeconds(5), 1);
+
+	@After
+	public void shutdown() throws Exception {
+		this.pipeline.shutdown(1, TimeUnit.SECONDS);
+	}
+
+	private static AmazonServiceException throttling() {
+		final AmazonServiceException e = new AmazonServiceException("Rate exceeded");
+		e.setErrorCode("ThrottlingException");
+		e.setStatusCode(400);
+		return e;
+	}
+
+	private static Runnable failingTimes(final int failures, final RuntimeException error,
+			final AtomicInteger calls) {
+		return () -> {
+			if (calls.incrementAndGet() <= failures) {
+				throw error;
+			}
+		};
+	}
+
+	@Test
+	public void sendsTheResponse() throws Exception {
+		final AtomicInteger calls = new AtomicInteger();
+
+		this.pipeline.submit("response", calls::incrementAndGet).get(1, TimeUnit.SECONDS);
+
+		assertThat(calls.get()).isEqualTo(1);
+		assertThat(this.pipeline.sent()).isEqualTo(1);
+		assertThat(this.pipeline.pending()).isEqualTo(0);
+	}
+
+	@Test
+	public void retriesTheThrottledResponses() throws Exception {
+		final AtomicInteger calls = new AtomicInteger();
+
+		this.pipeline.submit("response", failingTimes(3, throttling(), calls)).get(1, TimeUnit.SECONDS);
+
+		assertThat(calls.get()).isEqualTo(4);
+		assertThat(this.pipeline.retried()).isEqualTo(3);
+		assertThat(this.pipeline.sent()).isEqualTo(1);
+	}
+
+	@Test
+	public void retriesTheServerAndNetworkErrors() throws Exception {
+		final AmazonServiceException serverError = new AmazonServiceException("Internal failure");
+		serverError.setStatusCode(503);
+
+		this.pipeline.submit("response", failingTimes(1, serverError, new AtomicInteger()))
+				.get(1, TimeUnit.SECONDS);
+		this.pipeline.submit("response",
+				failingTimes(2, new AmazonClientException("connection reset"), new AtomicInteger()))
+				.get(1, TimeUnit.SECONDS);
+
+		assertThat(this.pipeline.retried()).isEqualTo(3);
+		assertThat(this.pipeline.sent()).isEqualTo(2);
+	}
+
+	@Test
+	public void doesNotRetryTheResponsesOfClosedTasks() throws Exception {
+		final AtomicInteger calls = new AtomicInteger();
+
+		final CompletableFuture<Void> result = this.pipeline.submit("response",
+				failingTimes(1, new UnknownResourceException("Unknown execution"), calls));
+
+		final Throwable thrown = catchThrowable(() -> result.get(1, TimeUnit.SECONDS));
+		assertThat(thrown).isInstanceOf(ExecutionException.class)
+				.hasCauseInstanceOf(UnknownResourceException.class);
+		assertThat(calls.get()).isEqualTo(1);
+		assertThat(this.pipeline.failed()).isEqualTo(1);
+		assertThat(this.pipeline.pending()).isEqualTo(0);
+	}
+
+	@Test
+	public void givesUpAfterTheMaxRetryDuration() throws Exception {
+		final ResponsePipeline pipeline = new ResponsePipeline(1, 10, Duration.ofMillis(200), 50);
+		final AtomicInteger calls = new AtomicInteger();
+
+		final CompletableFuture<Void> result = pipeline.submit("response",
+				failingTimes(Integer.MAX_VALUE, throttling(), calls));
+
+		final Throwable thrown = catchThrowable(() -> result.get(2, TimeUnit.SECONDS));
+		assertThat(thrown).hasCauseInstanceOf(AmazonServiceException.class);
+		assertThat(pipeline.failed()).isEqualTo(1);
+		assertThat(pipeline.shutdown(1, TimeUnit.SECONDS)).isTrue();
+	}
+
+	@Test
+	public void givesUpAtTheDeadlineOfTheTask() throws Exception {
+		final ResponsePipeline pipeline = new ResponsePipeline(1, 10, Duration.ofMinutes(1), 50);
+		final AtomicInteger calls = new AtomicInteger();
+
+		final CompletableFuture<Void> result = pipeline.submit("response",
+				failingTimes(Integer.MAX_VALUE, throttling(), calls), Instant.now().plusMillis(200));
+
+		final Throwable thrown = catchThrowable(() -> result.get(2, TimeUnit.SECONDS));
+		assertThat(thrown).hasCauseInstanceOf(AmazonServiceException.class);
+		assertThat(pipeline.failed()).isEqualTo(1);
+		assertThat(pipeline.shutdown(1, TimeUnit.SECONDS)).isTrue();
+	}
+}
@@ -0,0 +1,37 @@
+package com.solambda.swiffer.api.internal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.junit.Assume.assumeFalse;
+import static org.junit.Assume.assumeTrue;
+
+import java.util.concurrent.ThreadFactory;
+
+import org.junit.Test;
+
+/**
+ * Test for {@link VirtualThreads}
+ */
+public class VirtualThreadsTest {
+
+	@Test
+	public void factory_createsVirtualThreads() throws Exception {
+		assumeTrue(VirtualThreads.isSupported());
+		final ThreadFactory factory = VirtualThreads.factory("test-");
+
+		final Thread thread = factory.newThread(() -> {
+		});
+
+		assertThat(Thread.class.getMethod("isVirtual").invoke(thread)).isEqualTo(true);
+		assertThat(thread.getName()).isEqualTo("test-0");
+	}
+
+	@Test
+	public void factory_failsWhenVirtualThreadsAreNotSupported() {
+		assumeFalse(VirtualThreads.isSupported());
+
+		final Throwable thrown = catchThrowable(() -> VirtualThreads.factory("test-"));
+
+		assertThat(thrown).isInstanceOf(IllegalStateException.class);
+	}
+}
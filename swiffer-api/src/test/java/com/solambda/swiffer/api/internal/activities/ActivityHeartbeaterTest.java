@@ -0,0 +1,146 @@
+package com.solambda.swiffer.api.internal.activities;
+
+import static com.solambda.swiffer.test.Tests.sleep;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.solambda.swiffer.api.exceptions.CancelActivityRequested;
+import com.solambda.swiffer.api.internal.VersionedName;
+import com.solambda.swiffer.api.internal.activities.ActivityHeartbeater.Heartbeat;
+
+/**
+ * Test for {@link ActivityHeartbeater}
+ */
+public class ActivityHeartbeaterTest {
+
+	private static final VersionedName TYPE = new VersionedName("type", "1");
+	private static final VersionedName OTHER_TYPE = new VersionedName("other", "1");
+
+	private final ActivityExecutionReporter reporter = mock(ActivityExecutionReporter.class);
+	private ActivityHeartbeater heartbeater;
+
+	@After
+	public void shutdown() {
+		this.heartbeater.shutdown();
+	}
+
+	private ActivityHeartbeater heartbeater(final boolean interruptOnCancel) {
+		// heartbeats every 50 ms
+		this.heartbeater = new ActivityHeartbeater(this.reporter,
+				Collections.singletonMap(TYPE, Duration.ofMillis(100)), 0.5, null, interruptOnCancel);
+		return this.heartbeater;
+	}
+
+	private static ActivityTaskContext task(final String token, final VersionedName type) {
+		final ActivityTaskContext task = mock(ActivityTaskContext.class);
+		when(task.taskToken()).thenReturn(token);
+		when(task.activityType()).thenReturn(type);
+		return task;
+	}
+
+	@Test
+	public void heartbeatsTheTaskWithItsLatestDetails() throws Exception {
+		final ActivityTaskContext task = task("token", TYPE);
+		final Heartbeat heartbeat = heartbeater(false).start(task);
+
+		heartbeat.details("first");
+		heartbeat.details("latest");
+		sleep(Duration.ofMillis(180));
+
+		verify(this.reporter, atLeast(2)).progress("token", "latest");
+		verify(this.reporter, never()).progress("token", "first");
+		assertThat(heartbeat.progress()).isSameAs(heartbeat);
+		assertThat(this.heartbeater.get(task)).isSameAs(heartbeat);
+	}
+
+	@Test
+	public void aSlowHeartbeatDoesNotDelayTheOtherTasks() throws Exception {
+		doAnswer(invocation -> {
+			sleep(Duration.ofMillis(500));
+			return null;
+		}).when(this.reporter).progress(eq("slow"), any());
+		heartbeater(false).start(task("slow", TYPE));
+		this.heartbeater.start(task("token", TYPE));
+
+		sleep(Duration.ofMillis(180));
+
+		// the slow task has 1 pending heartbeat, the others are skipped
+		verify(this.reporter).progress(eq("slow"), any());
+		verify(this.reporter, atLeast(2)).progress(eq("token"), any());
+	}
+
+	@Test
+	public void stopsHeartbeatingTheEndedTask() throws Exception {
+		final ActivityTaskContext task = task("token", TYPE);
+		heartbeater(false).start(task);
+
+		this.heartbeater.stop(task);
+		sleep(Duration.ofMillis(120));
+
+		verify(this.reporter, never()).progress(eq("token"), any());
+		assertThat(this.heartbeater.size()).isEqualTo(0);
+	}
+
+	@Test
+	public void ignoresTheTasksWithoutToken() throws Exception {
+		final ActivityTaskContext task = task(null, TYPE);
+
+		assertThat(heartbeater(false).start(task)).isNull();
+		assertThat(this.heartbeater.get(task)).isNull();
+		this.heartbeater.stop(task);
+
+		assertThat(this.heartbeater.size()).isEqualTo(0);
+	}
+
+	@Test
+	public void doesNotHeartbeatTheTypesWithoutTimeout() throws Exception {
+		heartbeater(false).start(task("token", OTHER_TYPE));
+
+		sleep(Duration.ofMillis(120));
+
+		verify(this.reporter, never()).progress(eq("token"), any());
+	}
+
+	@Test
+	public void interruptsTheTaskRequestedToCancel() throws Exception {
+		doThrow(new CancelActivityRequested()).when(this.reporter).progress(eq("token"), any());
+		final Heartbeat heartbeat = heartbeater(true).start(task("token", TYPE));
+		final CountDownLatch interrupted = new CountDownLatch(1);
+
+		final Thread thread = new Thread(() -> {
+			heartbeat.attach();
+			try {
+				Thread.sleep(5_000);
+			} catch (final InterruptedException e) {
+				interrupted.countDown();
+			} finally {
+				heartbeat.detach();
+			}
+		});
+		thread.start();
+
+		assertThat(interrupted.await(1, TimeUnit.SECONDS)).isTrue();
+		assertThat(heartbeat.isCancelRequested()).isTrue();
+		// no more heartbeat once the cancellation is known
+		reset(this.reporter);
+		sleep(Duration.ofMillis(120));
+		verify(this.reporter, never()).progress(eq("token"), any());
+	}
+}
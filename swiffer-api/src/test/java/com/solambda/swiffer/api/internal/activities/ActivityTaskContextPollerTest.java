@@ -10,6 +10,8 @@ import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 import static org.assertj.core.api.Assertions.fail;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.time.Duration;
@@ -109,4 +111,18 @@ public class ActivityTaskContextPollerTest {
 
 	}
 
+	@Test
+	public void polling_afterStopReturnsNoTask() throws Exception {
+		// GIVEN a stopped poller
+		final AmazonSimpleWorkflow swf = mock(AmazonSimpleWorkflow.class);
+		when(swf.pollForActivityTask(any())).thenReturn(new ActivityTask().withTaskToken(TOKEN));
+		final ActivityTaskPoller poller = new ActivityTaskPoller(swf, "domain", "activityTaskList", "activit");
+		poller.stop();
+		// WHEN its service polls once more before noticing the stop
+		final ActivityTaskContext context = poller.poll();
+		// THEN no task is polled
+		assertThat(context).isNull();
+		verify(swf, never()).pollForActivityTask(any());
+	}
+
 }
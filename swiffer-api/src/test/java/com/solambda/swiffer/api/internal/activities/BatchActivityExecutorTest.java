@@ -0,0 +1,189 @@
+package com.solambda.swiffer.api.internal.activities;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import com.solambda.swiffer.api.exceptions.ActivityTaskExecutionFailedException;
+import com.solambda.swiffer.api.internal.MethodInvoker;
+import com.solambda.swiffer.api.internal.VersionedName;
+import com.solambda.swiffer.api.mapper.JacksonDataMapper;
+
+/**
+ * Test for {@link BatchActivityExecutor}
+ */
+public class BatchActivityExecutorTest {
+
+	public static class Executors {
+		final List<List<String>> batches = new ArrayList<>();
+
+		final AtomicReference<String> thread = new AtomicReference<>();
+
+		public synchronized List<Object> toUpperCase(final List<String> inputs) {
+			this.batches.add(inputs);
+			this.thread.set(Thread.currentThread().getName());
+			final List<Object> outputs = new ArrayList<>();
+			for (final String input : inputs) {
+				outputs.add(input.equals("fail") ? new IllegalArgumentException("cannot process " + input)
+						: input.toUpperCase());
+			}
+			return outputs;
+		}
+
+		public void failing(final List<String> inputs) {
+			throw new IllegalStateException("batch failure");
+		}
+
+		public Object notAList(final List<String> inputs) {
+			return "done";
+		}
+
+		public List<Object> tooFewOutputs(final List<String> inputs) {
+			return Collections.singletonList("done");
+		}
+	}
+
+	private final Executors executors = new Executors();
+
+	private BatchActivityExecutor batchExecutor(final String method, final int maxSize, final long lingerMillis)
+			throws Exception {
+		return new BatchActivityExecutor(
+				new MethodInvoker(this.executors, Executors.class.getMethod(method, List.class)),
+				String.class, new JacksonDataMapper(), maxSize, lingerMillis);
+	}
+
+	private static ActivityTaskContext task(final String input) {
+		final ActivityTaskContext context = mock(ActivityTaskContext.class);
+		when(context.input()).thenReturn("\"" + input + "\"");
+		when(context.activityType()).thenReturn(new VersionedName("batch", "1"));
+		return context;
+	}
+
+	private static String get(final CompletableFuture<String> result) throws Exception {
+		return result.get(5, TimeUnit.SECONDS);
+	}
+
+	@Test
+	public void executesTheTasksOnceTheBatchIsFull() throws Exception {
+		final BatchActivityExecutor executor = batchExecutor("toUpperCase", 2, 10_000);
+
+		final CompletableFuture<String> a = executor.executeAsync(task("a")).toCompletableFuture();
+		assertThat(a.isDone()).isFalse();
+		final CompletableFuture<String> b = executor.executeAsync(task("b")).toCompletableFuture();
+
+		assertThat(get(a)).isEqualTo("\"A\"");
+		assertThat(get(b)).isEqualTo("\"B\"");
+		assertThat(this.executors.batches).containsExactly(Arrays.asList("a", "b"));
+	}
+
+	@Test
+	public void executesTheTasksAfterTheLingerTime() throws Exception {
+		final BatchActivityExecutor executor = batchExecutor("toUpperCase", 100, 50);
+
+		final CompletableFuture<String> a = executor.executeAsync(task("a")).toCompletableFuture();
+
+		assertThat(get(a)).isEqualTo("\"A\"");
+		assertThat(this.executors.batches).containsExactly(Arrays.asList("a"));
+		assertThat(executor.execute(task("c"))).isEqualTo("\"C\"");
+	}
+
+	@Test
+	public void executesTheLingeringTasksWithTheExecutorOfTheWorker() throws Exception {
+		final BatchActivityExecutor executor = batchExecutor("toUpperCase", 100, 50);
+		final ExecutorService pool = java.util.concurrent.Executors
+				.newSingleThreadExecutor(runnable -> new Thread(runnable, "worker-pool"));
+		try {
+			executor.useExecutor(pool);
+
+			final CompletableFuture<String> a = executor.executeAsync(task("a")).toCompletableFuture();
+
+			assertThat(get(a)).isEqualTo("\"A\"");
+			assertThat(this.executors.thread.get()).isEqualTo("worker-pool");
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void failsTheLingeringTasksOnceTheWorkerIsShutDown() throws Exception {
+		final BatchActivityExecutor executor = batchExecutor("toUpperCase", 100, 50);
+		final ExecutorService pool = java.util.concurrent.Executors.newSingleThreadExecutor();
+		pool.shutdown();
+		executor.useExecutor(pool);
+
+		final CompletableFuture<String> a = executor.executeAsync(task("a")).toCompletableFuture();
+
+		final Throwable thrown = catchThrowable(() -> get(a));
+		assertThat(thrown.getCause()).isInstanceOf(ActivityTaskExecutionFailedException.class);
+		assertThat(this.executors.batches).isEmpty();
+	}
+
+	@Test
+	public void failsOnlyTheTasksWithAFailedOutput() throws Exception {
+		final BatchActivityExecutor executor = batchExecutor("toUpperCase", 2, 10_000);
+
+		final CompletableFuture<String> failed = executor.executeAsync(task("fail")).toCompletableFuture();
+		final CompletableFuture<String> b = executor.executeAsync(task("b")).toCompletableFuture();
+
+		assertThat(get(b)).isEqualTo("\"B\"");
+		final Throwable thrown = catchThrowable(() -> get(failed));
+		assertThat(thrown).isInstanceOf(ExecutionException.class)
+				.hasCauseInstanceOf(ActivityTaskExecutionFailedException.class);
+		assertThat(thrown.getCause().getCause()).hasMessage("cannot process fail");
+	}
+
+	@Test
+	public void failsAllTheTasksWhenTheBatchFails() throws Exception {
+		final BatchActivityExecutor executor = batchExecutor("failing", 2, 10_000);
+
+		final CompletableFuture<String> a = executor.executeAsync(task("a")).toCompletableFuture();
+		final CompletableFuture<String> b = executor.executeAsync(task("b")).toCompletableFuture();
+
+		for (final CompletableFuture<String> result : Arrays.asList(a, b)) {
+			final Throwable thrown = catchThrowable(() -> get(result));
+			assertThat(thrown.getCause()).isInstanceOf(ActivityTaskExecutionFailedException.class);
+			assertThat(thrown.getCause().getCause()).hasMessage("batch failure");
+		}
+	}
+
+	@Test
+	public void failsAllTheTasksWhenTheResultIsNotAList() throws Exception {
+		final BatchActivityExecutor executor = batchExecutor("notAList", 2, 10_000);
+
+		final CompletableFuture<String> a = executor.executeAsync(task("a")).toCompletableFuture();
+		final CompletableFuture<String> b = executor.executeAsync(task("b")).toCompletableFuture();
+
+		for (final CompletableFuture<String> result : Arrays.asList(a, b)) {
+			final Throwable thrown = catchThrowable(() -> get(result));
+			assertThat(thrown.getCause().getCause()).isInstanceOf(IllegalStateException.class)
+					.hasMessage("the batch executor returned a java.lang.String instead of a List of 2 outputs");
+		}
+	}
+
+	@Test
+	public void failsAllTheTasksWhenTheResultHasTooFewOutputs() throws Exception {
+		final BatchActivityExecutor executor = batchExecutor("tooFewOutputs", 2, 10_000);
+
+		final CompletableFuture<String> a = executor.executeAsync(task("a")).toCompletableFuture();
+		final CompletableFuture<String> b = executor.executeAsync(task("b")).toCompletableFuture();
+
+		for (final CompletableFuture<String> result : Arrays.asList(a, b)) {
+			final Throwable thrown = catchThrowable(() -> get(result));
+			assertThat(thrown.getCause().getCause()).isInstanceOf(IllegalStateException.class)
+					.hasMessage("the batch executor returned 1 outputs for 2 inputs");
+		}
+	}
+}
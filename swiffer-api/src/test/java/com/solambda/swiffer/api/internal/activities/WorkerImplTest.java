@@ -3,10 +3,15 @@ package com.solambda.swiffer.api.internal.activities;
 import static com.solambda.swiffer.test.Tests.returnAfterDelay;
 import static com.solambda.swiffer.test.Tests.sleep;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
 import static org.assertj.core.api.Assertions.fail;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.atLeast;
 import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.atMost;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
@@ -15,26 +20,44 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
 
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.handlers.AsyncHandler;
 import com.amazonaws.services.simpleworkflow.AmazonSimpleWorkflow;
+import com.amazonaws.services.simpleworkflow.AmazonSimpleWorkflowAsync;
 import com.amazonaws.services.simpleworkflow.model.ActivityTask;
+import com.amazonaws.services.simpleworkflow.model.ActivityTaskStatus;
 import com.amazonaws.services.simpleworkflow.model.PollForActivityTaskRequest;
+import com.amazonaws.services.simpleworkflow.model.RecordActivityTaskHeartbeatRequest;
+import com.amazonaws.services.simpleworkflow.model.RespondActivityTaskCanceledRequest;
 import com.amazonaws.services.simpleworkflow.model.RespondActivityTaskCompletedRequest;
 import com.amazonaws.services.simpleworkflow.model.RespondActivityTaskFailedRequest;
+import com.solambda.swiffer.api.ActivityProgress;
 import com.solambda.swiffer.api.ActivityType;
+import com.solambda.swiffer.api.BatchExecutor;
 import com.solambda.swiffer.api.Executor;
 import com.solambda.swiffer.api.Swiffer;
 import com.solambda.swiffer.api.Worker;
 import com.solambda.swiffer.api.exceptions.TaskContextPollingException;
+import com.solambda.swiffer.api.internal.activities.WorkerImplTest.Definitions.AsyncActivity;
+import com.solambda.swiffer.api.internal.activities.WorkerImplTest.Definitions.BatchActivity;
+import com.solambda.swiffer.api.internal.activities.WorkerImplTest.Definitions.CancellableActivity;
 import com.solambda.swiffer.api.internal.activities.WorkerImplTest.Definitions.FailingActivity;
 import com.solambda.swiffer.api.internal.activities.WorkerImplTest.Definitions.NoArgumentActivity;
 import com.solambda.swiffer.api.internal.activities.WorkerImplTest.Definitions.NoReturnValueActivity;
+import com.solambda.swiffer.api.internal.activities.WorkerImplTest.Definitions.SlowActivity;
 import com.solambda.swiffer.api.internal.activities.WorkerImplTest.Definitions.ToUpperCase;
+import com.solambda.swiffer.api.metrics.ActivityOutcome;
+import com.solambda.swiffer.api.metrics.DefaultSwifferMetrics;
 import com.solambda.swiffer.test.Tests;
 
 public class WorkerImplTest {
@@ -45,6 +68,10 @@ public class WorkerImplTest {
 	private static final String NO_ARGUMENT_ACTIVITY_NAME = "noArgumentActivity";
 	private static final String NO_RETURN_VALUE_ACTIVITY_NAME = "noReturnValueActivity";
 	private static final String FAILING_ACTIVITY_NAME = "failingActivity";
+	private static final String SLOW_ACTIVITY_NAME = "slowActivity";
+	private static final String ASYNC_ACTIVITY_NAME = "asyncActivity";
+	private static final String BATCH_ACTIVITY_NAME = "batchActivity";
+	private static final String CANCELLABLE_ACTIVITY_NAME = "cancellableActivity";
 	private static final String ACTIVITY_ID = "activityId";
 
 	private AmazonSimpleWorkflow swf;
@@ -83,6 +110,26 @@ public class WorkerImplTest {
 		public static interface FailingActivity {
 
 		}
+
+		@ActivityType(name = SLOW_ACTIVITY_NAME, version = ACTIVITY_VERSION)
+		public static interface SlowActivity {
+
+		}
+
+		@ActivityType(name = ASYNC_ACTIVITY_NAME, version = ACTIVITY_VERSION)
+		public static interface AsyncActivity {
+
+		}
+
+		@ActivityType(name = BATCH_ACTIVITY_NAME, version = ACTIVITY_VERSION)
+		public static interface BatchActivity {
+
+		}
+
+		@ActivityType(name = CANCELLABLE_ACTIVITY_NAME, version = ACTIVITY_VERSION)
+		public static interface CancellableActivity {
+
+		}
 	}
 
 	public static class TestExecutors {
@@ -106,6 +153,50 @@ public class WorkerImplTest {
 			throw new IllegalStateException("the activity has failed!");
 		}
 
+		final AtomicInteger runningSlowActivities = new AtomicInteger();
+		final AtomicInteger maxRunningSlowActivities = new AtomicInteger();
+
+		@Executor(activity = SlowActivity.class)
+		public void slowActivity() {
+			this.maxRunningSlowActivities.accumulateAndGet(this.runningSlowActivities.incrementAndGet(), Math::max);
+			sleep(Duration.ofMillis(500));
+			this.runningSlowActivities.decrementAndGet();
+		}
+
+		final CompletableFuture<String> asyncResult = new CompletableFuture<>();
+
+		@Executor(activity = AsyncActivity.class)
+		public CompletableFuture<String> asyncActivity() {
+			return this.asyncResult;
+		}
+
+		@Executor(activity = CancellableActivity.class)
+		public void cancellableActivity(final ActivityProgress progress) {
+			for (int i = 0; i < 100 && !progress.isCancelRequested(); i++) {
+				progress.details("step " + i);
+				sleep(Duration.ofMillis(10));
+			}
+			if (progress.isCancelRequested()) {
+				throw new IllegalStateException("canceled");
+			}
+		}
+
+		@BatchExecutor(activity = BatchActivity.class, maxSize = 1, lingerMillis = 10)
+		public List<String> batchActivity(final List<String> inputs) {
+			final List<String> outputs = new ArrayList<>();
+			for (final String input : inputs) {
+				outputs.add(input.toUpperCase());
+			}
+			return outputs;
+		}
+
+	}
+
+	public static class LargeBatchExecutors {
+
+		@BatchExecutor(activity = BatchActivity.class, maxSize = 2)
+		public void batchActivity(final List<String> inputs) {
+		}
 	}
 
 	private Worker createWorker() {
@@ -118,14 +209,18 @@ public class WorkerImplTest {
 
 	private void anActivityTaskInTheTaskList(final String activityName) {
 		when(this.swf.pollForActivityTask(any(PollForActivityTaskRequest.class)))
-				.thenReturn(new ActivityTask()
-						.withTaskToken(TASK_TOKEN)
-						.withActivityId(ACTIVITY_ID)
-						.withInput("\"some input text\"")
-						.withActivityType(
-								new com.amazonaws.services.simpleworkflow.model.ActivityType()
-										.withName(activityName)
-										.withVersion(ACTIVITY_VERSION)));
+				.thenReturn(anActivityTask(activityName));
+	}
+
+	private static ActivityTask anActivityTask(final String activityName) {
+		return new ActivityTask()
+				.withTaskToken(TASK_TOKEN)
+				.withActivityId(ACTIVITY_ID)
+				.withInput("\"some input text\"")
+				.withActivityType(
+						new com.amazonaws.services.simpleworkflow.model.ActivityType()
+								.withName(activityName)
+								.withVersion(ACTIVITY_VERSION));
 	}
 
 	@Test
@@ -147,6 +242,30 @@ public class WorkerImplTest {
 		assertThat(request.getDomain()).isEqualTo(Tests.DOMAIN);
 	}
 
+	@Test
+	public void workerMeasuresThePollsAndTheExecutions() throws Exception {
+		// GIVEN a measured worker
+		final DefaultSwifferMetrics metrics = new DefaultSwifferMetrics();
+		final Worker worker = this.swiffer.newWorkerBuilder()
+				.identity("worker-test")
+				.taskList("test-task-list")
+				.executors(this.executors)
+				.metrics(metrics)
+				.build();
+		anActivityTaskInTheTaskList(FAILING_ACTIVITY_NAME);
+		// WHEN
+		worker.start();
+		sleep(Duration.ofMillis(100));
+		worker.stop();
+		// THEN
+		final String type = FAILING_ACTIVITY_NAME + ":" + ACTIVITY_VERSION;
+		assertThat(metrics.activityPollLatency().get("test-task-list").count()).isPositive();
+		assertThat(metrics.activityQueueWait().get(type).count()).isPositive();
+		assertThat(metrics.activityOutcomes(ActivityOutcome.FAILED).get(type).getCount()).isPositive();
+		assertThat(metrics.activityOutcomes(ActivityOutcome.COMPLETED).all()).isEmpty();
+		assertThat(metrics.respondLatency().get("RespondActivityTaskFailed").count()).isPositive();
+	}
+
 	@Test
 	public void workerInvokePollForActivityTaskEagerly() throws Exception {
 		// GIVEN
@@ -167,6 +286,429 @@ public class WorkerImplTest {
 
 	}
 
+	@Test
+	public void workerPollsOnlyWhenAThreadIsFree() throws Exception {
+		// GIVEN a worker with a single thread
+		final Worker worker = this.swiffer.newWorkerBuilder()
+				.identity("worker-test")
+				.taskList("test-task-list")
+				.executors(this.executors)
+				.poolSize(1)
+				.build();
+		anActivityTaskInTheTaskList(SLOW_ACTIVITY_NAME);
+		// WHEN
+		worker.start();
+		sleep(Duration.ofMillis(300));
+		// THEN the second task is not polled while the first one is executed
+		verify(this.swf, times(1)).pollForActivityTask(any(PollForActivityTaskRequest.class));
+		worker.stop();
+		verify(this.swf, atLeastOnce()).respondActivityTaskCompleted(any(RespondActivityTaskCompletedRequest.class));
+	}
+
+	@Test
+	public void workerReportsTheFailureOfATaskWhichCompletionCannotBeReported() throws Exception {
+		// GIVEN a completion rejected by SWF
+		final DefaultSwifferMetrics metrics = new DefaultSwifferMetrics();
+		final Worker worker = this.swiffer.newWorkerBuilder()
+				.identity("worker-test")
+				.taskList("test-task-list")
+				.executors(this.executors)
+				.metrics(metrics)
+				.build();
+		when(this.swf.pollForActivityTask(any(PollForActivityTaskRequest.class)))
+				.thenReturn(anActivityTask(ACTIVITY_NAME))
+				.then(returnAfterDelay(null, Duration.ofMillis(50)));
+		doThrow(new AmazonServiceException("result too long")).when(this.swf)
+				.respondActivityTaskCompleted(any(RespondActivityTaskCompletedRequest.class));
+		// WHEN
+		worker.start();
+		sleep(Duration.ofMillis(100));
+		worker.stop();
+		// THEN the task is reported and measured as failed
+		verify(this.swf).respondActivityTaskFailed(any(RespondActivityTaskFailedRequest.class));
+		final String type = ACTIVITY_NAME + ":" + ACTIVITY_VERSION;
+		assertThat(metrics.activityOutcomes(ActivityOutcome.FAILED).get(type).getCount()).isEqualTo(1);
+		assertThat(metrics.activityOutcomes(ActivityOutcome.COMPLETED).all()).isEmpty();
+	}
+
+	@Test
+	public void workerLimitsTheConcurrencyOfAnActivityType() throws Exception {
+		// GIVEN a worker with 2 threads executing 1 slow activity at a time
+		final Worker worker = this.swiffer.newWorkerBuilder()
+				.identity("worker-test")
+				.taskList("test-task-list")
+				.executors(this.executors)
+				.poolSize(2)
+				.maxConcurrency(SlowActivity.class, 1)
+				.build();
+		when(this.swf.pollForActivityTask(any(PollForActivityTaskRequest.class)))
+				.thenReturn(anActivityTask(SLOW_ACTIVITY_NAME), anActivityTask(SLOW_ACTIVITY_NAME),
+						anActivityTask(ACTIVITY_NAME))
+				.then(returnAfterDelay(null, Duration.ofMillis(50)));
+		// WHEN
+		worker.start();
+		sleep(Duration.ofMillis(300));
+		// THEN the second slow task is abandoned without being failed, and the
+		// other type is executed and polling goes on while the first one is
+		// running
+		verify(this.swf, never()).respondActivityTaskFailed(any(RespondActivityTaskFailedRequest.class));
+		verify(this.executors).doActivity1(anyString());
+		verify(this.swf, atLeast(5)).pollForActivityTask(any(PollForActivityTaskRequest.class));
+		assertThat(this.executors.runningSlowActivities.get()).isEqualTo(1);
+		worker.stop();
+		assertThat(this.executors.maxRunningSlowActivities.get()).isEqualTo(1);
+		verify(this.swf, times(2)).respondActivityTaskCompleted(any(RespondActivityTaskCompletedRequest.class));
+	}
+
+	@Test
+	public void workerDoesNotPollTheDedicatedTaskListOfASaturatedActivityType() throws Exception {
+		// GIVEN a worker executing 1 slow activity at a time, polled from its
+		// own task list
+		final Worker worker = this.swiffer.newWorkerBuilder()
+				.identity("worker-test")
+				.taskList("test-task-list")
+				.executors(this.executors)
+				.poolSize(2)
+				.maxConcurrency(SlowActivity.class, 1)
+				.dedicatedTaskList(SlowActivity.class, "slow-task-list")
+				.build();
+		final AtomicInteger slowPolls = new AtomicInteger();
+		when(this.swf.pollForActivityTask(any(PollForActivityTaskRequest.class))).then(invocation -> {
+			final PollForActivityTaskRequest request = invocation.getArgument(0);
+			if (request.getTaskList().getName().equals("slow-task-list")) {
+				slowPolls.incrementAndGet();
+				return anActivityTask(SLOW_ACTIVITY_NAME);
+			}
+			return returnAfterDelay(null, Duration.ofMillis(50)).answer(invocation);
+		});
+		// WHEN
+		worker.start();
+		sleep(Duration.ofMillis(300));
+		// THEN the slow task list is polled once, and not while the slow
+		// task is running
+		assertThat(slowPolls.get()).isEqualTo(1);
+		assertThat(this.executors.runningSlowActivities.get()).isEqualTo(1);
+		worker.stop();
+		assertThat(this.executors.maxRunningSlowActivities.get()).isEqualTo(1);
+		verify(this.swf, never()).respondActivityTaskFailed(any(RespondActivityTaskFailedRequest.class));
+	}
+
+	@Test
+	public void workerLimitsTheRateOfAnActivityType() throws Exception {
+		// GIVEN a worker executing 5 tasks per second, 1 every 200 ms, polled
+		// from their own task list
+		final WorkerImpl worker = (WorkerImpl) this.swiffer.newWorkerBuilder()
+				.identity("worker-test")
+				.taskList("test-task-list")
+				.executors(this.executors)
+				.rateLimit(ToUpperCase.class, 5)
+				.dedicatedTaskList(ToUpperCase.class, "upper-task-list")
+				.build();
+		final AtomicInteger otherPolls = new AtomicInteger();
+		when(this.swf.pollForActivityTask(any(PollForActivityTaskRequest.class))).then(invocation -> {
+			final PollForActivityTaskRequest request = invocation.getArgument(0);
+			if (request.getTaskList().getName().equals("upper-task-list")) {
+				return anActivityTask(ACTIVITY_NAME);
+			}
+			otherPolls.incrementAndGet();
+			return returnAfterDelay(null, Duration.ofMillis(50)).answer(invocation);
+		});
+		// WHEN
+		worker.start();
+		sleep(Duration.ofMillis(500));
+		worker.stop();
+		// THEN the tasks are executed at t=0, 200 and 400 ms, the dedicated
+		// task list being polled only with a token, while the other task list
+		// is polled without pausing
+		verify(this.executors, atLeast(2)).doActivity1(anyString());
+		verify(this.executors, atMost(4)).doActivity1(anyString());
+		assertThat(otherPolls.get()).isGreaterThanOrEqualTo(5);
+		assertThat(worker.throttledTime()).isGreaterThan(Duration.ofMillis(100));
+	}
+
+	@Test
+	public void workerAbandonsTheTasksOfARateLimitedActivityTypeWithoutToken() throws Exception {
+		// GIVEN a worker executing 5 tasks per second, polled from the shared
+		// task list every 20 ms
+		final DefaultSwifferMetrics metrics = new DefaultSwifferMetrics();
+		final Worker worker = this.swiffer.newWorkerBuilder()
+				.identity("worker-test")
+				.taskList("test-task-list")
+				.executors(this.executors)
+				.rateLimit(ToUpperCase.class, 5)
+				.metrics(metrics)
+				.build();
+		when(this.swf.pollForActivityTask(any(PollForActivityTaskRequest.class)))
+				.then(returnAfterDelay(anActivityTask(ACTIVITY_NAME), Duration.ofMillis(20)));
+		// WHEN
+		worker.start();
+		sleep(Duration.ofMillis(500));
+		worker.stop();
+		// THEN the tasks without token are abandoned without being failed, and
+		// the polling goes on
+		verify(this.executors, atLeast(2)).doActivity1(anyString());
+		verify(this.executors, atMost(4)).doActivity1(anyString());
+		verify(this.swf, atLeast(10)).pollForActivityTask(any(PollForActivityTaskRequest.class));
+		verify(this.swf, never()).respondActivityTaskFailed(any(RespondActivityTaskFailedRequest.class));
+		assertThat(metrics.activityOutcomes(ActivityOutcome.ABANDONED).get(ACTIVITY_NAME + ":" + ACTIVITY_VERSION)
+				.getCount()).isGreaterThan(5);
+	}
+
+	@Test
+	public void workerLimitsTheRateOfAllItsActivities() throws Exception {
+		// GIVEN a worker polling 5 tasks per second, 1 every 200 ms
+		final WorkerImpl worker = (WorkerImpl) this.swiffer.newWorkerBuilder()
+				.identity("worker-test")
+				.taskList("test-task-list")
+				.executors(this.executors)
+				.rateLimit(5)
+				.build();
+		anActivityTaskInTheTaskList(ACTIVITY_NAME);
+		// WHEN
+		worker.start();
+		sleep(Duration.ofMillis(500));
+		worker.stop();
+		// THEN
+		verify(this.swf, atLeast(2)).pollForActivityTask(any(PollForActivityTaskRequest.class));
+		verify(this.swf, atMost(4)).pollForActivityTask(any(PollForActivityTaskRequest.class));
+		assertThat(worker.throttledTime()).isGreaterThan(Duration.ofMillis(100));
+	}
+
+	@Test
+	public void workerHeartbeatsTheRunningTasksUntilTheirCancellation() throws Exception {
+		// GIVEN a task requested to cancel at its second heartbeat
+		final Worker worker = this.swiffer.newWorkerBuilder()
+				.identity("worker-test")
+				.taskList("test-task-list")
+				.executors(this.executors)
+				.heartbeatInterval(Duration.ofMillis(100))
+				.build();
+		when(this.swf.pollForActivityTask(any(PollForActivityTaskRequest.class)))
+				.thenReturn(new ActivityTask()
+						.withTaskToken(TASK_TOKEN)
+						.withActivityId(ACTIVITY_ID)
+						.withActivityType(new com.amazonaws.services.simpleworkflow.model.ActivityType()
+								.withName(CANCELLABLE_ACTIVITY_NAME)
+								.withVersion(ACTIVITY_VERSION)))
+				.thenReturn(new ActivityTask());
+		when(this.swf.recordActivityTaskHeartbeat(any(RecordActivityTaskHeartbeatRequest.class)))
+				.thenReturn(new ActivityTaskStatus().withCancelRequested(false))
+				.thenReturn(new ActivityTaskStatus().withCancelRequested(true));
+		// WHEN
+		worker.start();
+		sleep(Duration.ofMillis(500));
+		worker.stop();
+		// THEN the heartbeats have sent the latest details set by the executor
+		final ArgumentCaptor<RecordActivityTaskHeartbeatRequest> captor = ArgumentCaptor
+				.forClass(RecordActivityTaskHeartbeatRequest.class);
+		verify(this.swf, times(2)).recordActivityTaskHeartbeat(captor.capture());
+		assertThat(captor.getValue().getDetails()).startsWith("step ");
+		verify(this.swf).respondActivityTaskCanceled(any(RespondActivityTaskCanceledRequest.class));
+		verify(this.swf, never()).respondActivityTaskFailed(any(RespondActivityTaskFailedRequest.class));
+	}
+
+	@Test
+	public void workerRetriesTheThrottledResponses() throws Exception {
+		// GIVEN a worker sending its responses asynchronously
+		final Worker worker = this.swiffer.newWorkerBuilder()
+				.identity("worker-test")
+				.taskList("test-task-list")
+				.executors(this.executors)
+				.asyncResponses(true)
+				.build();
+		when(this.swf.pollForActivityTask(any(PollForActivityTaskRequest.class)))
+				.thenReturn(new ActivityTask()
+						.withTaskToken(TASK_TOKEN)
+						.withActivityId(ACTIVITY_ID)
+						.withInput("\"some input text\"")
+						.withActivityType(new com.amazonaws.services.simpleworkflow.model.ActivityType()
+								.withName(ACTIVITY_NAME)
+								.withVersion(ACTIVITY_VERSION)))
+				.thenReturn(new ActivityTask());
+		final AmazonServiceException throttling = new AmazonServiceException("Rate exceeded");
+		throttling.setErrorCode("ThrottlingException");
+		doThrow(throttling).doNothing().when(this.swf)
+				.respondActivityTaskCompleted(any(RespondActivityTaskCompletedRequest.class));
+		// WHEN
+		worker.start();
+		sleep(Duration.ofMillis(200));
+		worker.stop();
+		// THEN the stop has waited for the retried response
+		verify(this.swf, times(2)).respondActivityTaskCompleted(any(RespondActivityTaskCompletedRequest.class));
+	}
+
+	@Test
+	public void eachPollerHasItsOwnIdentity() throws Exception {
+		// GIVEN
+		final Worker worker = this.swiffer.newWorkerBuilder()
+				.identity("worker-test")
+				.taskList("test-task-list")
+				.executors(this.executors)
+				.pollers(3)
+				.build();
+		anActivityTaskInTheTaskList(NO_ARGUMENT_ACTIVITY_NAME);
+		// WHEN
+		worker.start();
+		sleep(Duration.ofMillis(100));
+		worker.stop();
+		// THEN
+		final ArgumentCaptor<PollForActivityTaskRequest> captor = ArgumentCaptor
+				.forClass(PollForActivityTaskRequest.class);
+		verify(this.swf, atLeastOnce()).pollForActivityTask(captor.capture());
+		assertThat(captor.getAllValues()).extracting(PollForActivityTaskRequest::getIdentity)
+				.contains("worker-test-0", "worker-test-1", "worker-test-2");
+	}
+
+	@Test
+	public void workerReportsAsyncActivitiesWhenTheyComplete() throws Exception {
+		// GIVEN a worker with a single thread
+		final Worker worker = this.swiffer.newWorkerBuilder()
+				.identity("worker-test")
+				.taskList("test-task-list")
+				.executors(this.executors)
+				.poolSize(1)
+				.build();
+		anActivityTaskInTheTaskList(ASYNC_ACTIVITY_NAME);
+		worker.start();
+		sleep(Duration.ofMillis(200));
+		// THEN the pending activity is not reported and still counts as in-flight
+		verify(this.swf, never()).respondActivityTaskCompleted(any(RespondActivityTaskCompletedRequest.class));
+		verify(this.swf, times(1)).pollForActivityTask(any(PollForActivityTaskRequest.class));
+		// WHEN the activity completes
+		this.executors.asyncResult.complete("done");
+		sleep(Duration.ofMillis(200));
+		worker.stop();
+		// THEN
+		final ArgumentCaptor<RespondActivityTaskCompletedRequest> captor = ArgumentCaptor
+				.forClass(RespondActivityTaskCompletedRequest.class);
+		verify(this.swf, atLeastOnce()).respondActivityTaskCompleted(captor.capture());
+		assertThat(captor.getValue().getResult()).isEqualTo("\"done\"");
+		verify(this.swf, atLeast(2)).pollForActivityTask(any(PollForActivityTaskRequest.class));
+	}
+
+	@Test
+	public void workerExecutesBatchActivities() throws Exception {
+		// GIVEN
+		anActivityTaskInTheTaskList(BATCH_ACTIVITY_NAME);
+		// WHEN
+		final WorkerImpl worker = (WorkerImpl) createWorker();
+		worker.pollAndExecuteTask();
+		// THEN
+		final ArgumentCaptor<RespondActivityTaskCompletedRequest> captor = ArgumentCaptor
+				.forClass(RespondActivityTaskCompletedRequest.class);
+		verify(this.swf).respondActivityTaskCompleted(captor.capture());
+		assertThat(captor.getValue().getResult()).isEqualTo("\"SOME INPUT TEXT\"");
+	}
+
+	@Test
+	public void workerRejectsBatchesLargerThanItsPool() throws Exception {
+		final Throwable thrown = catchThrowable(() -> this.swiffer.newWorkerBuilder()
+				.identity("worker-test")
+				.taskList("test-task-list")
+				.executors(new LargeBatchExecutors())
+				.poolSize(1)
+				.build());
+
+		assertThat(thrown).isInstanceOf(IllegalStateException.class).hasMessageContaining("max size of 2");
+	}
+
+	@Test
+	public void workerReportsAsyncActivitiesFailures() throws Exception {
+		// GIVEN
+		anActivityTaskInTheTaskList(ASYNC_ACTIVITY_NAME);
+		this.executors.asyncResult.completeExceptionally(new IllegalStateException("async failure"));
+		// WHEN
+		final WorkerImpl worker = (WorkerImpl) createWorker();
+		worker.pollAndExecuteTask();
+		// THEN
+		final ArgumentCaptor<RespondActivityTaskFailedRequest> captor = ArgumentCaptor
+				.forClass(RespondActivityTaskFailedRequest.class);
+		verify(this.swf).respondActivityTaskFailed(captor.capture());
+		assertThat(captor.getValue().getDetails()).contains("async failure");
+	}
+
+	@Test
+	public void workerExecutesActivitiesOnVirtualThreadsWhenSupported() throws Exception {
+		// GIVEN
+		final Worker worker = this.swiffer.newWorkerBuilder()
+				.identity("worker-test")
+				.taskList("test-task-list")
+				.executors(this.executors)
+				.virtualThreads(true)
+				.build();
+		anActivityTaskInTheTaskList(NO_ARGUMENT_ACTIVITY_NAME);
+		// WHEN
+		worker.start();
+		sleep(Duration.ofMillis(100));
+		worker.stop();
+		// THEN
+		verify(this.swf, atLeastOnce()).respondActivityTaskCompleted(any(RespondActivityTaskCompletedRequest.class));
+	}
+
+	@Test
+	public void workerPollsWithTheAsyncClient() throws Exception {
+		// GIVEN an async client returning one task, then empty long polls
+		final AmazonSimpleWorkflowAsync asyncSwf = mock(AmazonSimpleWorkflowAsync.class);
+		final AtomicInteger polls = new AtomicInteger();
+		when(asyncSwf.pollForActivityTaskAsync(any(PollForActivityTaskRequest.class), any()))
+				.then(invocation -> {
+					final PollForActivityTaskRequest request = invocation.getArgument(0);
+					final AsyncHandler<PollForActivityTaskRequest, ActivityTask> handler = invocation.getArgument(1);
+					final ActivityTask task = polls.getAndIncrement() == 0
+							? new ActivityTask()
+									.withTaskToken(TASK_TOKEN)
+									.withActivityId(ACTIVITY_ID)
+									.withActivityType(new com.amazonaws.services.simpleworkflow.model.ActivityType()
+											.withName(NO_ARGUMENT_ACTIVITY_NAME)
+											.withVersion(ACTIVITY_VERSION))
+							: new ActivityTask();
+					return CompletableFuture.runAsync(() -> {
+						sleep(Duration.ofMillis(50));
+						handler.onSuccess(request, task);
+					}).thenApply(v -> task);
+				});
+		final Worker worker = new Swiffer(asyncSwf, Tests.DOMAIN).newWorkerBuilder()
+				.identity("worker-test")
+				.taskList("test-task-list")
+				.executors(this.executors)
+				.asyncPolling(true)
+				.build();
+		// WHEN
+		worker.start();
+		sleep(Duration.ofMillis(300));
+		worker.stop();
+		// THEN the polls are chained and the task is executed
+		verify(asyncSwf, never()).pollForActivityTask(any(PollForActivityTaskRequest.class));
+		assertThat(polls.get()).isGreaterThan(1);
+		verify(asyncSwf).respondActivityTaskCompleted(any(RespondActivityTaskCompletedRequest.class));
+		assertThat(worker.isStarted()).isFalse();
+	}
+
+	@Test
+	public void workerKeepsItsPermitsAfterEmptyPolls() throws Exception {
+		// GIVEN a worker with a single thread and an empty task list
+		final Worker worker = this.swiffer.newWorkerBuilder()
+				.identity("worker-test")
+				.taskList("test-task-list")
+				.executors(this.executors)
+				.poolSize(1)
+				.build();
+		when(this.swf.pollForActivityTask(any(PollForActivityTaskRequest.class)))
+				.then(returnAfterDelay(null, Duration.ofMillis(50)));
+		worker.start();
+		sleep(Duration.ofMillis(300));
+		// WHEN a slow task arrives
+		anActivityTaskInTheTaskList(SLOW_ACTIVITY_NAME);
+		clearInvocations(this.swf);
+		sleep(Duration.ofMillis(300));
+		// THEN the empty polls have not been executed nor released the
+		// permit of the single thread twice: the slow task blocks the polling
+		assertThat(worker.isStarted()).isTrue();
+		verify(this.swf, times(1)).pollForActivityTask(any(PollForActivityTaskRequest.class));
+		worker.stop();
+		verify(this.swf, times(1)).respondActivityTaskCompleted(any(RespondActivityTaskCompletedRequest.class));
+	}
+
 	@Test
 	public void workerInvokeRespondTaskFailedIfThereIsNoExecutorForTheActivityType() throws Exception {
 		// GIVEN
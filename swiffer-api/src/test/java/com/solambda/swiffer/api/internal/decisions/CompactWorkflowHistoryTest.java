@@ -0,0 +1,136 @@
+package com.solambda.swiffer.api.internal.decisions;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import com.amazonaws.services.simpleworkflow.model.ActivityTaskCompletedEventAttributes;
+import com.amazonaws.services.simpleworkflow.model.ActivityTaskScheduledEventAttributes;
+import com.amazonaws.services.simpleworkflow.model.ActivityType;
+import com.amazonaws.services.simpleworkflow.model.EventType;
+import com.amazonaws.services.simpleworkflow.model.HistoryEvent;
+import com.amazonaws.services.simpleworkflow.model.MarkerRecordedEventAttributes;
+import com.amazonaws.services.simpleworkflow.model.WorkflowExecutionStartedEventAttributes;
+import com.solambda.swiffer.api.internal.VersionedName;
+
+/**
+ * Test for {@link CompactWorkflowHistory}
+ */
+public class CompactWorkflowHistoryTest {
+
+	private static final Date TIMESTAMP = new Date(1_000_000L);
+
+	private static List<HistoryEvent> events() {
+		return Arrays.asList(
+				event(1, EventType.WorkflowExecutionStarted).withWorkflowExecutionStartedEventAttributes(
+						new WorkflowExecutionStartedEventAttributes().withInput("input")),
+				event(2, EventType.ActivityTaskScheduled).withActivityTaskScheduledEventAttributes(
+						new ActivityTaskScheduledEventAttributes().withActivityId(new String("activity"))
+								.withActivityType(new ActivityType().withName("activityType").withVersion("1"))
+								.withInput("activityInput")),
+				event(3, EventType.ActivityTaskCompleted).withActivityTaskCompletedEventAttributes(
+						new ActivityTaskCompletedEventAttributes().withScheduledEventId(2L).withResult("output")),
+				event(4, EventType.ActivityTaskScheduled).withActivityTaskScheduledEventAttributes(
+						new ActivityTaskScheduledEventAttributes().withActivityId(new String("activity"))
+								.withActivityType(new ActivityType().withName("activityType").withVersion("1"))),
+				event(5, EventType.MarkerRecorded).withMarkerRecordedEventAttributes(
+						new MarkerRecordedEventAttributes().withMarkerName("marker").withDetails("details")));
+	}
+
+	@Test
+	public void eventsAreTheSameAsTheEventsOfAnHistory() {
+		final WorkflowHistory expected = new WorkflowHistoryImpl(events());
+		final CompactWorkflowHistory history = new CompactWorkflowHistory(events());
+
+		assertThat(history.events()).hasSize(5);
+		for (int i = 0; i < expected.events().size(); i++) {
+			final WorkflowEvent expectedEvent = expected.events().get(i);
+			final WorkflowEvent event = history.events().get(i);
+			assertThat(event.id()).isEqualTo(expectedEvent.id());
+			assertThat(event.type()).isEqualTo(expectedEvent.type());
+			assertThat(event.eventTimestamp()).isEqualTo(expectedEvent.eventTimestamp());
+			assertThat(event.initialEventId()).isEqualTo(expectedEvent.initialEventId());
+			assertThat(event.toString()).isEqualTo(expectedEvent.toString());
+		}
+	}
+
+	@Test
+	public void attributesOfInitialEventsAreRead() {
+		final CompactWorkflowHistory history = new CompactWorkflowHistory(events());
+
+		final WorkflowEvent completed = history.getEventById(3L);
+		assertThat(completed.output()).isEqualTo("output");
+		assertThat(completed.input()).isEqualTo("activityInput");
+		assertThat(completed.activityType()).isEqualTo(new VersionedName("activityType", "1"));
+		assertThat(history.getEventById(6L)).isNull();
+	}
+
+	@Test
+	public void attributesAreReadFromTheColumns() {
+		final CompactWorkflowHistory history = new CompactWorkflowHistory(events());
+
+		final WorkflowEvent scheduled = history.getEventById(2L);
+		assertThat(scheduled).isSameAs(history.events().get(3));
+		assertThat(scheduled.getActivityTaskScheduledEventAttributes().getInput()).isEqualTo("activityInput");
+		assertThat(history.getEventById(5L).markerName()).isEqualTo("marker");
+		assertThat(history.getEventById(5L).getActivityTaskScheduledEventAttributes()).isNull();
+		assertThat(history.getEventById(1L).activityId()).isNull();
+	}
+
+	@Test
+	public void shortStringsAreInterned() {
+		final CompactWorkflowHistory history = new CompactWorkflowHistory(events());
+
+		assertThat(history.getEventById(2L).activityId()).isSameAs(history.getEventById(4L).activityId());
+	}
+
+	@Test
+	public void eventsAfter() {
+		final CompactWorkflowHistory history = new CompactWorkflowHistory(events());
+
+		assertThat(ids(history.eventsAfter(3L))).containsExactly(5L, 4L);
+		assertThat(history.getLatestMarker("marker").details()).isEqualTo("details");
+		assertThat(ids(history.getActivityEventsByScheduledEventId(2L))).containsExactly(3L, 2L);
+	}
+
+	@Test
+	public void eventsWithoutAttributesHaveNoValues() {
+		final CompactWorkflowHistory history = new CompactWorkflowHistory(
+				Arrays.asList(event(1, EventType.WorkflowExecutionStarted), event(2, EventType.ActivityTaskCompleted)));
+
+		assertThat(history.getEventById(1L).input()).isNull();
+		assertThat(history.getEventById(2L).initialEventId()).isNull();
+		assertThat(history.getEventById(2L).output()).isNull();
+	}
+
+	@Test
+	public void historyEventsAreRebuilt() {
+		final CompactWorkflowHistory history = new CompactWorkflowHistory(events());
+
+		final HistoryEvent scheduled = history.getEventById(2L).historyEvent();
+		assertThat(scheduled.getEventId()).isEqualTo(2L);
+		assertThat(scheduled.getEventType()).isEqualTo(EventType.ActivityTaskScheduled.toString());
+		assertThat(scheduled.getEventTimestamp()).isEqualTo(TIMESTAMP);
+		assertThat(scheduled.getActivityTaskScheduledEventAttributes().getInput()).isEqualTo("activityInput");
+		assertThat(history.getEventById(5L).historyEvent().getEventType())
+				.isEqualTo(EventType.MarkerRecorded.toString());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void incompleteHistoriesAreRejected() {
+		new CompactWorkflowHistory(events().subList(1, 5));
+	}
+
+	private static HistoryEvent event(final long id, final EventType type) {
+		return new HistoryEvent().withEventId(id).withEventType(type).withEventTimestamp(TIMESTAMP);
+	}
+
+	private static List<Long> ids(final List<WorkflowEvent> events) {
+		return events.stream().map(WorkflowEvent::id).collect(Collectors.toList());
+	}
+}
@@ -23,6 +23,7 @@ import com.amazonaws.services.simpleworkflow.model.DecisionTask;
 import com.amazonaws.services.simpleworkflow.model.EventType;
 import com.amazonaws.services.simpleworkflow.model.HistoryEvent;
 import com.amazonaws.services.simpleworkflow.model.PollForDecisionTaskRequest;
+import com.amazonaws.services.simpleworkflow.model.WorkflowExecution;
 import com.amazonaws.services.simpleworkflow.model.WorkflowExecutionStartedEventAttributes;
 import com.solambda.swiffer.api.Decider;
 import com.solambda.swiffer.api.OnWorkflowStarted;
@@ -96,6 +97,7 @@ public class DeciderImplTest {
 				.thenReturn(new DecisionTask()
 						.withTaskToken(TASK_TOKEN)
 						.withPreviousStartedEventId(0L)
+						.withWorkflowExecution(new WorkflowExecution().withWorkflowId("workflowId"))
 						.withWorkflowType(new com.amazonaws.services.simpleworkflow.model.WorkflowType()
 								.withName("workflowType1").withVersion("1"))
 						.withEvents(events));
@@ -154,6 +156,61 @@ public class DeciderImplTest {
 		assertThat(request).isEqualTo("workflowInput");
 	}
 
+	@Test
+	public void eachPollerHasItsOwnIdentity() {
+		// GIVEN
+		final Decider decider = this.swiffer.newDeciderBuilder()
+				.taskList("test-decision-task-list")
+				.identity("decider-name")
+				.pollers(3)
+				.workflowTemplates(this.workflowTemplate1)
+				.build();
+		aDecisionTaskInTheTaskList();
+		// WHEN
+		decider.start();
+		sleep(Duration.ofMillis(100));
+		decider.stop();
+		// THEN
+		final ArgumentCaptor<PollForDecisionTaskRequest> captor = ArgumentCaptor
+				.forClass(PollForDecisionTaskRequest.class);
+		verify(this.swf, atLeastOnce()).pollForDecisionTask(captor.capture());
+		assertThat(captor.getAllValues()).extracting(PollForDecisionTaskRequest::getIdentity)
+				.contains("decider-name-0", "decider-name-1", "decider-name-2");
+	}
+
+	@Test
+	public void pollsOnlyWhenADecisionThreadIsFree() throws Exception {
+		// GIVEN a decider with 3 pollers and a single slow decision thread
+		final Decider decider = this.swiffer.newDeciderBuilder()
+				.taskList("test-decision-task-list")
+				.identity("decider-name")
+				.pollers(3)
+				.decisionThreads(1)
+				.workflowTemplates(this.workflowTemplate1)
+				.build();
+		doAnswer(invocation -> {
+			Thread.sleep(500);
+			return null;
+		}).when(this.workflowTemplate1).started(any());
+		aDecisionTaskInTheTaskList();
+		// WHEN
+		decider.start();
+		sleep(Duration.ofMillis(300));
+		// THEN the pollers wait for the decision of the first task
+		verify(this.swf, times(1)).pollForDecisionTask(any(PollForDecisionTaskRequest.class));
+		decider.stop();
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void aStoppedDeciderCannotBeRestarted() {
+		final Decider decider = createDecider();
+		aDecisionTaskInTheTaskList();
+		decider.start();
+		decider.stop();
+
+		decider.start();
+	}
+
 	/**
 	 * Do not throw exception if it is a SWF client exception.
 	 */
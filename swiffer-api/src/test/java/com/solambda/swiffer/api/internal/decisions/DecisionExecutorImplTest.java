@@ -1,14 +1,19 @@
 package com.solambda.swiffer.api.internal.decisions;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import org.junit.Test;
@@ -16,10 +21,12 @@ import org.junit.runner.RunWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
 
+import com.amazonaws.AmazonServiceException;
 import com.amazonaws.services.simpleworkflow.AmazonSimpleWorkflow;
 import com.amazonaws.services.simpleworkflow.model.Decision;
 import com.amazonaws.services.simpleworkflow.model.DecisionType;
 import com.amazonaws.services.simpleworkflow.model.RespondDecisionTaskCompletedRequest;
+import com.solambda.swiffer.api.internal.ResponsePipeline;
 
 import junitparams.JUnitParamsRunner;
 import junitparams.Parameters;
@@ -58,6 +65,28 @@ public class DecisionExecutorImplTest {
         assertThat(actualRequest.getDecisions()).containsExactlyElementsOf(decisionList);
     }
 
+    /**
+     * Test case: the decisions are sent by the response pipeline.
+     * Expected result: the throttled response is retried.
+     */
+    @Test
+    public void apply_RetriesTheThrottledDecisions() throws Exception {
+        ResponsePipeline responses = new ResponsePipeline(1, 10, Duration.ofSeconds(10));
+        DecisionExecutorImpl asyncDecisionExecutor = new DecisionExecutorImpl(swf, responses);
+        AmazonServiceException throttling = new AmazonServiceException("Rate exceeded");
+        throttling.setErrorCode("ThrottlingException");
+        doThrow(throttling).doNothing()
+                .when(swf).respondDecisionTaskCompleted(any(RespondDecisionTaskCompletedRequest.class));
+        List<Decision> decisionList = mockAllNotCloseDecisions();
+        when(decisions.get()).thenReturn(decisionList);
+
+        asyncDecisionExecutor.apply(context, decisions);
+
+        assertThat(responses.shutdown(5, TimeUnit.SECONDS)).isTrue();
+        verify(swf, times(2)).respondDecisionTaskCompleted(any(RespondDecisionTaskCompletedRequest.class));
+        assertThat(responses.retried()).isEqualTo(1);
+    }
+
     private Object[] closeDecisions() {
         return new Object[]{
                 mockDecision(DecisionType.CancelWorkflowExecution),
@@ -4,12 +4,14 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.Random;
+import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.LongStream;
 import java.util.stream.Stream;
 
 import org.junit.Test;
@@ -19,8 +21,10 @@ import org.mockito.runners.MockitoJUnitRunner;
 
 import com.amazonaws.services.simpleworkflow.AmazonSimpleWorkflow;
 import com.amazonaws.services.simpleworkflow.model.DecisionTask;
+import com.amazonaws.services.simpleworkflow.model.EventType;
 import com.amazonaws.services.simpleworkflow.model.HistoryEvent;
 import com.amazonaws.services.simpleworkflow.model.MarkerRecordedEventAttributes;
+import com.solambda.swiffer.api.internal.events.EventCategory;
 import com.solambda.swiffer.api.mapper.DataMapper;
 import com.solambda.swiffer.api.mapper.JacksonDataMapper;
 
@@ -104,13 +108,28 @@ public class DecisionTaskContextImplTest {
         assertThat(result).isFalse();
     }
 
+    @Test
+    public void newEvents() throws Exception {
+        List<HistoryEvent> events = mockHistoryEvents(mockMarkerRecordedEvent(12L, MARKER_NAME, null));
+        when(decisionTask.getEvents()).thenReturn(events);
+        when(decisionTask.getPreviousStartedEventId()).thenReturn(10L);
+
+        DecisionTaskContextImpl context = new DecisionTaskContextImpl(swf, domain, decisionTask, dataMapper);
+
+        assertThat(context.newEvents()).extracting(WorkflowEvent::id).containsExactly(11L, 12L);
+        assertThat(context.newEvents()).isSameAs(context.newEvents());
+        assertThat(context.newEvents(EventCategory.MARKER)).extracting(WorkflowEvent::id).containsExactly(12L);
+        assertThat(context.newEvents(EventCategory.TIMER)).isEmpty();
+    }
+
     private List<HistoryEvent> mockHistoryEvents(HistoryEvent... concreteEvents) {
-        Stream<HistoryEvent> randomHistoryEvents = new Random().longs(10).mapToObj(value -> {
-            HistoryEvent historyEvent = mock(HistoryEvent.class);
-            when(historyEvent.getEventId()).thenReturn(value);
-            return historyEvent;
-        });
-        return Stream.concat(randomHistoryEvents, Stream.of(concreteEvents))
+        Set<Long> concreteIds = Stream.of(concreteEvents).map(HistoryEvent::getEventId).collect(Collectors.toSet());
+        long newestEventId = Math.max(10L, Collections.max(concreteIds));
+        Stream<HistoryEvent> otherHistoryEvents = LongStream.rangeClosed(1, newestEventId)
+                                                            .filter(id -> !concreteIds.contains(id))
+                                                            .mapToObj(id -> new HistoryEvent().withEventId(id)
+                                                                                              .withEventType(EventType.DecisionTaskScheduled));
+        return Stream.concat(otherHistoryEvents, Stream.of(concreteEvents))
                      .sorted(Comparator.comparing(HistoryEvent::getEventId).reversed())
                      .collect(Collectors.toList());
     }
@@ -122,6 +141,7 @@ public class DecisionTaskContextImplTest {
 
         HistoryEvent event = mock(HistoryEvent.class);
         when(event.getEventId()).thenReturn(id);
+        when(event.getEventType()).thenReturn(EventType.MarkerRecorded.toString());
         when(event.getMarkerRecordedEventAttributes()).thenReturn(attributes);
 
         return event;
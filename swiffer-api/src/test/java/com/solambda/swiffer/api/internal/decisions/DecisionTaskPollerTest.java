@@ -3,10 +3,14 @@ package com.solambda.swiffer.api.internal.decisions;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.time.Instant;
+import java.util.Arrays;
 import java.util.Comparator;
+import java.util.Date;
 import java.util.List;
 import java.util.stream.Collectors;
 import java.util.stream.LongStream;
@@ -18,9 +22,16 @@ import org.mockito.runners.MockitoJUnitRunner;
 
 import com.amazonaws.services.simpleworkflow.AmazonSimpleWorkflow;
 import com.amazonaws.services.simpleworkflow.model.DecisionTask;
+import com.amazonaws.services.simpleworkflow.model.DecisionTaskScheduledEventAttributes;
+import com.amazonaws.services.simpleworkflow.model.DecisionTaskStartedEventAttributes;
+import com.amazonaws.services.simpleworkflow.model.EventType;
 import com.amazonaws.services.simpleworkflow.model.HistoryEvent;
+import com.amazonaws.services.simpleworkflow.model.MarkerRecordedEventAttributes;
 import com.amazonaws.services.simpleworkflow.model.PollForDecisionTaskRequest;
 import com.amazonaws.services.simpleworkflow.model.TaskList;
+import com.amazonaws.services.simpleworkflow.model.TimerFiredEventAttributes;
+import com.amazonaws.services.simpleworkflow.model.TimerStartedEventAttributes;
+import com.amazonaws.services.simpleworkflow.model.WorkflowExecution;
 import com.solambda.swiffer.api.mapper.DataMapper;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -63,6 +74,164 @@ public class DecisionTaskPollerTest {
         assertThat(context.history().events()).extracting(WorkflowEvent::id).containsExactlyElementsOf(expectedId);
     }
 
+    @Test
+    public void pollForTask_lazy() throws Exception {
+        AmazonSimpleWorkflow swf = mock(AmazonSimpleWorkflow.class);
+        String nextPageToken = "nextPage";
+        DecisionTask firstPage = new DecisionTask().withTaskToken("TOKEN")
+                                                   .withPreviousStartedEventId(1005L)
+                                                   .withNextPageToken(nextPageToken)
+                                                   .withEvents(generateRandomHistoryEvents(11, 1010));
+        DecisionTask secondPage = new DecisionTask().withTaskToken("TOKEN")
+                                                    .withEvents(generateRandomHistoryEvents(1, 10));
+
+        PollForDecisionTaskRequest firstRequest = getRequest(null);
+        PollForDecisionTaskRequest secondRequest = getRequest(nextPageToken);
+
+        when(swf.pollForDecisionTask(eq(firstRequest))).thenReturn(firstPage);
+        when(swf.pollForDecisionTask(eq(secondRequest))).thenReturn(secondPage);
+
+        DecisionTaskPoller poller = new DecisionTaskPoller(swf, DOMAIN, TASK_LIST, DECISIDER, dataMapper, HistoryMode.LAZY);
+
+        DecisionTaskContext context = poller.poll();
+
+        verify(swf).pollForDecisionTask(eq(firstRequest));
+        assertThat(context.newEvents()).extracting(WorkflowEvent::id).containsExactly(1006L, 1007L, 1008L, 1009L, 1010L);
+        assertThat(context.history().getEventById(11L).id()).isEqualTo(11L);
+        verify(swf, never()).pollForDecisionTask(eq(secondRequest));
+
+        assertThat(context.history().getEventById(10L).id()).isEqualTo(10L);
+        verify(swf).pollForDecisionTask(eq(secondRequest));
+
+        List<Long> expectedId = LongStream.iterate(1010, operand -> --operand).limit(1010).boxed().collect(Collectors.toList());
+        assertThat(context.history().events()).extracting(WorkflowEvent::id).containsExactlyElementsOf(expectedId);
+        verify(swf).pollForDecisionTask(eq(secondRequest));
+    }
+
+    @Test
+    public void pollForTask_lazyLookupsFetchOnlyTheFirstPage() throws Exception {
+        AmazonSimpleWorkflow swf = mock(AmazonSimpleWorkflow.class);
+        String nextPageToken = "nextPage";
+        List<HistoryEvent> firstPageEvents = generateHistoryEvents(11, 1010);
+        firstPageEvents.set(1010 - 1008, new HistoryEvent().withEventId(1008L).withEventType(EventType.MarkerRecorded)
+                                                           .withMarkerRecordedEventAttributes(new MarkerRecordedEventAttributes()
+                                                                   .withMarkerName("marker")));
+        firstPageEvents.set(1010 - 1007, new HistoryEvent().withEventId(1007L).withEventType(EventType.TimerFired)
+                                                           .withTimerFiredEventAttributes(new TimerFiredEventAttributes()
+                                                                   .withTimerId("timer").withStartedEventId(1001L)));
+        firstPageEvents.set(1010 - 1001, new HistoryEvent().withEventId(1001L).withEventType(EventType.TimerStarted)
+                                                           .withTimerStartedEventAttributes(new TimerStartedEventAttributes()
+                                                                   .withTimerId("timer")));
+        DecisionTask firstPage = new DecisionTask().withTaskToken("TOKEN")
+                                                   .withPreviousStartedEventId(1005L)
+                                                   .withNextPageToken(nextPageToken)
+                                                   .withEvents(firstPageEvents);
+        DecisionTask secondPage = new DecisionTask().withTaskToken("TOKEN")
+                                                    .withEvents(generateHistoryEvents(1, 10));
+
+        PollForDecisionTaskRequest firstRequest = getRequest(null);
+        PollForDecisionTaskRequest secondRequest = getRequest(nextPageToken);
+        when(swf.pollForDecisionTask(eq(firstRequest))).thenReturn(firstPage);
+        when(swf.pollForDecisionTask(eq(secondRequest))).thenReturn(secondPage);
+
+        DecisionTaskPoller poller = new DecisionTaskPoller(swf, DOMAIN, TASK_LIST, DECISIDER, dataMapper, HistoryMode.LAZY);
+
+        DecisionTaskContext context = poller.poll();
+
+        assertThat(context.hasMarker("marker")).isTrue();
+        assertThat(context.history().getTimerEvents("timer")).extracting(WorkflowEvent::id).containsExactly(1007L, 1001L);
+        verify(swf, never()).pollForDecisionTask(eq(secondRequest));
+
+        assertThat(context.hasMarker("unknown")).isFalse();
+        verify(swf).pollForDecisionTask(eq(secondRequest));
+    }
+
+    @Test
+    public void pollForTask_compact() throws Exception {
+        AmazonSimpleWorkflow swf = mock(AmazonSimpleWorkflow.class);
+        String nextPageToken = "nextPage";
+        DecisionTask firstPage = new DecisionTask().withTaskToken("TOKEN")
+                                                   .withPreviousStartedEventId(1005L)
+                                                   .withNextPageToken(nextPageToken)
+                                                   .withEvents(generateHistoryEvents(11, 1010));
+        DecisionTask secondPage = new DecisionTask().withTaskToken("TOKEN")
+                                                    .withEvents(generateHistoryEvents(1, 10));
+
+        when(swf.pollForDecisionTask(eq(getRequest(null)))).thenReturn(firstPage);
+        when(swf.pollForDecisionTask(eq(getRequest(nextPageToken)))).thenReturn(secondPage);
+
+        DecisionTaskPoller poller = new DecisionTaskPoller(swf, DOMAIN, TASK_LIST, DECISIDER, dataMapper, HistoryMode.COMPACT);
+
+        DecisionTaskContext context = poller.poll();
+
+        assertThat(context.history()).isInstanceOf(CompactWorkflowHistory.class);
+        assertThat(firstPage.getEvents()).isNull();
+        assertThat(context.newEvents()).extracting(WorkflowEvent::id).containsExactly(1006L, 1007L, 1008L, 1009L, 1010L);
+        List<Long> expectedId = LongStream.iterate(1010, operand -> --operand).limit(1010).boxed().collect(Collectors.toList());
+        assertThat(context.history().events()).extracting(WorkflowEvent::id).containsExactlyElementsOf(expectedId);
+    }
+
+    @Test
+    public void pollForTask_cachedHistory() throws Exception {
+        AmazonSimpleWorkflow swf = mock(AmazonSimpleWorkflow.class);
+        WorkflowExecution execution = new WorkflowExecution().withWorkflowId("workflowId").withRunId("runId");
+        String nextPageToken = "nextPage";
+        DecisionTask firstTask = new DecisionTask().withTaskToken("TOKEN")
+                                                   .withWorkflowExecution(execution)
+                                                   .withEvents(generateRandomHistoryEvents(1, 10));
+        DecisionTask secondTaskFirstPage = new DecisionTask().withTaskToken("TOKEN2")
+                                                             .withWorkflowExecution(execution)
+                                                             .withNextPageToken(nextPageToken)
+                                                             .withEvents(generateRandomHistoryEvents(8, 15));
+
+        PollForDecisionTaskRequest firstRequest = getRequest(null);
+        PollForDecisionTaskRequest secondRequest = getRequest(nextPageToken);
+
+        when(swf.pollForDecisionTask(eq(firstRequest))).thenReturn(firstTask, secondTaskFirstPage);
+
+        WorkflowHistoryCache cache = new WorkflowHistoryCache(10, 1000);
+        DecisionTaskPoller poller = new DecisionTaskPoller(swf, DOMAIN, TASK_LIST, DECISIDER, dataMapper, HistoryMode.EAGER, cache);
+
+        DecisionTaskContext firstContext = poller.poll();
+        DecisionTaskContext secondContext = poller.poll();
+
+        verify(swf, never()).pollForDecisionTask(eq(secondRequest));
+        assertThat(cache.misses()).isEqualTo(1);
+        assertThat(cache.hits()).isEqualTo(1);
+        assertThat(firstContext.history().events()).hasSize(10);
+        List<Long> expectedId = LongStream.iterate(15, operand -> --operand).limit(15).boxed().collect(Collectors.toList());
+        assertThat(secondContext.history().events()).extracting(WorkflowEvent::id).containsExactlyElementsOf(expectedId);
+        assertThat(secondContext.history().getEventById(3L).historyEvent()).isSameAs(firstContext.history().getEventById(3L).historyEvent());
+    }
+
+    @Test
+    public void pollForTask_deadline() throws Exception {
+        AmazonSimpleWorkflow swf = mock(AmazonSimpleWorkflow.class);
+        Instant started = Instant.parse("2017-03-01T10:00:00Z");
+        when(swf.pollForDecisionTask(eq(getRequest(null)))).thenReturn(aDecisionTask(started, "30"), aDecisionTask(started, "NONE"));
+
+        DecisionTaskPoller poller = new DecisionTaskPoller(swf, DOMAIN, TASK_LIST, DECISIDER, dataMapper, HistoryMode.EAGER);
+
+        assertThat(poller.poll().deadline()).isEqualTo(started.plusSeconds(30));
+        assertThat(poller.poll().deadline()).isNull();
+    }
+
+    private DecisionTask aDecisionTask(Instant started, String startToCloseTimeout) {
+        return new DecisionTask().withTaskToken("TOKEN")
+                                 .withEvents(Arrays.asList(
+                                         new HistoryEvent().withEventId(3L)
+                                                           .withEventType(EventType.DecisionTaskStarted)
+                                                           .withEventTimestamp(Date.from(started))
+                                                           .withDecisionTaskStartedEventAttributes(
+                                                                   new DecisionTaskStartedEventAttributes().withScheduledEventId(2L)),
+                                         new HistoryEvent().withEventId(2L)
+                                                           .withEventType(EventType.DecisionTaskScheduled)
+                                                           .withDecisionTaskScheduledEventAttributes(
+                                                                   new DecisionTaskScheduledEventAttributes().withStartToCloseTimeout(startToCloseTimeout)),
+                                         new HistoryEvent().withEventId(1L)
+                                                           .withEventType(EventType.WorkflowExecutionStarted)));
+    }
+
     private List<HistoryEvent> generateRandomHistoryEvents(int start, int end) {
         return LongStream.rangeClosed(start, end).mapToObj(value -> {
             HistoryEvent historyEvent = mock(HistoryEvent.class);
@@ -71,6 +240,13 @@ public class DecisionTaskPollerTest {
         }).sorted(Comparator.comparing(HistoryEvent::getEventId).reversed()).collect(Collectors.toList());
     }
 
+    private List<HistoryEvent> generateHistoryEvents(int start, int end) {
+        return LongStream.rangeClosed(start, end)
+                         .map(value -> end + start - value)
+                         .mapToObj(value -> new HistoryEvent().withEventId(value).withEventType(EventType.DecisionTaskScheduled))
+                         .collect(Collectors.toList());
+    }
+
     private PollForDecisionTaskRequest getRequest(String nextPageToken){
         return new PollForDecisionTaskRequest().withDomain(DOMAIN)
                                                .withTaskList(new TaskList().withName(TASK_LIST))
@@ -0,0 +1,84 @@
+package com.solambda.swiffer.api.internal.decisions;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.Mockito.mock;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+
+import org.junit.Test;
+
+import com.solambda.swiffer.api.Decisions;
+import com.solambda.swiffer.api.internal.ContextInvoker;
+import com.solambda.swiffer.api.internal.MethodInvoker;
+import com.solambda.swiffer.api.internal.VersionedName;
+import com.solambda.swiffer.api.metrics.DefaultSwifferMetrics;
+
+/**
+ * Test for {@link EventHandlerProfiler}
+ */
+public class EventHandlerProfilerTest {
+
+	private static final String HANDLER = "Order:1 Handlers.onEvent";
+
+	public static class Handlers {
+		public String onEvent(final String first, final String second) {
+			if (first == null) {
+				throw new IllegalStateException("no input");
+			}
+			return first + second;
+		}
+	}
+
+	private final DefaultSwifferMetrics metrics = new DefaultSwifferMetrics();
+	private final EventHandlerProfiler profiler = new EventHandlerProfiler(this.metrics, Duration.ofSeconds(1));
+
+	private ContextInvoker<EventContext, Decisions> profile(final String input) throws Exception {
+		final Method method = Handlers.class.getMethod("onEvent", String.class, String.class);
+		final List<BiFunction<EventContext, Decisions, Object>> argumentProviders = Arrays.asList(
+				(context, decisions) -> {
+					sleep(20);
+					return input;
+				},
+				(context, decisions) -> "!");
+		return this.profiler.profile(new VersionedName("Order", "1"), method,
+				new MethodInvoker(new Handlers(), method), argumentProviders);
+	}
+
+	private static void sleep(final long millis) {
+		try {
+			TimeUnit.MILLISECONDS.sleep(millis);
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	@Test
+	public void measuresTheArgumentsAndTheHandlerOfEachEvent() throws Exception {
+		final ContextInvoker<EventContext, Decisions> invoker = profile("done");
+
+		assertThat(invoker.invoke(mock(EventContext.class), mock(Decisions.class))).isEqualTo("done!");
+		assertThat(invoker.invoke(mock(EventContext.class), mock(Decisions.class))).isEqualTo("done!");
+
+		assertThat(this.metrics.handlerTime().all()).containsOnlyKeys(HANDLER);
+		assertThat(this.metrics.handlerTime().get(HANDLER).count()).isEqualTo(2);
+		assertThat(this.metrics.handlerArgumentsTime().get(HANDLER).max()).isGreaterThanOrEqualTo(
+				Duration.ofMillis(20));
+	}
+
+	@Test
+	public void measuresTheFailingHandlers() throws Exception {
+		final ContextInvoker<EventContext, Decisions> invoker = profile(null);
+
+		final Throwable thrown = catchThrowable(() -> invoker.invoke(mock(EventContext.class), mock(Decisions.class)));
+
+		assertThat(thrown).isInstanceOf(InvocationTargetException.class);
+		assertThat(this.metrics.handlerTime().get(HANDLER).count()).isEqualTo(1);
+	}
+}
@@ -0,0 +1,51 @@
+package com.solambda.swiffer.api.internal.decisions;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.Test;
+
+import com.amazonaws.services.simpleworkflow.model.EventType;
+import com.amazonaws.services.simpleworkflow.model.HistoryEvent;
+import com.amazonaws.services.simpleworkflow.model.MarkerRecordedEventAttributes;
+import com.solambda.swiffer.api.internal.events.EventCategory;
+import com.solambda.swiffer.api.internal.events.WorkflowEventState;
+
+/**
+ * Test for {@link WorkflowEvent}
+ */
+public class WorkflowEventTest {
+
+	@Test
+	public void theTypeIsParsedOnce() {
+		final HistoryEvent historyEvent = mock(HistoryEvent.class);
+		when(historyEvent.getEventType()).thenReturn(EventType.MarkerRecorded.toString());
+		when(historyEvent.getMarkerRecordedEventAttributes())
+				.thenReturn(new MarkerRecordedEventAttributes().withMarkerName("marker"));
+		final WorkflowEvent event = new WorkflowEvent(historyEvent, null);
+
+		assertThat(event.type()).isEqualTo(EventType.MarkerRecorded);
+		assertThat(event.category()).isEqualTo(EventCategory.MARKER);
+		assertThat(event.state()).isEqualTo(WorkflowEventState.INITIAL);
+		assertThat(event.markerName()).isEqualTo("marker");
+
+		verify(historyEvent, times(1)).getEventType();
+	}
+
+	@Test
+	public void everyTypeWithACategoryHasAState() {
+		for (final EventType type : EventType.values()) {
+			final WorkflowEvent event = new WorkflowEvent(new HistoryEvent().withEventType(type), null);
+			assertThat(event.type()).isEqualTo(type);
+			assertThat(event.state()).isNotNull();
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void unknownTypesAreRejected() {
+		new WorkflowEvent(new HistoryEvent().withEventType("Unknown"), null).type();
+	}
+}
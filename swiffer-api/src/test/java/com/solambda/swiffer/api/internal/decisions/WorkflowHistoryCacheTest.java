@@ -0,0 +1,117 @@
+package com.solambda.swiffer.api.internal.decisions;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import org.junit.Test;
+
+import com.amazonaws.services.simpleworkflow.model.HistoryEvent;
+import com.amazonaws.services.simpleworkflow.model.WorkflowExecution;
+import com.solambda.swiffer.api.metrics.DefaultSwifferMetrics;
+
+/**
+ * Test for {@link WorkflowHistoryCache}
+ */
+public class WorkflowHistoryCacheTest {
+
+	private static final WorkflowExecution EXECUTION_1 = execution("workflow-1");
+	private static final WorkflowExecution EXECUTION_2 = execution("workflow-2");
+	private static final WorkflowExecution EXECUTION_3 = execution("workflow-3");
+
+	@Test
+	public void hitsAndMisses() {
+		final WorkflowHistoryCache cache = new WorkflowHistoryCache(10, 1000);
+		final WorkflowHistoryImpl history = history(5);
+
+		assertThat(cache.get(EXECUTION_1)).isNull();
+		cache.put(EXECUTION_1, history);
+
+		assertThat(cache.get(EXECUTION_1)).isSameAs(history);
+		assertThat(cache.get(execution("workflow-1", "another-run"))).isNull();
+		assertThat(cache.hits()).isEqualTo(1);
+		assertThat(cache.misses()).isEqualTo(2);
+	}
+
+	@Test
+	public void leastRecentlyUsedExecutionIsEvicted() {
+		final WorkflowHistoryCache cache = new WorkflowHistoryCache(2, 1000);
+		cache.put(EXECUTION_1, history(5));
+		cache.put(EXECUTION_2, history(5));
+		cache.get(EXECUTION_1);
+
+		cache.put(EXECUTION_3, history(5));
+
+		assertThat(cache.size()).isEqualTo(2);
+		assertThat(cache.evictions()).isEqualTo(1);
+		assertThat(cache.get(EXECUTION_2)).isNull();
+		assertThat(cache.get(EXECUTION_1)).isNotNull();
+		assertThat(cache.get(EXECUTION_3)).isNotNull();
+	}
+
+	@Test
+	public void numberOfCachedEventsIsBounded() {
+		final WorkflowHistoryCache cache = new WorkflowHistoryCache(10, 20);
+		cache.put(EXECUTION_1, history(10));
+		cache.put(EXECUTION_2, history(10));
+		assertThat(cache.cachedEvents()).isEqualTo(20);
+
+		cache.put(EXECUTION_3, history(5));
+
+		assertThat(cache.cachedEvents()).isEqualTo(15);
+		assertThat(cache.get(EXECUTION_1)).isNull();
+	}
+
+	@Test
+	public void replacingAHistoryUpdatesTheNumberOfCachedEvents() {
+		final WorkflowHistoryCache cache = new WorkflowHistoryCache(10, 20);
+		cache.put(EXECUTION_1, history(10));
+		cache.put(EXECUTION_1, history(15));
+
+		assertThat(cache.cachedEvents()).isEqualTo(15);
+		assertThat(cache.evictions()).isZero();
+	}
+
+	@Test
+	public void hitsMissesAndEvictionsAreReportedToTheMetrics() {
+		final DefaultSwifferMetrics metrics = new DefaultSwifferMetrics();
+		final WorkflowHistoryCache cache = new WorkflowHistoryCache(1, 1000, metrics);
+		cache.put(EXECUTION_1, history(5));
+		cache.get(EXECUTION_1);
+		cache.put(EXECUTION_2, history(5));
+		cache.get(EXECUTION_1);
+
+		assertThat(metrics.historyCache().get("hit").getCount()).isEqualTo(1);
+		assertThat(metrics.historyCache().get("miss").getCount()).isEqualTo(1);
+		assertThat(metrics.historyCache().get("eviction").getCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void historyBiggerThanTheCacheIsNotCached() {
+		final WorkflowHistoryCache cache = new WorkflowHistoryCache(10, 20);
+		cache.put(EXECUTION_1, history(10));
+
+		cache.put(EXECUTION_2, history(21));
+
+		assertThat(cache.get(EXECUTION_2)).isNull();
+		assertThat(cache.get(EXECUTION_1)).isNotNull();
+		assertThat(cache.cachedEvents()).isEqualTo(10);
+	}
+
+	private static WorkflowHistoryImpl history(final int size) {
+		final List<HistoryEvent> events = LongStream.rangeClosed(1, size)
+				.mapToObj(id -> new HistoryEvent().withEventId(id))
+				.collect(Collectors.toList());
+		return new WorkflowHistoryImpl(events);
+	}
+
+	private static WorkflowExecution execution(final String workflowId) {
+		return execution(workflowId, "run");
+	}
+
+	private static WorkflowExecution execution(final String workflowId, final String runId) {
+		return new WorkflowExecution().withWorkflowId(workflowId).withRunId(runId);
+	}
+}
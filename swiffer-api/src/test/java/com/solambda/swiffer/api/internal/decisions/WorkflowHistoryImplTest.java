@@ -0,0 +1,153 @@
+package com.solambda.swiffer.api.internal.decisions;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import com.amazonaws.services.simpleworkflow.model.ActivityTaskCompletedEventAttributes;
+import com.amazonaws.services.simpleworkflow.model.ActivityTaskFailedEventAttributes;
+import com.amazonaws.services.simpleworkflow.model.ActivityTaskScheduledEventAttributes;
+import com.amazonaws.services.simpleworkflow.model.ActivityTaskStartedEventAttributes;
+import com.amazonaws.services.simpleworkflow.model.ActivityType;
+import com.amazonaws.services.simpleworkflow.model.EventType;
+import com.amazonaws.services.simpleworkflow.model.HistoryEvent;
+import com.amazonaws.services.simpleworkflow.model.MarkerRecordedEventAttributes;
+import com.amazonaws.services.simpleworkflow.model.TimerFiredEventAttributes;
+import com.amazonaws.services.simpleworkflow.model.TimerStartedEventAttributes;
+import com.solambda.swiffer.api.internal.VersionedName;
+import com.solambda.swiffer.api.internal.events.EventCategory;
+
+/**
+ * Test for {@link WorkflowHistoryImpl}
+ */
+public class WorkflowHistoryImplTest {
+
+	private final WorkflowHistoryImpl history = new WorkflowHistoryImpl(Arrays.asList(
+			event(1, EventType.WorkflowExecutionStarted),
+			event(2, EventType.ActivityTaskScheduled).withActivityTaskScheduledEventAttributes(
+					new ActivityTaskScheduledEventAttributes().withActivityId("activity")),
+			event(3, EventType.ActivityTaskStarted).withActivityTaskStartedEventAttributes(
+					new ActivityTaskStartedEventAttributes().withScheduledEventId(2L)),
+			event(4, EventType.ActivityTaskCompleted).withActivityTaskCompletedEventAttributes(
+					new ActivityTaskCompletedEventAttributes().withScheduledEventId(2L)),
+			event(5, EventType.TimerStarted).withTimerStartedEventAttributes(
+					new TimerStartedEventAttributes().withTimerId("timer")),
+			event(6, EventType.TimerFired).withTimerFiredEventAttributes(
+					new TimerFiredEventAttributes().withTimerId("timer").withStartedEventId(5L)),
+			event(7, EventType.MarkerRecorded).withMarkerRecordedEventAttributes(
+					new MarkerRecordedEventAttributes().withMarkerName("marker").withDetails("old")),
+			event(8, EventType.MarkerRecorded).withMarkerRecordedEventAttributes(
+					new MarkerRecordedEventAttributes().withMarkerName("marker").withDetails("new")),
+			event(9, EventType.ActivityTaskScheduled).withActivityTaskScheduledEventAttributes(
+					new ActivityTaskScheduledEventAttributes().withActivityId("activity")),
+			event(10, EventType.ActivityTaskFailed).withActivityTaskFailedEventAttributes(
+					new ActivityTaskFailedEventAttributes().withScheduledEventId(9L))));
+
+	@Test
+	public void getLatestMarker() {
+		assertThat(history.getLatestMarker("marker").details()).isEqualTo("new");
+		assertThat(history.getLatestMarker("unknown")).isNull();
+	}
+
+	@Test
+	public void getTimerEvents() {
+		assertThat(ids(history.getTimerEvents("timer"))).containsExactly(6L, 5L);
+		assertThat(history.getTimerEvents("unknown")).isEmpty();
+	}
+
+	@Test
+	public void getTimerEvents_ofAReusedTimerId() {
+		final WorkflowHistoryImpl history = new WorkflowHistoryImpl(Arrays.asList(
+				event(1, EventType.WorkflowExecutionStarted),
+				event(2, EventType.TimerStarted).withTimerStartedEventAttributes(
+						new TimerStartedEventAttributes().withTimerId("timer")),
+				event(3, EventType.TimerFired).withTimerFiredEventAttributes(
+						new TimerFiredEventAttributes().withTimerId("timer").withStartedEventId(2L)),
+				event(4, EventType.TimerStarted).withTimerStartedEventAttributes(
+						new TimerStartedEventAttributes().withTimerId("timer"))));
+
+		assertThat(ids(history.getTimerEvents("timer"))).containsExactly(4L);
+	}
+
+	@Test
+	public void getActivityEvents() {
+		assertThat(ids(history.getActivityEvents("activity"))).containsExactly(10L, 9L, 4L, 3L, 2L);
+		assertThat(ids(history.getActivityEventsByScheduledEventId(2L))).containsExactly(4L, 3L, 2L);
+		assertThat(ids(history.getActivityEventsByScheduledEventId(9L))).containsExactly(10L, 9L);
+	}
+
+	@Test
+	public void getEventsByType() {
+		assertThat(ids(history.getEvents(EventType.ActivityTaskScheduled))).containsExactly(9L, 2L);
+		assertThat(history.getEvents(EventType.WorkflowExecutionCompleted)).isEmpty();
+	}
+
+	@Test
+	public void getEventsByCategory() {
+		assertThat(ids(history.getEvents(EventCategory.MARKER))).containsExactly(8L, 7L);
+	}
+
+	@Test
+	public void indexesIncludeTheNewEventsOfAMergedHistory() {
+		final WorkflowHistoryImpl merged = new WorkflowHistoryImpl(Arrays.asList(
+				event(11, EventType.MarkerRecorded).withMarkerRecordedEventAttributes(
+						new MarkerRecordedEventAttributes().withMarkerName("marker").withDetails("newest"))),
+				history);
+
+		assertThat(merged.getLatestMarker("marker").details()).isEqualTo("newest");
+		assertThat(ids(merged.getEvents(EventCategory.MARKER))).containsExactly(11L, 8L, 7L);
+	}
+
+	@Test
+	public void aMergedHistoryDoesNotRetainThePreviousOne() throws Exception {
+		WorkflowHistoryImpl previous = new WorkflowHistoryImpl(Arrays.asList(
+				event(1, EventType.WorkflowExecutionStarted),
+				event(2, EventType.ActivityTaskScheduled).withActivityTaskScheduledEventAttributes(
+						new ActivityTaskScheduledEventAttributes().withActivityType(
+								new ActivityType().withName("activity").withVersion("1"))),
+				event(3, EventType.ActivityTaskStarted).withActivityTaskStartedEventAttributes(
+						new ActivityTaskStartedEventAttributes().withScheduledEventId(2L))));
+		final WeakReference<WorkflowHistoryImpl> reference = new WeakReference<>(previous);
+
+		final WorkflowHistoryImpl merged = new WorkflowHistoryImpl(Arrays.asList(
+				event(4, EventType.ActivityTaskCompleted).withActivityTaskCompletedEventAttributes(
+						new ActivityTaskCompletedEventAttributes().withScheduledEventId(2L))),
+				previous);
+		previous = null;
+		for (int i = 0; i < 50 && reference.get() != null; i++) {
+			System.gc();
+			Thread.sleep(10);
+		}
+
+		assertThat(reference.get()).isNull();
+		// the reused events resolve their initial event in the merged history
+		assertThat(merged.getEventById(3L).activityType()).isEqualTo(new VersionedName("activity", "1"));
+		assertThat(merged.historyEvents()).extracting(HistoryEvent::getEventId).containsExactly(4L, 3L, 2L, 1L);
+	}
+
+	@Test
+	public void aMergedHistoryDoesNotModifyThePreviousOne() {
+		final WorkflowHistoryImpl merged = new WorkflowHistoryImpl(Arrays.asList(
+				event(11, EventType.MarkerRecorded).withMarkerRecordedEventAttributes(
+						new MarkerRecordedEventAttributes().withMarkerName("marker").withDetails("newest"))),
+				history);
+
+		assertThat(merged.getEventById(8L)).isNotSameAs(history.getEventById(8L));
+		assertThat(merged.getEventById(8L).historyEvent()).isSameAs(history.getEventById(8L).historyEvent());
+		assertThat(history.events()).hasSize(10);
+		assertThat(history.getLatestMarker("marker").id()).isEqualTo(8L);
+	}
+
+	private static HistoryEvent event(final long id, final EventType type) {
+		return new HistoryEvent().withEventId(id).withEventType(type);
+	}
+
+	private static List<Long> ids(final List<WorkflowEvent> events) {
+		return events.stream().map(WorkflowEvent::id).collect(Collectors.toList());
+	}
+}
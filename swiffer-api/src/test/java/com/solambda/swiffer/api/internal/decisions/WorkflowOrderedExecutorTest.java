@@ -0,0 +1,55 @@
+package com.solambda.swiffer.api.internal.decisions;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * Test for {@link WorkflowOrderedExecutor}
+ */
+public class WorkflowOrderedExecutorTest {
+
+	@Test
+	public void tasksOfTheSameWorkflowAreExecutedInOrder() throws Exception {
+		final WorkflowOrderedExecutor executor = new WorkflowOrderedExecutor(4);
+		final List<Integer> executed = new CopyOnWriteArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			final int index = i;
+			executor.execute("workflow", () -> executed.add(index));
+		}
+
+		assertThat(executor.shutdownAndAwaitTermination(5, TimeUnit.SECONDS)).isTrue();
+		assertThat(executed).hasSize(100).isSorted();
+	}
+
+	@Test
+	public void tasksOfDifferentWorkflowsAreExecutedConcurrently() throws Exception {
+		final WorkflowOrderedExecutor executor = new WorkflowOrderedExecutor(2);
+		final CountDownLatch bothStarted = new CountDownLatch(2);
+		final List<Boolean> results = new CopyOnWriteArrayList<>();
+		// "a" and "b" hashes are consecutive, so they use different threads
+		for (final String workflowId : new String[] { "a", "b" }) {
+			executor.execute(workflowId, () -> {
+				bothStarted.countDown();
+				try {
+					results.add(bothStarted.await(5, TimeUnit.SECONDS));
+				} catch (final InterruptedException e) {
+					results.add(false);
+				}
+			});
+		}
+
+		assertThat(executor.shutdownAndAwaitTermination(10, TimeUnit.SECONDS)).isTrue();
+		assertThat(results).containsExactly(true, true);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void atLeastOneThreadIsRequired() {
+		new WorkflowOrderedExecutor(0);
+	}
+}
@@ -0,0 +1,57 @@
+package com.solambda.swiffer.api.internal.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.handlers.AsyncHandler;
+import com.amazonaws.services.simpleworkflow.AmazonSimpleWorkflow;
+import com.amazonaws.services.simpleworkflow.AmazonSimpleWorkflowAsync;
+import com.amazonaws.services.simpleworkflow.model.ActivityTask;
+import com.amazonaws.services.simpleworkflow.model.PollForActivityTaskRequest;
+
+/**
+ * Test for {@link SwfApiCalls}
+ */
+public class SwfApiCallsTest {
+
+	@Test
+	public void apiName() throws Exception {
+		assertThat(SwfApiCalls.apiName(AmazonSimpleWorkflow.class.getMethod("pollForActivityTask",
+				PollForActivityTaskRequest.class))).isEqualTo("PollForActivityTask");
+		assertThat(SwfApiCalls.apiName(AmazonSimpleWorkflowAsync.class.getMethod("pollForActivityTaskAsync",
+				PollForActivityTaskRequest.class, AsyncHandler.class))).isEqualTo("PollForActivityTask");
+	}
+
+	@Test
+	public void apiName_notAnApiCall() throws Exception {
+		assertThat(SwfApiCalls.apiName(AmazonSimpleWorkflow.class.getMethod("shutdown"))).isNull();
+		assertThat(SwfApiCalls.apiName(AmazonSimpleWorkflow.class.getMethod("getCachedResponseMetadata",
+				AmazonWebServiceRequest.class))).isNull();
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void observing() {
+		final AsyncHandler<PollForActivityTaskRequest, ActivityTask> handler = mock(AsyncHandler.class);
+		final List<Exception> errors = new ArrayList<>();
+		final AsyncHandler<PollForActivityTaskRequest, ActivityTask> observed = (AsyncHandler<PollForActivityTaskRequest, ActivityTask>)
+				SwfApiCalls.observing(handler, errors::add);
+		final RuntimeException error = new RuntimeException("failed");
+		final PollForActivityTaskRequest request = new PollForActivityTaskRequest();
+		final ActivityTask result = new ActivityTask();
+
+		observed.onError(error);
+		observed.onSuccess(request, result);
+
+		assertThat(errors).containsExactly(error);
+		verify(handler).onError(error);
+		verify(handler).onSuccess(request, result);
+	}
+}
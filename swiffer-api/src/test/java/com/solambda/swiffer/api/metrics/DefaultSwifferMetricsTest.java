@@ -0,0 +1,85 @@
+package com.solambda.swiffer.api.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+
+import org.junit.Test;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.simpleworkflow.AmazonSimpleWorkflow;
+import com.amazonaws.services.simpleworkflow.model.PollForActivityTaskRequest;
+import com.amazonaws.services.simpleworkflow.model.RespondActivityTaskCompletedRequest;
+
+/**
+ * Test for {@link DefaultSwifferMetrics}
+ */
+public class DefaultSwifferMetricsTest {
+
+	private final DefaultSwifferMetrics metrics = new DefaultSwifferMetrics();
+
+	@Test
+	public void recordsTheMeasuresByTag() {
+		this.metrics.activityTaskPolled("list", TimeUnit.MILLISECONDS.toNanos(20), false);
+		this.metrics.activityTaskPolled("list", TimeUnit.SECONDS.toNanos(60), true);
+		this.metrics.activityTaskPolled(null, 1, true);
+		this.metrics.activityTaskExecuted("Activity:1", 1000, ActivityOutcome.COMPLETED);
+		this.metrics.activityTaskExecuted("Activity:1", 1000, ActivityOutcome.FAILED);
+		this.metrics.decisionEmitted("ScheduleActivityTask");
+		this.metrics.decisionEmitted("ScheduleActivityTask");
+
+		assertThat(this.metrics.activityPollLatency().get("list").count()).isEqualTo(2);
+		assertThat(this.metrics.activityEmptyPolls().get("list").getCount()).isEqualTo(1);
+		assertThat(this.metrics.activityEmptyPolls().all()).containsOnlyKeys("list", "none");
+		assertThat(this.metrics.activityExecutionTime().get("Activity:1").count()).isEqualTo(2);
+		assertThat(this.metrics.activityOutcomes(ActivityOutcome.COMPLETED).get("Activity:1").getCount())
+				.isEqualTo(1);
+		assertThat(this.metrics.activityOutcomes(ActivityOutcome.CANCELED).all()).isEmpty();
+		assertThat(this.metrics.emittedDecisions().get("ScheduleActivityTask").getCount()).isEqualTo(2);
+	}
+
+	@Test
+	public void exportsTheMetricsToJmx() throws Exception {
+		final MBeanServer server = MBeanServerFactory.newMBeanServer();
+		this.metrics.decisionTaskDecided("Workflow:1", TimeUnit.MILLISECONDS.toNanos(5));
+		try (JmxMetricsExporter exporter = new JmxMetricsExporter(this.metrics, server, "test").start()) {
+			// created after the start
+			this.metrics.apiFailed("PollForDecisionTask", true);
+
+			final ObjectName compute = new ObjectName("test:type=decision.compute,workflowType=\"Workflow:1\"");
+			assertThat(server.getAttribute(compute, "Count")).isEqualTo(1L);
+			assertThat((Double) server.getAttribute(compute, "MaxMillis")).isEqualTo(5d);
+			final ObjectName throttles = new ObjectName("test:type=api.throttles,api=\"PollForDecisionTask\"");
+			assertThat(server.getAttribute(throttles, "Count")).isEqualTo(1L);
+		}
+		assertThat(server.queryNames(new ObjectName("test:*"), null)).isEmpty();
+	}
+
+	@Test
+	public void countsTheFailedAndThrottledCalls() {
+		final AmazonServiceException throttling = new AmazonServiceException("Rate exceeded");
+		throttling.setErrorCode("ThrottlingException");
+		final AmazonSimpleWorkflow swf = mock(AmazonSimpleWorkflow.class);
+		when(swf.pollForActivityTask(any())).thenThrow(throttling);
+		doThrow(new AmazonServiceException("Unknown")).when(swf).respondActivityTaskCompleted(any());
+		final AmazonSimpleWorkflow instrumented = InstrumentedSwf.instrument(swf, this.metrics);
+
+		assertThat(catchThrowable(() -> instrumented.pollForActivityTask(new PollForActivityTaskRequest())))
+				.isSameAs(throttling);
+		catchThrowable(() -> instrumented.respondActivityTaskCompleted(new RespondActivityTaskCompletedRequest()));
+
+		assertThat(this.metrics.apiErrors().get("PollForActivityTask").getCount()).isEqualTo(1);
+		assertThat(this.metrics.apiThrottles().get("PollForActivityTask").getCount()).isEqualTo(1);
+		assertThat(this.metrics.apiErrors().get("RespondActivityTaskCompleted").getCount()).isEqualTo(1);
+		assertThat(this.metrics.apiThrottles().all()).containsOnlyKeys("PollForActivityTask");
+	}
+}
@@ -0,0 +1,60 @@
+package com.solambda.swiffer.api.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * Test for {@link Histogram}
+ */
+public class HistogramTest {
+
+	@Test
+	public void bucketsAreLogLinear() {
+		assertThat(Histogram.bucket(0)).isEqualTo(0);
+		assertThat(Histogram.bucket(3)).isEqualTo(3);
+		assertThat(Histogram.bucket(4)).isEqualTo(4);
+		assertThat(Histogram.bucket(7)).isEqualTo(7);
+		assertThat(Histogram.bucket(8)).isEqualTo(8);
+		assertThat(Histogram.bucket(9)).isEqualTo(8);
+		assertThat(Histogram.bucket(10)).isEqualTo(9);
+		assertThat(Histogram.bucket(Long.MAX_VALUE)).isEqualTo(127);
+	}
+
+	@Test
+	public void eachValueIsBelowTheUpperBoundOfItsBucket() {
+		for (long micros = 0; micros < 100_000; micros += 7) {
+			final int bucket = Histogram.bucket(micros);
+			assertThat(micros).isLessThan(Histogram.upperBound(bucket));
+			if (bucket > 0) {
+				assertThat(micros).isGreaterThanOrEqualTo(Histogram.upperBound(bucket - 1));
+			}
+		}
+	}
+
+	@Test
+	public void estimatesThePercentilesWithin25Percent() {
+		final Histogram histogram = new Histogram();
+		for (int millis = 1; millis <= 100; millis++) {
+			histogram.record(TimeUnit.MILLISECONDS.toNanos(millis));
+		}
+		assertThat(histogram.count()).isEqualTo(100);
+		assertThat(histogram.total()).isEqualTo(Duration.ofMillis(5050));
+		assertThat(histogram.mean()).isEqualTo(Duration.ofNanos(50_500_000));
+		assertThat(histogram.max()).isEqualTo(Duration.ofMillis(100));
+		assertThat(histogram.percentile(50).toMillis()).isBetween(50L, 63L);
+		assertThat(histogram.percentile(99).toMillis()).isBetween(99L, 100L);
+		assertThat(histogram.percentile(100)).isEqualTo(Duration.ofMillis(100));
+	}
+
+	@Test
+	public void isEmptyWithoutRecords() {
+		final Histogram histogram = new Histogram();
+		assertThat(histogram.count()).isZero();
+		assertThat(histogram.mean()).isEqualTo(Duration.ZERO);
+		assertThat(histogram.percentile(99)).isEqualTo(Duration.ZERO);
+	}
+}
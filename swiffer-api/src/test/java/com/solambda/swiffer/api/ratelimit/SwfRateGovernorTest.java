@@ -0,0 +1,204 @@
+package com.solambda.swiffer.api.ratelimit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.handlers.AsyncHandler;
+import com.amazonaws.services.simpleworkflow.AmazonSimpleWorkflow;
+import com.amazonaws.services.simpleworkflow.AmazonSimpleWorkflowAsync;
+import com.amazonaws.services.simpleworkflow.model.ActivityTask;
+import com.amazonaws.services.simpleworkflow.model.ListDomainsRequest;
+import com.amazonaws.services.simpleworkflow.model.PollForActivityTaskRequest;
+import com.amazonaws.services.simpleworkflow.model.RespondActivityTaskCompletedRequest;
+import com.amazonaws.services.simpleworkflow.model.StartWorkflowExecutionRequest;
+import com.google.common.base.Ticker;
+import com.solambda.swiffer.api.ratelimit.SwfRateGovernor.Priority;
+
+/**
+ * Test for {@link SwfRateGovernor}
+ */
+public class SwfRateGovernorTest {
+
+	private static class FakeTicker extends Ticker {
+		private long nanos = 1_000;
+
+		@Override
+		public long read() {
+			return this.nanos;
+		}
+
+		void advance(final long millis) {
+			this.nanos += TimeUnit.MILLISECONDS.toNanos(millis);
+		}
+	}
+
+	private final FakeTicker ticker = new FakeTicker();
+
+	private static AmazonServiceException throttling() {
+		final AmazonServiceException e = new AmazonServiceException("Rate exceeded");
+		e.setErrorCode("ThrottlingException");
+		e.setStatusCode(400);
+		return e;
+	}
+
+	@Test
+	public void limitsTheRateOfEachApi() {
+		final AmazonSimpleWorkflow swf = mock(AmazonSimpleWorkflow.class);
+		final SwfRateGovernor governor = SwfRateGovernor.builder().quota("StartWorkflowExecution", 20, 1).build();
+		final AmazonSimpleWorkflow governed = governor.govern(swf);
+
+		final long start = System.nanoTime();
+		for (int i = 0; i < 5; i++) {
+			governed.startWorkflowExecution(new StartWorkflowExecutionRequest());
+		}
+		final long elapsed = System.nanoTime() - start;
+		governed.listDomains(new ListDomainsRequest());
+
+		verify(swf, times(5)).startWorkflowExecution(any());
+		assertThat(elapsed).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(190));
+		assertThat(governor.metrics().get("StartWorkflowExecution").calls()).isEqualTo(5);
+		assertThat(governor.metrics().get("StartWorkflowExecution").waitedTime().toMillis()).isGreaterThan(150);
+		assertThat(governor.metrics().get("ListDomains").waitedTime().isZero()).isTrue();
+	}
+
+	@Test
+	public void slowsDownTheThrottledApiAndTheLowerPriorities() {
+		final AmazonSimpleWorkflow swf = mock(AmazonSimpleWorkflow.class);
+		final SwfRateGovernor governor = SwfRateGovernor.builder().ticker(this.ticker).build();
+		final AmazonSimpleWorkflow governed = governor.govern(swf);
+		doThrow(throttling()).doReturn(null).when(swf).startWorkflowExecution(any());
+		governed.respondActivityTaskCompleted(new RespondActivityTaskCompletedRequest());
+		governed.listDomains(new ListDomainsRequest());
+
+		final Throwable thrown = catchThrowable(
+				() -> governed.startWorkflowExecution(new StartWorkflowExecutionRequest()));
+
+		assertThat(thrown).isInstanceOf(AmazonServiceException.class);
+		assertThat(governor.metrics().get("StartWorkflowExecution").throttled()).isEqualTo(1);
+		assertThat(governor.metrics().get("StartWorkflowExecution").rate()).isEqualTo(100);
+		assertThat(governor.metrics().get("ListDomains").rate()).isEqualTo(5);
+		assertThat(governor.metrics().get("RespondActivityTaskCompleted").rate()).isEqualTo(200);
+
+		// recovers 10% of the quota per second
+		this.ticker.advance(2_000);
+		assertThat(governor.metrics().get("StartWorkflowExecution").rate()).isCloseTo(140, within(0.001));
+		this.ticker.advance(10_000);
+		assertThat(governor.metrics().get("StartWorkflowExecution").rate()).isEqualTo(200);
+	}
+
+	@Test
+	public void slowsDownOncePerSecondAtMost() {
+		final AmazonSimpleWorkflow swf = mock(AmazonSimpleWorkflow.class);
+		final SwfRateGovernor governor = SwfRateGovernor.builder().ticker(this.ticker).build();
+		final AmazonSimpleWorkflow governed = governor.govern(swf);
+		doThrow(throttling()).when(swf).startWorkflowExecution(any());
+
+		// a burst of throttlings slows the API down once
+		catchThrowable(() -> governed.startWorkflowExecution(new StartWorkflowExecutionRequest()));
+		this.ticker.advance(100);
+		catchThrowable(() -> governed.startWorkflowExecution(new StartWorkflowExecutionRequest()));
+		assertThat(governor.metrics().get("StartWorkflowExecution").throttled()).isEqualTo(2);
+		assertThat(governor.metrics().get("StartWorkflowExecution").rate()).isEqualTo(100);
+
+		// ...then again a second later, after having recovered 10% of the quota
+		this.ticker.advance(900);
+		catchThrowable(() -> governed.startWorkflowExecution(new StartWorkflowExecutionRequest()));
+		assertThat(governor.metrics().get("StartWorkflowExecution").rate()).isCloseTo(60, within(0.001));
+	}
+
+	@Test
+	public void doesNotSlowDownIfNotAdaptive() {
+		final AmazonSimpleWorkflow swf = mock(AmazonSimpleWorkflow.class);
+		final SwfRateGovernor governor = SwfRateGovernor.builder().ticker(this.ticker).adaptive(false).build();
+		doThrow(throttling()).when(swf).respondActivityTaskCompleted(any());
+
+		catchThrowable(() -> governor.govern(swf)
+				.respondActivityTaskCompleted(new RespondActivityTaskCompletedRequest()));
+
+		assertThat(governor.metrics().get("RespondActivityTaskCompleted").throttled()).isEqualTo(1);
+		assertThat(governor.metrics().get("RespondActivityTaskCompleted").rate()).isEqualTo(200);
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void governsTheAsynchronousCalls() {
+		final AmazonSimpleWorkflowAsync swf = mock(AmazonSimpleWorkflowAsync.class);
+		final SwfRateGovernor governor = SwfRateGovernor.builder().ticker(this.ticker)
+				.priority("PollForActivityTask", Priority.HIGH).build();
+		doAnswer(invocation -> {
+			((AsyncHandler<?, ?>) invocation.getArguments()[1]).onError(throttling());
+			return null;
+		}).when(swf).pollForActivityTaskAsync(any(), any());
+		final AsyncHandler<PollForActivityTaskRequest, ?> handler = mock(AsyncHandler.class);
+
+		final AmazonSimpleWorkflow governed = governor.govern(swf);
+		((AmazonSimpleWorkflowAsync) governed).pollForActivityTaskAsync(new PollForActivityTaskRequest(),
+				(AsyncHandler<PollForActivityTaskRequest, ActivityTask>) handler);
+
+		verify(handler).onError(any());
+		assertThat(governor.metrics().get("PollForActivityTask").priority()).isEqualTo(Priority.HIGH);
+		assertThat(governor.metrics().get("PollForActivityTask").throttled()).isEqualTo(1);
+		assertThat(governor.metrics().get("PollForActivityTask").rate()).isEqualTo(100);
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void delaysTheAsynchronousCallsWithoutBlockingTheCaller() throws Exception {
+		final AmazonSimpleWorkflowAsync swf = mock(AmazonSimpleWorkflowAsync.class);
+		final SwfRateGovernor governor = SwfRateGovernor.builder().quota("PollForActivityTask", 10, 1).build();
+		final AmazonSimpleWorkflowAsync governed = (AmazonSimpleWorkflowAsync) governor.govern(swf);
+		final AsyncHandler<PollForActivityTaskRequest, ActivityTask> handler = mock(AsyncHandler.class);
+
+		final long start = System.nanoTime();
+		governed.pollForActivityTaskAsync(new PollForActivityTaskRequest(), handler);
+		final Future<ActivityTask> delayed = governed.pollForActivityTaskAsync(new PollForActivityTaskRequest(),
+				handler);
+		final long elapsed = System.nanoTime() - start;
+
+		// the second call waits for its token in the background, 100 ms later
+		assertThat(elapsed).isLessThan(TimeUnit.MILLISECONDS.toNanos(50));
+		verify(swf, times(1)).pollForActivityTaskAsync(any(), any());
+		assertThat(delayed.isDone()).isFalse();
+		verify(swf, timeout(1_000).times(2)).pollForActivityTaskAsync(any(), any());
+		assertThat(governor.metrics().get("PollForActivityTask").calls()).isEqualTo(2);
+		assertThat(governor.metrics().get("PollForActivityTask").waitedTime().toMillis()).isGreaterThan(50);
+	}
+
+	@Test
+	public void passesTheOtherCallsThrough() {
+		final AmazonSimpleWorkflow swf = mock(AmazonSimpleWorkflow.class);
+		final SwfRateGovernor governor = new SwfRateGovernor();
+
+		governor.govern(swf).shutdown();
+
+		verify(swf).shutdown();
+		assertThat(governor.metrics()).isEmpty();
+	}
+
+	@Test
+	public void prioritizesTheResponsesOverTheStartsOverTheListings() {
+		assertThat(SwfRateGovernor.defaultPriority("RespondDecisionTaskCompleted")).isEqualTo(Priority.HIGH);
+		assertThat(SwfRateGovernor.defaultPriority("RecordActivityTaskHeartbeat")).isEqualTo(Priority.HIGH);
+		assertThat(SwfRateGovernor.defaultPriority("StartWorkflowExecution")).isEqualTo(Priority.NORMAL);
+		assertThat(SwfRateGovernor.defaultPriority("SignalWorkflowExecution")).isEqualTo(Priority.NORMAL);
+		assertThat(SwfRateGovernor.defaultPriority("PollForDecisionTask")).isEqualTo(Priority.NORMAL);
+		assertThat(SwfRateGovernor.defaultPriority("ListOpenWorkflowExecutions")).isEqualTo(Priority.LOW);
+		assertThat(SwfRateGovernor.defaultPriority("DescribeWorkflowExecution")).isEqualTo(Priority.LOW);
+		assertThat(SwfRateGovernor.defaultPriority("CountOpenWorkflowExecutions")).isEqualTo(Priority.LOW);
+		assertThat(SwfRateGovernor.defaultPriority("RegisterActivityType")).isEqualTo(Priority.LOW);
+	}
+}
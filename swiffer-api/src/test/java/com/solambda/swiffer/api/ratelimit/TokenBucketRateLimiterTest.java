@@ -0,0 +1,67 @@
+package com.solambda.swiffer.api.ratelimit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.google.common.base.Ticker;
+
+/**
+ * Test for {@link TokenBucketRateLimiter}
+ */
+public class TokenBucketRateLimiterTest {
+
+	private static class FakeTicker extends Ticker {
+		private long nanos = 1_000;
+
+		@Override
+		public long read() {
+			return this.nanos;
+		}
+
+		void advance(final long millis) {
+			this.nanos += TimeUnit.MILLISECONDS.toNanos(millis);
+		}
+	}
+
+	private final FakeTicker ticker = new FakeTicker();
+
+	@Test
+	public void givesOneTokenPerInterval() {
+		final TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(10, 1, this.ticker);
+
+		assertThat(limiter.tryAcquire()).isEqualTo(0);
+		assertThat(limiter.tryAcquire()).isEqualTo(TimeUnit.MILLISECONDS.toNanos(100));
+		this.ticker.advance(60);
+		assertThat(limiter.tryAcquire()).isEqualTo(TimeUnit.MILLISECONDS.toNanos(40));
+		this.ticker.advance(40);
+		assertThat(limiter.tryAcquire()).isEqualTo(0);
+	}
+
+	@Test
+	public void givesTheBurstTokensAfterAnInactivity() {
+		final TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(10, 3, this.ticker);
+
+		this.ticker.advance(1_000);
+		assertThat(limiter.tryAcquire()).isEqualTo(0);
+		assertThat(limiter.tryAcquire()).isEqualTo(0);
+		assertThat(limiter.tryAcquire()).isEqualTo(0);
+		assertThat(limiter.tryAcquire()).isGreaterThan(0);
+		assertThat(limiter.acquired()).isEqualTo(3);
+	}
+
+	@Test
+	public void measuresTheCurrentRate() {
+		final TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(100, 1, this.ticker);
+
+		for (int i = 0; i < 20; i++) {
+			this.ticker.advance(50);
+			assertThat(limiter.tryAcquire()).isEqualTo(0);
+		}
+
+		assertThat(limiter.currentRate()).isEqualTo(20.0);
+		assertThat(limiter.rate()).isEqualTo(100.0);
+	}
+}
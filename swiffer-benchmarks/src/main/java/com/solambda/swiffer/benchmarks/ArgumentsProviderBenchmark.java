@@ -0,0 +1,81 @@
+package com.solambda.swiffer.benchmarks;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.amazonaws.services.simpleworkflow.model.EventType;
+import com.amazonaws.services.simpleworkflow.model.HistoryEvent;
+import com.solambda.swiffer.api.Decisions;
+import com.solambda.swiffer.api.duration.DefaultDurationTransformer;
+import com.solambda.swiffer.api.internal.decisions.DecisionTaskContextImpl;
+import com.solambda.swiffer.api.internal.decisions.DecisionsImpl;
+import com.solambda.swiffer.api.internal.decisions.EventContext;
+import com.solambda.swiffer.api.internal.decisions.EventContextImpl;
+import com.solambda.swiffer.api.internal.decisions.EventHandlerArgumentsProvider;
+import com.solambda.swiffer.api.internal.decisions.EventHandlerArgumentsProviderFactory;
+import com.solambda.swiffer.api.internal.decisions.WorkflowEvent;
+import com.solambda.swiffer.api.internal.decisions.WorkflowHistoryImpl;
+import com.solambda.swiffer.api.mapper.DataMapper;
+import com.solambda.swiffer.api.mapper.JacksonDataMapper;
+import com.solambda.swiffer.api.retry.ExponentialRetryPolicy;
+
+/**
+ * The arguments of the event handlers, provided by the providers built by
+ * {@link EventHandlerArgumentsProviderFactory}: the output and input of an
+ * activity, deserialized, and the decisions.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ArgumentsProviderBenchmark {
+
+	private final DataMapper dataMapper = new JacksonDataMapper();
+	private EventHandlerArgumentsProviderFactory factory;
+	private EventHandlerArgumentsProvider provider;
+	private EventContext eventContext;
+	private Decisions decisions;
+
+	@Setup
+	public void setUp() throws NoSuchMethodException {
+		this.factory = new EventHandlerArgumentsProviderFactory(this.dataMapper);
+		this.provider = this.factory.createArgumentsProvider(EventType.ActivityTaskCompleted, handler());
+		final List<HistoryEvent> events = SyntheticHistories.history(100);
+		final WorkflowHistoryImpl history = new WorkflowHistoryImpl(events);
+		final WorkflowEvent completed = history.getEvents(EventType.ActivityTaskCompleted).get(0);
+		this.eventContext = new EventContextImpl(new DecisionTaskContextImpl(null, "benchmarks",
+				SyntheticHistories.decisionTask(events, 0), this.dataMapper, history), completed);
+		this.decisions = new DecisionsImpl(this.dataMapper, new DefaultDurationTransformer(),
+				new ExponentialRetryPolicy(Duration.ofSeconds(5), Duration.ofHours(1)));
+	}
+
+	private static Method handler() throws NoSuchMethodException {
+		return SyntheticWorkflow.Template.class.getMethod("onIncremented", Integer.class, Integer.class,
+				Decisions.class);
+	}
+
+	@Benchmark
+	public Object[] provide() {
+		return this.provider.getArguments(this.eventContext, this.decisions);
+	}
+
+	@Benchmark
+	public EventHandlerArgumentsProvider create() throws NoSuchMethodException {
+		return this.factory.createArgumentsProvider(EventType.ActivityTaskCompleted, handler());
+	}
+}
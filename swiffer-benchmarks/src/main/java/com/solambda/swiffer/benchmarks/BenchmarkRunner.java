@@ -0,0 +1,29 @@
+package com.solambda.swiffer.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Run the benchmarks with the GC profiler, reporting the allocation rate and
+ * the allocated bytes per operation of each benchmark.
+ * <p>
+ * The arguments are the JMH ones, e.g. a regexp of the benchmarks to run:
+ *
+ * <pre>
+ * java -jar swiffer-benchmarks/target/benchmarks.jar WorkflowHistory
+ * </pre>
+ */
+public class BenchmarkRunner {
+
+	public static void main(final String[] args) throws RunnerException, CommandLineOptionException {
+		new Runner(new OptionsBuilder()
+				.parent(new CommandLineOptions(args))
+				.addProfiler(GCProfiler.class)
+				.build())
+						.run();
+	}
+}
@@ -0,0 +1,50 @@
+package com.solambda.swiffer.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.solambda.swiffer.api.mapper.DataMapper;
+import com.solambda.swiffer.api.mapper.JacksonDataMapper;
+
+/**
+ * Round trips of the inputs and outputs through the {@link JacksonDataMapper}:
+ * a scalar, as the synthetic workflow exchanges, and a small document.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DataMapperBenchmark {
+
+	public static class Order {
+		public String id = "order-42";
+		public String customer = "customer-7";
+		public int quantity = 3;
+		public double amount = 129.90;
+		public boolean express;
+	}
+
+	private final DataMapper dataMapper = new JacksonDataMapper();
+	private final Order order = new Order();
+
+	@Benchmark
+	public Integer scalar() {
+		return this.dataMapper.deserialize(this.dataMapper.serialize(42), Integer.class);
+	}
+
+	@Benchmark
+	public Order document() {
+		return this.dataMapper.deserialize(this.dataMapper.serialize(this.order), Order.class);
+	}
+}
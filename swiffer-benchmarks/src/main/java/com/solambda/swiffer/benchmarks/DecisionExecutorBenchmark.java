@@ -0,0 +1,76 @@
+package com.solambda.swiffer.benchmarks;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.amazonaws.services.simpleworkflow.model.HistoryEvent;
+import com.solambda.swiffer.api.duration.DefaultDurationTransformer;
+import com.solambda.swiffer.api.internal.decisions.DecisionExecutorImpl;
+import com.solambda.swiffer.api.internal.decisions.DecisionTaskContext;
+import com.solambda.swiffer.api.internal.decisions.DecisionTaskContextImpl;
+import com.solambda.swiffer.api.internal.decisions.DecisionsImpl;
+import com.solambda.swiffer.api.internal.decisions.WorkflowHistoryImpl;
+import com.solambda.swiffer.api.mapper.DataMapper;
+import com.solambda.swiffer.api.mapper.JacksonDataMapper;
+import com.solambda.swiffer.api.retry.ExponentialRetryPolicy;
+
+/**
+ * The normalization of the decisions by {@link DecisionExecutorImpl}, and the
+ * building of the response, sent to a stub client. The decisions are markers,
+ * compatible with the close of the workflow, so that the lists closing the
+ * workflow are normalized without dropping decisions.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DecisionExecutorBenchmark {
+
+	@Param({ "1", "10" })
+	private int markers;
+
+	@Param({ "false", "true" })
+	private boolean closing;
+
+	private DecisionExecutorImpl executor;
+	private DecisionTaskContext context;
+	private DecisionsImpl decisions;
+
+	@Setup
+	public void setUp() {
+		final StubSwf swf = new StubSwf();
+		final DataMapper dataMapper = new JacksonDataMapper();
+		this.executor = new DecisionExecutorImpl(swf);
+		final List<HistoryEvent> events = SyntheticHistories.history(10);
+		this.context = new DecisionTaskContextImpl(swf, "benchmarks", SyntheticHistories.decisionTask(events, 0),
+				dataMapper, new WorkflowHistoryImpl(events));
+		this.decisions = new DecisionsImpl(dataMapper, new DefaultDurationTransformer(),
+				new ExponentialRetryPolicy(Duration.ofSeconds(5), Duration.ofHours(1)));
+		for (int i = 0; i < this.markers; i++) {
+			this.decisions.recordMarker(SyntheticWorkflow.MARKER_NAME, "details-" + i);
+		}
+		if (this.closing) {
+			this.decisions.completeWorkflow("done");
+		}
+	}
+
+	@Benchmark
+	public void apply() {
+		this.executor.apply(this.context, this.decisions);
+	}
+}
@@ -0,0 +1,62 @@
+package com.solambda.swiffer.benchmarks;
+
+import java.util.List;
+import java.util.function.Function;
+
+import com.amazonaws.services.simpleworkflow.model.HistoryEvent;
+import com.solambda.swiffer.api.internal.decisions.CompactWorkflowHistory;
+import com.solambda.swiffer.api.internal.decisions.WorkflowHistoryImpl;
+
+/**
+ * Measure the heap retained by the histories of the {@link SyntheticWorkflow},
+ * per event, as SWF events, as a {@link WorkflowHistoryImpl} and as a
+ * {@link CompactWorkflowHistory}.
+ * <p>
+ * The arguments are the number of events of each history and the number of
+ * histories, e.g.:
+ *
+ * <pre>
+ * java -cp swiffer-benchmarks/target/benchmarks.jar com.solambda.swiffer.benchmarks.HistoryFootprint 10000 50
+ * </pre>
+ */
+public class HistoryFootprint {
+
+	public static void main(final String[] args) {
+		final int events = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+		final int histories = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+		System.out.printf("%-24s %12s%n", "history", "bytes/event");
+		for (int run = 0; run < 2; run++) {
+			// the first run warms up the classes and the caches
+			final boolean report = run == 1;
+			measure("SWF events", events, histories, report, history -> history);
+			measure("WorkflowHistoryImpl", events, histories, report, WorkflowHistoryImpl::new);
+			measure("CompactWorkflowHistory", events, histories, report, CompactWorkflowHistory::new);
+		}
+	}
+
+	private static void measure(final String name, final int events, final int histories, final boolean report,
+			final Function<List<HistoryEvent>, Object> factory) {
+		final Object[] retained = new Object[histories];
+		final long before = usedHeap();
+		for (int i = 0; i < histories; i++) {
+			retained[i] = factory.apply(SyntheticHistories.history(events));
+		}
+		final long after = usedHeap();
+		if (report) {
+			System.out.printf("%-24s %12d%n", name, (after - before) / ((long) events * histories));
+		}
+		if (retained.length != histories) {
+			throw new IllegalStateException();
+		}
+	}
+
+	private static long usedHeap() {
+		final Runtime runtime = Runtime.getRuntime();
+		long used = Long.MAX_VALUE;
+		for (int i = 0; i < 5; i++) {
+			System.gc();
+			used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+		}
+		return used;
+	}
+}
@@ -0,0 +1,58 @@
+package com.solambda.swiffer.benchmarks;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.solambda.swiffer.api.internal.ContextInvoker;
+import com.solambda.swiffer.api.internal.MethodInvoker;
+
+/**
+ * Invocation of an event handler with its argument providers, by reflection
+ * ({@link MethodInvoker}): the baseline of any other invocation path.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MethodInvokerBenchmark {
+
+	public static class Handler {
+		public Integer onEvent(final Integer output, final Integer input) {
+			return output + input;
+		}
+	}
+
+	private final Integer output = 1000;
+	private final Integer input = 2000;
+	private ContextInvoker<Object, Object> reflection;
+
+	@Setup
+	public void setUp() throws NoSuchMethodException {
+		final Method method = Handler.class.getMethod("onEvent", Integer.class, Integer.class);
+		final List<BiFunction<Object, Object, ?>> providers = Arrays.asList((c, d) -> this.output,
+				(c, d) -> this.input);
+		this.reflection = new MethodInvoker(new Handler(), method).withArguments(providers);
+	}
+
+	@Benchmark
+	public Object reflection() throws InvocationTargetException {
+		return this.reflection.invoke(null, null);
+	}
+}
@@ -0,0 +1,62 @@
+package com.solambda.swiffer.benchmarks;
+
+import com.amazonaws.services.simpleworkflow.AbstractAmazonSimpleWorkflow;
+import com.amazonaws.services.simpleworkflow.model.ActivityTask;
+import com.amazonaws.services.simpleworkflow.model.ActivityTypeDetail;
+import com.amazonaws.services.simpleworkflow.model.DescribeActivityTypeRequest;
+import com.amazonaws.services.simpleworkflow.model.PollForActivityTaskRequest;
+import com.amazonaws.services.simpleworkflow.model.RegisterActivityTypeRequest;
+import com.amazonaws.services.simpleworkflow.model.RespondActivityTaskCanceledRequest;
+import com.amazonaws.services.simpleworkflow.model.RespondActivityTaskCompletedRequest;
+import com.amazonaws.services.simpleworkflow.model.RespondActivityTaskFailedRequest;
+import com.amazonaws.services.simpleworkflow.model.RespondDecisionTaskCompletedRequest;
+import com.amazonaws.services.simpleworkflow.model.UnknownResourceException;
+
+/**
+ * A SWF client answering immediately, so that only Swiffer is measured: the
+ * polls return the same activity task, and the registrations and the
+ * responses are dropped.
+ */
+class StubSwf extends AbstractAmazonSimpleWorkflow {
+
+	private final ActivityTask activityTask;
+
+	StubSwf() {
+		this(new ActivityTask());
+	}
+
+	StubSwf(final ActivityTask activityTask) {
+		super();
+		this.activityTask = activityTask;
+	}
+
+	@Override
+	public ActivityTypeDetail describeActivityType(final DescribeActivityTypeRequest request) {
+		throw new UnknownResourceException("not registered");
+	}
+
+	@Override
+	public void registerActivityType(final RegisterActivityTypeRequest request) {
+	}
+
+	@Override
+	public ActivityTask pollForActivityTask(final PollForActivityTaskRequest request) {
+		return this.activityTask;
+	}
+
+	@Override
+	public void respondActivityTaskCompleted(final RespondActivityTaskCompletedRequest request) {
+	}
+
+	@Override
+	public void respondActivityTaskFailed(final RespondActivityTaskFailedRequest request) {
+	}
+
+	@Override
+	public void respondActivityTaskCanceled(final RespondActivityTaskCanceledRequest request) {
+	}
+
+	@Override
+	public void respondDecisionTaskCompleted(final RespondDecisionTaskCompletedRequest request) {
+	}
+}
@@ -0,0 +1,156 @@
+package com.solambda.swiffer.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import com.amazonaws.services.simpleworkflow.model.ActivityTaskCompletedEventAttributes;
+import com.amazonaws.services.simpleworkflow.model.ActivityTaskScheduledEventAttributes;
+import com.amazonaws.services.simpleworkflow.model.ActivityTaskStartedEventAttributes;
+import com.amazonaws.services.simpleworkflow.model.ActivityType;
+import com.amazonaws.services.simpleworkflow.model.DecisionTask;
+import com.amazonaws.services.simpleworkflow.model.DecisionTaskCompletedEventAttributes;
+import com.amazonaws.services.simpleworkflow.model.DecisionTaskScheduledEventAttributes;
+import com.amazonaws.services.simpleworkflow.model.DecisionTaskStartedEventAttributes;
+import com.amazonaws.services.simpleworkflow.model.EventType;
+import com.amazonaws.services.simpleworkflow.model.HistoryEvent;
+import com.amazonaws.services.simpleworkflow.model.MarkerRecordedEventAttributes;
+import com.amazonaws.services.simpleworkflow.model.TaskList;
+import com.amazonaws.services.simpleworkflow.model.TimerFiredEventAttributes;
+import com.amazonaws.services.simpleworkflow.model.TimerStartedEventAttributes;
+import com.amazonaws.services.simpleworkflow.model.WorkflowExecution;
+import com.amazonaws.services.simpleworkflow.model.WorkflowExecutionSignaledEventAttributes;
+import com.amazonaws.services.simpleworkflow.model.WorkflowExecutionStartedEventAttributes;
+import com.amazonaws.services.simpleworkflow.model.WorkflowType;
+
+/**
+ * Histories of the {@link SyntheticWorkflow}, mixing the decision, activity,
+ * timer, marker and signal events as a long running workflow does.
+ */
+public final class SyntheticHistories {
+
+	private static final TaskList TASK_LIST = new TaskList().withName(SyntheticWorkflow.TASK_LIST);
+
+	/**
+	 * @return the events of a history, oldest first, ending with a started
+	 *         decision task
+	 */
+	public static List<HistoryEvent> history(final int size) {
+		final List<HistoryEvent> events = new ArrayList<>(size + 6);
+		final Date timestamp = new Date();
+		events.add(event(events, timestamp, EventType.WorkflowExecutionStarted)
+				.withWorkflowExecutionStartedEventAttributes(new WorkflowExecutionStartedEventAttributes()
+						.withWorkflowType(new WorkflowType().withName("Synthetic").withVersion("1"))
+						.withTaskList(TASK_LIST)
+						.withChildPolicy("TERMINATE")
+						.withExecutionStartToCloseTimeout("3600")
+						.withTaskStartToCloseTimeout("60")
+						.withInput("\"0\"")));
+		int step = 0;
+		while (events.size() + 3 < size) {
+			final long completed = decisionTask(events, timestamp);
+			switch (step++ % 4) {
+				case 0:
+					final long scheduled = events.size() + 1;
+					events.add(event(events, timestamp, EventType.ActivityTaskScheduled)
+							.withActivityTaskScheduledEventAttributes(new ActivityTaskScheduledEventAttributes()
+									.withActivityType(new ActivityType().withName("Increment").withVersion("1"))
+									.withActivityId("activity-" + step)
+									.withTaskList(TASK_LIST)
+									.withInput(Integer.toString(step))
+									.withDecisionTaskCompletedEventId(completed)));
+					events.add(event(events, timestamp, EventType.ActivityTaskStarted)
+							.withActivityTaskStartedEventAttributes(new ActivityTaskStartedEventAttributes()
+									.withIdentity("worker")
+									.withScheduledEventId(scheduled)));
+					events.add(event(events, timestamp, EventType.ActivityTaskCompleted)
+							.withActivityTaskCompletedEventAttributes(new ActivityTaskCompletedEventAttributes()
+									.withResult(Integer.toString(step + 1))
+									.withScheduledEventId(scheduled)
+									.withStartedEventId(scheduled + 1)));
+					break;
+				case 1:
+					final long started = events.size() + 1;
+					events.add(event(events, timestamp, EventType.TimerStarted)
+							.withTimerStartedEventAttributes(new TimerStartedEventAttributes()
+									.withTimerId(SyntheticWorkflow.TIMER_ID)
+									.withControl(Integer.toString(step))
+									.withStartToFireTimeout("1")
+									.withDecisionTaskCompletedEventId(completed)));
+					events.add(event(events, timestamp, EventType.TimerFired)
+							.withTimerFiredEventAttributes(new TimerFiredEventAttributes()
+									.withTimerId(SyntheticWorkflow.TIMER_ID)
+									.withStartedEventId(started)));
+					break;
+				case 2:
+					events.add(event(events, timestamp, EventType.MarkerRecorded)
+							.withMarkerRecordedEventAttributes(new MarkerRecordedEventAttributes()
+									.withMarkerName(SyntheticWorkflow.MARKER_NAME)
+									.withDetails("\"details-" + step + "\"")
+									.withDecisionTaskCompletedEventId(completed)));
+					break;
+				default:
+					events.add(event(events, timestamp, EventType.WorkflowExecutionSignaled)
+							.withWorkflowExecutionSignaledEventAttributes(new WorkflowExecutionSignaledEventAttributes()
+									.withSignalName(SyntheticWorkflow.SIGNAL_NAME)
+									.withInput("\"input-" + step + "\"")));
+					break;
+			}
+		}
+		events.add(event(events, timestamp, EventType.DecisionTaskScheduled)
+				.withDecisionTaskScheduledEventAttributes(new DecisionTaskScheduledEventAttributes()
+						.withTaskList(TASK_LIST)
+						.withStartToCloseTimeout("60")));
+		events.add(event(events, timestamp, EventType.DecisionTaskStarted)
+				.withDecisionTaskStartedEventAttributes(new DecisionTaskStartedEventAttributes()
+						.withIdentity("decider")
+						.withScheduledEventId(events.size() - 1L)));
+		return events;
+	}
+
+	/**
+	 * @return a decision task of the history, the events after the previous
+	 *         started decision task being new
+	 */
+	public static DecisionTask decisionTask(final List<HistoryEvent> history, final long previousStartedEventId) {
+		return new DecisionTask()
+				.withTaskToken("token")
+				.withWorkflowExecution(new WorkflowExecution().withWorkflowId("synthetic").withRunId("run"))
+				.withWorkflowType(new WorkflowType().withName("Synthetic").withVersion("1"))
+				.withEvents(history)
+				.withStartedEventId((long) history.size())
+				.withPreviousStartedEventId(previousStartedEventId);
+	}
+
+	/**
+	 * Add a completed decision task.
+	 *
+	 * @return the id of the DecisionTaskCompleted event
+	 */
+	private static long decisionTask(final List<HistoryEvent> events, final Date timestamp) {
+		final long scheduled = events.size() + 1;
+		events.add(event(events, timestamp, EventType.DecisionTaskScheduled)
+				.withDecisionTaskScheduledEventAttributes(new DecisionTaskScheduledEventAttributes()
+						.withTaskList(TASK_LIST)
+						.withStartToCloseTimeout("60")));
+		events.add(event(events, timestamp, EventType.DecisionTaskStarted)
+				.withDecisionTaskStartedEventAttributes(new DecisionTaskStartedEventAttributes()
+						.withIdentity("decider")
+						.withScheduledEventId(scheduled)));
+		events.add(event(events, timestamp, EventType.DecisionTaskCompleted)
+				.withDecisionTaskCompletedEventAttributes(new DecisionTaskCompletedEventAttributes()
+						.withScheduledEventId(scheduled)
+						.withStartedEventId(scheduled + 1)));
+		return scheduled + 2;
+	}
+
+	private static HistoryEvent event(final List<HistoryEvent> events, final Date timestamp, final EventType type) {
+		return new HistoryEvent()
+				.withEventId(events.size() + 1L)
+				.withEventTimestamp(timestamp)
+				.withEventType(type);
+	}
+
+	private SyntheticHistories() {
+	}
+}
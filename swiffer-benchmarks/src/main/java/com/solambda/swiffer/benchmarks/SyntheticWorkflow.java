@@ -0,0 +1,78 @@
+package com.solambda.swiffer.benchmarks;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.time.Duration;
+
+import com.solambda.swiffer.api.ActivityType;
+import com.solambda.swiffer.api.Decisions;
+import com.solambda.swiffer.api.Executor;
+import com.solambda.swiffer.api.Input;
+import com.solambda.swiffer.api.OnActivityCompleted;
+import com.solambda.swiffer.api.OnMarkerRecorded;
+import com.solambda.swiffer.api.OnSignalReceived;
+import com.solambda.swiffer.api.OnTimerFired;
+import com.solambda.swiffer.api.OnWorkflowStarted;
+import com.solambda.swiffer.api.Output;
+import com.solambda.swiffer.api.WorkflowType;
+
+/**
+ * The workflow of the synthetic histories: an activity, a timer, a marker and
+ * a signal handled in a loop.
+ */
+public final class SyntheticWorkflow {
+
+	public static final String TASK_LIST = "benchmarks";
+	public static final String TIMER_ID = "timer";
+	public static final String MARKER_NAME = "marker";
+	public static final String SIGNAL_NAME = "signal";
+
+	@Retention(RetentionPolicy.RUNTIME)
+	@WorkflowType(name = "Synthetic", version = "1", defaultTaskList = TASK_LIST)
+	public @interface Synthetic {
+	}
+
+	@Retention(RetentionPolicy.RUNTIME)
+	@ActivityType(name = "Increment", version = "1", defaultTaskList = TASK_LIST)
+	public @interface Increment {
+	}
+
+	@Synthetic
+	public static class Template {
+
+		@OnWorkflowStarted
+		public void onStart(final String input, final Decisions decideTo) {
+			decideTo.scheduleActivityTask(Increment.class, Integer.valueOf(input));
+		}
+
+		@OnActivityCompleted(Increment.class)
+		public void onIncremented(@Output final Integer output, @Input final Integer input, final Decisions decideTo) {
+			decideTo.startTimer(TIMER_ID, Duration.ofSeconds(1), output);
+		}
+
+		@OnTimerFired(TIMER_ID)
+		public void onTimerFired(final Integer control, final Decisions decideTo) {
+			decideTo.scheduleActivityTask(Increment.class, control);
+		}
+
+		@OnMarkerRecorded(MARKER_NAME)
+		public void onMarkerRecorded(@Input final String details) {
+		}
+
+		@OnSignalReceived(SIGNAL_NAME)
+		public void onSignal(final String input, final Decisions decideTo) {
+			decideTo.completeWorkflow(input);
+		}
+	}
+
+	public static class Executors {
+
+		@Executor(activity = Increment.class)
+		public Integer increment(final Integer input) {
+			return input + 1;
+		}
+	}
+
+	private SyntheticWorkflow() {
+	}
+}
@@ -0,0 +1,99 @@
+package com.solambda.swiffer.benchmarks;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.amazonaws.services.simpleworkflow.model.ActivityTask;
+import com.amazonaws.services.simpleworkflow.model.ActivityType;
+import com.amazonaws.services.simpleworkflow.model.PollForActivityTaskRequest;
+import com.amazonaws.services.simpleworkflow.model.RespondActivityTaskCompletedRequest;
+import com.amazonaws.services.simpleworkflow.model.WorkflowExecution;
+import com.solambda.swiffer.api.Swiffer;
+import com.solambda.swiffer.api.Worker;
+import com.solambda.swiffer.api.internal.activities.WorkerImpl;
+
+/**
+ * A started {@link WorkerImpl} polling an activity task, dispatching it to
+ * its pool, executing it with its deserialized input, and reporting its
+ * serialized result, to a stub client: one task is handed to the pollers per
+ * invocation, which waits for its completion.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WorkerDispatchBenchmark {
+
+	/**
+	 * Hand a task to the polls only when requested, and signal the
+	 * completions.
+	 */
+	private static class GatedSwf extends StubSwf {
+		private final Semaphore requested = new Semaphore(0);
+		private final Semaphore completed = new Semaphore(0);
+
+		GatedSwf(final ActivityTask activityTask) {
+			super(activityTask);
+		}
+
+		@Override
+		public ActivityTask pollForActivityTask(final PollForActivityTaskRequest request) {
+			try {
+				// an empty poll once in a while, so that the worker can stop
+				return this.requested.tryAcquire(100, TimeUnit.MILLISECONDS) ? super.pollForActivityTask(request)
+						: null;
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return null;
+			}
+		}
+
+		@Override
+		public void respondActivityTaskCompleted(final RespondActivityTaskCompletedRequest request) {
+			this.completed.release();
+		}
+	}
+
+	private GatedSwf swf;
+	private Worker worker;
+
+	@Setup
+	public void setUp() {
+		this.swf = new GatedSwf(new ActivityTask()
+				.withTaskToken("token")
+				.withActivityId("activity")
+				.withActivityType(new ActivityType().withName("Increment").withVersion("1"))
+				.withWorkflowExecution(new WorkflowExecution().withWorkflowId("synthetic").withRunId("run"))
+				.withInput("41"));
+		this.worker = new Swiffer(this.swf, "benchmarks").newWorkerBuilder()
+				.taskList(SyntheticWorkflow.TASK_LIST)
+				.executors(new SyntheticWorkflow.Executors())
+				.build();
+		this.worker.start();
+	}
+
+	@TearDown
+	public void tearDown() {
+		this.worker.stop();
+	}
+
+	@Benchmark
+	public void executeTask() throws InterruptedException {
+		this.swf.requested.release();
+		this.swf.completed.acquire();
+	}
+}
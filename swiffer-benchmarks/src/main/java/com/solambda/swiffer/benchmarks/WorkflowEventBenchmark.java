@@ -0,0 +1,84 @@
+package com.solambda.swiffer.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.amazonaws.services.simpleworkflow.model.HistoryEvent;
+import com.solambda.swiffer.api.internal.decisions.CompactWorkflowHistory;
+import com.solambda.swiffer.api.internal.decisions.WorkflowEvent;
+import com.solambda.swiffer.api.internal.decisions.WorkflowHistoryImpl;
+
+/**
+ * Dispatch of the {@link WorkflowEvent} accessors on the type of the events,
+ * on new events whose type is parsed on first use, on parsed events, and on
+ * the events of a {@link CompactWorkflowHistory}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WorkflowEventBenchmark {
+
+	@Param({ "100" })
+	private int events;
+
+	private List<HistoryEvent> history;
+	private WorkflowHistoryImpl parsed;
+	private CompactWorkflowHistory compact;
+
+	@Setup
+	public void setUp() {
+		this.history = SyntheticHistories.history(this.events);
+		this.parsed = new WorkflowHistoryImpl(this.history);
+		for (final WorkflowEvent event : this.parsed.events()) {
+			event.type();
+		}
+		this.compact = new CompactWorkflowHistory(SyntheticHistories.history(this.events));
+	}
+
+	@Benchmark
+	public void newEvents(final Blackhole blackhole) {
+		for (final HistoryEvent event : this.history) {
+			access(new WorkflowEvent(event, this.parsed), blackhole);
+		}
+	}
+
+	@Benchmark
+	public void parsedEvents(final Blackhole blackhole) {
+		for (final WorkflowEvent event : this.parsed.events()) {
+			access(event, blackhole);
+		}
+	}
+
+	@Benchmark
+	public void compactEvents(final Blackhole blackhole) {
+		for (final WorkflowEvent event : this.compact.events()) {
+			access(event, blackhole);
+		}
+	}
+
+	private static void access(final WorkflowEvent event, final Blackhole blackhole) {
+		blackhole.consume(event.id());
+		blackhole.consume(event.category());
+		blackhole.consume(event.state());
+		blackhole.consume(event.input());
+		blackhole.consume(event.control());
+		blackhole.consume(event.output());
+		blackhole.consume(event.initialEventId());
+	}
+}
@@ -0,0 +1,57 @@
+package com.solambda.swiffer.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.amazonaws.services.simpleworkflow.model.HistoryEvent;
+import com.solambda.swiffer.api.internal.decisions.WorkflowHistoryImpl;
+
+/**
+ * Construction of a {@link WorkflowHistoryImpl} from the events of a decision
+ * task, in full or on top of the history of the previous decision task.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WorkflowHistoryBenchmark {
+
+	@Param({ "10", "100", "1000" })
+	private int events;
+
+	private List<HistoryEvent> history;
+	private List<HistoryEvent> newEvents;
+	private WorkflowHistoryImpl previous;
+
+	@Setup
+	public void setUp() {
+		this.history = SyntheticHistories.history(this.events);
+		final int previousSize = this.history.size() / 2;
+		this.previous = new WorkflowHistoryImpl(this.history.subList(0, previousSize));
+		this.newEvents = this.history.subList(previousSize, this.history.size());
+	}
+
+	@Benchmark
+	public WorkflowHistoryImpl construct() {
+		return new WorkflowHistoryImpl(this.history);
+	}
+
+	@Benchmark
+	public WorkflowHistoryImpl extend() {
+		return new WorkflowHistoryImpl(this.newEvents, this.previous);
+	}
+}
@@ -0,0 +1,72 @@
+package com.solambda.swiffer.benchmarks;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.amazonaws.services.simpleworkflow.model.DecisionTask;
+import com.amazonaws.services.simpleworkflow.model.HistoryEvent;
+import com.solambda.swiffer.api.Decisions;
+import com.solambda.swiffer.api.duration.DefaultDurationTransformer;
+import com.solambda.swiffer.api.internal.decisions.DecisionTaskContextImpl;
+import com.solambda.swiffer.api.internal.decisions.WorkflowHistoryImpl;
+import com.solambda.swiffer.api.internal.decisions.WorkflowTemplate;
+import com.solambda.swiffer.api.internal.decisions.WorkflowTemplateFactory;
+import com.solambda.swiffer.api.mapper.DataMapper;
+import com.solambda.swiffer.api.mapper.JacksonDataMapper;
+import com.solambda.swiffer.api.retry.ExponentialRetryPolicy;
+
+/**
+ * {@link WorkflowTemplate#decide} over the new events of a decision task: a
+ * few events of a long history as usual, or the whole history as when a
+ * decider replays it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WorkflowTemplateBenchmark {
+
+	@Param({ "100", "1000" })
+	private int events;
+
+	@Param({ "10", "all" })
+	private String newEvents;
+
+	private final DataMapper dataMapper = new JacksonDataMapper();
+	private WorkflowTemplate template;
+	private DecisionTask decisionTask;
+	private WorkflowHistoryImpl history;
+
+	@Setup
+	public void setUp() {
+		this.template = new WorkflowTemplateFactory(this.dataMapper, new DefaultDurationTransformer(),
+				new ExponentialRetryPolicy(Duration.ofSeconds(5), Duration.ofHours(1)))
+						.createWorkflowTemplate(new SyntheticWorkflow.Template());
+		final List<HistoryEvent> events = SyntheticHistories.history(this.events);
+		final long previousStartedEventId = "all".equals(this.newEvents) ? 0
+				: events.size() - Integer.parseInt(this.newEvents);
+		this.decisionTask = SyntheticHistories.decisionTask(events, previousStartedEventId);
+		this.history = new WorkflowHistoryImpl(events);
+	}
+
+	@Benchmark
+	public Decisions decide() throws Exception {
+		return this.template.decide(
+				new DecisionTaskContextImpl(null, "benchmarks", this.decisionTask, this.dataMapper, this.history));
+	}
+}
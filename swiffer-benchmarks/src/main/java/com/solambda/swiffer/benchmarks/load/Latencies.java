@@ -0,0 +1,65 @@
+package com.solambda.swiffer.benchmarks.load;
+
+import java.time.Duration;
+import java.util.Collection;
+
+/**
+ * The distribution of a latency measured by the {@link LoadHarness}, in
+ * milliseconds as the timestamps of the history events.
+ */
+public final class Latencies {
+
+	private final long[] sortedMillis;
+
+	private Latencies(final long[] sortedMillis) {
+		this.sortedMillis = sortedMillis;
+	}
+
+	/**
+	 * @param millis
+	 *            the measured latencies, in milliseconds
+	 */
+	public static Latencies of(final Collection<Long> millis) {
+		final long[] sorted = millis.stream().mapToLong(Long::longValue).sorted().toArray();
+		return new Latencies(sorted);
+	}
+
+	/**
+	 * @return the number of measures
+	 */
+	public int count() {
+		return this.sortedMillis.length;
+	}
+
+	/**
+	 * @param percentile
+	 *            the percentile, between 0 exclusive and 100 inclusive
+	 * @return the latency under which the given percentage of the measures
+	 *         are, by the nearest rank; zero without measures
+	 */
+	public Duration percentile(final double percentile) {
+		if (this.sortedMillis.length == 0) {
+			return Duration.ZERO;
+		}
+		final int rank = (int) Math.ceil(percentile / 100 * this.sortedMillis.length);
+		return Duration.ofMillis(this.sortedMillis[Math.max(rank, 1) - 1]);
+	}
+
+	public Duration p50() {
+		return percentile(50);
+	}
+
+	public Duration p99() {
+		return percentile(99);
+	}
+
+	public Duration max() {
+		return percentile(100);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("count=%d p50=%dms p99=%dms max=%dms", count(), p50().toMillis(), p99().toMillis(),
+				max().toMillis());
+	}
+}
@@ -0,0 +1,73 @@
+package com.solambda.swiffer.benchmarks.load;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import com.amazonaws.services.simpleworkflow.AmazonSimpleWorkflow;
+import com.google.common.base.Preconditions;
+
+/**
+ * Wrap a SWF client to delay each call, simulating the round trip to the
+ * service of a remote client, e.g. to run the {@link LoadHarness} against the
+ * emulator with realistic latencies.
+ * <p>
+ * Each call is delayed by the latency, plus or minus a random jitter, before
+ * reaching the wrapped client.
+ */
+public final class LatencyInjectingSwf implements InvocationHandler {
+
+	private final AmazonSimpleWorkflow swf;
+	private final long latencyNanos;
+	private final long jitterNanos;
+
+	private LatencyInjectingSwf(final AmazonSimpleWorkflow swf, final Duration latency, final Duration jitter) {
+		this.swf = swf;
+		this.latencyNanos = latency.toNanos();
+		this.jitterNanos = jitter.toNanos();
+	}
+
+	/**
+	 * @param swf
+	 *            the client to wrap
+	 * @param latency
+	 *            the mean delay of each call
+	 * @param jitter
+	 *            the maximum deviation from the mean delay, lower than the
+	 *            latency
+	 * @return a client delaying the calls to the given one
+	 */
+	public static AmazonSimpleWorkflow wrap(final AmazonSimpleWorkflow swf, final Duration latency,
+			final Duration jitter) {
+		Preconditions.checkNotNull(swf, "SWF client must be specified!");
+		Preconditions.checkArgument(latency != null && !latency.isNegative(), "latency must be positive or zero");
+		Preconditions.checkArgument(jitter != null && !jitter.isNegative() && jitter.compareTo(latency) <= 0,
+				"jitter must be positive or zero, and lower than the latency");
+		return (AmazonSimpleWorkflow) Proxy.newProxyInstance(AmazonSimpleWorkflow.class.getClassLoader(),
+				new Class<?>[] { AmazonSimpleWorkflow.class }, new LatencyInjectingSwf(swf, latency, jitter));
+	}
+
+	@Override
+	public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+		if (method.getDeclaringClass() != Object.class) {
+			delay();
+		}
+		try {
+			return method.invoke(this.swf, args);
+		} catch (final InvocationTargetException e) {
+			throw e.getCause();
+		}
+	}
+
+	private void delay() throws InterruptedException {
+		final long nanos = this.jitterNanos == 0 ? this.latencyNanos
+				: this.latencyNanos + ThreadLocalRandom.current().nextLong(-this.jitterNanos, this.jitterNanos + 1);
+		if (nanos > 0) {
+			TimeUnit.NANOSECONDS.sleep(nanos);
+		}
+	}
+}
@@ -0,0 +1,363 @@
+package com.solambda.swiffer.benchmarks.load;
+
+import java.time.Duration;
+import java.time.Period;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.amazonaws.services.simpleworkflow.AmazonSimpleWorkflow;
+import com.amazonaws.services.simpleworkflow.model.CountOpenWorkflowExecutionsRequest;
+import com.amazonaws.services.simpleworkflow.model.ExecutionTimeFilter;
+import com.amazonaws.services.simpleworkflow.model.HistoryEvent;
+import com.amazonaws.services.simpleworkflow.model.TagFilter;
+import com.amazonaws.services.simpleworkflow.model.WorkflowExecution;
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.RateLimiter;
+import com.solambda.swiffer.api.DeciderBuilder;
+import com.solambda.swiffer.api.Swiffer;
+import com.solambda.swiffer.api.Tags;
+import com.solambda.swiffer.api.TaskListService;
+import com.solambda.swiffer.api.WorkerBuilder;
+import com.solambda.swiffer.api.internal.domains.DomainConfiguration;
+import com.solambda.swiffer.api.internal.registration.DomainRegistry;
+import com.solambda.swiffer.emulator.SwfEmulator;
+
+/**
+ * Start {@link LoadWorkflow} executions at a fixed rate through
+ * {@link Swiffer#startWorkflow}, against any SWF client, and handle them with
+ * fleets of deciders and workers running in-process.
+ * <p>
+ * Once every execution is closed, or the drain timeout elapsed, the histories
+ * of the executions are fetched to compute a {@link LoadReport}: being based on
+ * the timestamps of the events, the figures can be compared between a local
+ * emulator and SWF, and between releases.
+ *
+ * <pre>
+ * LoadReport report = LoadHarness.builder()
+ * 		.swf(LatencyInjectingSwf.wrap(new SwfEmulator(), Duration.ofMillis(20), Duration.ofMillis(5)))
+ * 		.workflowsPerSecond(100)
+ * 		.duration(Duration.ofMinutes(1))
+ * 		.deciders(2)
+ * 		.workers(4)
+ * 		.build()
+ * 		.run();
+ * </pre>
+ */
+public class LoadHarness {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(LoadHarness.class);
+
+	private final AmazonSimpleWorkflow swf;
+	private final String domain;
+	private final double workflowsPerSecond;
+	private final Duration duration;
+	private final Duration drainTimeout;
+	private final int starters;
+	private final int activitiesPerWorkflow;
+	private final Duration activityDuration;
+	private final int deciders;
+	private final Consumer<DeciderBuilder> deciderConfiguration;
+	private final int workers;
+	private final Consumer<WorkerBuilder> workerConfiguration;
+
+	private LoadHarness(final Builder builder) {
+		this.swf = builder.swf;
+		this.domain = builder.domain;
+		this.workflowsPerSecond = builder.workflowsPerSecond;
+		this.duration = builder.duration;
+		this.drainTimeout = builder.drainTimeout;
+		this.starters = builder.starters;
+		this.activitiesPerWorkflow = builder.activitiesPerWorkflow;
+		this.activityDuration = builder.activityDuration;
+		this.deciders = builder.deciders;
+		this.deciderConfiguration = builder.deciderConfiguration;
+		this.workers = builder.workers;
+		this.workerConfiguration = builder.workerConfiguration;
+	}
+
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	/**
+	 * Run the load, then report it.
+	 *
+	 * @return the report of the executions started by this run
+	 * @throws InterruptedException
+	 *             if interrupted while running
+	 */
+	public LoadReport run() throws InterruptedException {
+		final AmazonSimpleWorkflow swf = this.swf == null ? new SwfEmulator(Duration.ofSeconds(1)) : this.swf;
+		new DomainRegistry(swf, this.domain)
+				.register(new DomainConfiguration("Swiffer load tests", Period.ofDays(1)));
+		final Swiffer swiffer = new Swiffer(swf, this.domain);
+		final List<TaskListService> fleets = new ArrayList<>(this.deciders + this.workers);
+		for (int i = 0; i < this.deciders; i++) {
+			final DeciderBuilder builder = swiffer.newDeciderBuilder()
+					.taskList(LoadWorkflow.TASK_LIST)
+					.identity("load-decider-" + i)
+					.workflowTemplates(new LoadWorkflow.Template());
+			this.deciderConfiguration.accept(builder);
+			fleets.add(builder.build());
+		}
+		for (int i = 0; i < this.workers; i++) {
+			final WorkerBuilder builder = swiffer.newWorkerBuilder()
+					.taskList(LoadWorkflow.TASK_LIST)
+					.identity("load-worker-" + i)
+					.executors(new LoadWorkflow.Executors(this.activityDuration));
+			this.workerConfiguration.accept(builder);
+			fleets.add(builder.build());
+		}
+		final ExecutorService executor = Executors.newFixedThreadPool(this.starters);
+		try {
+			fleets.forEach(TaskListService::start);
+			final String tag = "load-" + UUID.randomUUID();
+			// the tag identifies the executions, the filter tolerates a clock skew
+			final Date since = new Date(System.currentTimeMillis() - Duration.ofMinutes(5).toMillis());
+			final List<Future<WorkflowExecution>> executions = start(swiffer, tag, executor);
+			final List<WorkflowExecution> started = new ArrayList<>(executions.size());
+			for (final Future<WorkflowExecution> execution : executions) {
+				try {
+					started.add(execution.get());
+				} catch (final ExecutionException e) {
+					LOGGER.warn("Cannot start a load workflow", e.getCause());
+				}
+			}
+			LOGGER.info("{} load workflows started, draining them", started.size());
+			drain(swf, tag, since);
+			fleets.forEach(TaskListService::stop);
+			return LoadReport.of(histories(swiffer, started, executor), executions.size() - started.size());
+		} finally {
+			fleets.forEach(TaskListService::stop);
+			executor.shutdownNow();
+			if (swf != this.swf) {
+				((SwfEmulator) swf).shutdown();
+			}
+		}
+	}
+
+	private List<Future<WorkflowExecution>> start(final Swiffer swiffer, final String tag,
+			final ExecutorService executor) {
+		final RateLimiter rateLimiter = RateLimiter.create(this.workflowsPerSecond);
+		final List<Future<WorkflowExecution>> executions = new ArrayList<>();
+		final long end = System.nanoTime() + this.duration.toNanos();
+		while (System.nanoTime() < end) {
+			rateLimiter.acquire();
+			final String workflowId = tag + "-" + executions.size();
+			executions.add(executor.submit(() -> new WorkflowExecution().withWorkflowId(workflowId)
+					.withRunId(swiffer.startWorkflow(LoadWorkflow.Load.class, workflowId, this.activitiesPerWorkflow,
+							Tags.of(tag)))));
+		}
+		return executions;
+	}
+
+	/**
+	 * Wait for the executions of this run to be closed, listing them by their
+	 * tag.
+	 */
+	private void drain(final AmazonSimpleWorkflow swf, final String tag, final Date since)
+			throws InterruptedException {
+		final CountOpenWorkflowExecutionsRequest request = new CountOpenWorkflowExecutionsRequest()
+				.withDomain(this.domain)
+				.withStartTimeFilter(new ExecutionTimeFilter().withOldestDate(since))
+				.withTagFilter(new TagFilter().withTag(tag));
+		final long deadline = System.nanoTime() + this.drainTimeout.toNanos();
+		int open;
+		while ((open = swf.countOpenWorkflowExecutions(request).getCount()) > 0) {
+			if (System.nanoTime() >= deadline) {
+				LOGGER.warn("{} load workflows still open after {}", open, this.drainTimeout);
+				return;
+			}
+			Thread.sleep(100);
+		}
+	}
+
+	private List<List<HistoryEvent>> histories(final Swiffer swiffer, final List<WorkflowExecution> executions,
+			final ExecutorService executor) throws InterruptedException {
+		final List<Future<List<HistoryEvent>>> futures = new ArrayList<>(executions.size());
+		for (final WorkflowExecution execution : executions) {
+			futures.add(executor.submit(
+					() -> swiffer.getWorkflowExecutionHistory(execution.getWorkflowId(), execution.getRunId())));
+		}
+		final List<List<HistoryEvent>> histories = new ArrayList<>(futures.size());
+		for (final Future<List<HistoryEvent>> future : futures) {
+			try {
+				histories.add(future.get());
+			} catch (final ExecutionException e) {
+				LOGGER.warn("Cannot get the history of a load workflow", e.getCause());
+			}
+		}
+		return histories;
+	}
+
+	public static class Builder {
+
+		private AmazonSimpleWorkflow swf;
+		private String domain = "swiffer-load";
+		private double workflowsPerSecond = 50;
+		private Duration duration = Duration.ofSeconds(30);
+		private Duration drainTimeout = Duration.ofMinutes(1);
+		private int starters = 4;
+		private int activitiesPerWorkflow = 1;
+		private Duration activityDuration = Duration.ZERO;
+		private int deciders = 1;
+		private Consumer<DeciderBuilder> deciderConfiguration = builder -> {
+		};
+		private int workers = 1;
+		private Consumer<WorkerBuilder> workerConfiguration = builder -> {
+		};
+
+		private Builder() {
+		}
+
+		/**
+		 * Set the SWF client to load: SWF itself, an emulator, or a stub.
+		 * <p>
+		 * Defaults to a {@link SwfEmulator}, shut down at the end of the run.
+		 */
+		public Builder swf(final AmazonSimpleWorkflow swf) {
+			Preconditions.checkNotNull(swf, "SWF client must be specified!");
+			this.swf = swf;
+			return this;
+		}
+
+		/**
+		 * Set the domain of the load workflows, registered if missing.
+		 * <p>
+		 * Defaults to "swiffer-load".
+		 */
+		public Builder domain(final String domain) {
+			Preconditions.checkArgument(domain != null && !domain.isEmpty(), "domain must be specified");
+			this.domain = domain;
+			return this;
+		}
+
+		/**
+		 * Set the number of workflows started per second.
+		 * <p>
+		 * Defaults to 50.
+		 */
+		public Builder workflowsPerSecond(final double workflowsPerSecond) {
+			Preconditions.checkArgument(workflowsPerSecond > 0, "workflowsPerSecond must be positive");
+			this.workflowsPerSecond = workflowsPerSecond;
+			return this;
+		}
+
+		/**
+		 * Set how long workflows are started.
+		 * <p>
+		 * Defaults to 30 seconds.
+		 */
+		public Builder duration(final Duration duration) {
+			Preconditions.checkArgument(duration != null && !duration.isNegative() && !duration.isZero(),
+					"duration must be positive");
+			this.duration = duration;
+			return this;
+		}
+
+		/**
+		 * Set how long to wait for the started workflows to be closed before
+		 * reporting.
+		 * <p>
+		 * Defaults to 1 minute.
+		 */
+		public Builder drainTimeout(final Duration drainTimeout) {
+			Preconditions.checkArgument(drainTimeout != null && !drainTimeout.isNegative(),
+					"drainTimeout must be positive or zero");
+			this.drainTimeout = drainTimeout;
+			return this;
+		}
+
+		/**
+		 * Set the number of threads starting the workflows, to reach the rate
+		 * despite the latency of the start calls.
+		 * <p>
+		 * Defaults to 4.
+		 */
+		public Builder starters(final int starters) {
+			Preconditions.checkArgument(starters > 0, "starters must be positive");
+			this.starters = starters;
+			return this;
+		}
+
+		/**
+		 * Set the number of activities run one after the other by each
+		 * workflow.
+		 * <p>
+		 * Defaults to 1.
+		 */
+		public Builder activitiesPerWorkflow(final int activitiesPerWorkflow) {
+			Preconditions.checkArgument(activitiesPerWorkflow > 0, "activitiesPerWorkflow must be positive");
+			this.activitiesPerWorkflow = activitiesPerWorkflow;
+			return this;
+		}
+
+		/**
+		 * Set the time spent by each activity.
+		 * <p>
+		 * Defaults to zero.
+		 */
+		public Builder activityDuration(final Duration activityDuration) {
+			Preconditions.checkArgument(activityDuration != null && !activityDuration.isNegative(),
+					"activityDuration must be positive or zero");
+			this.activityDuration = activityDuration;
+			return this;
+		}
+
+		/**
+		 * Set the number of deciders.
+		 * <p>
+		 * Defaults to 1.
+		 */
+		public Builder deciders(final int deciders) {
+			Preconditions.checkArgument(deciders > 0, "deciders must be positive");
+			this.deciders = deciders;
+			return this;
+		}
+
+		/**
+		 * Configure each decider, e.g. its pollers or decision threads, before
+		 * it is built.
+		 */
+		public Builder deciders(final int deciders, final Consumer<DeciderBuilder> configuration) {
+			Preconditions.checkNotNull(configuration, "configuration must be specified");
+			this.deciderConfiguration = configuration;
+			return deciders(deciders);
+		}
+
+		/**
+		 * Set the number of workers.
+		 * <p>
+		 * Defaults to 1.
+		 */
+		public Builder workers(final int workers) {
+			Preconditions.checkArgument(workers > 0, "workers must be positive");
+			this.workers = workers;
+			return this;
+		}
+
+		/**
+		 * Configure each worker, e.g. its pollers or pool size, before it is
+		 * built.
+		 */
+		public Builder workers(final int workers, final Consumer<WorkerBuilder> configuration) {
+			Preconditions.checkNotNull(configuration, "configuration must be specified");
+			this.workerConfiguration = configuration;
+			return workers(workers);
+		}
+
+		public LoadHarness build() {
+			return new LoadHarness(this);
+		}
+	}
+}
@@ -0,0 +1,228 @@
+package com.solambda.swiffer.benchmarks.load;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.amazonaws.services.simpleworkflow.model.EventType;
+import com.amazonaws.services.simpleworkflow.model.HistoryEvent;
+
+/**
+ * The throughput and latencies of a {@link LoadHarness} run, computed from
+ * the timestamps of the histories of the started executions.
+ * <p>
+ * The throughputs are measured over the window going from the first started
+ * execution to the last event of all the histories; the latencies are:
+ * <ul>
+ * <li>schedule-to-start: from the scheduled to the started event of a task,
+ * the time it waited for a poller</li>
+ * <li>start-to-close: from the started to the completed event of a task, the
+ * time it took to handle it and respond</li>
+ * <li>workflow: from the start to the close of an execution</li>
+ * </ul>
+ */
+public final class LoadReport {
+
+	private final int started;
+	private final int failedStarts;
+	private final int completed;
+	private final Duration window;
+	private final int decisions;
+	private final int activities;
+	private final Latencies decisionScheduleToStart;
+	private final Latencies decisionStartToClose;
+	private final Latencies activityScheduleToStart;
+	private final Latencies activityStartToClose;
+	private final Latencies workflow;
+
+	private LoadReport(final int started, final int failedStarts, final int completed, final Duration window,
+			final int decisions, final int activities, final Latencies decisionScheduleToStart,
+			final Latencies decisionStartToClose, final Latencies activityScheduleToStart,
+			final Latencies activityStartToClose, final Latencies workflow) {
+		this.started = started;
+		this.failedStarts = failedStarts;
+		this.completed = completed;
+		this.window = window;
+		this.decisions = decisions;
+		this.activities = activities;
+		this.decisionScheduleToStart = decisionScheduleToStart;
+		this.decisionStartToClose = decisionStartToClose;
+		this.activityScheduleToStart = activityScheduleToStart;
+		this.activityStartToClose = activityStartToClose;
+		this.workflow = workflow;
+	}
+
+	/**
+	 * @param histories
+	 *            the histories of the started executions, in any order
+	 * @param failedStarts
+	 *            the number of executions that could not be started
+	 * @return the report of the given histories
+	 */
+	public static LoadReport of(final Collection<List<HistoryEvent>> histories, final int failedStarts) {
+		final List<Long> decisionScheduleToStart = new ArrayList<>();
+		final List<Long> decisionStartToClose = new ArrayList<>();
+		final List<Long> activityScheduleToStart = new ArrayList<>();
+		final List<Long> activityStartToClose = new ArrayList<>();
+		final List<Long> workflow = new ArrayList<>();
+		long first = Long.MAX_VALUE;
+		long last = Long.MIN_VALUE;
+		int completed = 0;
+		for (final List<HistoryEvent> history : histories) {
+			final Map<Long, Long> timestamps = new HashMap<>(history.size() * 2);
+			for (final HistoryEvent event : history) {
+				timestamps.put(event.getEventId(), event.getEventTimestamp().getTime());
+			}
+			long start = -1;
+			long close = -1;
+			for (final HistoryEvent event : history) {
+				final long timestamp = event.getEventTimestamp().getTime();
+				last = Math.max(last, timestamp);
+				switch (EventType.fromValue(event.getEventType())) {
+					case WorkflowExecutionStarted:
+						start = timestamp;
+						first = Math.min(first, timestamp);
+						break;
+					case DecisionTaskStarted:
+						add(decisionScheduleToStart, timestamps,
+								event.getDecisionTaskStartedEventAttributes().getScheduledEventId(), timestamp);
+						break;
+					case DecisionTaskCompleted:
+						add(decisionStartToClose, timestamps,
+								event.getDecisionTaskCompletedEventAttributes().getStartedEventId(), timestamp);
+						break;
+					case ActivityTaskStarted:
+						add(activityScheduleToStart, timestamps,
+								event.getActivityTaskStartedEventAttributes().getScheduledEventId(), timestamp);
+						break;
+					case ActivityTaskCompleted:
+						add(activityStartToClose, timestamps,
+								event.getActivityTaskCompletedEventAttributes().getStartedEventId(), timestamp);
+						break;
+					case WorkflowExecutionCompleted:
+						completed++;
+						close = timestamp;
+						break;
+					case WorkflowExecutionFailed:
+					case WorkflowExecutionCanceled:
+					case WorkflowExecutionTerminated:
+					case WorkflowExecutionTimedOut:
+					case WorkflowExecutionContinuedAsNew:
+						close = timestamp;
+						break;
+					default:
+						break;
+				}
+			}
+			if (start >= 0 && close >= 0) {
+				workflow.add(close - start);
+			}
+		}
+		final Duration window = first <= last ? Duration.ofMillis(last - first) : Duration.ZERO;
+		return new LoadReport(histories.size(), failedStarts, completed, window, decisionStartToClose.size(),
+				activityStartToClose.size(), Latencies.of(decisionScheduleToStart), Latencies.of(decisionStartToClose),
+				Latencies.of(activityScheduleToStart), Latencies.of(activityStartToClose), Latencies.of(workflow));
+	}
+
+	private static void add(final List<Long> latencies, final Map<Long, Long> timestamps, final Long fromEventId,
+			final long timestamp) {
+		final Long from = timestamps.get(fromEventId);
+		if (from != null) {
+			latencies.add(timestamp - from);
+		}
+	}
+
+	/**
+	 * @return the number of started executions
+	 */
+	public int started() {
+		return this.started;
+	}
+
+	/**
+	 * @return the number of executions that could not be started
+	 */
+	public int failedStarts() {
+		return this.failedStarts;
+	}
+
+	/**
+	 * @return the number of completed executions
+	 */
+	public int completed() {
+		return this.completed;
+	}
+
+	/**
+	 * @return the time from the first started execution to the last event
+	 */
+	public Duration window() {
+		return this.window;
+	}
+
+	/**
+	 * @return the number of completed decision tasks
+	 */
+	public int decisions() {
+		return this.decisions;
+	}
+
+	/**
+	 * @return the number of completed activity tasks
+	 */
+	public int activities() {
+		return this.activities;
+	}
+
+	public double decisionsPerSecond() {
+		return perSecond(this.decisions);
+	}
+
+	public double activitiesPerSecond() {
+		return perSecond(this.activities);
+	}
+
+	private double perSecond(final int count) {
+		return this.window.isZero() ? 0 : count * 1000d / this.window.toMillis();
+	}
+
+	public Latencies decisionScheduleToStart() {
+		return this.decisionScheduleToStart;
+	}
+
+	public Latencies decisionStartToClose() {
+		return this.decisionStartToClose;
+	}
+
+	public Latencies activityScheduleToStart() {
+		return this.activityScheduleToStart;
+	}
+
+	public Latencies activityStartToClose() {
+		return this.activityStartToClose;
+	}
+
+	/**
+	 * @return the latencies from the start to the close of the executions
+	 */
+	public Latencies workflow() {
+		return this.workflow;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("executions: %d started, %d completed, %d failed to start, over %.1fs%n"
+				+ "throughput: %.1f decisions/s, %.1f activities/s%n"
+				+ "decision schedule-to-start: %s%n"
+				+ "decision start-to-close:    %s%n"
+				+ "activity schedule-to-start: %s%n"
+				+ "activity start-to-close:    %s%n"
+				+ "workflow start-to-close:    %s",
+				this.started, this.completed, this.failedStarts, this.window.toMillis() / 1000d,
+				decisionsPerSecond(), activitiesPerSecond(), this.decisionScheduleToStart, this.decisionStartToClose,
+				this.activityScheduleToStart, this.activityStartToClose, this.workflow);
+	}
+}
@@ -0,0 +1,63 @@
+package com.solambda.swiffer.benchmarks.load;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.solambda.swiffer.emulator.SwfEmulator;
+
+/**
+ * Run the {@link LoadHarness} against the emulator, delaying each call by a
+ * latency, and print its report.
+ * <p>
+ * The arguments are name=value pairs, e.g.:
+ *
+ * <pre>
+ * java -cp swiffer-benchmarks/target/benchmarks.jar com.solambda.swiffer.benchmarks.load.LoadRunner \
+ *     rate=200 duration=60 activities=3 activityMillis=5 deciders=2 deciderPollers=2 \
+ *     workers=4 workerPollers=2 poolSize=16 latencyMillis=20 jitterMillis=5
+ * </pre>
+ */
+public class LoadRunner {
+
+	public static void main(final String[] args) throws InterruptedException {
+		final Map<String, String> options = new HashMap<>();
+		for (final String arg : args) {
+			final int separator = arg.indexOf('=');
+			if (separator < 0) {
+				throw new IllegalArgumentException("argument " + arg + " must be a name=value pair");
+			}
+			options.put(arg.substring(0, separator), arg.substring(separator + 1));
+		}
+		final Duration latency = Duration.ofMillis(option(options, "latencyMillis", 0));
+		final Duration jitter = Duration.ofMillis(option(options, "jitterMillis", 0));
+		final int deciderPollers = option(options, "deciderPollers", 1);
+		final int workerPollers = option(options, "workerPollers", 1);
+		final int poolSize = option(options, "poolSize", 8);
+		final SwfEmulator emulator = new SwfEmulator(Duration.ofSeconds(1));
+		try {
+			final LoadHarness harness = LoadHarness.builder()
+					.swf(LatencyInjectingSwf.wrap(emulator, latency, jitter))
+					.workflowsPerSecond(option(options, "rate", 50))
+					.duration(Duration.ofSeconds(option(options, "duration", 30)))
+					.starters(option(options, "starters", 4))
+					.activitiesPerWorkflow(option(options, "activities", 1))
+					.activityDuration(Duration.ofMillis(option(options, "activityMillis", 0)))
+					.deciders(option(options, "deciders", 1), decider -> decider.pollers(deciderPollers))
+					.workers(option(options, "workers", 1),
+							worker -> worker.pollers(workerPollers).poolSize(poolSize))
+					.build();
+			if (!options.isEmpty()) {
+				throw new IllegalArgumentException("unknown arguments " + options.keySet());
+			}
+			System.out.println(harness.run());
+		} finally {
+			emulator.shutdown();
+		}
+	}
+
+	private static int option(final Map<String, String> options, final String name, final int defaultValue) {
+		final String value = options.remove(name);
+		return value == null ? defaultValue : Integer.parseInt(value);
+	}
+}
@@ -0,0 +1,76 @@
+package com.solambda.swiffer.benchmarks.load;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.time.Duration;
+
+import com.google.common.base.Preconditions;
+import com.solambda.swiffer.api.ActivityType;
+import com.solambda.swiffer.api.Decisions;
+import com.solambda.swiffer.api.Executor;
+import com.solambda.swiffer.api.OnActivityCompleted;
+import com.solambda.swiffer.api.OnWorkflowStarted;
+import com.solambda.swiffer.api.Output;
+import com.solambda.swiffer.api.WorkflowType;
+
+/**
+ * The workflow started by the {@link LoadHarness}: a chain of activities, the
+ * input being the number of activities to run before completing.
+ */
+public final class LoadWorkflow {
+
+	public static final String TASK_LIST = "load";
+
+	@Retention(RetentionPolicy.RUNTIME)
+	@WorkflowType(name = "Load", version = "1", defaultTaskList = TASK_LIST)
+	public @interface Load {
+	}
+
+	@Retention(RetentionPolicy.RUNTIME)
+	@ActivityType(name = "Work", version = "1", defaultTaskList = TASK_LIST)
+	public @interface Work {
+	}
+
+	@Load
+	public static class Template {
+
+		@OnWorkflowStarted
+		public void onStart(final Integer activities, final Decisions decideTo) {
+			decideTo.scheduleActivityTask(Work.class, activities);
+		}
+
+		@OnActivityCompleted(Work.class)
+		public void onWorkDone(@Output final Integer remaining, final Decisions decideTo) {
+			if (remaining > 0) {
+				decideTo.scheduleActivityTask(Work.class, remaining);
+			} else {
+				decideTo.completeWorkflow();
+			}
+		}
+	}
+
+	public static class Executors {
+
+		private final long workMillis;
+
+		/**
+		 * @param work
+		 *            the time spent by each activity, zero for no work
+		 */
+		public Executors(final Duration work) {
+			Preconditions.checkArgument(work != null && !work.isNegative(), "work duration must be positive or zero");
+			this.workMillis = work.toMillis();
+		}
+
+		@Executor(activity = Work.class)
+		public Integer work(final Integer remaining) throws InterruptedException {
+			if (this.workMillis > 0) {
+				Thread.sleep(this.workMillis);
+			}
+			return remaining - 1;
+		}
+	}
+
+	private LoadWorkflow() {
+	}
+}
@@ -0,0 +1,62 @@
+package com.solambda.swiffer.benchmarks.load;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import org.junit.Test;
+
+import com.solambda.swiffer.emulator.SwfEmulator;
+
+public class LoadHarnessTest {
+
+	@Test
+	public void reportsTheThroughputAndLatenciesOfTheStartedWorkflows() throws InterruptedException {
+		final SwfEmulator emulator = new SwfEmulator(Duration.ofMillis(200));
+		final LoadReport report;
+		try {
+			report = LoadHarness.builder()
+					.swf(LatencyInjectingSwf.wrap(emulator, Duration.ofMillis(2), Duration.ofMillis(1)))
+					.workflowsPerSecond(20)
+					.duration(Duration.ofSeconds(1))
+					.drainTimeout(Duration.ofSeconds(10))
+					.activitiesPerWorkflow(2)
+					.activityDuration(Duration.ofMillis(20))
+					.deciders(2, decider -> decider.pollers(2))
+					.workers(2, worker -> worker.pollers(2).poolSize(4))
+					.build()
+					.run();
+		} finally {
+			emulator.shutdown();
+		}
+
+		assertThat(report.started()).isGreaterThanOrEqualTo(15);
+		assertThat(report.failedStarts()).isZero();
+		assertThat(report.completed()).isEqualTo(report.started());
+		assertThat(report.decisions()).isEqualTo(report.started() * 3);
+		assertThat(report.activities()).isEqualTo(report.started() * 2);
+		assertThat(report.decisionsPerSecond()).isPositive();
+		assertThat(report.activitiesPerSecond()).isPositive();
+		assertThat(report.decisionScheduleToStart().count()).isEqualTo(report.decisions());
+		assertThat(report.activityScheduleToStart().count()).isEqualTo(report.activities());
+		assertThat(report.activityStartToClose().p50()).isGreaterThanOrEqualTo(Duration.ofMillis(20));
+		assertThat(report.workflow().count()).isEqualTo(report.completed());
+		assertThat(report.workflow().p50()).isGreaterThanOrEqualTo(Duration.ofMillis(40));
+	}
+
+	@Test
+	public void computesThePercentilesByNearestRank() {
+		final List<Long> millis = LongStream.rangeClosed(1, 200).boxed().collect(Collectors.toList());
+
+		final Latencies latencies = Latencies.of(millis);
+
+		assertThat(latencies.count()).isEqualTo(200);
+		assertThat(latencies.p50()).isEqualTo(Duration.ofMillis(100));
+		assertThat(latencies.p99()).isEqualTo(Duration.ofMillis(198));
+		assertThat(latencies.max()).isEqualTo(Duration.ofMillis(200));
+		assertThat(Latencies.of(millis.subList(0, 0)).p99()).isEqualTo(Duration.ZERO);
+	}
+}
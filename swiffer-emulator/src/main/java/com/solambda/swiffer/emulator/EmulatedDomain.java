@@ -0,0 +1,64 @@
+package com.solambda.swiffer.emulator;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import com.amazonaws.services.simpleworkflow.model.ActivityTypeDetail;
+import com.amazonaws.services.simpleworkflow.model.DomainDetail;
+import com.amazonaws.services.simpleworkflow.model.WorkflowTypeDetail;
+
+/**
+ * A domain of the emulator: its registered types, its executions and its task
+ * lists.
+ */
+class EmulatedDomain {
+
+	final DomainDetail detail;
+
+	/**
+	 * the registered types, by name and version
+	 */
+	final Map<String, WorkflowTypeDetail> workflowTypes = new ConcurrentHashMap<>();
+	final Map<String, ActivityTypeDetail> activityTypes = new ConcurrentHashMap<>();
+
+	/**
+	 * the open executions, by workflow id
+	 */
+	final Map<String, EmulatedExecution> openExecutions = new ConcurrentHashMap<>();
+	final Queue<EmulatedExecution> closedExecutions = new ConcurrentLinkedQueue<>();
+
+	private final Map<String, BlockingQueue<EmulatedExecution>> decisionTasks = new ConcurrentHashMap<>();
+	private final Map<String, BlockingQueue<EmulatedExecution.Activity>> activityTasks = new ConcurrentHashMap<>();
+
+	EmulatedDomain(final DomainDetail detail) {
+		super();
+		this.detail = detail;
+	}
+
+	String name() {
+		return this.detail.getDomainInfo().getName();
+	}
+
+	/**
+	 * @return the executions having a scheduled decision task, in the
+	 *         scheduling order
+	 */
+	BlockingQueue<EmulatedExecution> decisionTasks(final String taskList) {
+		return this.decisionTasks.computeIfAbsent(taskList, name -> new LinkedBlockingQueue<>());
+	}
+
+	/**
+	 * @return the scheduled activity tasks, in the scheduling order
+	 */
+	BlockingQueue<EmulatedExecution.Activity> activityTasks(final String taskList) {
+		return this.activityTasks.computeIfAbsent(taskList, name -> new LinkedBlockingQueue<>());
+	}
+
+	static String key(final String name, final String version) {
+		return name + ':' + version;
+	}
+}
@@ -0,0 +1,1271 @@
+package com.solambda.swiffer.emulator;
+
+import static com.solambda.swiffer.emulator.SwfEmulator.unknownResource;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import com.amazonaws.services.simpleworkflow.model.*;
+
+/**
+ * An execution of a workflow: its history and the state of its tasks, timers
+ * and children.
+ * <p>
+ * The execution is only changed while holding its lock. The effects of an
+ * execution on the other ones, e.g. the completion of a child recorded in the
+ * history of its parent, are applied later by the emulator without holding any
+ * lock, so that the executions never wait for each other.
+ */
+class EmulatedExecution {
+
+	private static final String NONE = "NONE";
+
+	private final SwfEmulator emulator;
+	private final EmulatedDomain domain;
+	private final WorkflowExecution execution;
+	private final WorkflowType workflowType;
+	private final WorkflowExecutionConfiguration configuration;
+	private final List<String> tagList;
+	private final EmulatedExecution parent;
+	private final Long parentInitiatedEventId;
+	private final Date startTimestamp = new Date();
+
+	private final List<HistoryEvent> history = new ArrayList<>();
+	private Date closeTimestamp;
+	private CloseStatus closeStatus;
+	private boolean cancelRequested;
+	private String latestExecutionContext;
+	private Date latestActivityTaskTimestamp;
+	private ScheduledFuture<?> executionTimeout;
+
+	/**
+	 * the id of the DecisionTaskScheduled event of the scheduled or started
+	 * decision task, 0 if there is none
+	 */
+	private long scheduledDecisionId;
+	/**
+	 * the id of the DecisionTaskStarted event of the started decision task, 0
+	 * if there is none
+	 */
+	private long startedDecisionId;
+	private long previousStartedDecisionId;
+	/**
+	 * true if events have been recorded since the start of the current
+	 * decision task: another decision task is scheduled when it completes
+	 */
+	private boolean decisionNeeded;
+	private ScheduledFuture<?> decisionTimeout;
+
+	private final Map<Long, Activity> activities = new HashMap<>();
+	private final Map<String, Activity> activitiesById = new HashMap<>();
+	private final Map<String, Timer> timers = new HashMap<>();
+	private final Map<Long, Child> children = new HashMap<>();
+
+	EmulatedExecution(final SwfEmulator emulator, final EmulatedDomain domain, final String runId,
+			final StartWorkflowExecutionRequest request, final EmulatedExecution parent,
+			final Long parentInitiatedEventId) {
+		super();
+		this.emulator = emulator;
+		this.domain = domain;
+		this.execution = new WorkflowExecution().withWorkflowId(request.getWorkflowId()).withRunId(runId);
+		this.workflowType = request.getWorkflowType();
+		this.configuration = new WorkflowExecutionConfiguration()
+				.withTaskList(request.getTaskList())
+				.withTaskPriority(request.getTaskPriority())
+				.withTaskStartToCloseTimeout(request.getTaskStartToCloseTimeout())
+				.withExecutionStartToCloseTimeout(request.getExecutionStartToCloseTimeout())
+				.withChildPolicy(request.getChildPolicy())
+				.withLambdaRole(request.getLambdaRole());
+		this.tagList = request.getTagList();
+		this.parent = parent;
+		this.parentInitiatedEventId = parentInitiatedEventId;
+	}
+
+	WorkflowExecution execution() {
+		return this.execution;
+	}
+
+	String runId() {
+		return this.execution.getRunId();
+	}
+
+	EmulatedDomain domain() {
+		return this.domain;
+	}
+
+	private String taskList() {
+		return this.configuration.getTaskList().getName();
+	}
+
+	synchronized boolean isOpen() {
+		return this.closeStatus == null;
+	}
+
+	/**
+	 * Record the start of the execution and schedule its first decision task.
+	 */
+	synchronized void start(final String input, final String continuedExecutionRunId) {
+		addEvent(EventType.WorkflowExecutionStarted).withWorkflowExecutionStartedEventAttributes(
+				new WorkflowExecutionStartedEventAttributes()
+						.withInput(input)
+						.withWorkflowType(this.workflowType)
+						.withTaskList(this.configuration.getTaskList())
+						.withTaskPriority(this.configuration.getTaskPriority())
+						.withTaskStartToCloseTimeout(this.configuration.getTaskStartToCloseTimeout())
+						.withExecutionStartToCloseTimeout(this.configuration.getExecutionStartToCloseTimeout())
+						.withChildPolicy(this.configuration.getChildPolicy())
+						.withLambdaRole(this.configuration.getLambdaRole())
+						.withTagList(this.tagList)
+						.withContinuedExecutionRunId(continuedExecutionRunId)
+						.withParentWorkflowExecution(this.parent == null ? null : this.parent.execution)
+						.withParentInitiatedEventId(this.parentInitiatedEventId));
+		final long timeout = seconds(this.configuration.getExecutionStartToCloseTimeout());
+		if (timeout >= 0) {
+			this.executionTimeout = this.emulator.schedule(this::timedOut, timeout);
+		}
+		scheduleDecision();
+	}
+
+	private HistoryEvent addEvent(final EventType type) {
+		final HistoryEvent event = new HistoryEvent()
+				.withEventId((long) this.history.size() + 1)
+				.withEventType(type)
+				.withEventTimestamp(new Date());
+		this.history.add(event);
+		return event;
+	}
+
+	private long lastEventId() {
+		return this.history.size();
+	}
+
+	/**
+	 * Schedule a decision task, unless one is already scheduled, or delay it
+	 * until the completion of the started one.
+	 */
+	private void scheduleDecision() {
+		if (this.closeStatus != null) {
+			return;
+		}
+		if (this.startedDecisionId != 0) {
+			this.decisionNeeded = true;
+			return;
+		}
+		if (this.scheduledDecisionId != 0) {
+			return;
+		}
+		this.decisionNeeded = false;
+		this.scheduledDecisionId = addEvent(EventType.DecisionTaskScheduled)
+				.withDecisionTaskScheduledEventAttributes(new DecisionTaskScheduledEventAttributes()
+						.withTaskList(this.configuration.getTaskList())
+						.withTaskPriority(this.configuration.getTaskPriority())
+						.withStartToCloseTimeout(this.configuration.getTaskStartToCloseTimeout()))
+				.getEventId();
+		this.domain.decisionTasks(taskList()).add(this);
+	}
+
+	// DECISION TASKS
+
+	/**
+	 * Start the scheduled decision task.
+	 *
+	 * @return the decision task, or null if it is not scheduled anymore
+	 */
+	synchronized DecisionTask startDecisionTask(final String identity, final int pageSize, final boolean reverse) {
+		if (this.closeStatus != null || this.scheduledDecisionId == 0 || this.startedDecisionId != 0) {
+			return null;
+		}
+		this.startedDecisionId = addEvent(EventType.DecisionTaskStarted)
+				.withDecisionTaskStartedEventAttributes(new DecisionTaskStartedEventAttributes()
+						.withIdentity(identity)
+						.withScheduledEventId(this.scheduledDecisionId))
+				.getEventId();
+		final long timeout = seconds(this.configuration.getTaskStartToCloseTimeout());
+		if (timeout >= 0) {
+			final long startedId = this.startedDecisionId;
+			this.decisionTimeout = this.emulator.schedule(() -> decisionTimedOut(startedId), timeout);
+		}
+		final DecisionTask task = new DecisionTask()
+				.withTaskToken(SwfEmulator.decisionToken(runId(), this.startedDecisionId))
+				.withStartedEventId(this.startedDecisionId)
+				.withPreviousStartedEventId(this.previousStartedDecisionId)
+				.withWorkflowExecution(this.execution)
+				.withWorkflowType(this.workflowType);
+		final Page page = page(this.startedDecisionId, 0, pageSize, reverse);
+		return task.withEvents(page.events).withNextPageToken(page.nextPageToken);
+	}
+
+	/**
+	 * Complete the started decision task, applying its decisions in order.
+	 */
+	synchronized void completeDecisionTask(final long startedEventId,
+			final RespondDecisionTaskCompletedRequest request) {
+		if (this.closeStatus != null || this.startedDecisionId != startedEventId) {
+			throw unknownResource("Unknown decision task, it may have timed out: " + request.getTaskToken());
+		}
+		final List<Decision> decisions = request.getDecisions() == null ? Collections.emptyList()
+				: request.getDecisions();
+		for (int i = 0; i < decisions.size() - 1; i++) {
+			if (isCloseDecision(decisions.get(i))) {
+				throw SwfEmulator.validation("The close decision must be the last decision in the list");
+			}
+		}
+		cancel(this.decisionTimeout);
+		// the close decisions fail if events are recorded during the decision
+		final boolean unhandledEvents = this.decisionNeeded;
+		final long completedEventId = addEvent(EventType.DecisionTaskCompleted)
+				.withDecisionTaskCompletedEventAttributes(new DecisionTaskCompletedEventAttributes()
+						.withExecutionContext(request.getExecutionContext())
+						.withScheduledEventId(this.scheduledDecisionId)
+						.withStartedEventId(this.startedDecisionId))
+				.getEventId();
+		if (request.getExecutionContext() != null) {
+			this.latestExecutionContext = request.getExecutionContext();
+		}
+		for (final Decision decision : decisions) {
+			apply(decision, completedEventId, unhandledEvents);
+		}
+		this.previousStartedDecisionId = this.startedDecisionId;
+		this.startedDecisionId = 0;
+		this.scheduledDecisionId = 0;
+		if (this.decisionNeeded) {
+			scheduleDecision();
+		}
+	}
+
+	private synchronized void decisionTimedOut(final long startedEventId) {
+		if (this.closeStatus != null || this.startedDecisionId != startedEventId) {
+			return;
+		}
+		addEvent(EventType.DecisionTaskTimedOut).withDecisionTaskTimedOutEventAttributes(
+				new DecisionTaskTimedOutEventAttributes()
+						.withTimeoutType(DecisionTaskTimeoutType.START_TO_CLOSE)
+						.withScheduledEventId(this.scheduledDecisionId)
+						.withStartedEventId(this.startedDecisionId));
+		this.startedDecisionId = 0;
+		this.scheduledDecisionId = 0;
+		scheduleDecision();
+	}
+
+	private static boolean isCloseDecision(final Decision decision) {
+		switch (DecisionType.fromValue(decision.getDecisionType())) {
+			case CompleteWorkflowExecution:
+			case FailWorkflowExecution:
+			case CancelWorkflowExecution:
+			case ContinueAsNewWorkflowExecution:
+				return true;
+			default:
+				return false;
+		}
+	}
+
+	private void apply(final Decision decision, final long completedEventId, final boolean unhandledEvents) {
+		switch (DecisionType.fromValue(decision.getDecisionType())) {
+			case ScheduleActivityTask:
+				scheduleActivity(decision.getScheduleActivityTaskDecisionAttributes(), completedEventId);
+				break;
+			case RequestCancelActivityTask:
+				requestCancelActivity(decision.getRequestCancelActivityTaskDecisionAttributes().getActivityId(),
+						completedEventId);
+				break;
+			case StartTimer:
+				startTimer(decision.getStartTimerDecisionAttributes(), completedEventId);
+				break;
+			case CancelTimer:
+				cancelTimer(decision.getCancelTimerDecisionAttributes().getTimerId(), completedEventId);
+				break;
+			case RecordMarker:
+				addEvent(EventType.MarkerRecorded).withMarkerRecordedEventAttributes(
+						new MarkerRecordedEventAttributes()
+								.withMarkerName(decision.getRecordMarkerDecisionAttributes().getMarkerName())
+								.withDetails(decision.getRecordMarkerDecisionAttributes().getDetails())
+								.withDecisionTaskCompletedEventId(completedEventId));
+				break;
+			case StartChildWorkflowExecution:
+				startChild(decision.getStartChildWorkflowExecutionDecisionAttributes(), completedEventId);
+				break;
+			case RequestCancelExternalWorkflowExecution:
+				requestCancelExternal(decision.getRequestCancelExternalWorkflowExecutionDecisionAttributes(),
+						completedEventId);
+				break;
+			case SignalExternalWorkflowExecution:
+				signalExternal(decision.getSignalExternalWorkflowExecutionDecisionAttributes(), completedEventId);
+				break;
+			case CompleteWorkflowExecution:
+				if (unhandledEvents) {
+					addEvent(EventType.CompleteWorkflowExecutionFailed)
+							.withCompleteWorkflowExecutionFailedEventAttributes(
+									new CompleteWorkflowExecutionFailedEventAttributes()
+											.withCause(CompleteWorkflowExecutionFailedCause.UNHANDLED_DECISION)
+											.withDecisionTaskCompletedEventId(completedEventId));
+					this.decisionNeeded = true;
+				} else {
+					addEvent(EventType.WorkflowExecutionCompleted).withWorkflowExecutionCompletedEventAttributes(
+							new WorkflowExecutionCompletedEventAttributes()
+									.withResult(decision.getCompleteWorkflowExecutionDecisionAttributes() == null ? null
+											: decision.getCompleteWorkflowExecutionDecisionAttributes().getResult())
+									.withDecisionTaskCompletedEventId(completedEventId));
+					close(CloseStatus.COMPLETED);
+				}
+				break;
+			case FailWorkflowExecution:
+				if (unhandledEvents) {
+					addEvent(EventType.FailWorkflowExecutionFailed).withFailWorkflowExecutionFailedEventAttributes(
+							new FailWorkflowExecutionFailedEventAttributes()
+									.withCause(FailWorkflowExecutionFailedCause.UNHANDLED_DECISION)
+									.withDecisionTaskCompletedEventId(completedEventId));
+					this.decisionNeeded = true;
+				} else {
+					final FailWorkflowExecutionDecisionAttributes attributes = decision
+							.getFailWorkflowExecutionDecisionAttributes() == null
+									? new FailWorkflowExecutionDecisionAttributes()
+									: decision.getFailWorkflowExecutionDecisionAttributes();
+					addEvent(EventType.WorkflowExecutionFailed).withWorkflowExecutionFailedEventAttributes(
+							new WorkflowExecutionFailedEventAttributes()
+									.withReason(attributes.getReason())
+									.withDetails(attributes.getDetails())
+									.withDecisionTaskCompletedEventId(completedEventId));
+					close(CloseStatus.FAILED);
+				}
+				break;
+			case CancelWorkflowExecution:
+				if (unhandledEvents) {
+					addEvent(EventType.CancelWorkflowExecutionFailed)
+							.withCancelWorkflowExecutionFailedEventAttributes(
+									new CancelWorkflowExecutionFailedEventAttributes()
+											.withCause(CancelWorkflowExecutionFailedCause.UNHANDLED_DECISION)
+											.withDecisionTaskCompletedEventId(completedEventId));
+					this.decisionNeeded = true;
+				} else {
+					addEvent(EventType.WorkflowExecutionCanceled).withWorkflowExecutionCanceledEventAttributes(
+							new WorkflowExecutionCanceledEventAttributes()
+									.withDetails(decision.getCancelWorkflowExecutionDecisionAttributes() == null ? null
+											: decision.getCancelWorkflowExecutionDecisionAttributes().getDetails())
+									.withDecisionTaskCompletedEventId(completedEventId));
+					close(CloseStatus.CANCELED);
+				}
+				break;
+			case ContinueAsNewWorkflowExecution:
+				if (unhandledEvents) {
+					continueAsNewFailed(ContinueAsNewWorkflowExecutionFailedCause.UNHANDLED_DECISION,
+							completedEventId);
+				} else {
+					continueAsNew(decision.getContinueAsNewWorkflowExecutionDecisionAttributes() == null
+							? new ContinueAsNewWorkflowExecutionDecisionAttributes()
+							: decision.getContinueAsNewWorkflowExecutionDecisionAttributes(), completedEventId);
+				}
+				break;
+			default:
+				throw new UnsupportedOperationException(
+						"The decision " + decision.getDecisionType() + " is not supported by the emulator");
+		}
+	}
+
+	// ACTIVITY TASKS
+
+	private void scheduleActivity(final ScheduleActivityTaskDecisionAttributes attributes,
+			final long completedEventId) {
+		final ActivityTypeDetail type = this.domain.activityTypes.get(EmulatedDomain
+				.key(attributes.getActivityType().getName(), attributes.getActivityType().getVersion()));
+		final ScheduleActivityTaskFailedCause cause;
+		if (type == null) {
+			cause = ScheduleActivityTaskFailedCause.ACTIVITY_TYPE_DOES_NOT_EXIST;
+		} else if (RegistrationStatus.DEPRECATED.toString().equals(type.getTypeInfo().getStatus())) {
+			cause = ScheduleActivityTaskFailedCause.ACTIVITY_TYPE_DEPRECATED;
+		} else if (this.activitiesById.containsKey(attributes.getActivityId())) {
+			cause = ScheduleActivityTaskFailedCause.ACTIVITY_ID_ALREADY_IN_USE;
+		} else if (attributes.getTaskList() == null && type.getConfiguration().getDefaultTaskList() == null) {
+			cause = ScheduleActivityTaskFailedCause.DEFAULT_TASK_LIST_UNDEFINED;
+		} else {
+			cause = null;
+		}
+		if (cause != null) {
+			addEvent(EventType.ScheduleActivityTaskFailed).withScheduleActivityTaskFailedEventAttributes(
+					new ScheduleActivityTaskFailedEventAttributes()
+							.withActivityType(attributes.getActivityType())
+							.withActivityId(attributes.getActivityId())
+							.withCause(cause)
+							.withDecisionTaskCompletedEventId(completedEventId));
+			this.decisionNeeded = true;
+			return;
+		}
+		final ActivityTypeConfiguration defaults = type.getConfiguration();
+		final ActivityTaskScheduledEventAttributes scheduled = new ActivityTaskScheduledEventAttributes()
+				.withActivityType(attributes.getActivityType())
+				.withActivityId(attributes.getActivityId())
+				.withInput(attributes.getInput())
+				.withControl(attributes.getControl())
+				.withTaskList(attributes.getTaskList() != null ? attributes.getTaskList()
+						: defaults.getDefaultTaskList())
+				.withTaskPriority(attributes.getTaskPriority() != null ? attributes.getTaskPriority()
+						: defaults.getDefaultTaskPriority())
+				.withScheduleToStartTimeout(attributes.getScheduleToStartTimeout() != null
+						? attributes.getScheduleToStartTimeout() : defaults.getDefaultTaskScheduleToStartTimeout())
+				.withScheduleToCloseTimeout(attributes.getScheduleToCloseTimeout() != null
+						? attributes.getScheduleToCloseTimeout() : defaults.getDefaultTaskScheduleToCloseTimeout())
+				.withStartToCloseTimeout(attributes.getStartToCloseTimeout() != null
+						? attributes.getStartToCloseTimeout() : defaults.getDefaultTaskStartToCloseTimeout())
+				.withHeartbeatTimeout(attributes.getHeartbeatTimeout() != null ? attributes.getHeartbeatTimeout()
+						: defaults.getDefaultTaskHeartbeatTimeout())
+				.withDecisionTaskCompletedEventId(completedEventId);
+		final long scheduledEventId = addEvent(EventType.ActivityTaskScheduled)
+				.withActivityTaskScheduledEventAttributes(scheduled)
+				.getEventId();
+		final Activity activity = new Activity(scheduledEventId, scheduled);
+		this.activities.put(scheduledEventId, activity);
+		this.activitiesById.put(activity.activityId(), activity);
+		activity.watch();
+		this.domain.activityTasks(scheduled.getTaskList().getName()).add(activity);
+	}
+
+	private void requestCancelActivity(final String activityId, final long completedEventId) {
+		final Activity activity = this.activitiesById.get(activityId);
+		if (activity == null) {
+			addEvent(EventType.RequestCancelActivityTaskFailed).withRequestCancelActivityTaskFailedEventAttributes(
+					new RequestCancelActivityTaskFailedEventAttributes()
+							.withActivityId(activityId)
+							.withCause(RequestCancelActivityTaskFailedCause.ACTIVITY_ID_UNKNOWN)
+							.withDecisionTaskCompletedEventId(completedEventId));
+			this.decisionNeeded = true;
+			return;
+		}
+		activity.cancelRequestedEventId = addEvent(EventType.ActivityTaskCancelRequested)
+				.withActivityTaskCancelRequestedEventAttributes(new ActivityTaskCancelRequestedEventAttributes()
+						.withActivityId(activityId)
+						.withDecisionTaskCompletedEventId(completedEventId))
+				.getEventId();
+		if (activity.startedEventId == 0) {
+			// not started yet: canceled right away
+			this.domain.activityTasks(activity.scheduled.getTaskList().getName()).remove(activity);
+			canceled(activity, null);
+		}
+	}
+
+	/**
+	 * Start the scheduled activity task.
+	 *
+	 * @return the activity task, or null if it is not scheduled anymore
+	 */
+	synchronized ActivityTask startActivityTask(final Activity activity, final String identity) {
+		if (this.closeStatus != null || this.activities.get(activity.scheduledEventId) != activity
+				|| activity.startedEventId != 0) {
+			return null;
+		}
+		activity.startedEventId = addEvent(EventType.ActivityTaskStarted)
+				.withActivityTaskStartedEventAttributes(new ActivityTaskStartedEventAttributes()
+						.withIdentity(identity)
+						.withScheduledEventId(activity.scheduledEventId))
+				.getEventId();
+		activity.startedAt = activity.lastHeartbeatAt = System.nanoTime();
+		activity.watch();
+		this.latestActivityTaskTimestamp = new Date();
+		return new ActivityTask()
+				.withTaskToken(SwfEmulator.activityToken(runId(), activity.scheduledEventId))
+				.withActivityId(activity.activityId())
+				.withActivityType(activity.scheduled.getActivityType())
+				.withInput(activity.scheduled.getInput())
+				.withStartedEventId(activity.startedEventId)
+				.withWorkflowExecution(this.execution);
+	}
+
+	private Activity startedActivity(final long scheduledEventId, final String taskToken) {
+		final Activity activity = this.activities.get(scheduledEventId);
+		if (this.closeStatus != null || activity == null || activity.startedEventId == 0) {
+			throw unknownResource("Unknown activity task, it may have timed out: " + taskToken);
+		}
+		return activity;
+	}
+
+	synchronized ActivityTaskStatus heartbeat(final long scheduledEventId, final String taskToken,
+			final String details) {
+		final Activity activity = startedActivity(scheduledEventId, taskToken);
+		activity.lastHeartbeatAt = System.nanoTime();
+		activity.details = details;
+		return new ActivityTaskStatus().withCancelRequested(activity.cancelRequestedEventId != 0);
+	}
+
+	synchronized void activityCompleted(final long scheduledEventId, final String taskToken, final String result) {
+		final Activity activity = startedActivity(scheduledEventId, taskToken);
+		addEvent(EventType.ActivityTaskCompleted).withActivityTaskCompletedEventAttributes(
+				new ActivityTaskCompletedEventAttributes()
+						.withResult(result)
+						.withScheduledEventId(activity.scheduledEventId)
+						.withStartedEventId(activity.startedEventId));
+		closed(activity);
+	}
+
+	synchronized void activityFailed(final long scheduledEventId, final String taskToken, final String reason,
+			final String details) {
+		final Activity activity = startedActivity(scheduledEventId, taskToken);
+		addEvent(EventType.ActivityTaskFailed).withActivityTaskFailedEventAttributes(
+				new ActivityTaskFailedEventAttributes()
+						.withReason(reason)
+						.withDetails(details)
+						.withScheduledEventId(activity.scheduledEventId)
+						.withStartedEventId(activity.startedEventId));
+		closed(activity);
+	}
+
+	synchronized void activityCanceled(final long scheduledEventId, final String taskToken, final String details) {
+		canceled(startedActivity(scheduledEventId, taskToken), details);
+	}
+
+	private void canceled(final Activity activity, final String details) {
+		addEvent(EventType.ActivityTaskCanceled).withActivityTaskCanceledEventAttributes(
+				new ActivityTaskCanceledEventAttributes()
+						.withDetails(details)
+						.withScheduledEventId(activity.scheduledEventId)
+						.withStartedEventId(activity.startedEventId)
+						.withLatestCancelRequestedEventId(
+								activity.cancelRequestedEventId == 0 ? null : activity.cancelRequestedEventId));
+		closed(activity);
+	}
+
+	private void closed(final Activity activity) {
+		this.activities.remove(activity.scheduledEventId);
+		this.activitiesById.remove(activity.activityId());
+		cancel(activity.watchdog);
+		this.emulator.activityTaskClosed();
+		scheduleDecision();
+	}
+
+	/**
+	 * Time the activity out if one of its timeouts is reached, otherwise watch
+	 * it again until the next one.
+	 */
+	private synchronized void checkTimeouts(final Activity activity) {
+		if (this.closeStatus != null || this.activities.get(activity.scheduledEventId) != activity) {
+			return;
+		}
+		final long now = System.nanoTime();
+		final ActivityTaskTimeoutType timeoutType = activity.reachedTimeout(now);
+		if (timeoutType == null) {
+			activity.watch();
+			return;
+		}
+		if (activity.startedEventId == 0) {
+			this.domain.activityTasks(activity.scheduled.getTaskList().getName()).remove(activity);
+		}
+		addEvent(EventType.ActivityTaskTimedOut).withActivityTaskTimedOutEventAttributes(
+				new ActivityTaskTimedOutEventAttributes()
+						.withTimeoutType(timeoutType)
+						.withDetails(activity.details)
+						.withScheduledEventId(activity.scheduledEventId)
+						.withStartedEventId(activity.startedEventId));
+		closed(activity);
+	}
+
+	// TIMERS
+
+	private void startTimer(final StartTimerDecisionAttributes attributes, final long completedEventId) {
+		if (this.timers.containsKey(attributes.getTimerId())) {
+			addEvent(EventType.StartTimerFailed).withStartTimerFailedEventAttributes(
+					new StartTimerFailedEventAttributes()
+							.withTimerId(attributes.getTimerId())
+							.withCause(StartTimerFailedCause.TIMER_ID_ALREADY_IN_USE)
+							.withDecisionTaskCompletedEventId(completedEventId));
+			this.decisionNeeded = true;
+			return;
+		}
+		final long startedEventId = addEvent(EventType.TimerStarted)
+				.withTimerStartedEventAttributes(new TimerStartedEventAttributes()
+						.withTimerId(attributes.getTimerId())
+						.withControl(attributes.getControl())
+						.withStartToFireTimeout(attributes.getStartToFireTimeout())
+						.withDecisionTaskCompletedEventId(completedEventId))
+				.getEventId();
+		final Timer timer = new Timer(attributes.getTimerId(), startedEventId);
+		this.timers.put(timer.timerId, timer);
+		timer.future = this.emulator.schedule(() -> timerFired(timer),
+				Math.max(0, seconds(attributes.getStartToFireTimeout())));
+	}
+
+	private synchronized void timerFired(final Timer timer) {
+		if (this.closeStatus != null || this.timers.get(timer.timerId) != timer) {
+			return;
+		}
+		this.timers.remove(timer.timerId);
+		addEvent(EventType.TimerFired).withTimerFiredEventAttributes(new TimerFiredEventAttributes()
+				.withTimerId(timer.timerId)
+				.withStartedEventId(timer.startedEventId));
+		scheduleDecision();
+	}
+
+	private void cancelTimer(final String timerId, final long completedEventId) {
+		final Timer timer = this.timers.remove(timerId);
+		if (timer == null) {
+			addEvent(EventType.CancelTimerFailed).withCancelTimerFailedEventAttributes(
+					new CancelTimerFailedEventAttributes()
+							.withTimerId(timerId)
+							.withCause(CancelTimerFailedCause.TIMER_ID_UNKNOWN)
+							.withDecisionTaskCompletedEventId(completedEventId));
+			this.decisionNeeded = true;
+			return;
+		}
+		cancel(timer.future);
+		addEvent(EventType.TimerCanceled).withTimerCanceledEventAttributes(new TimerCanceledEventAttributes()
+				.withTimerId(timerId)
+				.withStartedEventId(timer.startedEventId)
+				.withDecisionTaskCompletedEventId(completedEventId));
+	}
+
+	// CHILD WORKFLOWS
+
+	private void startChild(final StartChildWorkflowExecutionDecisionAttributes attributes,
+			final long completedEventId) {
+		final long initiatedEventId = addEvent(EventType.StartChildWorkflowExecutionInitiated)
+				.withStartChildWorkflowExecutionInitiatedEventAttributes(
+						new StartChildWorkflowExecutionInitiatedEventAttributes()
+								.withWorkflowId(attributes.getWorkflowId())
+								.withWorkflowType(attributes.getWorkflowType())
+								.withControl(attributes.getControl())
+								.withInput(attributes.getInput())
+								.withExecutionStartToCloseTimeout(attributes.getExecutionStartToCloseTimeout())
+								.withTaskList(attributes.getTaskList())
+								.withTaskPriority(attributes.getTaskPriority())
+								.withTaskStartToCloseTimeout(attributes.getTaskStartToCloseTimeout())
+								.withChildPolicy(attributes.getChildPolicy())
+								.withTagList(attributes.getTagList())
+								.withLambdaRole(attributes.getLambdaRole())
+								.withDecisionTaskCompletedEventId(completedEventId))
+				.getEventId();
+		final StartWorkflowExecutionRequest request = new StartWorkflowExecutionRequest()
+				.withDomain(this.domain.name())
+				.withWorkflowId(attributes.getWorkflowId())
+				.withWorkflowType(attributes.getWorkflowType())
+				.withInput(attributes.getInput())
+				.withExecutionStartToCloseTimeout(attributes.getExecutionStartToCloseTimeout())
+				.withTaskList(attributes.getTaskList())
+				.withTaskPriority(attributes.getTaskPriority())
+				.withTaskStartToCloseTimeout(attributes.getTaskStartToCloseTimeout())
+				.withChildPolicy(attributes.getChildPolicy())
+				.withTagList(attributes.getTagList())
+				.withLambdaRole(attributes.getLambdaRole());
+		StartChildWorkflowExecutionFailedCause cause = null;
+		try {
+			final StartWorkflowExecutionRequest resolved = this.emulator.resolve(this.domain, request);
+			final EmulatedExecution child = this.emulator.newRun(this.domain, SwfEmulator.newRunId(), resolved,
+					this, initiatedEventId);
+			// the child is not visible by the other threads yet: locking it
+			// cannot dead lock
+			this.emulator.start(child, resolved.getInput(), null);
+			childStarted(initiatedEventId, child);
+		} catch (final WorkflowExecutionAlreadyStartedException e) {
+			cause = StartChildWorkflowExecutionFailedCause.WORKFLOW_ALREADY_RUNNING;
+		} catch (final TypeDeprecatedException e) {
+			cause = StartChildWorkflowExecutionFailedCause.WORKFLOW_TYPE_DEPRECATED;
+		} catch (final UnknownResourceException e) {
+			cause = StartChildWorkflowExecutionFailedCause.WORKFLOW_TYPE_DOES_NOT_EXIST;
+		} catch (final DefaultUndefinedException e) {
+			cause = StartChildWorkflowExecutionFailedCause.DEFAULT_TASK_LIST_UNDEFINED;
+		}
+		if (cause != null) {
+			addEvent(EventType.StartChildWorkflowExecutionFailed)
+					.withStartChildWorkflowExecutionFailedEventAttributes(
+							new StartChildWorkflowExecutionFailedEventAttributes()
+									.withWorkflowId(attributes.getWorkflowId())
+									.withWorkflowType(attributes.getWorkflowType())
+									.withCause(cause)
+									.withControl(attributes.getControl())
+									.withInitiatedEventId(initiatedEventId)
+									.withDecisionTaskCompletedEventId(completedEventId));
+			this.decisionNeeded = true;
+		}
+	}
+
+	private void childStarted(final long initiatedEventId, final EmulatedExecution child) {
+		final long startedEventId = addEvent(EventType.ChildWorkflowExecutionStarted)
+				.withChildWorkflowExecutionStartedEventAttributes(new ChildWorkflowExecutionStartedEventAttributes()
+						.withWorkflowExecution(child.execution)
+						.withWorkflowType(child.workflowType)
+						.withInitiatedEventId(initiatedEventId))
+				.getEventId();
+		this.children.put(initiatedEventId, new Child(child, startedEventId));
+		scheduleDecision();
+	}
+
+	/**
+	 * Record the close of a child.
+	 */
+	synchronized void childClosed(final long initiatedEventId, final EmulatedExecution child,
+			final HistoryEvent closeEvent) {
+		final Child started = this.children.remove(initiatedEventId);
+		if (this.closeStatus != null || started == null) {
+			return;
+		}
+		final WorkflowExecution childExecution = child.execution;
+		final WorkflowType childType = child.workflowType;
+		switch (EventType.fromValue(closeEvent.getEventType())) {
+			case WorkflowExecutionCompleted:
+				addEvent(EventType.ChildWorkflowExecutionCompleted).withChildWorkflowExecutionCompletedEventAttributes(
+						new ChildWorkflowExecutionCompletedEventAttributes()
+								.withWorkflowExecution(childExecution)
+								.withWorkflowType(childType)
+								.withResult(closeEvent.getWorkflowExecutionCompletedEventAttributes().getResult())
+								.withInitiatedEventId(initiatedEventId)
+								.withStartedEventId(started.startedEventId));
+				break;
+			case WorkflowExecutionFailed:
+				addEvent(EventType.ChildWorkflowExecutionFailed).withChildWorkflowExecutionFailedEventAttributes(
+						new ChildWorkflowExecutionFailedEventAttributes()
+								.withWorkflowExecution(childExecution)
+								.withWorkflowType(childType)
+								.withReason(closeEvent.getWorkflowExecutionFailedEventAttributes().getReason())
+								.withDetails(closeEvent.getWorkflowExecutionFailedEventAttributes().getDetails())
+								.withInitiatedEventId(initiatedEventId)
+								.withStartedEventId(started.startedEventId));
+				break;
+			case WorkflowExecutionCanceled:
+				addEvent(EventType.ChildWorkflowExecutionCanceled).withChildWorkflowExecutionCanceledEventAttributes(
+						new ChildWorkflowExecutionCanceledEventAttributes()
+								.withWorkflowExecution(childExecution)
+								.withWorkflowType(childType)
+								.withDetails(closeEvent.getWorkflowExecutionCanceledEventAttributes().getDetails())
+								.withInitiatedEventId(initiatedEventId)
+								.withStartedEventId(started.startedEventId));
+				break;
+			case WorkflowExecutionTerminated:
+				addEvent(EventType.ChildWorkflowExecutionTerminated)
+						.withChildWorkflowExecutionTerminatedEventAttributes(
+								new ChildWorkflowExecutionTerminatedEventAttributes()
+										.withWorkflowExecution(childExecution)
+										.withWorkflowType(childType)
+										.withInitiatedEventId(initiatedEventId)
+										.withStartedEventId(started.startedEventId));
+				break;
+			case WorkflowExecutionTimedOut:
+				addEvent(EventType.ChildWorkflowExecutionTimedOut).withChildWorkflowExecutionTimedOutEventAttributes(
+						new ChildWorkflowExecutionTimedOutEventAttributes()
+								.withWorkflowExecution(childExecution)
+								.withWorkflowType(childType)
+								.withTimeoutType(WorkflowExecutionTimeoutType.START_TO_CLOSE)
+								.withInitiatedEventId(initiatedEventId)
+								.withStartedEventId(started.startedEventId));
+				break;
+			default:
+				return;
+		}
+		scheduleDecision();
+	}
+
+	/**
+	 * Replace a child continued as new by its new run.
+	 */
+	synchronized void childContinued(final long initiatedEventId, final EmulatedExecution newRun) {
+		final Child started = this.children.get(initiatedEventId);
+		if (started == null) {
+			return;
+		}
+		final Child continued = new Child(newRun, started.startedEventId);
+		this.children.put(initiatedEventId, continued);
+		if (this.closeStatus != null) {
+			applyChildPolicy(continued);
+		}
+	}
+
+	/**
+	 * Apply the child policy of this closed execution to its open children.
+	 */
+	private void applyChildPolicy(final Child child) {
+		final ChildPolicy policy = ChildPolicy.fromValue(this.configuration.getChildPolicy());
+		if (policy == ChildPolicy.TERMINATE) {
+			this.emulator.later(() -> child.execution.terminateQuietly(null, null,
+					WorkflowExecutionTerminatedCause.CHILD_POLICY_APPLIED));
+		} else if (policy == ChildPolicy.REQUEST_CANCEL) {
+			this.emulator.later(() -> child.execution.requestCancelQuietly(
+					WorkflowExecutionCancelRequestedCause.CHILD_POLICY_APPLIED));
+		}
+	}
+
+	// EXTERNAL WORKFLOWS
+
+	private void requestCancelExternal(final RequestCancelExternalWorkflowExecutionDecisionAttributes attributes,
+			final long completedEventId) {
+		final long initiatedEventId = addEvent(EventType.RequestCancelExternalWorkflowExecutionInitiated)
+				.withRequestCancelExternalWorkflowExecutionInitiatedEventAttributes(
+						new RequestCancelExternalWorkflowExecutionInitiatedEventAttributes()
+								.withWorkflowId(attributes.getWorkflowId())
+								.withRunId(attributes.getRunId())
+								.withControl(attributes.getControl())
+								.withDecisionTaskCompletedEventId(completedEventId))
+				.getEventId();
+		this.emulator.later(() -> {
+			final EmulatedExecution target = this.emulator.findOpenExecution(this.domain, attributes.getWorkflowId(),
+					attributes.getRunId());
+			final boolean requested = target != null
+					&& target.requestCancel(this.execution, initiatedEventId, null, false);
+			externalCancelRequested(attributes, initiatedEventId, completedEventId,
+					requested ? target.execution : null);
+		});
+	}
+
+	private synchronized void externalCancelRequested(
+			final RequestCancelExternalWorkflowExecutionDecisionAttributes attributes, final long initiatedEventId,
+			final long completedEventId, final WorkflowExecution target) {
+		if (this.closeStatus != null) {
+			return;
+		}
+		if (target != null) {
+			addEvent(EventType.ExternalWorkflowExecutionCancelRequested)
+					.withExternalWorkflowExecutionCancelRequestedEventAttributes(
+							new ExternalWorkflowExecutionCancelRequestedEventAttributes()
+									.withWorkflowExecution(target)
+									.withInitiatedEventId(initiatedEventId));
+		} else {
+			addEvent(EventType.RequestCancelExternalWorkflowExecutionFailed)
+					.withRequestCancelExternalWorkflowExecutionFailedEventAttributes(
+							new RequestCancelExternalWorkflowExecutionFailedEventAttributes()
+									.withWorkflowId(attributes.getWorkflowId())
+									.withRunId(attributes.getRunId())
+									.withCause(RequestCancelExternalWorkflowExecutionFailedCause.UNKNOWN_EXTERNAL_WORKFLOW_EXECUTION)
+									.withControl(attributes.getControl())
+									.withInitiatedEventId(initiatedEventId)
+									.withDecisionTaskCompletedEventId(completedEventId));
+		}
+		scheduleDecision();
+	}
+
+	private void signalExternal(final SignalExternalWorkflowExecutionDecisionAttributes attributes,
+			final long completedEventId) {
+		final long initiatedEventId = addEvent(EventType.SignalExternalWorkflowExecutionInitiated)
+				.withSignalExternalWorkflowExecutionInitiatedEventAttributes(
+						new SignalExternalWorkflowExecutionInitiatedEventAttributes()
+								.withWorkflowId(attributes.getWorkflowId())
+								.withRunId(attributes.getRunId())
+								.withSignalName(attributes.getSignalName())
+								.withInput(attributes.getInput())
+								.withControl(attributes.getControl())
+								.withDecisionTaskCompletedEventId(completedEventId))
+				.getEventId();
+		this.emulator.later(() -> {
+			final EmulatedExecution target = this.emulator.findOpenExecution(this.domain, attributes.getWorkflowId(),
+					attributes.getRunId());
+			final boolean signaled = target != null && target.signal(attributes.getSignalName(),
+					attributes.getInput(), this.execution, initiatedEventId, false);
+			externalSignaled(attributes, initiatedEventId, completedEventId, signaled ? target.execution : null);
+		});
+	}
+
+	private synchronized void externalSignaled(final SignalExternalWorkflowExecutionDecisionAttributes attributes,
+			final long initiatedEventId, final long completedEventId, final WorkflowExecution target) {
+		if (this.closeStatus != null) {
+			return;
+		}
+		if (target != null) {
+			addEvent(EventType.ExternalWorkflowExecutionSignaled)
+					.withExternalWorkflowExecutionSignaledEventAttributes(
+							new ExternalWorkflowExecutionSignaledEventAttributes()
+									.withWorkflowExecution(target)
+									.withInitiatedEventId(initiatedEventId));
+		} else {
+			addEvent(EventType.SignalExternalWorkflowExecutionFailed)
+					.withSignalExternalWorkflowExecutionFailedEventAttributes(
+							new SignalExternalWorkflowExecutionFailedEventAttributes()
+									.withWorkflowId(attributes.getWorkflowId())
+									.withRunId(attributes.getRunId())
+									.withCause(SignalExternalWorkflowExecutionFailedCause.UNKNOWN_EXTERNAL_WORKFLOW_EXECUTION)
+									.withControl(attributes.getControl())
+									.withInitiatedEventId(initiatedEventId)
+									.withDecisionTaskCompletedEventId(completedEventId));
+		}
+		scheduleDecision();
+	}
+
+	// WORKFLOW OPERATIONS
+
+	/**
+	 * @param strict
+	 *            true to throw an {@link UnknownResourceException} if the
+	 *            execution is closed
+	 * @return true if the signal has been recorded
+	 */
+	synchronized boolean signal(final String signalName, final String input, final WorkflowExecution external,
+			final Long externalInitiatedEventId, final boolean strict) {
+		if (!checkOpen(strict)) {
+			return false;
+		}
+		addEvent(EventType.WorkflowExecutionSignaled).withWorkflowExecutionSignaledEventAttributes(
+				new WorkflowExecutionSignaledEventAttributes()
+						.withSignalName(signalName)
+						.withInput(input)
+						.withExternalWorkflowExecution(external)
+						.withExternalInitiatedEventId(externalInitiatedEventId));
+		scheduleDecision();
+		return true;
+	}
+
+	/**
+	 * @return true if the cancellation has been requested
+	 */
+	synchronized boolean requestCancel(final WorkflowExecution external, final Long externalInitiatedEventId,
+			final WorkflowExecutionCancelRequestedCause cause, final boolean strict) {
+		if (!checkOpen(strict)) {
+			return false;
+		}
+		this.cancelRequested = true;
+		addEvent(EventType.WorkflowExecutionCancelRequested).withWorkflowExecutionCancelRequestedEventAttributes(
+				new WorkflowExecutionCancelRequestedEventAttributes()
+						.withExternalWorkflowExecution(external)
+						.withExternalInitiatedEventId(externalInitiatedEventId)
+						.withCause(cause));
+		scheduleDecision();
+		return true;
+	}
+
+	private void requestCancelQuietly(final WorkflowExecutionCancelRequestedCause cause) {
+		requestCancel(null, null, cause, false);
+	}
+
+	synchronized void terminate(final String reason, final String details, final String childPolicy,
+			final WorkflowExecutionTerminatedCause cause, final boolean strict) {
+		if (!checkOpen(strict)) {
+			return;
+		}
+		addEvent(EventType.WorkflowExecutionTerminated).withWorkflowExecutionTerminatedEventAttributes(
+				new WorkflowExecutionTerminatedEventAttributes()
+						.withReason(reason)
+						.withDetails(details)
+						.withChildPolicy(childPolicy != null ? childPolicy : this.configuration.getChildPolicy())
+						.withCause(cause));
+		close(CloseStatus.TERMINATED);
+	}
+
+	private void terminateQuietly(final String reason, final String details,
+			final WorkflowExecutionTerminatedCause cause) {
+		terminate(reason, details, null, cause, false);
+	}
+
+	private synchronized void timedOut() {
+		if (this.closeStatus != null) {
+			return;
+		}
+		addEvent(EventType.WorkflowExecutionTimedOut).withWorkflowExecutionTimedOutEventAttributes(
+				new WorkflowExecutionTimedOutEventAttributes()
+						.withTimeoutType(WorkflowExecutionTimeoutType.START_TO_CLOSE)
+						.withChildPolicy(this.configuration.getChildPolicy()));
+		close(CloseStatus.TIMED_OUT);
+	}
+
+	private boolean checkOpen(final boolean strict) {
+		if (this.closeStatus == null) {
+			return true;
+		}
+		if (strict) {
+			throw unknownResource("Unknown execution: " + this.execution);
+		}
+		return false;
+	}
+
+	private void continueAsNew(final ContinueAsNewWorkflowExecutionDecisionAttributes attributes,
+			final long completedEventId) {
+		final StartWorkflowExecutionRequest request = new StartWorkflowExecutionRequest()
+				.withDomain(this.domain.name())
+				.withWorkflowId(this.execution.getWorkflowId())
+				.withWorkflowType(new WorkflowType()
+						.withName(this.workflowType.getName())
+						.withVersion(attributes.getWorkflowTypeVersion() != null ? attributes.getWorkflowTypeVersion()
+								: this.workflowType.getVersion()))
+				.withInput(attributes.getInput())
+				.withTaskList(attributes.getTaskList() != null ? attributes.getTaskList()
+						: this.configuration.getTaskList())
+				.withTaskPriority(attributes.getTaskPriority() != null ? attributes.getTaskPriority()
+						: this.configuration.getTaskPriority())
+				.withExecutionStartToCloseTimeout(attributes.getExecutionStartToCloseTimeout() != null
+						? attributes.getExecutionStartToCloseTimeout()
+						: this.configuration.getExecutionStartToCloseTimeout())
+				.withTaskStartToCloseTimeout(attributes.getTaskStartToCloseTimeout() != null
+						? attributes.getTaskStartToCloseTimeout() : this.configuration.getTaskStartToCloseTimeout())
+				.withChildPolicy(attributes.getChildPolicy() != null ? attributes.getChildPolicy()
+						: this.configuration.getChildPolicy())
+				.withTagList(attributes.getTagList() != null ? attributes.getTagList() : this.tagList)
+				.withLambdaRole(attributes.getLambdaRole() != null ? attributes.getLambdaRole()
+						: this.configuration.getLambdaRole());
+		final StartWorkflowExecutionRequest resolved;
+		try {
+			resolved = this.emulator.resolve(this.domain, request);
+		} catch (final UnknownResourceException | TypeDeprecatedException | DefaultUndefinedException e) {
+			continueAsNewFailed(e instanceof DefaultUndefinedException
+					? ContinueAsNewWorkflowExecutionFailedCause.DEFAULT_TASK_LIST_UNDEFINED
+					: e instanceof TypeDeprecatedException
+							? ContinueAsNewWorkflowExecutionFailedCause.WORKFLOW_TYPE_DEPRECATED
+							: ContinueAsNewWorkflowExecutionFailedCause.WORKFLOW_TYPE_DOES_NOT_EXIST,
+					completedEventId);
+			return;
+		}
+		final EmulatedExecution newRun = this.emulator.newRun(this.domain, SwfEmulator.newRunId(), resolved,
+				this.parent, this.parentInitiatedEventId);
+		addEvent(EventType.WorkflowExecutionContinuedAsNew).withWorkflowExecutionContinuedAsNewEventAttributes(
+				new WorkflowExecutionContinuedAsNewEventAttributes()
+						.withInput(request.getInput())
+						.withNewExecutionRunId(newRun.runId())
+						.withWorkflowType(request.getWorkflowType())
+						.withTaskList(request.getTaskList())
+						.withTaskPriority(request.getTaskPriority())
+						.withExecutionStartToCloseTimeout(request.getExecutionStartToCloseTimeout())
+						.withTaskStartToCloseTimeout(request.getTaskStartToCloseTimeout())
+						.withChildPolicy(request.getChildPolicy())
+						.withTagList(request.getTagList())
+						.withLambdaRole(request.getLambdaRole())
+						.withDecisionTaskCompletedEventId(completedEventId));
+		close(CloseStatus.CONTINUED_AS_NEW);
+		if (this.parent != null) {
+			final long initiatedEventId = this.parentInitiatedEventId;
+			this.emulator.later(() -> this.parent.childContinued(initiatedEventId, newRun));
+		}
+		// the new run is not visible by the other threads yet: locking it
+		// cannot dead lock
+		this.emulator.start(newRun, resolved.getInput(), runId());
+	}
+
+	private void continueAsNewFailed(final ContinueAsNewWorkflowExecutionFailedCause cause,
+			final long completedEventId) {
+		addEvent(EventType.ContinueAsNewWorkflowExecutionFailed)
+				.withContinueAsNewWorkflowExecutionFailedEventAttributes(
+						new ContinueAsNewWorkflowExecutionFailedEventAttributes()
+								.withCause(cause)
+								.withDecisionTaskCompletedEventId(completedEventId));
+		this.decisionNeeded = true;
+	}
+
+	/**
+	 * Close the execution: its pending tasks and timers are dropped, its
+	 * children are handled according to its child policy, and its parent is
+	 * notified.
+	 */
+	private void close(final CloseStatus status) {
+		this.closeStatus = status;
+		this.closeTimestamp = new Date();
+		this.domain.openExecutions.remove(this.execution.getWorkflowId(), this);
+		this.domain.closedExecutions.add(this);
+		cancel(this.executionTimeout);
+		cancel(this.decisionTimeout);
+		if (this.scheduledDecisionId != 0 && this.startedDecisionId == 0) {
+			this.domain.decisionTasks(taskList()).remove(this);
+		}
+		for (final Activity activity : this.activities.values()) {
+			cancel(activity.watchdog);
+			if (activity.startedEventId == 0) {
+				this.domain.activityTasks(activity.scheduled.getTaskList().getName()).remove(activity);
+			}
+		}
+		this.activities.clear();
+		this.activitiesById.clear();
+		for (final Timer timer : this.timers.values()) {
+			cancel(timer.future);
+		}
+		this.timers.clear();
+		for (final Child child : this.children.values()) {
+			applyChildPolicy(child);
+		}
+		if (this.parent != null && status != CloseStatus.CONTINUED_AS_NEW) {
+			final HistoryEvent closeEvent = this.history.get(this.history.size() - 1);
+			final long initiatedEventId = this.parentInitiatedEventId;
+			this.emulator.later(() -> this.parent.childClosed(initiatedEventId, this, closeEvent));
+		}
+		this.emulator.executionClosed(this);
+	}
+
+	// HISTORY
+
+	static final class Page {
+		final List<HistoryEvent> events;
+		final String nextPageToken;
+
+		private Page(final List<HistoryEvent> events, final String nextPageToken) {
+			this.events = events;
+			this.nextPageToken = nextPageToken;
+		}
+	}
+
+	/**
+	 * @param lastEventId
+	 *            the id of the most recent event of the paginated history
+	 * @param offset
+	 *            the number of events in the previous pages
+	 * @return a page of the history
+	 */
+	synchronized Page page(final long lastEventId, final int offset, final int pageSize, final boolean reverse) {
+		final int size = (int) Math.min(lastEventId, this.history.size());
+		final int end = Math.min(size, offset + pageSize);
+		final List<HistoryEvent> events = new ArrayList<>(Math.max(0, end - offset));
+		for (int i = offset; i < end; i++) {
+			events.add(this.history.get(reverse ? size - 1 - i : i));
+		}
+		final String nextPageToken = end < size ? SwfEmulator.pageToken(runId(), size, end) : null;
+		return new Page(events, nextPageToken);
+	}
+
+	synchronized Page page(final int pageSize, final boolean reverse) {
+		return page(lastEventId(), 0, pageSize, reverse);
+	}
+
+	// DESCRIPTION
+
+	synchronized WorkflowExecutionInfo info() {
+		return new WorkflowExecutionInfo()
+				.withExecution(this.execution)
+				.withWorkflowType(this.workflowType)
+				.withStartTimestamp(this.startTimestamp)
+				.withCloseTimestamp(this.closeTimestamp)
+				.withExecutionStatus(this.closeStatus == null ? ExecutionStatus.OPEN : ExecutionStatus.CLOSED)
+				.withCloseStatus(this.closeStatus == null ? null : this.closeStatus.toString())
+				.withParent(this.parent == null ? null : this.parent.execution)
+				.withTagList(this.tagList)
+				.withCancelRequested(this.cancelRequested);
+	}
+
+	synchronized WorkflowExecutionDetail detail() {
+		return new WorkflowExecutionDetail()
+				.withExecutionInfo(info())
+				.withExecutionConfiguration(this.configuration)
+				.withOpenCounts(new WorkflowExecutionOpenCounts()
+						.withOpenActivityTasks(this.activities.size())
+						.withOpenDecisionTasks(this.scheduledDecisionId != 0 ? 1 : 0)
+						.withOpenTimers(this.timers.size())
+						.withOpenChildWorkflowExecutions(this.children.size())
+						.withOpenLambdaFunctions(0))
+				.withLatestActivityTaskTimestamp(this.latestActivityTaskTimestamp)
+				.withLatestExecutionContext(this.latestExecutionContext);
+	}
+
+	synchronized Date startTimestamp() {
+		return this.startTimestamp;
+	}
+
+	synchronized Date closeTimestamp() {
+		return this.closeTimestamp;
+	}
+
+	/**
+	 * @return the timeout in seconds, or -1 for NONE
+	 */
+	static long seconds(final String timeout) {
+		if (timeout == null || NONE.equals(timeout)) {
+			return -1;
+		}
+		try {
+			return Long.parseLong(timeout);
+		} catch (final NumberFormatException e) {
+			throw SwfEmulator.validation("Invalid timeout: " + timeout);
+		}
+	}
+
+	private static void cancel(final ScheduledFuture<?> future) {
+		if (future != null) {
+			future.cancel(false);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "EmulatedExecution[" + this.execution.getWorkflowId() + ", " + runId() + "]";
+	}
+
+	/**
+	 * A scheduled or started activity task.
+	 */
+	final class Activity {
+		private final long scheduledEventId;
+		private final ActivityTaskScheduledEventAttributes scheduled;
+		private final long scheduledAt = System.nanoTime();
+		private long startedEventId;
+		private long startedAt;
+		private long lastHeartbeatAt;
+		private long cancelRequestedEventId;
+		private String details;
+		private ScheduledFuture<?> watchdog;
+
+		private Activity(final long scheduledEventId, final ActivityTaskScheduledEventAttributes scheduled) {
+			this.scheduledEventId = scheduledEventId;
+			this.scheduled = scheduled;
+		}
+
+		private String activityId() {
+			return this.scheduled.getActivityId();
+		}
+
+		EmulatedExecution execution() {
+			return EmulatedExecution.this;
+		}
+
+		ActivityTask start(final String identity) {
+			return startActivityTask(this, identity);
+		}
+
+		/**
+		 * @return the type of the first timeout reached, or null
+		 */
+		private ActivityTaskTimeoutType reachedTimeout(final long now) {
+			if (reached(this.scheduledAt, this.scheduled.getScheduleToCloseTimeout(), now)) {
+				return ActivityTaskTimeoutType.SCHEDULE_TO_CLOSE;
+			}
+			if (this.startedEventId == 0) {
+				return reached(this.scheduledAt, this.scheduled.getScheduleToStartTimeout(), now)
+						? ActivityTaskTimeoutType.SCHEDULE_TO_START : null;
+			}
+			if (reached(this.startedAt, this.scheduled.getStartToCloseTimeout(), now)) {
+				return ActivityTaskTimeoutType.START_TO_CLOSE;
+			}
+			if (reached(this.lastHeartbeatAt, this.scheduled.getHeartbeatTimeout(), now)) {
+				return ActivityTaskTimeoutType.HEARTBEAT;
+			}
+			return null;
+		}
+
+		private boolean reached(final long since, final String timeout, final long now) {
+			final long seconds = seconds(timeout);
+			return seconds >= 0 && now - since >= TimeUnit.SECONDS.toNanos(seconds);
+		}
+
+		/**
+		 * Check the timeouts when the next one is reached.
+		 */
+		private void watch() {
+			long next = Long.MAX_VALUE;
+			next = Math.min(next, deadline(this.scheduledAt, this.scheduled.getScheduleToCloseTimeout()));
+			if (this.startedEventId == 0) {
+				next = Math.min(next, deadline(this.scheduledAt, this.scheduled.getScheduleToStartTimeout()));
+			} else {
+				next = Math.min(next, deadline(this.startedAt, this.scheduled.getStartToCloseTimeout()));
+				next = Math.min(next, deadline(this.lastHeartbeatAt, this.scheduled.getHeartbeatTimeout()));
+			}
+			cancel(this.watchdog);
+			if (next != Long.MAX_VALUE) {
+				this.watchdog = EmulatedExecution.this.emulator.scheduleNanos(() -> checkTimeouts(this),
+						Math.max(0, next - System.nanoTime()));
+			}
+		}
+
+		private long deadline(final long since, final String timeout) {
+			final long seconds = seconds(timeout);
+			return seconds < 0 ? Long.MAX_VALUE : since + TimeUnit.SECONDS.toNanos(seconds);
+		}
+	}
+
+	private static final class Timer {
+		private final String timerId;
+		private final long startedEventId;
+		private ScheduledFuture<?> future;
+
+		private Timer(final String timerId, final long startedEventId) {
+			this.timerId = timerId;
+			this.startedEventId = startedEventId;
+		}
+	}
+
+	private static final class Child {
+		private final EmulatedExecution execution;
+		private final long startedEventId;
+
+		private Child(final EmulatedExecution execution, final long startedEventId) {
+			this.execution = execution;
+			this.startedEventId = startedEventId;
+		}
+	}
+}
@@ -0,0 +1,790 @@
+package com.solambda.swiffer.emulator;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.amazonaws.AbortedException;
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.AmazonServiceException.ErrorType;
+import com.amazonaws.services.simpleworkflow.AbstractAmazonSimpleWorkflow;
+import com.amazonaws.services.simpleworkflow.model.*;
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * In-memory implementation of {@link com.amazonaws.services.simpleworkflow.AmazonSimpleWorkflow},
+ * to run Swiffer deciders and workers without AWS, e.g. to test or load-test
+ * them.
+ * <p>
+ * The emulator covers the APIs used by Swiffer: registration of the domains
+ * and types, start, signal, cancellation and termination of the executions,
+ * long polls of the decision and activity tasks, and paginated histories. The
+ * decisions are applied as SWF does, recording the same events with the same
+ * attributes: activities, timers, markers, child workflows, external
+ * cancellations and signals, and close decisions, failing if events have been
+ * recorded during the decision task. The execution, decision and activity
+ * timeouts are enforced.
+ * <p>
+ * The emulator is thread safe. The executions are locked independently, so
+ * that the throughput scales with the number of pollers. The unspecified
+ * timeouts without default are considered as NONE, and the closed executions
+ * are kept until {@link #clearClosedExecutions()}.
+ */
+public class SwfEmulator extends AbstractAmazonSimpleWorkflow {
+
+	/**
+	 * Default duration of the long polls, as in SWF.
+	 */
+	public static final Duration DEFAULT_POLL_TIMEOUT = Duration.ofSeconds(60);
+
+	private static final int MAX_PAGE_SIZE = 1000;
+	private static final String DECISION_TOKEN = "D";
+	private static final String ACTIVITY_TOKEN = "A";
+	private static final String TOKEN_SEPARATOR = "/";
+
+	private final long pollTimeoutNanos;
+	private final Map<String, EmulatedDomain> domains = new ConcurrentHashMap<>();
+	private final Map<String, EmulatedExecution> runs = new ConcurrentHashMap<>();
+	/**
+	 * Fires the timers and the timeouts, and applies the effects of the
+	 * executions on the other ones, in order.
+	 */
+	private final ScheduledThreadPoolExecutor scheduler;
+
+	private final LongAdder startedExecutions = new LongAdder();
+	private final LongAdder closedExecutions = new LongAdder();
+	private final LongAdder completedDecisionTasks = new LongAdder();
+	private final LongAdder closedActivityTasks = new LongAdder();
+
+	public SwfEmulator() {
+		this(DEFAULT_POLL_TIMEOUT);
+	}
+
+	/**
+	 * @param pollTimeout
+	 *            the duration after which the polls return an empty task
+	 */
+	public SwfEmulator(final Duration pollTimeout) {
+		super();
+		Preconditions.checkArgument(pollTimeout != null && !pollTimeout.isNegative(),
+				"the poll timeout should be positive");
+		this.pollTimeoutNanos = pollTimeout.toNanos();
+		this.scheduler = new ScheduledThreadPoolExecutor(1,
+				new ThreadFactoryBuilder().setNameFormat("swf-emulator-%d").setDaemon(true).build());
+		this.scheduler.setRemoveOnCancelPolicy(true);
+	}
+
+	// METRICS
+
+	/**
+	 * @return the number of started executions
+	 */
+	public long startedExecutions() {
+		return this.startedExecutions.sum();
+	}
+
+	/**
+	 * @return the number of closed executions
+	 */
+	public long closedExecutions() {
+		return this.closedExecutions.sum();
+	}
+
+	/**
+	 * @return the number of completed decision tasks
+	 */
+	public long completedDecisionTasks() {
+		return this.completedDecisionTasks.sum();
+	}
+
+	/**
+	 * @return the number of completed, failed, canceled or timed out activity
+	 *         tasks
+	 */
+	public long closedActivityTasks() {
+		return this.closedActivityTasks.sum();
+	}
+
+	/**
+	 * Forget the closed executions, to release their memory during long load
+	 * tests.
+	 */
+	public void clearClosedExecutions() {
+		for (final EmulatedDomain domain : this.domains.values()) {
+			EmulatedExecution execution;
+			while ((execution = domain.closedExecutions.poll()) != null) {
+				this.runs.remove(execution.runId());
+			}
+		}
+	}
+
+	@Override
+	public void shutdown() {
+		this.scheduler.shutdownNow();
+	}
+
+	// DOMAINS
+
+	@Override
+	public void registerDomain(final RegisterDomainRequest request) {
+		final EmulatedDomain domain = new EmulatedDomain(new DomainDetail()
+				.withDomainInfo(new DomainInfo()
+						.withName(request.getName())
+						.withDescription(request.getDescription())
+						.withStatus(RegistrationStatus.REGISTERED))
+				.withConfiguration(new DomainConfiguration()
+						.withWorkflowExecutionRetentionPeriodInDays(
+								request.getWorkflowExecutionRetentionPeriodInDays())));
+		if (this.domains.putIfAbsent(request.getName(), domain) != null) {
+			throw fault(new DomainAlreadyExistsException("Domain already exists: " + request.getName()));
+		}
+	}
+
+	@Override
+	public DomainDetail describeDomain(final DescribeDomainRequest request) {
+		return domain(request.getName()).detail;
+	}
+
+	@Override
+	public DomainInfos listDomains(final ListDomainsRequest request) {
+		final List<DomainInfo> domains = this.domains.values().stream()
+				.map(domain -> domain.detail.getDomainInfo())
+				.filter(info -> info.getStatus().equals(request.getRegistrationStatus()))
+				.sorted(Comparator.comparing(DomainInfo::getName))
+				.collect(Collectors.toList());
+		final Page<DomainInfo> page = page(domains, request.getMaximumPageSize(), request.getNextPageToken(),
+				request.getReverseOrder());
+		return new DomainInfos().withDomainInfos(page.items).withNextPageToken(page.nextPageToken);
+	}
+
+	@Override
+	public void deprecateDomain(final DeprecateDomainRequest request) {
+		final DomainInfo info = domain(request.getName()).detail.getDomainInfo();
+		synchronized (info) {
+			if (isDeprecated(info.getStatus())) {
+				throw fault(new DomainDeprecatedException("Domain already deprecated: " + request.getName()));
+			}
+			info.setStatus(RegistrationStatus.DEPRECATED);
+		}
+	}
+
+	private EmulatedDomain domain(final String name) {
+		final EmulatedDomain domain = name == null ? null : this.domains.get(name);
+		if (domain == null) {
+			throw unknownResource("Unknown domain: " + name);
+		}
+		return domain;
+	}
+
+	private EmulatedDomain registeredDomain(final String name) {
+		final EmulatedDomain domain = domain(name);
+		if (isDeprecated(domain.detail.getDomainInfo().getStatus())) {
+			throw fault(new DomainDeprecatedException("Domain deprecated: " + name));
+		}
+		return domain;
+	}
+
+	private static boolean isDeprecated(final String status) {
+		return RegistrationStatus.DEPRECATED.toString().equals(status);
+	}
+
+	// TYPES
+
+	@Override
+	public void registerWorkflowType(final RegisterWorkflowTypeRequest request) {
+		final WorkflowType type = new WorkflowType().withName(request.getName()).withVersion(request.getVersion());
+		final WorkflowTypeDetail detail = new WorkflowTypeDetail()
+				.withTypeInfo(new WorkflowTypeInfo()
+						.withWorkflowType(type)
+						.withDescription(request.getDescription())
+						.withStatus(RegistrationStatus.REGISTERED)
+						.withCreationDate(new Date()))
+				.withConfiguration(new WorkflowTypeConfiguration()
+						.withDefaultTaskList(request.getDefaultTaskList())
+						.withDefaultTaskPriority(request.getDefaultTaskPriority())
+						.withDefaultTaskStartToCloseTimeout(request.getDefaultTaskStartToCloseTimeout())
+						.withDefaultExecutionStartToCloseTimeout(request.getDefaultExecutionStartToCloseTimeout())
+						.withDefaultChildPolicy(request.getDefaultChildPolicy())
+						.withDefaultLambdaRole(request.getDefaultLambdaRole()));
+		if (registeredDomain(request.getDomain()).workflowTypes
+				.putIfAbsent(EmulatedDomain.key(type.getName(), type.getVersion()), detail) != null) {
+			throw fault(new TypeAlreadyExistsException("Workflow type already exists: " + type));
+		}
+	}
+
+	@Override
+	public WorkflowTypeDetail describeWorkflowType(final DescribeWorkflowTypeRequest request) {
+		return workflowType(domain(request.getDomain()), request.getWorkflowType());
+	}
+
+	@Override
+	public WorkflowTypeInfos listWorkflowTypes(final ListWorkflowTypesRequest request) {
+		final List<WorkflowTypeInfo> types = domain(request.getDomain()).workflowTypes.values().stream()
+				.map(WorkflowTypeDetail::getTypeInfo)
+				.filter(info -> info.getStatus().equals(request.getRegistrationStatus()))
+				.filter(info -> request.getName() == null || request.getName().equals(info.getWorkflowType().getName()))
+				.sorted(Comparator.comparing((final WorkflowTypeInfo info) -> info.getWorkflowType().getName())
+						.thenComparing(info -> info.getWorkflowType().getVersion()))
+				.collect(Collectors.toList());
+		final Page<WorkflowTypeInfo> page = page(types, request.getMaximumPageSize(), request.getNextPageToken(),
+				request.getReverseOrder());
+		return new WorkflowTypeInfos().withTypeInfos(page.items).withNextPageToken(page.nextPageToken);
+	}
+
+	@Override
+	public void deprecateWorkflowType(final DeprecateWorkflowTypeRequest request) {
+		final WorkflowTypeInfo info = workflowType(domain(request.getDomain()), request.getWorkflowType())
+				.getTypeInfo();
+		synchronized (info) {
+			if (isDeprecated(info.getStatus())) {
+				throw fault(new TypeDeprecatedException("Workflow type already deprecated: " + info.getWorkflowType()));
+			}
+			info.withStatus(RegistrationStatus.DEPRECATED).setDeprecationDate(new Date());
+		}
+	}
+
+	private static WorkflowTypeDetail workflowType(final EmulatedDomain domain, final WorkflowType type) {
+		final WorkflowTypeDetail detail = type == null ? null
+				: domain.workflowTypes.get(EmulatedDomain.key(type.getName(), type.getVersion()));
+		if (detail == null) {
+			throw unknownResource("Unknown workflow type: " + type);
+		}
+		return detail;
+	}
+
+	@Override
+	public void registerActivityType(final RegisterActivityTypeRequest request) {
+		final ActivityType type = new ActivityType().withName(request.getName()).withVersion(request.getVersion());
+		final ActivityTypeDetail detail = new ActivityTypeDetail()
+				.withTypeInfo(new ActivityTypeInfo()
+						.withActivityType(type)
+						.withDescription(request.getDescription())
+						.withStatus(RegistrationStatus.REGISTERED)
+						.withCreationDate(new Date()))
+				.withConfiguration(new ActivityTypeConfiguration()
+						.withDefaultTaskList(request.getDefaultTaskList())
+						.withDefaultTaskPriority(request.getDefaultTaskPriority())
+						.withDefaultTaskStartToCloseTimeout(request.getDefaultTaskStartToCloseTimeout())
+						.withDefaultTaskHeartbeatTimeout(request.getDefaultTaskHeartbeatTimeout())
+						.withDefaultTaskScheduleToStartTimeout(request.getDefaultTaskScheduleToStartTimeout())
+						.withDefaultTaskScheduleToCloseTimeout(request.getDefaultTaskScheduleToCloseTimeout()));
+		if (registeredDomain(request.getDomain()).activityTypes
+				.putIfAbsent(EmulatedDomain.key(type.getName(), type.getVersion()), detail) != null) {
+			throw fault(new TypeAlreadyExistsException("Activity type already exists: " + type));
+		}
+	}
+
+	@Override
+	public ActivityTypeDetail describeActivityType(final DescribeActivityTypeRequest request) {
+		return activityType(domain(request.getDomain()), request.getActivityType());
+	}
+
+	@Override
+	public ActivityTypeInfos listActivityTypes(final ListActivityTypesRequest request) {
+		final List<ActivityTypeInfo> types = domain(request.getDomain()).activityTypes.values().stream()
+				.map(ActivityTypeDetail::getTypeInfo)
+				.filter(info -> info.getStatus().equals(request.getRegistrationStatus()))
+				.filter(info -> request.getName() == null || request.getName().equals(info.getActivityType().getName()))
+				.sorted(Comparator.comparing((final ActivityTypeInfo info) -> info.getActivityType().getName())
+						.thenComparing(info -> info.getActivityType().getVersion()))
+				.collect(Collectors.toList());
+		final Page<ActivityTypeInfo> page = page(types, request.getMaximumPageSize(), request.getNextPageToken(),
+				request.getReverseOrder());
+		return new ActivityTypeInfos().withTypeInfos(page.items).withNextPageToken(page.nextPageToken);
+	}
+
+	@Override
+	public void deprecateActivityType(final DeprecateActivityTypeRequest request) {
+		final ActivityTypeInfo info = activityType(domain(request.getDomain()), request.getActivityType())
+				.getTypeInfo();
+		synchronized (info) {
+			if (isDeprecated(info.getStatus())) {
+				throw fault(new TypeDeprecatedException("Activity type already deprecated: " + info.getActivityType()));
+			}
+			info.withStatus(RegistrationStatus.DEPRECATED).setDeprecationDate(new Date());
+		}
+	}
+
+	private static ActivityTypeDetail activityType(final EmulatedDomain domain, final ActivityType type) {
+		final ActivityTypeDetail detail = type == null ? null
+				: domain.activityTypes.get(EmulatedDomain.key(type.getName(), type.getVersion()));
+		if (detail == null) {
+			throw unknownResource("Unknown activity type: " + type);
+		}
+		return detail;
+	}
+
+	// EXECUTIONS
+
+	@Override
+	public Run startWorkflowExecution(final StartWorkflowExecutionRequest request) {
+		final EmulatedDomain domain = registeredDomain(request.getDomain());
+		final StartWorkflowExecutionRequest resolved = resolve(domain, request);
+		final EmulatedExecution execution = newRun(domain, newRunId(), resolved, null, null);
+		start(execution, resolved.getInput(), null);
+		return new Run().withRunId(execution.runId());
+	}
+
+	/**
+	 * @return a copy of the request completed with the defaults of the
+	 *         workflow type
+	 * @throws UnknownResourceException
+	 *             if the type is not registered
+	 * @throws TypeDeprecatedException
+	 *             if the type is deprecated
+	 * @throws DefaultUndefinedException
+	 *             if the task list is not specified and has no default
+	 */
+	StartWorkflowExecutionRequest resolve(final EmulatedDomain domain, final StartWorkflowExecutionRequest request) {
+		final WorkflowTypeDetail type = workflowType(domain, request.getWorkflowType());
+		if (isDeprecated(type.getTypeInfo().getStatus())) {
+			throw fault(new TypeDeprecatedException("Workflow type deprecated: " + request.getWorkflowType()));
+		}
+		final WorkflowTypeConfiguration defaults = type.getConfiguration();
+		final StartWorkflowExecutionRequest resolved = request.clone()
+				.withTaskList(request.getTaskList() != null ? request.getTaskList() : defaults.getDefaultTaskList())
+				.withTaskPriority(request.getTaskPriority() != null ? request.getTaskPriority()
+						: defaults.getDefaultTaskPriority())
+				.withTaskStartToCloseTimeout(request.getTaskStartToCloseTimeout() != null
+						? request.getTaskStartToCloseTimeout() : defaults.getDefaultTaskStartToCloseTimeout())
+				.withExecutionStartToCloseTimeout(request.getExecutionStartToCloseTimeout() != null
+						? request.getExecutionStartToCloseTimeout() : defaults.getDefaultExecutionStartToCloseTimeout())
+				.withChildPolicy(request.getChildPolicy() != null ? request.getChildPolicy()
+						: defaults.getDefaultChildPolicy() != null ? defaults.getDefaultChildPolicy()
+								: ChildPolicy.TERMINATE.toString())
+				.withLambdaRole(request.getLambdaRole() != null ? request.getLambdaRole()
+						: defaults.getDefaultLambdaRole());
+		if (resolved.getTaskList() == null || resolved.getTaskList().getName() == null) {
+			throw fault(new DefaultUndefinedException("No task list specified nor default task list registered"));
+		}
+		return resolved;
+	}
+
+	EmulatedExecution newRun(final EmulatedDomain domain, final String runId,
+			final StartWorkflowExecutionRequest resolved, final EmulatedExecution parent,
+			final Long parentInitiatedEventId) {
+		return new EmulatedExecution(this, domain, runId, resolved, parent, parentInitiatedEventId);
+	}
+
+	/**
+	 * Start a new run, making it visible to the other threads.
+	 *
+	 * @throws WorkflowExecutionAlreadyStartedException
+	 *             if an execution with the same workflow id is open
+	 */
+	void start(final EmulatedExecution execution, final String input, final String continuedExecutionRunId) {
+		synchronized (execution) {
+			final String workflowId = execution.execution().getWorkflowId();
+			if (execution.domain().openExecutions.putIfAbsent(workflowId, execution) != null) {
+				throw fault(new WorkflowExecutionAlreadyStartedException(
+						"An execution is already open with the workflow id " + workflowId));
+			}
+			this.runs.put(execution.runId(), execution);
+			execution.start(input, continuedExecutionRunId);
+		}
+		this.startedExecutions.increment();
+	}
+
+	void executionClosed(final EmulatedExecution execution) {
+		this.closedExecutions.increment();
+	}
+
+	void activityTaskClosed() {
+		this.closedActivityTasks.increment();
+	}
+
+	@Override
+	public void signalWorkflowExecution(final SignalWorkflowExecutionRequest request) {
+		openExecution(request.getDomain(), request.getWorkflowId(), request.getRunId())
+				.signal(request.getSignalName(), request.getInput(), null, null, true);
+	}
+
+	@Override
+	public void requestCancelWorkflowExecution(final RequestCancelWorkflowExecutionRequest request) {
+		openExecution(request.getDomain(), request.getWorkflowId(), request.getRunId())
+				.requestCancel(null, null, null, true);
+	}
+
+	@Override
+	public void terminateWorkflowExecution(final TerminateWorkflowExecutionRequest request) {
+		openExecution(request.getDomain(), request.getWorkflowId(), request.getRunId())
+				.terminate(request.getReason(), request.getDetails(), request.getChildPolicy(),
+						WorkflowExecutionTerminatedCause.OPERATOR_INITIATED, true);
+	}
+
+	@Override
+	public WorkflowExecutionDetail describeWorkflowExecution(final DescribeWorkflowExecutionRequest request) {
+		return execution(domain(request.getDomain()), request.getExecution()).detail();
+	}
+
+	@Override
+	public History getWorkflowExecutionHistory(final GetWorkflowExecutionHistoryRequest request) {
+		final EmulatedDomain domain = domain(request.getDomain());
+		final int pageSize = pageSize(request.getMaximumPageSize());
+		final boolean reverse = Boolean.TRUE.equals(request.getReverseOrder());
+		final EmulatedExecution.Page page;
+		if (request.getNextPageToken() == null) {
+			page = execution(domain, request.getExecution()).page(pageSize, reverse);
+		} else {
+			page = historyPage(request.getNextPageToken(), pageSize, reverse);
+		}
+		return new History().withEvents(page.events).withNextPageToken(page.nextPageToken);
+	}
+
+	private EmulatedExecution execution(final EmulatedDomain domain, final WorkflowExecution execution) {
+		final EmulatedExecution run = execution == null || execution.getRunId() == null ? null
+				: this.runs.get(execution.getRunId());
+		if (run == null || run.domain() != domain
+				|| !run.execution().getWorkflowId().equals(execution.getWorkflowId())) {
+			throw unknownResource("Unknown execution: " + execution);
+		}
+		return run;
+	}
+
+	private EmulatedExecution openExecution(final String domain, final String workflowId, final String runId) {
+		final EmulatedExecution execution = findOpenExecution(domain(domain), workflowId, runId);
+		if (execution == null) {
+			throw unknownResource("Unknown execution: " + workflowId + " " + runId);
+		}
+		return execution;
+	}
+
+	/**
+	 * @param runId
+	 *            optional run id
+	 * @return the open execution, or null
+	 */
+	EmulatedExecution findOpenExecution(final EmulatedDomain domain, final String workflowId, final String runId) {
+		final EmulatedExecution execution = workflowId == null ? null : domain.openExecutions.get(workflowId);
+		if (execution == null || runId != null && !runId.equals(execution.runId())) {
+			return null;
+		}
+		return execution;
+	}
+
+	// LISTINGS
+
+	@Override
+	public WorkflowExecutionInfos listOpenWorkflowExecutions(final ListOpenWorkflowExecutionsRequest request) {
+		final List<WorkflowExecutionInfo> executions = openExecutions(request.getDomain(),
+				request.getStartTimeFilter(), request.getTypeFilter(), request.getTagFilter(),
+				request.getExecutionFilter())
+						.sorted(Comparator.comparing(WorkflowExecutionInfo::getStartTimestamp).reversed())
+						.collect(Collectors.toList());
+		final Page<WorkflowExecutionInfo> page = page(executions, request.getMaximumPageSize(),
+				request.getNextPageToken(), request.getReverseOrder());
+		return new WorkflowExecutionInfos().withExecutionInfos(page.items).withNextPageToken(page.nextPageToken);
+	}
+
+	@Override
+	public WorkflowExecutionCount countOpenWorkflowExecutions(final CountOpenWorkflowExecutionsRequest request) {
+		return new WorkflowExecutionCount().withTruncated(false).withCount((int) openExecutions(request.getDomain(),
+				request.getStartTimeFilter(), request.getTypeFilter(), request.getTagFilter(),
+				request.getExecutionFilter()).count());
+	}
+
+	private Stream<WorkflowExecutionInfo> openExecutions(final String domain, final ExecutionTimeFilter startTimeFilter,
+			final WorkflowTypeFilter typeFilter, final TagFilter tagFilter, final WorkflowExecutionFilter executionFilter) {
+		return domain(domain).openExecutions.values().stream()
+				.map(EmulatedExecution::info)
+				.filter(info -> info.getCloseStatus() == null)
+				.filter(matching(startTimeFilter, WorkflowExecutionInfo::getStartTimestamp))
+				.filter(matching(typeFilter, tagFilter, executionFilter));
+	}
+
+	@Override
+	public WorkflowExecutionInfos listClosedWorkflowExecutions(final ListClosedWorkflowExecutionsRequest request) {
+		final Comparator<WorkflowExecutionInfo> order = request.getCloseTimeFilter() != null
+				? Comparator.comparing(WorkflowExecutionInfo::getCloseTimestamp)
+				: Comparator.comparing(WorkflowExecutionInfo::getStartTimestamp);
+		final List<WorkflowExecutionInfo> executions = closedExecutions(request.getDomain(),
+				request.getStartTimeFilter(), request.getCloseTimeFilter(), request.getCloseStatusFilter(),
+				request.getTypeFilter(), request.getTagFilter(), request.getExecutionFilter())
+						.sorted(order.reversed())
+						.collect(Collectors.toList());
+		final Page<WorkflowExecutionInfo> page = page(executions, request.getMaximumPageSize(),
+				request.getNextPageToken(), request.getReverseOrder());
+		return new WorkflowExecutionInfos().withExecutionInfos(page.items).withNextPageToken(page.nextPageToken);
+	}
+
+	@Override
+	public WorkflowExecutionCount countClosedWorkflowExecutions(final CountClosedWorkflowExecutionsRequest request) {
+		return new WorkflowExecutionCount().withTruncated(false).withCount((int) closedExecutions(request.getDomain(),
+				request.getStartTimeFilter(), request.getCloseTimeFilter(), request.getCloseStatusFilter(),
+				request.getTypeFilter(), request.getTagFilter(), request.getExecutionFilter()).count());
+	}
+
+	private Stream<WorkflowExecutionInfo> closedExecutions(final String domain,
+			final ExecutionTimeFilter startTimeFilter, final ExecutionTimeFilter closeTimeFilter,
+			final CloseStatusFilter closeStatusFilter, final WorkflowTypeFilter typeFilter, final TagFilter tagFilter,
+			final WorkflowExecutionFilter executionFilter) {
+		return domain(domain).closedExecutions.stream()
+				.map(EmulatedExecution::info)
+				.filter(matching(startTimeFilter, WorkflowExecutionInfo::getStartTimestamp))
+				.filter(matching(closeTimeFilter, WorkflowExecutionInfo::getCloseTimestamp))
+				.filter(info -> closeStatusFilter == null
+						|| info.getCloseStatus().equals(closeStatusFilter.getStatus()))
+				.filter(matching(typeFilter, tagFilter, executionFilter));
+	}
+
+	private static Predicate<WorkflowExecutionInfo> matching(final ExecutionTimeFilter filter,
+			final java.util.function.Function<WorkflowExecutionInfo, Date> timestamp) {
+		return info -> filter == null
+				|| (filter.getOldestDate() == null || !timestamp.apply(info).before(filter.getOldestDate()))
+						&& (filter.getLatestDate() == null || !timestamp.apply(info).after(filter.getLatestDate()));
+	}
+
+	private static Predicate<WorkflowExecutionInfo> matching(final WorkflowTypeFilter typeFilter,
+			final TagFilter tagFilter, final WorkflowExecutionFilter executionFilter) {
+		return info -> (typeFilter == null || typeFilter.getName().equals(info.getWorkflowType().getName())
+				&& (typeFilter.getVersion() == null
+						|| typeFilter.getVersion().equals(info.getWorkflowType().getVersion())))
+				&& (tagFilter == null || info.getTagList() != null && info.getTagList().contains(tagFilter.getTag()))
+				&& (executionFilter == null
+						|| executionFilter.getWorkflowId().equals(info.getExecution().getWorkflowId()));
+	}
+
+	// DECISION TASKS
+
+	@Override
+	public DecisionTask pollForDecisionTask(final PollForDecisionTaskRequest request) {
+		final int pageSize = pageSize(request.getMaximumPageSize());
+		final boolean reverse = Boolean.TRUE.equals(request.getReverseOrder());
+		if (request.getNextPageToken() != null) {
+			final EmulatedExecution.Page page = historyPage(request.getNextPageToken(), pageSize, reverse);
+			return new DecisionTask().withEvents(page.events).withNextPageToken(page.nextPageToken);
+		}
+		final BlockingQueue<EmulatedExecution> tasks = domain(request.getDomain())
+				.decisionTasks(taskList(request.getTaskList()));
+		final long deadline = System.nanoTime() + this.pollTimeoutNanos;
+		EmulatedExecution execution;
+		while ((execution = poll(tasks, deadline)) != null) {
+			final DecisionTask task = execution.startDecisionTask(request.getIdentity(), pageSize, reverse);
+			if (task != null) {
+				return task;
+			}
+		}
+		return new DecisionTask();
+	}
+
+	@Override
+	public PendingTaskCount countPendingDecisionTasks(final CountPendingDecisionTasksRequest request) {
+		return new PendingTaskCount().withTruncated(false).withCount(
+				domain(request.getDomain()).decisionTasks(taskList(request.getTaskList())).size());
+	}
+
+	@Override
+	public void respondDecisionTaskCompleted(final RespondDecisionTaskCompletedRequest request) {
+		final String[] token = token(request.getTaskToken(), DECISION_TOKEN);
+		run(token[1], request.getTaskToken()).completeDecisionTask(Long.parseLong(token[2]), request);
+		this.completedDecisionTasks.increment();
+	}
+
+	// ACTIVITY TASKS
+
+	@Override
+	public ActivityTask pollForActivityTask(final PollForActivityTaskRequest request) {
+		final BlockingQueue<EmulatedExecution.Activity> tasks = domain(request.getDomain())
+				.activityTasks(taskList(request.getTaskList()));
+		final long deadline = System.nanoTime() + this.pollTimeoutNanos;
+		EmulatedExecution.Activity activity;
+		while ((activity = poll(tasks, deadline)) != null) {
+			final ActivityTask task = activity.start(request.getIdentity());
+			if (task != null) {
+				return task;
+			}
+		}
+		return new ActivityTask();
+	}
+
+	@Override
+	public PendingTaskCount countPendingActivityTasks(final CountPendingActivityTasksRequest request) {
+		return new PendingTaskCount().withTruncated(false).withCount(
+				domain(request.getDomain()).activityTasks(taskList(request.getTaskList())).size());
+	}
+
+	@Override
+	public ActivityTaskStatus recordActivityTaskHeartbeat(final RecordActivityTaskHeartbeatRequest request) {
+		final String[] token = token(request.getTaskToken(), ACTIVITY_TOKEN);
+		return run(token[1], request.getTaskToken()).heartbeat(Long.parseLong(token[2]), request.getTaskToken(),
+				request.getDetails());
+	}
+
+	@Override
+	public void respondActivityTaskCompleted(final RespondActivityTaskCompletedRequest request) {
+		final String[] token = token(request.getTaskToken(), ACTIVITY_TOKEN);
+		run(token[1], request.getTaskToken()).activityCompleted(Long.parseLong(token[2]), request.getTaskToken(),
+				request.getResult());
+	}
+
+	@Override
+	public void respondActivityTaskFailed(final RespondActivityTaskFailedRequest request) {
+		final String[] token = token(request.getTaskToken(), ACTIVITY_TOKEN);
+		run(token[1], request.getTaskToken()).activityFailed(Long.parseLong(token[2]), request.getTaskToken(),
+				request.getReason(), request.getDetails());
+	}
+
+	@Override
+	public void respondActivityTaskCanceled(final RespondActivityTaskCanceledRequest request) {
+		final String[] token = token(request.getTaskToken(), ACTIVITY_TOKEN);
+		run(token[1], request.getTaskToken()).activityCanceled(Long.parseLong(token[2]), request.getTaskToken(),
+				request.getDetails());
+	}
+
+	// TASKS, TOKENS AND PAGES
+
+	/**
+	 * Wait for a task until the deadline.
+	 *
+	 * @return the next task, or null after the deadline
+	 * @throws AbortedException
+	 *             if the polling thread is interrupted, as the SDK clients
+	 */
+	private static <T> T poll(final BlockingQueue<T> tasks, final long deadline) {
+		try {
+			return tasks.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new AbortedException("interrupted while polling", e);
+		}
+	}
+
+	private static String taskList(final TaskList taskList) {
+		if (taskList == null || taskList.getName() == null) {
+			throw validation("The task list should be specified");
+		}
+		return taskList.getName();
+	}
+
+	private EmulatedExecution run(final String runId, final String taskToken) {
+		final EmulatedExecution execution = this.runs.get(runId);
+		if (execution == null) {
+			throw unknownResource("Unknown task: " + taskToken);
+		}
+		return execution;
+	}
+
+	private static String[] token(final String token, final String kind) {
+		final String[] parts = token == null ? new String[0] : token.split(TOKEN_SEPARATOR);
+		if (parts.length != 3 || !parts[0].equals(kind)) {
+			throw validation("Invalid task token: " + token);
+		}
+		return parts;
+	}
+
+	static String decisionToken(final String runId, final long startedEventId) {
+		return DECISION_TOKEN + TOKEN_SEPARATOR + runId + TOKEN_SEPARATOR + startedEventId;
+	}
+
+	static String activityToken(final String runId, final long scheduledEventId) {
+		return ACTIVITY_TOKEN + TOKEN_SEPARATOR + runId + TOKEN_SEPARATOR + scheduledEventId;
+	}
+
+	/**
+	 * The page tokens of the histories identify the paginated history, i.e.
+	 * its most recent event, and the number of events already returned.
+	 */
+	static String pageToken(final String runId, final long lastEventId, final int offset) {
+		return runId + TOKEN_SEPARATOR + lastEventId + TOKEN_SEPARATOR + offset;
+	}
+
+	private EmulatedExecution.Page historyPage(final String pageToken, final int pageSize, final boolean reverse) {
+		final String[] parts = pageToken.split(TOKEN_SEPARATOR);
+		if (parts.length != 3) {
+			throw validation("Invalid page token: " + pageToken);
+		}
+		return run(parts[0], pageToken).page(Long.parseLong(parts[1]), Integer.parseInt(parts[2]), pageSize,
+				reverse);
+	}
+
+	private static int pageSize(final Integer maximumPageSize) {
+		return maximumPageSize == null || maximumPageSize <= 0 ? MAX_PAGE_SIZE
+				: Math.min(maximumPageSize, MAX_PAGE_SIZE);
+	}
+
+	private static final class Page<T> {
+		private final List<T> items;
+		private final String nextPageToken;
+
+		private Page(final List<T> items, final String nextPageToken) {
+			this.items = items;
+			this.nextPageToken = nextPageToken;
+		}
+	}
+
+	/**
+	 * Paginate a listing, the page token being the number of items already
+	 * returned.
+	 */
+	private static <T> Page<T> page(final List<T> items, final Integer maximumPageSize, final String nextPageToken,
+			final Boolean reverseOrder) {
+		final List<T> ordered = new ArrayList<>(items);
+		if (Boolean.TRUE.equals(reverseOrder)) {
+			java.util.Collections.reverse(ordered);
+		}
+		final int offset = nextPageToken == null ? 0 : Integer.parseInt(nextPageToken);
+		final int end = Math.min(ordered.size(), offset + pageSize(maximumPageSize));
+		return new Page<>(new ArrayList<>(ordered.subList(Math.min(offset, end), end)),
+				end < ordered.size() ? Integer.toString(end) : null);
+	}
+
+	// SCHEDULING
+
+	ScheduledFuture<?> schedule(final Runnable task, final long seconds) {
+		return scheduleNanos(task, TimeUnit.SECONDS.toNanos(seconds));
+	}
+
+	ScheduledFuture<?> scheduleNanos(final Runnable task, final long nanos) {
+		return this.scheduler.schedule(task, nanos, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Apply an effect of an execution on another one, after the previous ones.
+	 */
+	void later(final Runnable effect) {
+		this.scheduler.execute(effect);
+	}
+
+	static String newRunId() {
+		return UUID.randomUUID().toString();
+	}
+
+	// ERRORS
+
+	static UnknownResourceException unknownResource(final String message) {
+		return fault(new UnknownResourceException(message));
+	}
+
+	static AmazonServiceException validation(final String message) {
+		final AmazonServiceException e = fault(new AmazonServiceException(message));
+		e.setErrorCode("ValidationException");
+		return e;
+	}
+
+	/**
+	 * Fill the exception as the SDK clients do for the client errors.
+	 */
+	private static <E extends AmazonServiceException> E fault(final E e) {
+		e.setServiceName("AmazonSimpleWorkflow");
+		e.setStatusCode(400);
+		e.setErrorType(ErrorType.Client);
+		if (e.getErrorCode() == null) {
+			e.setErrorCode(e.getClass().getSimpleName().replace("Exception", "Fault"));
+		}
+		return e;
+	}
+}
@@ -0,0 +1,371 @@
+package com.solambda.swiffer.emulator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.amazonaws.services.simpleworkflow.model.ActivityTask;
+import com.amazonaws.services.simpleworkflow.model.ActivityType;
+import com.amazonaws.services.simpleworkflow.model.CloseStatus;
+import com.amazonaws.services.simpleworkflow.model.CountClosedWorkflowExecutionsRequest;
+import com.amazonaws.services.simpleworkflow.model.CountOpenWorkflowExecutionsRequest;
+import com.amazonaws.services.simpleworkflow.model.Decision;
+import com.amazonaws.services.simpleworkflow.model.DecisionTask;
+import com.amazonaws.services.simpleworkflow.model.DecisionType;
+import com.amazonaws.services.simpleworkflow.model.DescribeWorkflowExecutionRequest;
+import com.amazonaws.services.simpleworkflow.model.DomainAlreadyExistsException;
+import com.amazonaws.services.simpleworkflow.model.EventType;
+import com.amazonaws.services.simpleworkflow.model.ExecutionStatus;
+import com.amazonaws.services.simpleworkflow.model.ExecutionTimeFilter;
+import com.amazonaws.services.simpleworkflow.model.GetWorkflowExecutionHistoryRequest;
+import com.amazonaws.services.simpleworkflow.model.HistoryEvent;
+import com.amazonaws.services.simpleworkflow.model.ListOpenWorkflowExecutionsRequest;
+import com.amazonaws.services.simpleworkflow.model.PollForActivityTaskRequest;
+import com.amazonaws.services.simpleworkflow.model.PollForDecisionTaskRequest;
+import com.amazonaws.services.simpleworkflow.model.RecordMarkerDecisionAttributes;
+import com.amazonaws.services.simpleworkflow.model.RegisterActivityTypeRequest;
+import com.amazonaws.services.simpleworkflow.model.RegisterDomainRequest;
+import com.amazonaws.services.simpleworkflow.model.RegisterWorkflowTypeRequest;
+import com.amazonaws.services.simpleworkflow.model.RespondActivityTaskCompletedRequest;
+import com.amazonaws.services.simpleworkflow.model.RespondDecisionTaskCompletedRequest;
+import com.amazonaws.services.simpleworkflow.model.ScheduleActivityTaskDecisionAttributes;
+import com.amazonaws.services.simpleworkflow.model.SignalWorkflowExecutionRequest;
+import com.amazonaws.services.simpleworkflow.model.StartChildWorkflowExecutionDecisionAttributes;
+import com.amazonaws.services.simpleworkflow.model.StartTimerDecisionAttributes;
+import com.amazonaws.services.simpleworkflow.model.StartWorkflowExecutionRequest;
+import com.amazonaws.services.simpleworkflow.model.TaskList;
+import com.amazonaws.services.simpleworkflow.model.TerminateWorkflowExecutionRequest;
+import com.amazonaws.services.simpleworkflow.model.UnknownResourceException;
+import com.amazonaws.services.simpleworkflow.model.WorkflowExecution;
+import com.amazonaws.services.simpleworkflow.model.WorkflowExecutionAlreadyStartedException;
+import com.amazonaws.services.simpleworkflow.model.WorkflowExecutionInfo;
+import com.amazonaws.services.simpleworkflow.model.WorkflowType;
+import com.solambda.swiffer.api.Decider;
+import com.solambda.swiffer.api.Decisions;
+import com.solambda.swiffer.api.Executor;
+import com.solambda.swiffer.api.OnActivityCompleted;
+import com.solambda.swiffer.api.OnWorkflowStarted;
+import com.solambda.swiffer.api.Output;
+import com.solambda.swiffer.api.Swiffer;
+import com.solambda.swiffer.api.Worker;
+
+/**
+ * Test for {@link SwfEmulator}
+ */
+public class SwfEmulatorTest {
+
+	private static final String DOMAIN = "emulated";
+	private static final TaskList TASK_LIST = new TaskList().withName("tasks");
+	private static final WorkflowType WORKFLOW_TYPE = new WorkflowType().withName("workflow").withVersion("1");
+	private static final ActivityType ACTIVITY_TYPE = new ActivityType().withName("activity").withVersion("1");
+
+	private SwfEmulator swf;
+
+	@Before
+	public void setUp() {
+		this.swf = new SwfEmulator(Duration.ofMillis(200));
+		this.swf.registerDomain(new RegisterDomainRequest().withName(DOMAIN)
+				.withWorkflowExecutionRetentionPeriodInDays("1"));
+		this.swf.registerWorkflowType(new RegisterWorkflowTypeRequest().withDomain(DOMAIN)
+				.withName(WORKFLOW_TYPE.getName()).withVersion(WORKFLOW_TYPE.getVersion())
+				.withDefaultTaskList(TASK_LIST).withDefaultChildPolicy("TERMINATE")
+				.withDefaultExecutionStartToCloseTimeout("3600").withDefaultTaskStartToCloseTimeout("60"));
+		this.swf.registerActivityType(new RegisterActivityTypeRequest().withDomain(DOMAIN)
+				.withName(ACTIVITY_TYPE.getName()).withVersion(ACTIVITY_TYPE.getVersion())
+				.withDefaultTaskList(TASK_LIST).withDefaultTaskStartToCloseTimeout("60")
+				.withDefaultTaskScheduleToStartTimeout("NONE").withDefaultTaskScheduleToCloseTimeout("NONE")
+				.withDefaultTaskHeartbeatTimeout("NONE"));
+	}
+
+	@After
+	public void tearDown() {
+		this.swf.shutdown();
+	}
+
+	private WorkflowExecution start(final String workflowId) {
+		final String runId = this.swf.startWorkflowExecution(new StartWorkflowExecutionRequest().withDomain(DOMAIN)
+				.withWorkflowId(workflowId).withWorkflowType(WORKFLOW_TYPE).withInput("input")).getRunId();
+		return new WorkflowExecution().withWorkflowId(workflowId).withRunId(runId);
+	}
+
+	private DecisionTask pollDecision() {
+		return this.swf.pollForDecisionTask(new PollForDecisionTaskRequest().withDomain(DOMAIN)
+				.withTaskList(TASK_LIST).withIdentity("decider"));
+	}
+
+	private void decide(final DecisionTask task, final Decision... decisions) {
+		this.swf.respondDecisionTaskCompleted(new RespondDecisionTaskCompletedRequest()
+				.withTaskToken(task.getTaskToken()).withDecisions(decisions));
+	}
+
+	private List<HistoryEvent> history(final WorkflowExecution execution) {
+		return this.swf.getWorkflowExecutionHistory(new GetWorkflowExecutionHistoryRequest().withDomain(DOMAIN)
+				.withExecution(execution)).getEvents();
+	}
+
+	private static List<String> types(final List<HistoryEvent> events) {
+		return events.stream().map(HistoryEvent::getEventType).collect(Collectors.toList());
+	}
+
+	private static Decision complete() {
+		return new Decision().withDecisionType(DecisionType.CompleteWorkflowExecution);
+	}
+
+	@Test
+	public void registersTheDomainsAndTypes() {
+		final Throwable alreadyExists = catchThrowable(
+				() -> this.swf.registerDomain(new RegisterDomainRequest().withName(DOMAIN)));
+		final Throwable unknown = catchThrowable(() -> this.swf.startWorkflowExecution(
+				new StartWorkflowExecutionRequest().withDomain(DOMAIN).withWorkflowId("id")
+						.withWorkflowType(new WorkflowType().withName("unknown").withVersion("1"))));
+
+		assertThat(alreadyExists).isInstanceOf(DomainAlreadyExistsException.class);
+		assertThat(unknown).isInstanceOf(UnknownResourceException.class);
+		assertThat(((UnknownResourceException) unknown).getErrorCode()).isEqualTo("UnknownResourceFault");
+	}
+
+	@Test
+	public void recordsTheHistoryOfTheDecisionsAndActivities() {
+		final WorkflowExecution execution = start("workflow-1");
+
+		final DecisionTask first = pollDecision();
+		assertThat(first.getWorkflowExecution()).isEqualTo(execution);
+		assertThat(first.getStartedEventId()).isEqualTo(3);
+		assertThat(first.getPreviousStartedEventId()).isEqualTo(0);
+		decide(first, new Decision().withDecisionType(DecisionType.ScheduleActivityTask)
+				.withScheduleActivityTaskDecisionAttributes(new ScheduleActivityTaskDecisionAttributes()
+						.withActivityType(ACTIVITY_TYPE).withActivityId("a1").withInput("in")));
+
+		final ActivityTask activity = this.swf.pollForActivityTask(
+				new PollForActivityTaskRequest().withDomain(DOMAIN).withTaskList(TASK_LIST).withIdentity("worker"));
+		assertThat(activity.getActivityId()).isEqualTo("a1");
+		assertThat(activity.getInput()).isEqualTo("in");
+		this.swf.respondActivityTaskCompleted(
+				new RespondActivityTaskCompletedRequest().withTaskToken(activity.getTaskToken()).withResult("out"));
+
+		final DecisionTask second = pollDecision();
+		assertThat(second.getPreviousStartedEventId()).isEqualTo(3);
+		decide(second, complete());
+
+		final List<HistoryEvent> history = history(execution);
+		assertThat(types(history)).containsExactly(
+				EventType.WorkflowExecutionStarted.toString(),
+				EventType.DecisionTaskScheduled.toString(),
+				EventType.DecisionTaskStarted.toString(),
+				EventType.DecisionTaskCompleted.toString(),
+				EventType.ActivityTaskScheduled.toString(),
+				EventType.ActivityTaskStarted.toString(),
+				EventType.ActivityTaskCompleted.toString(),
+				EventType.DecisionTaskScheduled.toString(),
+				EventType.DecisionTaskStarted.toString(),
+				EventType.DecisionTaskCompleted.toString(),
+				EventType.WorkflowExecutionCompleted.toString());
+		for (int i = 0; i < history.size(); i++) {
+			assertThat(history.get(i).getEventId()).isEqualTo(i + 1L);
+		}
+		assertThat(history.get(6).getActivityTaskCompletedEventAttributes().getResult()).isEqualTo("out");
+		assertThat(history.get(6).getActivityTaskCompletedEventAttributes().getScheduledEventId()).isEqualTo(5);
+		assertThat(this.swf.describeWorkflowExecution(new DescribeWorkflowExecutionRequest().withDomain(DOMAIN)
+				.withExecution(execution)).getExecutionInfo().getCloseStatus())
+						.isEqualTo(CloseStatus.COMPLETED.toString());
+		assertThat(this.swf.completedDecisionTasks()).isEqualTo(2);
+		assertThat(this.swf.closedActivityTasks()).isEqualTo(1);
+	}
+
+	@Test
+	public void returnsAnEmptyTaskAfterThePollTimeout() {
+		final long start = System.nanoTime();
+
+		final DecisionTask task = pollDecision();
+
+		assertThat(task.getTaskToken()).isNull();
+		assertThat(System.nanoTime() - start).isGreaterThanOrEqualTo(Duration.ofMillis(190).toNanos());
+	}
+
+	@Test
+	public void paginatesTheHistoryOfTheDecisionTasks() {
+		start("workflow-1");
+
+		final DecisionTask first = this.swf.pollForDecisionTask(new PollForDecisionTaskRequest().withDomain(DOMAIN)
+				.withTaskList(TASK_LIST).withMaximumPageSize(2).withReverseOrder(true));
+		final DecisionTask next = this.swf.pollForDecisionTask(new PollForDecisionTaskRequest().withDomain(DOMAIN)
+				.withTaskList(TASK_LIST).withMaximumPageSize(2).withReverseOrder(true)
+				.withNextPageToken(first.getNextPageToken()));
+
+		assertThat(types(first.getEvents())).containsExactly(EventType.DecisionTaskStarted.toString(),
+				EventType.DecisionTaskScheduled.toString());
+		assertThat(types(next.getEvents())).containsExactly(EventType.WorkflowExecutionStarted.toString());
+		assertThat(next.getNextPageToken()).isNull();
+	}
+
+	@Test
+	public void firesTheTimersAndRecordsTheMarkers() {
+		final WorkflowExecution execution = start("workflow-1");
+
+		decide(pollDecision(),
+				new Decision().withDecisionType(DecisionType.RecordMarker)
+						.withRecordMarkerDecisionAttributes(new RecordMarkerDecisionAttributes()
+								.withMarkerName("marker").withDetails("details")),
+				new Decision().withDecisionType(DecisionType.StartTimer)
+						.withStartTimerDecisionAttributes(new StartTimerDecisionAttributes()
+								.withTimerId("timer").withStartToFireTimeout("0")));
+		final DecisionTask fired = pollDecision();
+
+		assertThat(types(history(execution))).contains(EventType.MarkerRecorded.toString(),
+				EventType.TimerStarted.toString(), EventType.TimerFired.toString());
+		assertThat(types(fired.getEvents())).endsWith(EventType.TimerFired.toString(),
+				EventType.DecisionTaskScheduled.toString(), EventType.DecisionTaskStarted.toString());
+	}
+
+	@Test
+	public void startsTheChildWorkflowsAndNotifiesTheirParent() {
+		final TaskList children = new TaskList().withName("children");
+		final WorkflowExecution parent = start("parent");
+		decide(pollDecision(), new Decision().withDecisionType(DecisionType.StartChildWorkflowExecution)
+				.withStartChildWorkflowExecutionDecisionAttributes(new StartChildWorkflowExecutionDecisionAttributes()
+						.withWorkflowType(WORKFLOW_TYPE).withWorkflowId("child").withTaskList(children)));
+		final DecisionTask started = pollDecision();
+		assertThat(types(started.getEvents())).contains(EventType.ChildWorkflowExecutionStarted.toString());
+		decide(started);
+
+		final DecisionTask child = this.swf.pollForDecisionTask(
+				new PollForDecisionTaskRequest().withDomain(DOMAIN).withTaskList(children));
+		assertThat(child.getWorkflowExecution().getWorkflowId()).isEqualTo("child");
+		assertThat(child.getEvents().get(0).getWorkflowExecutionStartedEventAttributes().getParentWorkflowExecution())
+				.isEqualTo(parent);
+		decide(child, complete());
+
+		final DecisionTask notified = pollDecision();
+		assertThat(notified.getWorkflowExecution()).isEqualTo(parent);
+		assertThat(types(notified.getEvents())).endsWith(EventType.ChildWorkflowExecutionCompleted.toString(),
+				EventType.DecisionTaskScheduled.toString(), EventType.DecisionTaskStarted.toString());
+	}
+
+	@Test
+	public void describesAndListsTheOpenExecutions() {
+		final WorkflowExecution execution = start("workflow-1");
+
+		final WorkflowExecutionInfo info = this.swf.describeWorkflowExecution(
+				new DescribeWorkflowExecutionRequest().withDomain(DOMAIN).withExecution(execution)).getExecutionInfo();
+		final List<WorkflowExecutionInfo> open = this.swf.listOpenWorkflowExecutions(
+				new ListOpenWorkflowExecutionsRequest().withDomain(DOMAIN)
+						.withStartTimeFilter(new ExecutionTimeFilter().withOldestDate(new Date(0))))
+				.getExecutionInfos();
+
+		assertThat(info.getExecutionStatus()).isEqualTo(ExecutionStatus.OPEN.toString());
+		assertThat(info.getCloseStatus()).isNull();
+		assertThat(open).extracting(WorkflowExecutionInfo::getExecution).containsExactly(execution);
+		assertThat(this.swf.countOpenWorkflowExecutions(new CountOpenWorkflowExecutionsRequest().withDomain(DOMAIN))
+				.getCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void signalsAndTerminatesTheExecutions() {
+		final WorkflowExecution execution = start("workflow-1");
+		final Throwable alreadyStarted = catchThrowable(() -> start("workflow-1"));
+
+		this.swf.signalWorkflowExecution(new SignalWorkflowExecutionRequest().withDomain(DOMAIN)
+				.withWorkflowId("workflow-1").withSignalName("signal").withInput("data"));
+		this.swf.terminateWorkflowExecution(new TerminateWorkflowExecutionRequest().withDomain(DOMAIN)
+				.withWorkflowId("workflow-1").withReason("reason"));
+		final Throwable closed = catchThrowable(
+				() -> this.swf.signalWorkflowExecution(new SignalWorkflowExecutionRequest().withDomain(DOMAIN)
+						.withWorkflowId("workflow-1").withSignalName("signal")));
+
+		assertThat(alreadyStarted).isInstanceOf(WorkflowExecutionAlreadyStartedException.class);
+		assertThat(closed).isInstanceOf(UnknownResourceException.class);
+		assertThat(types(history(execution))).containsExactly(
+				EventType.WorkflowExecutionStarted.toString(),
+				EventType.DecisionTaskScheduled.toString(),
+				EventType.WorkflowExecutionSignaled.toString(),
+				EventType.WorkflowExecutionTerminated.toString());
+		assertThat(pollDecision().getTaskToken()).isNull();
+		assertThat(this.swf.countClosedWorkflowExecutions(new CountClosedWorkflowExecutionsRequest()
+				.withDomain(DOMAIN)).getCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void failsTheCloseDecisionsIfNewEventsHaveBeenRecorded() {
+		final WorkflowExecution execution = start("workflow-1");
+		final DecisionTask task = pollDecision();
+		this.swf.signalWorkflowExecution(new SignalWorkflowExecutionRequest().withDomain(DOMAIN)
+				.withWorkflowId("workflow-1").withSignalName("signal"));
+
+		decide(task, complete());
+
+		assertThat(types(history(execution))).contains(EventType.CompleteWorkflowExecutionFailed.toString())
+				.doesNotContain(EventType.WorkflowExecutionCompleted.toString());
+		assertThat(pollDecision().getTaskToken()).isNotNull();
+	}
+
+	// SWIFFER ON THE EMULATOR
+
+	@Retention(RetentionPolicy.RUNTIME)
+	@com.solambda.swiffer.api.WorkflowType(name = "Emulated", version = "1", defaultTaskList = "emulated")
+	public @interface EmulatedWorkflow {
+	}
+
+	@com.solambda.swiffer.api.ActivityType(name = "Increment", version = "1", defaultTaskList = "emulated")
+	public @interface Increment {
+	}
+
+	@EmulatedWorkflow
+	public static class EmulatedTemplate {
+
+		@OnWorkflowStarted
+		public void onStart(final String input, final Decisions decideTo) {
+			decideTo.scheduleActivityTask(Increment.class, Integer.valueOf(input));
+		}
+
+		@OnActivityCompleted(Increment.class)
+		public void onIncremented(@Output final Integer output, final Decisions decideTo) {
+			decideTo.completeWorkflow(output);
+		}
+	}
+
+	public static class EmulatedExecutors {
+
+		@Executor(activity = Increment.class)
+		public Integer increment(final Integer input) {
+			return input + 1;
+		}
+	}
+
+	@Test
+	public void runsTheSwifferDecidersAndWorkers() throws InterruptedException {
+		final Swiffer swiffer = new Swiffer(this.swf, DOMAIN);
+		final Decider decider = swiffer.newDeciderBuilder().taskList("emulated")
+				.workflowTemplates(new EmulatedTemplate()).build();
+		final Worker worker = swiffer.newWorkerBuilder().taskList("emulated").executors(new EmulatedExecutors())
+				.build();
+		decider.start();
+		worker.start();
+		final String[] runIds = new String[20];
+		try {
+			for (int i = 0; i < 20; i++) {
+				runIds[i] = swiffer.startWorkflow(EmulatedWorkflow.class, "workflow-" + i, Integer.toString(i));
+			}
+			final long deadline = System.currentTimeMillis() + 10_000;
+			while (this.swf.closedExecutions() < 20 && System.currentTimeMillis() < deadline) {
+				Thread.sleep(10);
+			}
+		} finally {
+			decider.stop();
+			worker.stop();
+		}
+
+		assertThat(this.swf.closedExecutions()).isEqualTo(20);
+		final List<HistoryEvent> history = swiffer.getWorkflowExecutionHistory("workflow-3", runIds[3]);
+		assertThat(history.get(0).getWorkflowExecutionCompletedEventAttributes().getResult()).isEqualTo("4");
+	}
+}